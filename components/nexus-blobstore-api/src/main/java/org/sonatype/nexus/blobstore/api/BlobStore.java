@@ -18,6 +18,8 @@ import java.util.Map;
 import javax.annotation.Nullable;
 
 import org.sonatype.nexus.common.collect.AutoClosableIterable;
+import org.sonatype.nexus.common.hash.HashAlgorithm;
+import org.sonatype.nexus.common.hash.MultiHashingInputStream;
 import org.sonatype.sisu.goodies.lifecycle.Lifecycle;
 
 /**
@@ -59,6 +61,17 @@ public interface BlobStore
    */
   Blob create(InputStream blobData, Map<String, String> headers);
 
+  /**
+   * Creates a new blob from content which the caller is already hashing, so the blob store does not hash it again.
+   * The stream must be hashing with {@link HashAlgorithm#SHA1}, which the blob store records in the blob's
+   * {@link BlobMetrics}; once this method returns, the caller may obtain all hashes from the stream.
+   *
+   * @throws BlobStoreException       (or a subclass) if the input stream can't be read correctly
+   * @throws IllegalArgumentException if mandatory headers are missing, or the stream is not hashing with SHA1
+   * @see #create(InputStream, Map)
+   */
+  Blob create(MultiHashingInputStream blobData, Map<String, String> headers);
+
   /**
    * Returns the corresponding {@link Blob}, or {@code null} if the  blob does not exist or has been {@link #delete
    * deleted}.
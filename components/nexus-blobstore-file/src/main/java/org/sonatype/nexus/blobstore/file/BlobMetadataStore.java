@@ -12,6 +12,8 @@
  */
 package org.sonatype.nexus.blobstore.file;
 
+import java.util.List;
+
 import javax.annotation.Nullable;
 
 import org.sonatype.nexus.blobstore.api.BlobId;
@@ -43,6 +45,14 @@ public interface BlobMetadataStore
    */
   AutoClosableIterable<BlobId> findWithState(BlobState state);
 
+  /**
+   * Returns up to {@code limit} blob-ids in the given state, in blob-id order, starting after the given blob-id.
+   * Unlike {@link #findWithState(BlobState)} this holds no resources between calls, so large sets can be paged.
+   *
+   * @param after blob-id to continue from, or {@code null} to start at the beginning
+   */
+  List<BlobId> findWithState(BlobState state, @Nullable BlobId after, int limit);
+
   long getBlobCount();
 
   long getTotalSize();
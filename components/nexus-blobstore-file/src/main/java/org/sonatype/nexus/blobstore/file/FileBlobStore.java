@@ -15,12 +15,22 @@ package org.sonatype.nexus.blobstore.file;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.FileStore;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.locks.Lock;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
@@ -34,18 +44,33 @@ import org.sonatype.nexus.blobstore.api.BlobStoreConfiguration;
 import org.sonatype.nexus.blobstore.api.BlobStoreException;
 import org.sonatype.nexus.blobstore.api.BlobStoreListener;
 import org.sonatype.nexus.blobstore.api.BlobStoreMetrics;
+import org.sonatype.nexus.blobstore.api.FileChannelBlob;
 import org.sonatype.nexus.blobstore.file.FileOperations.StreamMetrics;
 import org.sonatype.nexus.common.collect.AutoClosableIterable;
+import org.sonatype.nexus.common.collect.NestedAttributesMap;
+import org.sonatype.nexus.common.hash.MultiHashingInputStream;
+import org.sonatype.nexus.common.io.ByteBufferInputStream;
 import org.sonatype.nexus.common.io.DirSupport;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.sisu.goodies.lifecycle.LifecycleSupport;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Stopwatch;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.Striped;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import org.joda.time.DateTime;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
+import static org.sonatype.nexus.common.hash.HashAlgorithm.SHA1;
 
 /**
  * A {@link BlobStore} that stores its content on the file system, and metadata in a {@link BlobMetadataStore}.
@@ -65,11 +90,72 @@ public class FileBlobStore
 
   private static final String PATH_KEY = "path";
 
+  private static final int COMPACT_CHUNK_SIZE = SystemPropertiesHelper.getInteger(
+      FileBlobStore.class.getName() + ".compact.chunkSize", 1000);
+
+  private static final int COMPACT_MAX_BLOBS_PER_SECOND = SystemPropertiesHelper.getInteger(
+      FileBlobStore.class.getName() + ".compact.maxBlobsPerSecond", 0);
+
+  private static final long COMPACT_MAX_BYTES_PER_SECOND = SystemPropertiesHelper.getLong(
+      FileBlobStore.class.getName() + ".compact.maxBytesPerSecond", 0);
+
+  private static final boolean COMPACT_METADATA = SystemPropertiesHelper.getBoolean(
+      FileBlobStore.class.getName() + ".compact.metadata", true);
+
+  /**
+   * Total bytes of small blob content to cache off-heap, or 0 to disable the cache.
+   */
+  private static final long CONTENT_CACHE_MAX_SIZE = SystemPropertiesHelper.getLong(
+      FileBlobStore.class.getName() + ".contentCache.maxSize", 0);
+
+  private static final long CONTENT_CACHE_MAX_BLOB_SIZE = SystemPropertiesHelper.getLong(
+      FileBlobStore.class.getName() + ".contentCache.maxBlobSize", 64 * 1024);
+
+  /**
+   * Configuration attribute selecting the {@link BlobMetadataStore} implementation.
+   */
+  public static final String METADATA_STORE_KEY = "metadataStore";
+
+  public static final String METADATA_STORE_MAPDB = "mapdb";
+
+  public static final String METADATA_STORE_SIDECAR = "sidecar";
+
+  /**
+   * Configuration attribute naming the {@link LocationStrategy} used to lay out content.
+   */
+  public static final String LOCATION_STRATEGY_KEY = "locationStrategy";
+
+  private static final int RELOCATE_CHUNK_SIZE = SystemPropertiesHelper.getInteger(
+      FileBlobStore.class.getName() + ".relocate.chunkSize", 1000);
+
+  /**
+   * Records the location strategy that the existing content is laid out with.
+   */
+  private static final String LAYOUT_FILE = "layout.properties";
+
   private Path root;
 
   private BlobMetadataStore metadataStore;
 
-  private final LocationStrategy locationStrategy;
+  private final Map<String, LocationStrategy> locationStrategies;
+
+  private LocationStrategy locationStrategy;
+
+  private String locationStrategyName;
+
+  /**
+   * The strategy existing content was laid out with while it is being relocated, otherwise {@code null}.
+   */
+  @Nullable
+  private volatile LocationStrategy previousLocationStrategy;
+
+  @Nullable
+  private Path layoutFile;
+
+  /**
+   * Serializes hard deletion and relocation of the same blob, so a relocated file is never left behind.
+   */
+  private final Striped<Lock> blobLocks = Striped.lock(64);
 
   private final FileOperations fileOperations;
 
@@ -77,11 +163,21 @@ public class FileBlobStore
 
   private BlobStoreConfiguration blobStoreConfiguration;
 
+  /**
+   * Content of small, recently read blobs held in direct buffers, or {@code null} if disabled.
+   */
+  @Nullable
+  private volatile Cache<BlobId, ByteBuffer> contentCache;
+
+  private long contentCacheMaxSize = CONTENT_CACHE_MAX_SIZE;
+
+  private long contentCacheMaxBlobSize = CONTENT_CACHE_MAX_BLOB_SIZE;
+
   @Inject
-  public FileBlobStore(final LocationStrategy locationStrategy,
+  public FileBlobStore(final Map<String, LocationStrategy> locationStrategies,
                        final FileOperations fileOperations)
   {
-    this.locationStrategy = checkNotNull(locationStrategy);
+    this.locationStrategies = checkNotNull(locationStrategies);
     this.fileOperations = checkNotNull(fileOperations);
   }
 
@@ -90,7 +186,8 @@ public class FileBlobStore
                        final FileOperations fileOperations, final BlobMetadataStore metadataStore,
                        final BlobStoreConfiguration configuration)
   {
-    this(locationStrategy, fileOperations);
+    this(ImmutableMap.<String, LocationStrategy>of(), fileOperations);
+    this.locationStrategy = checkNotNull(locationStrategy);
     this.root = checkNotNull(root);
     this.metadataStore = checkNotNull(metadataStore);
     this.blobStoreConfiguration = checkNotNull(configuration);
@@ -99,13 +196,53 @@ public class FileBlobStore
   @Override
   protected void doStart() throws Exception {
     metadataStore.start();
+
+    if (contentCacheMaxSize > 0) {
+      contentCache = CacheBuilder.newBuilder()
+          .maximumWeight(contentCacheMaxSize)
+          .weigher(new Weigher<BlobId, ByteBuffer>()
+          {
+            @Override
+            public int weigh(final BlobId key, final ByteBuffer value) {
+              return value.capacity();
+            }
+          })
+          .build();
+    }
   }
 
   @Override
   protected void doStop() throws Exception {
+    if (contentCache != null) {
+      contentCache.invalidateAll();
+      contentCache = null;
+    }
+
     metadataStore.stop();
   }
 
+  /**
+   * Overrides the content cache limits, taking effect on next start.
+   */
+  @VisibleForTesting
+  void setContentCacheLimits(final long maxSize, final long maxBlobSize) {
+    this.contentCacheMaxSize = maxSize;
+    this.contentCacheMaxBlobSize = maxBlobSize;
+  }
+
+  @VisibleForTesting
+  @Nullable
+  Cache<BlobId, ByteBuffer> getContentCache() {
+    return contentCache;
+  }
+
+  private void invalidateContent(final BlobId blobId) {
+    Cache<BlobId, ByteBuffer> cache = contentCache;
+    if (cache != null) {
+      cache.invalidate(blobId);
+    }
+  }
+
   @Override
   public void setBlobStoreListener(@Nullable final BlobStoreListener listener) {
     this.listener = listener;
@@ -121,13 +258,67 @@ public class FileBlobStore
    * Returns path for blob-id content file relative to root directory.
    */
   private Path pathFor(final BlobId id) {
-    String location = locationStrategy.location(id);
+    return pathFor(locationStrategy, id);
+  }
+
+  private Path pathFor(final LocationStrategy strategy, final BlobId id) {
+    String location = strategy.location(id);
     return root.resolve(location + BLOB_CONTENT_SUFFIX);
   }
 
+  /**
+   * Returns path for existing blob-id content, which may still be at its previous location during relocation.
+   */
+  private Path locate(final BlobId id) {
+    Path path = pathFor(id);
+    LocationStrategy previous = previousLocationStrategy;
+    if (previous != null && !fileOperations.exists(path)) {
+      Path previousPath = pathFor(previous, id);
+      if (fileOperations.exists(previousPath)) {
+        return previousPath;
+      }
+    }
+    return path;
+  }
+
   @Override
   public Blob create(final InputStream blobData, final Map<String, String> headers) {
     checkNotNull(blobData);
+
+    return create(headers, new BlobIngester()
+    {
+      @Override
+      public StreamMetrics ingest(final Path path) throws IOException {
+        return fileOperations.create(path, blobData);
+      }
+    });
+  }
+
+  @Override
+  public Blob create(final MultiHashingInputStream blobData, final Map<String, String> headers) {
+    checkNotNull(blobData);
+    checkArgument(blobData.algorithms().contains(SHA1), "Content is not hashed with: %s", SHA1.name());
+
+    return create(headers, new BlobIngester()
+    {
+      @Override
+      public StreamMetrics ingest(final Path path) throws IOException {
+        // reuse the caller's hashes rather than computing SHA1 a second time
+        fileOperations.write(path, blobData);
+        return new StreamMetrics(blobData.count(), blobData.hashes().get(SHA1).toString());
+      }
+    });
+  }
+
+  /**
+   * Writes blob content to its path, returning metrics about the content written.
+   */
+  private interface BlobIngester
+  {
+    StreamMetrics ingest(Path path) throws IOException;
+  }
+
+  private Blob create(final Map<String, String> headers, final BlobIngester ingester) {
     checkNotNull(headers);
 
     checkArgument(headers.containsKey(BLOB_NAME_HEADER), "Missing header: %s", BLOB_NAME_HEADER);
@@ -143,9 +334,9 @@ public class FileBlobStore
       final Path path = pathFor(blobId);
       log.debug("Writing blob {} to {}", blobId, path);
 
-      final StreamMetrics streamMetrics = fileOperations.create(path, blobData);
+      final StreamMetrics streamMetrics = ingester.ingest(path);
       final BlobMetrics metrics = new BlobMetrics(new DateTime(), streamMetrics.getSHA1(), streamMetrics.getSize());
-      final FileBlob blob = new FileBlob(blobId, headers, path, metrics);
+      final FileBlob blob = new FileBlob(blobId, headers, metrics);
 
       if (listener != null) {
         listener.blobCreated(blob, "Blob: " + blobId + " written to: " + path);
@@ -179,7 +370,7 @@ public class FileBlobStore
       return null;
     }
 
-    final FileBlob blob = new FileBlob(blobId, metadata.getHeaders(), pathFor(blobId), metadata.getMetrics());
+    final FileBlob blob = new FileBlob(blobId, metadata.getHeaders(), metadata.getMetrics());
 
     log.debug("Accessing blob {}", blobId);
     if (listener != null) {
@@ -205,6 +396,7 @@ public class FileBlobStore
     metadata.setBlobState(BlobState.MARKED_FOR_DELETION);
     // TODO: Handle concurrent modification of metadata
     metadataStore.update(blobId, metadata);
+    invalidateContent(blobId);
     return true;
   }
 
@@ -212,15 +404,33 @@ public class FileBlobStore
   public boolean deleteHard(final BlobId blobId) {
     checkNotNull(blobId);
 
+    Lock lock = blobLocks.get(blobId);
+    lock.lock();
+    try {
+      return doDeleteHard(blobId);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  private boolean doDeleteHard(final BlobId blobId) {
     BlobMetadata metadata = metadataStore.get(blobId);
     if (metadata == null) {
       log.debug("Attempt to deleteHard non-existent blob {}", blobId);
       return false;
     }
 
+    invalidateContent(blobId);
+
     try {
       final Path path = pathFor(blobId);
-      final boolean blobDeleted = fileOperations.delete(path);
+      boolean blobDeleted = fileOperations.delete(path);
+
+      LocationStrategy previous = previousLocationStrategy;
+      if (previous != null) {
+        blobDeleted |= fileOperations.delete(pathFor(previous, blobId));
+      }
 
       if (!blobDeleted) {
         log.error("Deleting blob {} : content file was missing", blobId);
@@ -268,26 +478,86 @@ public class FileBlobStore
     };
   }
 
+  /**
+   * Compacts by {@link #purgeDeletedBlobs() purging deleted blobs} and then, unless disabled, by
+   * {@link #compactMetadata() compacting the metadata store}.
+   */
   @Override
   public void compact() {
-    log.debug("Compacting");
+    purgeDeletedBlobs();
 
-    try {
-      int count = 0;
-      try (AutoClosableIterable<BlobId> iter = metadataStore.findWithState(BlobState.MARKED_FOR_DELETION)) {
-        for (BlobId blobId : iter) {
+    if (COMPACT_METADATA) {
+      compactMetadata();
+    }
+  }
+
+  /**
+   * Hard-deletes blobs marked for deletion, paging through them a chunk at a time and throttled to the configured
+   * blobs and bytes per second. Stops early if the calling thread is interrupted; purged blobs leave the
+   * marked-for-deletion set, so the next call resumes where this one stopped.
+   *
+   * @return the number of blobs purged
+   */
+  public long purgeDeletedBlobs() {
+    log.info("Purging deleted blobs from {}", root);
+
+    RateLimiter blobRate = COMPACT_MAX_BLOBS_PER_SECOND > 0 ? RateLimiter.create(COMPACT_MAX_BLOBS_PER_SECOND) : null;
+    RateLimiter byteRate = COMPACT_MAX_BYTES_PER_SECOND > 0 ? RateLimiter.create(COMPACT_MAX_BYTES_PER_SECOND) : null;
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    long purged = 0;
+    long purgedBytes = 0;
+
+    BlobId checkpoint = null;
+    List<BlobId> chunk;
+    while (!(chunk = metadataStore.findWithState(BlobState.MARKED_FOR_DELETION, checkpoint, COMPACT_CHUNK_SIZE))
+        .isEmpty()) {
+      for (BlobId blobId : chunk) {
+        if (Thread.currentThread().isInterrupted()) {
+          log.info("Purge interrupted after {} blobs ({} bytes) in {}, the next compaction resumes it",
+              purged, purgedBytes, stopwatch);
+          return purged;
+        }
+        checkpoint = blobId;
+
+        BlobMetadata metadata = metadataStore.get(blobId);
+        if (metadata == null || metadata.getBlobState() != BlobState.MARKED_FOR_DELETION) {
+          // purged or changed since the chunk was fetched
+          continue;
+        }
+        long size = metadata.getMetrics() == null ? 0 : metadata.getMetrics().getContentSize();
+
+        if (blobRate != null) {
+          blobRate.acquire();
+        }
+        if (byteRate != null && size > 0) {
+          byteRate.acquire(Ints.saturatedCast(size));
+        }
+
+        try {
           deleteHard(blobId);
-          count++;
+          purged++;
+          purgedBytes += size;
+        }
+        catch (BlobStoreException e) {
+          log.warn("Failed to purge blob {}", blobId, e);
         }
       }
 
-      metadataStore.compact();
-
-      log.debug("Deleted {} blobs", count);
-    }
-    catch (Exception e) {
-      throw Throwables.propagate(e);
+      log.info("Purged {} blobs ({} bytes) in {}", purged, purgedBytes, stopwatch);
     }
+
+    log.info("Finished purging {} blobs ({} bytes) in {}", purged, purgedBytes, stopwatch);
+    return purged;
+  }
+
+  /**
+   * Compacts the metadata store, reclaiming the space of purged blobs' metadata.
+   */
+  public void compactMetadata() {
+    log.info("Compacting metadata of {}", root);
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    metadataStore.compact();
+    log.info("Compacted metadata in {}", stopwatch);
   }
 
   @Override
@@ -298,13 +568,144 @@ public class FileBlobStore
   @Override
   public void init(final BlobStoreConfiguration configuration) throws IOException {
     this.blobStoreConfiguration = configuration;
-    Path blobDir = Paths.get(String.valueOf(configuration.attributes(CONFIG_KEY).require(PATH_KEY)));
+    NestedAttributesMap attributes = configuration.attributes(CONFIG_KEY);
+    Path blobDir = Paths.get(String.valueOf(attributes.require(PATH_KEY)));
     Path content = blobDir.resolve("content");
-    File metadataFile = blobDir.resolve("metadata").toFile();
+    boolean newStore = !Files.isDirectory(content);
     DirSupport.mkdir(content);
-    DirSupport.mkdir(metadataFile);
     this.root = content;
-    this.metadataStore = MapdbBlobMetadataStore.create(metadataFile);
+
+    String strategyName = attributes.get(LOCATION_STRATEGY_KEY, String.class, VolumeChapterLocationStrategy.NAME);
+    this.locationStrategyName = strategyName;
+    this.locationStrategy = locationStrategy(strategyName);
+    this.layoutFile = blobDir.resolve(LAYOUT_FILE);
+    String layoutName = readLayout();
+    if (layoutName == null) {
+      // stores predating layout tracking were laid out with the volume-chapter strategy
+      layoutName = newStore ? strategyName : VolumeChapterLocationStrategy.NAME;
+      writeLayout(layoutName);
+    }
+    if (!layoutName.equals(strategyName)) {
+      log.info("Content of {} is laid out with {}; serving it from both layouts until relocated to {}",
+          content, layoutName, strategyName);
+      this.previousLocationStrategy = locationStrategy(layoutName);
+    }
+
+    String metadataStoreType = attributes.get(METADATA_STORE_KEY, String.class, METADATA_STORE_MAPDB);
+    switch (metadataStoreType) {
+      case METADATA_STORE_MAPDB:
+        File metadataFile = blobDir.resolve("metadata").toFile();
+        DirSupport.mkdir(metadataFile);
+        this.metadataStore = MapdbBlobMetadataStore.create(metadataFile);
+        break;
+      case METADATA_STORE_SIDECAR:
+        // sidecars are stored alongside content, and are not relocated
+        checkArgument(previousLocationStrategy == null,
+            "Sidecar metadata does not support changing location strategy from: %s", layoutName);
+        this.metadataStore = new SidecarBlobMetadataStore(content, locationStrategy);
+        break;
+      default:
+        throw new IllegalArgumentException("Unknown metadata store: " + metadataStoreType);
+    }
+  }
+
+  private LocationStrategy locationStrategy(final String name) {
+    LocationStrategy strategy = locationStrategies.get(name);
+    checkArgument(strategy != null, "Unknown location strategy: %s", name);
+    return strategy;
+  }
+
+  @Nullable
+  private String readLayout() throws IOException {
+    if (layoutFile == null || !Files.exists(layoutFile)) {
+      return null;
+    }
+    Properties layout = new Properties();
+    try (InputStream in = Files.newInputStream(layoutFile)) {
+      layout.load(in);
+    }
+    return layout.getProperty(LOCATION_STRATEGY_KEY);
+  }
+
+  private void writeLayout(final String strategyName) throws IOException {
+    Properties layout = new Properties();
+    layout.setProperty(LOCATION_STRATEGY_KEY, strategyName);
+    Path temp = layoutFile.resolveSibling(LAYOUT_FILE + ".tmp");
+    try (OutputStream out = Files.newOutputStream(temp)) {
+      layout.store(out, null);
+    }
+    Files.move(temp, layoutFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  /**
+   * Returns {@code true} if content is still being relocated to the configured location strategy.
+   */
+  public boolean isRelocating() {
+    return previousLocationStrategy != null;
+  }
+
+  /**
+   * Moves content laid out with a previous location strategy to its location under the configured strategy, while
+   * the store remains in use. Stops early if the calling thread is interrupted; since moved blobs are skipped, the
+   * next call resumes where this one stopped. Once every blob has been moved the new layout is recorded.
+   *
+   * @return the number of blobs moved
+   */
+  public long relocate() throws IOException {
+    LocationStrategy previous = previousLocationStrategy;
+    if (previous == null || layoutFile == null) {
+      log.info("Content of {} needs no relocation", root);
+      return 0;
+    }
+
+    log.info("Relocating content of {}", root);
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    long relocated = 0;
+
+    for (BlobState state : BlobState.values()) {
+      BlobId checkpoint = null;
+      List<BlobId> chunk;
+      while (!(chunk = metadataStore.findWithState(state, checkpoint, RELOCATE_CHUNK_SIZE)).isEmpty()) {
+        for (BlobId blobId : chunk) {
+          if (Thread.currentThread().isInterrupted()) {
+            log.info("Relocation interrupted after {} blobs in {}, the next relocation resumes it", relocated,
+                stopwatch);
+            return relocated;
+          }
+          checkpoint = blobId;
+
+          if (relocate(previous, blobId)) {
+            relocated++;
+          }
+        }
+
+        log.info("Relocated {} blobs in {}", relocated, stopwatch);
+      }
+    }
+
+    writeLayout(locationStrategyName);
+    previousLocationStrategy = null;
+
+    log.info("Finished relocating {} blobs in {}", relocated, stopwatch);
+    return relocated;
+  }
+
+  /**
+   * Moves the content of a blob from its previous location, unless it was hard deleted meanwhile.
+   */
+  private boolean relocate(final LocationStrategy previous, final BlobId blobId) throws IOException {
+    Lock lock = blobLocks.get(blobId);
+    lock.lock();
+    try {
+      if (metadataStore.get(blobId) == null) {
+        // hard deleted since the chunk was fetched
+        return false;
+      }
+      return fileOperations.move(pathFor(previous, blobId), pathFor(blobId));
+    }
+    finally {
+      lock.unlock();
+    }
   }
 
   @Override
@@ -340,28 +741,68 @@ public class FileBlobStore
     return configuration;
   }
 
+  /**
+   * Opens the content file of a blob.
+   */
+  private interface ContentOpener<T>
+  {
+    T open(Path path) throws IOException;
+  }
+
+  private final ContentOpener<FileChannel> channelOpener = new ContentOpener<FileChannel>()
+  {
+    @Override
+    public FileChannel open(final Path path) throws IOException {
+      return fileOperations.openChannel(path);
+    }
+  };
+
   class FileBlob
-      implements Blob
+      implements FileChannelBlob
   {
     private final BlobId blobId;
 
     private final Map<String, String> headers;
 
-    private final Path contentPath;
-
     private final BlobMetrics metrics;
 
     FileBlob(final BlobId blobId,
              final Map<String, String> headers,
-             final Path contentPath,
              final BlobMetrics metrics)
     {
       this.blobId = checkNotNull(blobId);
       this.headers = checkNotNull(headers);
-      this.contentPath = checkNotNull(contentPath);
       this.metrics = checkNotNull(metrics);
     }
 
+    /**
+     * Resolved on each access, as the content may be relocated while this handle is held.
+     */
+    private Path contentPath() {
+      return locate(blobId);
+    }
+
+    /**
+     * Opens the content, resolving its location again if it was moved by a concurrent relocation after it was
+     * first resolved.
+     */
+    private <T> T openContent(final ContentOpener<T> opener) throws IOException {
+      Path contentPath = contentPath();
+      try {
+        checkExists(contentPath, blobId);
+        return opener.open(contentPath);
+      }
+      catch (BlobStoreException | NoSuchFileException e) {
+        Path relocatedPath = contentPath();
+        if (relocatedPath.equals(contentPath)) {
+          throw e;
+        }
+        log.debug("Blob {} was relocated from {} to {} while opening it", blobId, contentPath, relocatedPath);
+        checkExists(relocatedPath, blobId);
+        return opener.open(relocatedPath);
+      }
+    }
+
     @Override
     public BlobId getId() {
       return blobId;
@@ -375,8 +816,60 @@ public class FileBlobStore
     @Override
     public InputStream getInputStream() {
       try {
-        checkExists(contentPath, blobId);
-        return fileOperations.openInputStream(contentPath);
+        Cache<BlobId, ByteBuffer> cache = contentCache;
+        if (cache != null && metrics.getContentSize() <= contentCacheMaxBlobSize) {
+          return new ByteBufferInputStream(cachedContent(cache).duplicate());
+        }
+        return openContent(new ContentOpener<InputStream>()
+        {
+          @Override
+          public InputStream open(final Path path) throws IOException {
+            return fileOperations.openInputStream(path);
+          }
+        });
+      }
+      catch (IOException e) {
+        throw new BlobStoreException(e, blobId);
+      }
+    }
+
+    private ByteBuffer cachedContent(final Cache<BlobId, ByteBuffer> cache) throws IOException {
+      try {
+        return cache.get(blobId, new Callable<ByteBuffer>()
+        {
+          @Override
+          public ByteBuffer call() throws IOException {
+            return readContent();
+          }
+        });
+      }
+      catch (ExecutionException | UncheckedExecutionException e) {
+        Throwables.propagateIfPossible(e.getCause(), IOException.class);
+        throw Throwables.propagate(e.getCause());
+      }
+    }
+
+    /**
+     * Reads the whole content into a direct buffer.
+     */
+    private ByteBuffer readContent() throws IOException {
+      try (FileChannel channel = openContent(channelOpener)) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(Ints.checkedCast(channel.size()));
+        while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+          // keep reading
+        }
+        buffer.flip();
+        return buffer.asReadOnlyBuffer();
+      }
+      catch (NoSuchFileException e) {
+        throw new BlobStoreException("Blob has been deleted", blobId);
+      }
+    }
+
+    @Override
+    public FileChannel openChannel() {
+      try {
+        return openContent(channelOpener);
       }
       catch (IOException e) {
         throw new BlobStoreException(e, blobId);
@@ -14,6 +14,7 @@ package org.sonatype.nexus.blobstore.file;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Path;
 
 /**
@@ -51,10 +52,30 @@ public interface FileOperations
    */
   StreamMetrics create(Path path, InputStream data) throws IOException;
 
+  /**
+   * Creates a file (and its containing directories, if necessary) and populates it from the
+   * InputStream, which gets closed, without computing any metrics.
+   *
+   * @return The number of bytes written.
+   */
+  long write(Path path, InputStream data) throws IOException;
+
   boolean exists(Path path);
 
   InputStream openInputStream(Path path) throws IOException;
 
+  /**
+   * Opens a read-only channel to the file.
+   */
+  FileChannel openChannel(Path path) throws IOException;
+
+  /**
+   * Atomically moves a file, creating the target's directories if necessary.
+   *
+   * @return true if the file was moved, false if the source did not exist.
+   */
+  boolean move(Path source, Path target) throws IOException;
+
   /**
    * Returns true if the file existed before deletion, false otherwise.
    */
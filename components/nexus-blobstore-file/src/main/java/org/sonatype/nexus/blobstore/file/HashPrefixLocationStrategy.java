@@ -0,0 +1,72 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.file;
+
+import java.util.regex.Pattern;
+
+import javax.inject.Named;
+
+import org.sonatype.nexus.blobstore.api.BlobId;
+
+import com.google.common.hash.Hashing;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Stores blobs in a directory tree keyed by a prefix of the SHA-1 of the blob-id, each level having 256 directories
+ * named by two hex digits.
+ *
+ * The default two levels give 65536 directories, keeping directories small for stores of hundreds of millions of
+ * blobs. The layout is versioned by {@link #NAME}; any change to it must be registered under a new name.
+ *
+ * @since 3.0
+ */
+@Named(HashPrefixLocationStrategy.NAME)
+public class HashPrefixLocationStrategy
+    implements LocationStrategy
+{
+  public static final String NAME = "hash-prefix-v1";
+
+  private static final int DEFAULT_DEPTH = 2;
+
+  private static final Pattern UNSAFE_TOKENS = Pattern.compile("[.\\\\:/]");
+
+  private final int depth;
+
+  public HashPrefixLocationStrategy() {
+    this(DEFAULT_DEPTH);
+  }
+
+  public HashPrefixLocationStrategy(final int depth) {
+    checkArgument(depth > 0 && depth <= 4, "Depth must be between 1 and 4");
+    this.depth = depth;
+  }
+
+  @Override
+  public String location(final BlobId blobId) {
+    checkNotNull(blobId);
+
+    String hash = Hashing.sha1().hashString(blobId.asUniqueString(), UTF_8).toString();
+    StringBuilder location = new StringBuilder();
+    for (int level = 0; level < depth; level++) {
+      location.append(hash, level * 2, level * 2 + 2).append('/');
+    }
+    return location.append(escapeFilename(blobId.asUniqueString())).toString();
+  }
+
+  private String escapeFilename(final String value) {
+    return UNSAFE_TOKENS.matcher(value).replaceAll("-");
+  }
+}
@@ -21,9 +21,15 @@ import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NavigableSet;
 import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.Nullable;
 
@@ -31,19 +37,26 @@ import org.sonatype.nexus.blobstore.api.BlobId;
 import org.sonatype.nexus.blobstore.api.BlobMetrics;
 import org.sonatype.nexus.common.collect.AutoClosableIterable;
 import org.sonatype.nexus.common.io.DirSupport;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.sisu.goodies.lifecycle.LifecycleSupport;
 
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import org.joda.time.DateTime;
 import org.mapdb.Atomic;
 import org.mapdb.DB;
 import org.mapdb.DBMaker;
-import org.mapdb.Fun;
 import org.mapdb.HTreeMap;
 import org.mapdb.TxBlock;
 import org.mapdb.TxMaker;
 import org.mapdb.TxRollbackException;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static org.sonatype.nexus.blobstore.file.internal.ExternalizationHelper.readNullableLong;
@@ -54,16 +67,31 @@ import static org.sonatype.nexus.blobstore.file.internal.ExternalizationHelper.w
 /**
  * MapDB implementation of {@link BlobMetadataStore}.
  *
+ * Mutations are group-committed: concurrent {@link #add}, {@link #update} and {@link #delete} calls are queued, and
+ * whichever caller acquires the commit lock applies every queued mutation in a single transaction. Callers return only
+ * once the transaction containing their mutation has committed.
+ *
  * @since 3.0
  */
 public class MapdbBlobMetadataStore
     extends LifecycleSupport
     implements BlobMetadataStore
 {
+  private static final int MAX_BATCH_SIZE = SystemPropertiesHelper.getInteger(
+      MapdbBlobMetadataStore.class.getName() + ".maxBatchSize", 1000);
+
   private final File file;
 
+  private final Queue<Write<?>> pendingWrites = new ConcurrentLinkedQueue<>();
+
+  private final Lock commitLock = new ReentrantLock();
+
   private TxMaker database;
 
+  private Histogram batchSize;
+
+  private Timer commitLatency;
+
   private MapdbBlobMetadataStore(final File directory) {
     checkNotNull(directory);
     this.file = new File(directory, directory.getName() + ".db");
@@ -95,14 +123,26 @@ public class MapdbBlobMetadataStore
     this.database = DBMaker.newFileDB(file)
         .checksumEnable()
         .makeTxMaker();
+
+    MetricRegistry metrics = SharedMetricRegistries.getOrCreate("nexus");
+    batchSize = metrics.histogram(metricName("batchSize"));
+    commitLatency = metrics.timer(metricName("commitLatency"));
   }
 
   @Override
   protected void doStop() throws Exception {
+    MetricRegistry metrics = SharedMetricRegistries.getOrCreate("nexus");
+    metrics.remove(metricName("batchSize"));
+    metrics.remove(metricName("commitLatency"));
+
     database.close();
     database = null;
   }
 
+  private String metricName(final String name) {
+    return MetricRegistry.name(MapdbBlobMetadataStore.class, file.getAbsolutePath(), name);
+  }
+
   private Atomic.Long idSequence(final DB db) {
     return db.getAtomicLong("id_sequence");
   }
@@ -281,15 +321,15 @@ public class MapdbBlobMetadataStore
 
     final MetadataRecord record = convert(metadata);
 
-    return database.execute(new Fun.Function1<BlobId, DB>()
+    return write(new Write<BlobId>()
     {
       @Override
-      public BlobId run(final DB db) {
+      BlobId apply(final DB db) {
         BlobId id = newId(db);
         log.trace("Add: {}={}", id, record);
 
-        MetadataRecord prev = entries(db).put(id, record);
-        checkState(prev == null, "Duplicate blob-id: %s", id);
+        checkState(!entries(db).containsKey(id), "Duplicate blob-id: %s", id);
+        entries(db).put(id, record);
 
         // track state
         states(db, record.state).add(id);
@@ -329,16 +369,18 @@ public class MapdbBlobMetadataStore
     final MetadataRecord record = convert(metadata);
     log.trace("Update: {}={}", id, record);
 
-    database.execute(new TxBlock()
+    write(new Write<Void>()
     {
       @Override
-      public void tx(final DB db) throws TxRollbackException {
-        MetadataRecord prev = entries(db).put(id, record);
+      Void apply(final DB db) {
+        MetadataRecord prev = entries(db).get(id);
         checkState(prev != null, "Can not update non-existent blob-id: %s", id);
+        entries(db).put(id, record);
 
         // replace state
         states(db, prev.state).remove(id);
         states(db, record.state).add(id);
+        return null;
       }
     });
   }
@@ -350,19 +392,125 @@ public class MapdbBlobMetadataStore
 
     log.trace("Delete: {}", id);
 
-    database.execute(new TxBlock()
+    write(new Write<Void>()
     {
       @Override
-      public void tx(final DB db) throws TxRollbackException {
+      Void apply(final DB db) {
         MetadataRecord prev = entries(db).remove(id);
         checkState(prev != null, "Can not delete non-existent blob-id: %s", id);
 
         // remove state
         states(db, prev.state).remove(id);
+        return null;
       }
     });
   }
 
+  /**
+   * A queued mutation, and its outcome once the batch containing it has committed.
+   */
+  private abstract static class Write<T>
+  {
+    private final CountDownLatch committed = new CountDownLatch(1);
+
+    private T result;
+
+    private RuntimeException failure;
+
+    /**
+     * Applies this mutation to the batch transaction. Must check its preconditions before modifying anything, so a
+     * failed mutation leaves the rest of the batch unaffected.
+     */
+    abstract T apply(DB db);
+
+    boolean isDone() {
+      return committed.getCount() == 0;
+    }
+
+    void complete() {
+      committed.countDown();
+    }
+  }
+
+  /**
+   * Queues the given mutation and returns its result once it has been durably committed, committing the pending batch
+   * if no other caller is already doing so.
+   */
+  private <T> T write(final Write<T> write) {
+    pendingWrites.add(write);
+
+    while (!write.isDone()) {
+      commitLock.lock();
+      try {
+        if (!write.isDone()) {
+          commitBatch();
+        }
+      }
+      finally {
+        commitLock.unlock();
+      }
+    }
+
+    if (write.failure != null) {
+      throw write.failure;
+    }
+    return write.result;
+  }
+
+  /**
+   * Applies up to {@link #MAX_BATCH_SIZE} queued mutations in a single transaction. Must hold the commit lock.
+   */
+  private void commitBatch() {
+    final List<Write<?>> batch = Lists.newArrayList();
+    Write<?> next;
+    while (batch.size() < MAX_BATCH_SIZE && (next = pendingWrites.poll()) != null) {
+      batch.add(next);
+    }
+    if (batch.isEmpty()) {
+      return;
+    }
+
+    log.trace("Committing batch of {} writes", batch.size());
+    batchSize.update(batch.size());
+    try (Timer.Context ignored = commitLatency.time()) {
+      database.execute(new TxBlock()
+      {
+        @Override
+        public void tx(final DB db) throws TxRollbackException {
+          for (Write<?> write : batch) {
+            applyTo(write, db);
+          }
+        }
+      });
+    }
+    catch (RuntimeException e) {
+      // the whole batch failed to commit, so none of its mutations are durable
+      for (Write<?> write : batch) {
+        write.result = null;
+        write.failure = e;
+      }
+    }
+    finally {
+      for (Write<?> write : batch) {
+        write.complete();
+      }
+    }
+  }
+
+  /**
+   * Applies a single mutation, recording its result or failure; may be re-applied if the transaction is retried.
+   */
+  private static <T> void applyTo(final Write<T> write, final DB db) {
+    try {
+      write.result = write.apply(db);
+      write.failure = null;
+    }
+    catch (RuntimeException e) {
+      write.result = null;
+      write.failure = e;
+    }
+  }
+
   @Override
   public AutoClosableIterable<BlobId> findWithState(final BlobState state) {
     checkNotNull(state);
@@ -402,6 +550,27 @@ public class MapdbBlobMetadataStore
     };
   }
 
+  @Override
+  public List<BlobId> findWithState(final BlobState state, @Nullable final BlobId after, final int limit) {
+    checkNotNull(state);
+    checkArgument(limit > 0, "Limit must be positive");
+    ensureStarted();
+
+    log.trace("Find with state: {} after: {} limit: {}", state, after, limit);
+
+    DB db = database.makeTx();
+    try {
+      NavigableSet<BlobId> ids = states(db, state);
+      if (after != null) {
+        ids = ids.tailSet(after, false);
+      }
+      return Lists.newArrayList(Iterables.limit(ids, limit));
+    }
+    finally {
+      db.close();
+    }
+  }
+
   private File[] listFiles() {
     File[] files = file.getParentFile().listFiles();
     if (files == null) {
@@ -0,0 +1,396 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.file;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.blobstore.api.BlobId;
+import org.sonatype.nexus.blobstore.api.BlobMetrics;
+import org.sonatype.nexus.blobstore.api.BlobStoreException;
+import org.sonatype.nexus.common.collect.AutoClosableIterable;
+import org.sonatype.nexus.common.io.DirSupport;
+import org.sonatype.sisu.goodies.lifecycle.LifecycleSupport;
+
+import com.google.common.base.Function;
+import com.google.common.base.Predicate;
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Striped;
+import org.joda.time.DateTime;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * {@link BlobMetadataStore} that keeps the metadata of each blob in a small properties file stored alongside the blob
+ * content, at the location given by the {@link LocationStrategy}.
+ *
+ * Each sidecar is replaced atomically, so metadata writes only contend on the individual blob rather than on a single
+ * database. Blob states are indexed in memory; the index is rebuilt by scanning the sidecars when the store starts.
+ *
+ * @since 3.0
+ */
+public class SidecarBlobMetadataStore
+    extends LifecycleSupport
+    implements BlobMetadataStore
+{
+  public static final String SIDECAR_SUFFIX = ".properties";
+
+  private static final String TEMP_SUFFIX = ".tmp";
+
+  private static final String ID_KEY = "@id";
+
+  private static final String STATE_KEY = "@state";
+
+  private static final String CREATED_KEY = "@created";
+
+  private static final String SHA1_KEY = "@sha1";
+
+  private static final String SIZE_KEY = "@size";
+
+  private static final String HEADER_PREFIX = "header.";
+
+  private final Path root;
+
+  private final LocationStrategy locationStrategy;
+
+  private final ConcurrentNavigableMap<BlobId, BlobState> states = new ConcurrentSkipListMap<>();
+
+  private final Striped<Lock> locks = Striped.lock(64);
+
+  private final AtomicLong totalSize = new AtomicLong();
+
+  public SidecarBlobMetadataStore(final Path root, final LocationStrategy locationStrategy) {
+    this.root = checkNotNull(root);
+    this.locationStrategy = checkNotNull(locationStrategy);
+  }
+
+  @Override
+  protected void doStart() throws Exception {
+    DirSupport.mkdir(root);
+    states.clear();
+    totalSize.set(0);
+
+    DirSupport.applyToFiles(root, new Function<Path, FileVisitResult>()
+    {
+      @Override
+      public FileVisitResult apply(final Path path) {
+        String name = path.getFileName().toString();
+        try {
+          if (name.endsWith(SIDECAR_SUFFIX + TEMP_SUFFIX)) {
+            // left behind by an interrupted write, the previous sidecar (if any) is still intact
+            Files.deleteIfExists(path);
+          }
+          else if (name.endsWith(SIDECAR_SUFFIX)) {
+            Properties properties = load(path);
+            BlobId id = new BlobId(properties.getProperty(ID_KEY));
+            states.put(id, BlobState.valueOf(properties.getProperty(STATE_KEY)));
+            totalSize.addAndGet(Files.size(path));
+          }
+        }
+        catch (IOException | RuntimeException e) {
+          log.warn("Ignoring unreadable blob metadata: {}", path, e);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+
+    log.debug("Indexed {} blobs under {}", states.size(), root);
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    states.clear();
+  }
+
+  /**
+   * Returns the sidecar path for the given blob-id.
+   */
+  private Path pathFor(final BlobId id) {
+    return root.resolve(locationStrategy.location(id) + SIDECAR_SUFFIX);
+  }
+
+  /**
+   * Generate a new blob identifier.
+   */
+  private BlobId newId() {
+    return new BlobId(UUID.randomUUID().toString());
+  }
+
+  @Override
+  public BlobId add(final BlobMetadata metadata) {
+    checkNotNull(metadata);
+    ensureStarted();
+
+    BlobId id = newId();
+    log.trace("Add: {}={}", id, metadata);
+
+    Lock lock = locks.get(id);
+    lock.lock();
+    try {
+      checkState(!states.containsKey(id), "Duplicate blob-id: %s", id);
+      store(id, metadata);
+      states.put(id, metadata.getBlobState());
+    }
+    finally {
+      lock.unlock();
+    }
+    return id;
+  }
+
+  @Nullable
+  @Override
+  public BlobMetadata get(final BlobId id) {
+    checkNotNull(id);
+    ensureStarted();
+
+    log.trace("Get: {}", id);
+
+    if (!states.containsKey(id)) {
+      return null;
+    }
+    try {
+      return convert(load(pathFor(id)));
+    }
+    catch (NoSuchFileException e) {
+      // deleted concurrently
+      return null;
+    }
+    catch (IOException e) {
+      throw new BlobStoreException(e, id);
+    }
+  }
+
+  @Override
+  public void update(final BlobId id, final BlobMetadata metadata) {
+    checkNotNull(id);
+    checkNotNull(metadata);
+    ensureStarted();
+
+    log.trace("Update: {}={}", id, metadata);
+
+    Lock lock = locks.get(id);
+    lock.lock();
+    try {
+      checkState(states.containsKey(id), "Can not update non-existent blob-id: %s", id);
+      store(id, metadata);
+      states.put(id, metadata.getBlobState());
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void delete(final BlobId id) {
+    checkNotNull(id);
+    ensureStarted();
+
+    log.trace("Delete: {}", id);
+
+    Lock lock = locks.get(id);
+    lock.lock();
+    try {
+      checkState(states.containsKey(id), "Can not delete non-existent blob-id: %s", id);
+      Path path = pathFor(id);
+      long size = Files.size(path);
+      Files.delete(path);
+      states.remove(id);
+      totalSize.addAndGet(-size);
+    }
+    catch (IOException e) {
+      throw new BlobStoreException(e, id);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public AutoClosableIterable<BlobId> findWithState(final BlobState state) {
+    checkNotNull(state);
+    ensureStarted();
+
+    log.trace("Find with state: {}", state);
+
+    return new AutoClosableIterable<BlobId>()
+    {
+      @Override
+      public Iterator<BlobId> iterator() {
+        // weakly consistent view of the index
+        Iterator<Entry<BlobId, BlobState>> entries = Iterators.filter(states.entrySet().iterator(),
+            new Predicate<Entry<BlobId, BlobState>>()
+            {
+              @Override
+              public boolean apply(final Entry<BlobId, BlobState> entry) {
+                return entry.getValue() == state;
+              }
+            });
+        return Iterators.transform(entries, new Function<Entry<BlobId, BlobState>, BlobId>()
+        {
+          @Override
+          public BlobId apply(final Entry<BlobId, BlobState> entry) {
+            return entry.getKey();
+          }
+        });
+      }
+
+      @Override
+      public void close() {
+        // nothing to release
+      }
+    };
+  }
+
+  @Override
+  public List<BlobId> findWithState(final BlobState state, @Nullable final BlobId after, final int limit) {
+    checkNotNull(state);
+    checkArgument(limit > 0, "Limit must be positive");
+    ensureStarted();
+
+    log.trace("Find with state: {} after: {} limit: {}", state, after, limit);
+
+    List<BlobId> ids = Lists.newArrayList();
+    for (Entry<BlobId, BlobState> entry : (after == null ? states : states.tailMap(after, false)).entrySet()) {
+      if (entry.getValue() == state) {
+        ids.add(entry.getKey());
+        if (ids.size() == limit) {
+          break;
+        }
+      }
+    }
+    return ids;
+  }
+
+  @Override
+  public long getBlobCount() {
+    ensureStarted();
+    return states.size();
+  }
+
+  @Override
+  public long getTotalSize() {
+    ensureStarted();
+    return totalSize.get();
+  }
+
+  @Override
+  public void compact() {
+    ensureStarted();
+    // sidecars are replaced in place and removed on delete, so there is nothing to reclaim
+  }
+
+  /**
+   * Atomically replaces the sidecar for the given blob-id. Caller must hold the blob-id lock.
+   */
+  private void store(final BlobId id, final BlobMetadata metadata) {
+    Path path = pathFor(id);
+    Path temp = path.resolveSibling(path.getFileName() + TEMP_SUFFIX);
+    try {
+      ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+      convert(id, metadata).store(buffer, null);
+      byte[] bytes = buffer.toByteArray();
+
+      DirSupport.mkdir(path.getParent());
+      try (FileChannel channel = FileChannel.open(temp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        while (buf.hasRemaining()) {
+          channel.write(buf);
+        }
+        channel.force(true);
+      }
+
+      long previousSize = Files.exists(path) ? Files.size(path) : 0;
+      Files.move(temp, path, ATOMIC_MOVE, REPLACE_EXISTING);
+      totalSize.addAndGet(bytes.length - previousSize);
+    }
+    catch (IOException e) {
+      throw new BlobStoreException(e, id);
+    }
+  }
+
+  private Properties load(final Path path) throws IOException {
+    Properties properties = new Properties();
+    try (InputStream in = Files.newInputStream(path)) {
+      properties.load(in);
+    }
+    return properties;
+  }
+
+  private Properties convert(final BlobId id, final BlobMetadata source) {
+    Properties target = new Properties();
+    target.setProperty(ID_KEY, id.asUniqueString());
+    target.setProperty(STATE_KEY, source.getBlobState().name());
+    for (Entry<String, String> header : source.getHeaders().entrySet()) {
+      target.setProperty(HEADER_PREFIX + header.getKey(), header.getValue());
+    }
+    BlobMetrics metrics = source.getMetrics();
+    if (metrics != null) {
+      if (metrics.getCreationTime() != null) {
+        target.setProperty(CREATED_KEY, String.valueOf(metrics.getCreationTime().getMillis()));
+      }
+      if (metrics.getSHA1Hash() != null) {
+        target.setProperty(SHA1_KEY, metrics.getSHA1Hash());
+      }
+      target.setProperty(SIZE_KEY, String.valueOf(metrics.getContentSize()));
+    }
+    return target;
+  }
+
+  private BlobMetadata convert(final Properties source) {
+    Map<String, String> headers = Maps.newHashMap();
+    for (String name : source.stringPropertyNames()) {
+      if (name.startsWith(HEADER_PREFIX)) {
+        headers.put(name.substring(HEADER_PREFIX.length()), source.getProperty(name));
+      }
+    }
+    BlobMetadata target = new BlobMetadata(BlobState.valueOf(source.getProperty(STATE_KEY)), headers);
+    String size = source.getProperty(SIZE_KEY);
+    if (size != null) {
+      String created = source.getProperty(CREATED_KEY);
+      target.setMetrics(new BlobMetrics(
+          created == null ? null : new DateTime(Long.parseLong(created)),
+          source.getProperty(SHA1_KEY),
+          Long.parseLong(size)
+      ));
+    }
+    return target;
+  }
+}
@@ -15,8 +15,11 @@ package org.sonatype.nexus.blobstore.file;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
 
 import javax.inject.Named;
@@ -43,6 +46,15 @@ public class SimpleFileOperations
 {
   @Override
   public StreamMetrics create(final Path path, final InputStream data) throws IOException {
+    checkNotNull(data);
+
+    final MetricsInputStream input = new MetricsInputStream(data);
+    write(path, input);
+    return input.getMetrics();
+  }
+
+  @Override
+  public long write(final Path path, final InputStream data) throws IOException {
     checkNotNull(path);
     checkNotNull(data);
 
@@ -51,18 +63,15 @@ public class SimpleFileOperations
     checkNotNull(dir, "Null parent for path: %s", path);
     DirSupport.mkdir(dir);
 
-    final MetricsInputStream input = new MetricsInputStream(data);
     try {
       try (final OutputStream output = Files.newOutputStream(path, StandardOpenOption.CREATE_NEW)) {
-        ByteStreams.copy(input, output);
+        return ByteStreams.copy(data, output);
       }
     }
     finally {
       // FIXME: Revisit closing stream which is passed in as parameter, this should be the responsibility of the caller
       data.close();
     }
-
-    return input.getMetrics();
   }
 
   @Override
@@ -77,6 +86,30 @@ public class SimpleFileOperations
     return Files.newInputStream(path, StandardOpenOption.READ);
   }
 
+  @Override
+  public FileChannel openChannel(final Path path) throws IOException {
+    checkNotNull(path);
+    return FileChannel.open(path, StandardOpenOption.READ);
+  }
+
+  @Override
+  public boolean move(final Path source, final Path target) throws IOException {
+    checkNotNull(source);
+    checkNotNull(target);
+    if (!Files.exists(source)) {
+      return false;
+    }
+    DirSupport.mkdir(target.getParent());
+    try {
+      Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+      return true;
+    }
+    catch (NoSuchFileException e) {
+      // removed concurrently
+      return false;
+    }
+  }
+
   @Override
   public boolean delete(final Path path) throws IOException {
     checkNotNull(path);
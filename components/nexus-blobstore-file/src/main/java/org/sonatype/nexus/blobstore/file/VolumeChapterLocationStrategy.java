@@ -28,10 +28,12 @@ import static com.google.common.base.Preconditions.checkNotNull;
  *
  * @since 3.0
  */
-@Named
+@Named(VolumeChapterLocationStrategy.NAME)
 public class VolumeChapterLocationStrategy
     implements LocationStrategy
 {
+  public static final String NAME = "volume-chapter";
+
   private static final int TIER_1_MODULO = 43;
 
   private static final int TIER_2_MODULO = 47;
@@ -0,0 +1,142 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Path;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+
+import org.sonatype.nexus.blobstore.api.Blob;
+import org.sonatype.nexus.blobstore.api.BlobStoreConfiguration;
+import org.sonatype.nexus.common.hash.HashAlgorithm;
+import org.sonatype.nexus.common.hash.MultiHashingInputStream;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+import static org.sonatype.nexus.blobstore.api.BlobStore.BLOB_NAME_HEADER;
+import static org.sonatype.nexus.blobstore.api.BlobStore.CREATED_BY_HEADER;
+
+/**
+ * Trials of {@link FileBlobStore} ingest throughput, comparing content hashed by both the caller and the blob store
+ * against content hashed once by the caller.
+ */
+public class FileBlobStoreIngestTrial
+    extends TestSupport
+{
+  private static final int KB = 1024;
+
+  private static final int MB = 1024 * KB;
+
+  private static final List<HashAlgorithm> ALGORITHMS = ImmutableList.of(HashAlgorithm.SHA1, HashAlgorithm.MD5);
+
+  private static final ImmutableMap<String, String> HEADERS = ImmutableMap.of(
+      CREATED_BY_HEADER, "trial",
+      BLOB_NAME_HEADER, "trial/randomData.bin"
+  );
+
+  private final byte[] chunk = new byte[MB];
+
+  private FileBlobStore underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    new Random().nextBytes(chunk);
+
+    Path root = util.createTempDir().toPath();
+    underTest = new FileBlobStore(root.resolve("content"), new VolumeChapterLocationStrategy(),
+        new SimpleFileOperations(), MapdbBlobMetadataStore.create(root.resolve("metadata").toFile()),
+        new BlobStoreConfiguration());
+    underTest.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    underTest.stop();
+  }
+
+  @Test
+  public void ingest1KB() throws Exception {
+    trial(KB, 10_000);
+  }
+
+  @Test
+  public void ingest1MB() throws Exception {
+    trial(MB, 200);
+  }
+
+  @Test
+  public void ingest500MB() throws Exception {
+    trial(500 * MB, 3);
+  }
+
+  private void trial(final long size, final int iterations) throws Exception {
+    // warm up both paths before measuring
+    run(size, Math.max(1, iterations / 10), false);
+    run(size, Math.max(1, iterations / 10), true);
+
+    double before = run(size, iterations, false);
+    double after = run(size, iterations, true);
+    log("{} bytes x {}: hashed twice {} MB/s, hashed once {} MB/s", size, iterations,
+        String.format("%.1f", before), String.format("%.1f", after));
+  }
+
+  /**
+   * Ingests the given number of blobs, returning throughput in MB/s.
+   */
+  private double run(final long size, final int iterations, final boolean hashOnce) throws Exception {
+    Stopwatch stopwatch = Stopwatch.createStarted();
+    for (int i = 0; i < iterations; i++) {
+      MultiHashingInputStream content = new MultiHashingInputStream(ALGORITHMS, content(size));
+      Blob blob = hashOnce ? underTest.create(content, HEADERS) : underTest.create((InputStream) content, HEADERS);
+      content.hashes();
+      underTest.deleteHard(blob.getId());
+    }
+    double seconds = stopwatch.elapsed(NANOSECONDS) / 1e9;
+    return (size * iterations) / (double) MB / seconds;
+  }
+
+  /**
+   * Returns a stream of the given size which repeats the random chunk, so large payloads need not fit in memory.
+   */
+  private InputStream content(final long size) {
+    final int count = (int) (size / chunk.length) + 1;
+    Enumeration<InputStream> chunks = new Enumeration<InputStream>()
+    {
+      private int remaining = count;
+
+      @Override
+      public boolean hasMoreElements() {
+        return remaining > 0;
+      }
+
+      @Override
+      public InputStream nextElement() {
+        remaining--;
+        return new ByteArrayInputStream(chunk);
+      }
+    };
+    return ByteStreams.limit(new SequenceInputStream(chunks), size);
+  }
+}
@@ -0,0 +1,215 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.file;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.blobstore.api.Blob;
+import org.sonatype.nexus.blobstore.api.BlobId;
+import org.sonatype.nexus.blobstore.api.BlobStoreConfiguration;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+import static org.sonatype.nexus.blobstore.api.BlobStore.BLOB_NAME_HEADER;
+import static org.sonatype.nexus.blobstore.api.BlobStore.CREATED_BY_HEADER;
+
+/**
+ * {@link FileBlobStore} integration tests of changing the location strategy of a store, and relocating its content
+ * while it is in use.
+ */
+public class FileBlobStoreRelocationIT
+    extends TestSupport
+{
+  private static final Map<String, String> TEST_HEADERS = ImmutableMap.of(
+      CREATED_BY_HEADER, "test",
+      BLOB_NAME_HEADER, "test/relocated.txt"
+  );
+
+  private final Map<String, LocationStrategy> locationStrategies = ImmutableMap.<String, LocationStrategy>of(
+      VolumeChapterLocationStrategy.NAME, new VolumeChapterLocationStrategy(),
+      HashPrefixLocationStrategy.NAME, new HashPrefixLocationStrategy()
+  );
+
+  private Path blobDir;
+
+  private FileOperations fileOperations;
+
+  private FileBlobStore underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    blobDir = util.createTempDir().toPath();
+    fileOperations = spy(new SimpleFileOperations());
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (underTest != null) {
+      underTest.stop();
+    }
+  }
+
+  @Test
+  public void contentIsServedFromPreviousLayoutUntilRelocated() throws Exception {
+    underTest = open(null);
+    final BlobId first = create("first");
+    final BlobId second = create("second");
+    underTest.stop();
+
+    underTest = open(HashPrefixLocationStrategy.NAME);
+    assertThat(underTest.isRelocating(), is(true));
+    assertThat(read(first), is("first"));
+    assertThat(Files.exists(previousPath(first)), is(true));
+    assertThat(Files.exists(path(first)), is(false));
+
+    final BlobId third = create("third");
+    assertThat(Files.exists(path(third)), is(true));
+
+    assertThat(underTest.relocate(), is(2L));
+    assertThat(underTest.isRelocating(), is(false));
+    assertThat(Files.exists(previousPath(first)), is(false));
+    assertThat(Files.exists(previousPath(second)), is(false));
+    assertThat(read(first), is("first"));
+    assertThat(read(second), is("second"));
+    assertThat(read(third), is("third"));
+
+    // the new layout is recorded
+    underTest.stop();
+    underTest = open(HashPrefixLocationStrategy.NAME);
+    assertThat(underTest.isRelocating(), is(false));
+    assertThat(read(first), is("first"));
+  }
+
+  @Test
+  public void readRacingRelocationIsRetriedAtNewLocation() throws Exception {
+    underTest = open(null);
+    final BlobId blobId = create("content");
+    underTest.stop();
+
+    underTest = open(HashPrefixLocationStrategy.NAME);
+    final Blob blob = underTest.get(blobId);
+
+    // the content is moved after its previous location was resolved, but before it is opened
+    doAnswer(new Answer<InputStream>()
+    {
+      @Override
+      public InputStream answer(final InvocationOnMock invocation) throws Throwable {
+        underTest.relocate();
+        return (InputStream) invocation.callRealMethod();
+      }
+    }).when(fileOperations).openInputStream(previousPath(blobId));
+
+    try (InputStream in = blob.getInputStream()) {
+      assertThat(new String(ByteStreams.toByteArray(in), Charsets.UTF_8), is("content"));
+    }
+    assertThat(underTest.isRelocating(), is(false));
+  }
+
+  @Test
+  public void deleteHardRacingRelocationLeavesNoContent() throws Exception {
+    underTest = open(null);
+    final BlobId blobId = create("content");
+    underTest.stop();
+
+    underTest = open(HashPrefixLocationStrategy.NAME);
+
+    // relocation starts between the deletion of the new and of the previous location of the content
+    final AtomicReference<Throwable> failure = new AtomicReference<>();
+    final Thread relocator = new Thread("relocator")
+    {
+      @Override
+      public void run() {
+        try {
+          underTest.relocate();
+        }
+        catch (Throwable e) {
+          failure.set(e);
+        }
+      }
+    };
+    doAnswer(new Answer<Boolean>()
+    {
+      @Override
+      public Boolean answer(final InvocationOnMock invocation) throws Throwable {
+        relocator.start();
+        relocator.join(500);
+        // waiting for the blob, which is being deleted
+        assertThat(relocator.isAlive(), is(true));
+        return (Boolean) invocation.callRealMethod();
+      }
+    }).when(fileOperations).delete(path(blobId));
+
+    assertThat(underTest.deleteHard(blobId), is(true));
+    relocator.join();
+
+    assertThat(failure.get(), nullValue());
+    assertThat(underTest.isRelocating(), is(false));
+    assertThat(Files.exists(path(blobId)), is(false));
+    assertThat(Files.exists(previousPath(blobId)), is(false));
+  }
+
+  private FileBlobStore open(@Nullable final String locationStrategy) throws Exception {
+    final BlobStoreConfiguration configuration = FileBlobStore.configure("test", blobDir.toString());
+    if (locationStrategy != null) {
+      configuration.attributes("file").set(FileBlobStore.LOCATION_STRATEGY_KEY, locationStrategy);
+    }
+    final FileBlobStore blobStore = new FileBlobStore(locationStrategies, fileOperations);
+    blobStore.init(configuration);
+    blobStore.start();
+    return blobStore;
+  }
+
+  private BlobId create(final String content) {
+    return underTest.create(new ByteArrayInputStream(content.getBytes(Charsets.UTF_8)), TEST_HEADERS).getId();
+  }
+
+  private String read(final BlobId blobId) throws IOException {
+    try (InputStream in = underTest.get(blobId).getInputStream()) {
+      return new String(ByteStreams.toByteArray(in), Charsets.UTF_8);
+    }
+  }
+
+  private Path path(final BlobId blobId) {
+    return contentPath(locationStrategies.get(HashPrefixLocationStrategy.NAME), blobId);
+  }
+
+  private Path previousPath(final BlobId blobId) {
+    return contentPath(locationStrategies.get(VolumeChapterLocationStrategy.NAME), blobId);
+  }
+
+  private Path contentPath(final LocationStrategy locationStrategy, final BlobId blobId) {
+    return blobDir.resolve("content").resolve(locationStrategy.location(blobId) + FileBlobStore.BLOB_CONTENT_SUFFIX);
+  }
+}
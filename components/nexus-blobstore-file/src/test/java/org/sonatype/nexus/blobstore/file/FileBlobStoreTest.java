@@ -14,6 +14,9 @@ package org.sonatype.nexus.blobstore.file;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.HashMap;
 
@@ -24,21 +27,37 @@ import org.sonatype.nexus.blobstore.api.BlobStore;
 import org.sonatype.nexus.blobstore.api.BlobStoreConfiguration;
 import org.sonatype.nexus.blobstore.file.FileOperations.StreamMetrics;
 import org.sonatype.nexus.common.collect.AutoClosableIterable;
+import org.sonatype.nexus.common.hash.HashAlgorithm;
+import org.sonatype.nexus.common.hash.MultiHashingInputStream;
 import org.sonatype.sisu.litmus.testsupport.TestSupport;
 
+import com.google.common.cache.Cache;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
 import org.joda.time.DateTime;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Matchers.isNull;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -108,6 +127,49 @@ public class FileBlobStoreTest
         metrics.getCreationTime().isAfter(new DateTime().minusSeconds(2)));
   }
 
+  @Test
+  public void creationReusesCallerHashes() throws Exception {
+    final BlobId fakeId = new BlobId("testId");
+    final byte[] content = new byte[200];
+    final MultiHashingInputStream inputStream = new MultiHashingInputStream(
+        ImmutableList.of(HashAlgorithm.SHA1, HashAlgorithm.MD5), new ByteArrayInputStream(content));
+    final ImmutableMap<String, String> headers = ImmutableMap.of(
+        BlobStore.BLOB_NAME_HEADER, "my blob",
+        BlobStore.CREATED_BY_HEADER, "John did this"
+    );
+
+    when(metadataStore.add(any(BlobMetadata.class))).thenReturn(fakeId);
+    when(locationStrategy.location(fakeId)).thenReturn("fakePath");
+    final Path fakePath = root.resolve("fakePath" + FileBlobStore.BLOB_CONTENT_SUFFIX);
+    when(fileOps.write(fakePath, inputStream)).thenAnswer(new Answer<Long>()
+    {
+      @Override
+      public Long answer(final InvocationOnMock invocation) throws Throwable {
+        return ByteStreams.copy(inputStream, ByteStreams.nullOutputStream());
+      }
+    });
+
+    final Blob blob = underTest.create(inputStream, headers);
+
+    final BlobMetrics metrics = blob.getMetrics();
+
+    assertThat(metrics.getSHA1Hash(), is(equalTo(Hashing.sha1().hashBytes(content).toString())));
+    assertThat(metrics.getContentSize(), is(equalTo((long) content.length)));
+    assertThat(inputStream.hashes().get(HashAlgorithm.MD5), is(equalTo(Hashing.md5().hashBytes(content))));
+    verify(fileOps, never()).create(any(Path.class), any(InputStream.class));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void creationRequiresCallerSha1() {
+    final MultiHashingInputStream inputStream = new MultiHashingInputStream(
+        ImmutableList.of(HashAlgorithm.MD5), new ByteArrayInputStream(new byte[100]));
+    final ImmutableMap<String, String> headers = ImmutableMap.of(
+        BlobStore.BLOB_NAME_HEADER, "my blob",
+        BlobStore.CREATED_BY_HEADER, "John did this"
+    );
+    underTest.create(inputStream, headers);
+  }
+
   @Test
   public void getExistingBlob() throws Exception {
     final BlobId fakeId = new BlobId("fakeId");
@@ -158,4 +220,170 @@ public class FileBlobStoreTest
     final AutoClosableIterable<BlobId> iterator = underTest.iterator();
     verify(metadataStore).findWithState(BlobState.ALIVE);
   }
+
+  @Test
+  public void purgePagesThroughDeletedBlobs() throws Exception {
+    final BlobId first = new BlobId("first");
+    final BlobId second = new BlobId("second");
+    final BlobMetadata metadata = new BlobMetadata(BlobState.MARKED_FOR_DELETION, ImmutableMap.<String, String>of());
+    when(metadataStore.findWithState(eq(BlobState.MARKED_FOR_DELETION), (BlobId) isNull(), anyInt()))
+        .thenReturn(ImmutableList.of(first, second));
+    when(metadataStore.findWithState(eq(BlobState.MARKED_FOR_DELETION), eq(second), anyInt()))
+        .thenReturn(ImmutableList.<BlobId>of());
+    when(metadataStore.get(first)).thenReturn(metadata);
+    when(metadataStore.get(second)).thenReturn(metadata);
+    when(locationStrategy.location(any(BlobId.class))).thenReturn("fakePath");
+    when(fileOps.delete(any(Path.class))).thenReturn(true);
+
+    underTest.compact();
+
+    verify(metadataStore).delete(first);
+    verify(metadataStore).delete(second);
+    verify(metadataStore).compact();
+  }
+
+  @Test
+  public void purgeStopsWhenInterrupted() throws Exception {
+    final BlobId blobId = new BlobId("first");
+    when(metadataStore.findWithState(eq(BlobState.MARKED_FOR_DELETION), (BlobId) isNull(), anyInt()))
+        .thenReturn(ImmutableList.of(blobId));
+
+    Thread.currentThread().interrupt();
+    try {
+      assertThat(underTest.purgeDeletedBlobs(), is(0L));
+    }
+    finally {
+      Thread.interrupted();
+    }
+    verify(metadataStore, never()).delete(blobId);
+  }
+
+  @Test
+  public void smallBlobIsServedFromContentCache() throws Exception {
+    startWithContentCache(1024 * 1024, 1024);
+    final BlobId blobId = storedBlob("small", 100);
+
+    assertThat(read(underTest.get(blobId)), is(content(100)));
+    assertThat(read(underTest.get(blobId)), is(content(100)));
+
+    verify(fileOps, times(1)).openChannel(pathOf(blobId));
+    verify(fileOps, never()).openInputStream(any(Path.class));
+    assertThat(underTest.getContentCache().size(), is(1L));
+  }
+
+  @Test
+  public void largeBlobBypassesContentCache() throws Exception {
+    startWithContentCache(1024 * 1024, 1024);
+    final BlobId blobId = storedBlob("large", 2048);
+
+    assertThat(read(underTest.get(blobId)), is(content(2048)));
+    assertThat(read(underTest.get(blobId)), is(content(2048)));
+
+    verify(fileOps, times(2)).openInputStream(pathOf(blobId));
+    verify(fileOps, never()).openChannel(any(Path.class));
+    assertThat(underTest.getContentCache().size(), is(0L));
+  }
+
+  @Test
+  public void contentCacheEvictsBySize() throws Exception {
+    final long maxSize = 4096;
+    startWithContentCache(maxSize, 1024);
+    for (int i = 0; i < 100; i++) {
+      final BlobId blobId = storedBlob("blob" + i, 100);
+      assertThat(read(underTest.get(blobId)), is(content(100)));
+    }
+
+    final Cache<BlobId, ByteBuffer> cache = underTest.getContentCache();
+    long size = 0;
+    for (ByteBuffer buffer : cache.asMap().values()) {
+      size += buffer.capacity();
+    }
+    assertThat(cache.size(), greaterThan(0L));
+    assertThat(size, lessThanOrEqualTo(maxSize));
+  }
+
+  @Test
+  public void deleteRemovesCachedContent() throws Exception {
+    startWithContentCache(1024 * 1024, 1024);
+    final BlobId blobId = storedBlob("deleted", 100);
+    read(underTest.get(blobId));
+
+    underTest.delete(blobId);
+
+    assertThat(underTest.getContentCache().getIfPresent(blobId), nullValue());
+  }
+
+  @Test
+  public void deleteHardRemovesCachedContent() throws Exception {
+    startWithContentCache(1024 * 1024, 1024);
+    final BlobId blobId = storedBlob("deletedHard", 100);
+    read(underTest.get(blobId));
+
+    underTest.deleteHard(blobId);
+
+    assertThat(underTest.getContentCache().getIfPresent(blobId), nullValue());
+  }
+
+  /**
+   * Replaces the store under test by one caching content within given limits.
+   */
+  private void startWithContentCache(final long maxSize, final long maxBlobSize) throws Exception {
+    underTest.stop();
+    underTest = new FileBlobStore(root, locationStrategy, fileOps, metadataStore, new BlobStoreConfiguration());
+    underTest.setContentCacheLimits(maxSize, maxBlobSize);
+    underTest.start();
+  }
+
+  /**
+   * Writes a blob of given size to disk and makes it known to the mocked metadata store and file operations.
+   */
+  private BlobId storedBlob(final String id, final int size) throws Exception {
+    final BlobId blobId = new BlobId(id);
+    final BlobMetrics metrics = mock(BlobMetrics.class);
+    when(metrics.getContentSize()).thenReturn((long) size);
+    final BlobMetadata metadata = mock(BlobMetadata.class);
+    when(metadata.isAlive()).thenReturn(true);
+    when(metadata.getHeaders()).thenReturn(ImmutableMap.<String, String>of());
+    when(metadata.getMetrics()).thenReturn(metrics);
+    when(metadataStore.get(blobId)).thenReturn(metadata);
+    when(locationStrategy.location(blobId)).thenReturn(id);
+
+    final Path path = pathOf(blobId);
+    Files.write(path, content(size));
+    when(fileOps.exists(path)).thenReturn(true);
+    when(fileOps.delete(path)).thenReturn(true);
+    when(fileOps.openChannel(path)).thenAnswer(new Answer<FileChannel>()
+    {
+      @Override
+      public FileChannel answer(final InvocationOnMock invocation) throws Throwable {
+        return FileChannel.open(path);
+      }
+    });
+    when(fileOps.openInputStream(path)).thenAnswer(new Answer<InputStream>()
+    {
+      @Override
+      public InputStream answer(final InvocationOnMock invocation) throws Throwable {
+        return Files.newInputStream(path);
+      }
+    });
+    return blobId;
+  }
+
+  private Path pathOf(final BlobId blobId) {
+    return root.resolve(blobId.asUniqueString() + FileBlobStore.BLOB_CONTENT_SUFFIX);
+  }
+
+  private static byte[] content(final int size) {
+    final byte[] content = new byte[size];
+    for (int i = 0; i < size; i++) {
+      content[i] = (byte) i;
+    }
+    return content;
+  }
+
+  private static byte[] read(final Blob blob) throws Exception {
+    try (InputStream in = blob.getInputStream()) {
+      return ByteStreams.toByteArray(in);
+    }
+  }
 }
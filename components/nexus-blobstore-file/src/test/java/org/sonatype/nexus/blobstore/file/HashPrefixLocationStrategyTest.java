@@ -0,0 +1,44 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.file;
+
+import org.sonatype.nexus.blobstore.api.BlobId;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link HashPrefixLocationStrategy}.
+ */
+public class HashPrefixLocationStrategyTest
+    extends TestSupport
+{
+  @Test
+  public void locationIsHashPrefixedAndStable() {
+    HashPrefixLocationStrategy underTest = new HashPrefixLocationStrategy();
+    BlobId blobId = new BlobId("0123456789abcdef");
+
+    String location = underTest.location(blobId);
+    assertThat(location, location.matches("[0-9a-f]{2}/[0-9a-f]{2}/0123456789abcdef"), is(true));
+    assertThat(new HashPrefixLocationStrategy().location(new BlobId("0123456789abcdef")), is(location));
+  }
+
+  @Test
+  public void depthIsConfigurable() {
+    String location = new HashPrefixLocationStrategy(3).location(new BlobId("a.b"));
+    assertThat(location, location.matches("[0-9a-f]{2}/[0-9a-f]{2}/[0-9a-f]{2}/a-b"), is(true));
+  }
+}
@@ -14,6 +14,11 @@ package org.sonatype.nexus.blobstore.file.internal;
 
 import java.io.File;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.sonatype.nexus.blobstore.api.BlobId;
 import org.sonatype.nexus.blobstore.file.BlobMetadata;
@@ -25,6 +30,7 @@ import org.sonatype.sisu.litmus.testsupport.TestSupport;
 
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -32,6 +38,7 @@ import org.junit.Test;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.emptyIterable;
+import static org.hamcrest.Matchers.is;
 
 /**
  * Tests for {@link MapdbBlobMetadataStore}.
@@ -142,6 +149,50 @@ public class MapdbBlobMetadataStoreTest
     underTest.compact();
   }
 
+  @Test
+  public void concurrentWritesAreGroupCommitted() throws Exception {
+    final int writers = 8;
+    final int writesPerWriter = 50;
+    ExecutorService executor = Executors.newFixedThreadPool(writers);
+    try {
+      List<Future<List<BlobId>>> futures = Lists.newArrayList();
+      for (int i = 0; i < writers; i++) {
+        futures.add(executor.submit(new Callable<List<BlobId>>()
+        {
+          @Override
+          public List<BlobId> call() throws Exception {
+            List<BlobId> ids = Lists.newArrayList();
+            for (int j = 0; j < writesPerWriter; j++) {
+              BlobMetadata md = new BlobMetadata(BlobState.CREATING, ImmutableMap.of("foo", "bar"));
+              BlobId id = underTest.add(md);
+              md.setBlobState(BlobState.ALIVE);
+              underTest.update(id, md);
+              ids.add(id);
+            }
+            return ids;
+          }
+        }));
+      }
+
+      Set<BlobId> ids = Sets.newHashSet();
+      for (Future<List<BlobId>> future : futures) {
+        ids.addAll(future.get());
+      }
+      assertThat(ids.size(), is(writers * writesPerWriter));
+      assertThat(underTest.getBlobCount(), is((long) writers * writesPerWriter));
+      assertThat(findWithState(BlobState.CREATING), emptyIterable());
+      assertThat(Sets.newHashSet(findWithState(BlobState.ALIVE)), is(ids));
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void failedWriteIsReportedToCaller() throws Exception {
+    underTest.update(new BlobId("missing"), new BlobMetadata(BlobState.ALIVE, ImmutableMap.of("foo", "bar")));
+  }
+
   private void dumpStates() throws Exception {
     for (BlobState state : BlobState.values()) {
       log(state);
@@ -0,0 +1,135 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.blobstore.file.internal;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.sonatype.nexus.blobstore.api.BlobId;
+import org.sonatype.nexus.blobstore.api.BlobMetrics;
+import org.sonatype.nexus.blobstore.file.BlobMetadata;
+import org.sonatype.nexus.blobstore.file.BlobMetadataStore;
+import org.sonatype.nexus.blobstore.file.BlobState;
+import org.sonatype.nexus.blobstore.file.SidecarBlobMetadataStore;
+import org.sonatype.nexus.blobstore.file.VolumeChapterLocationStrategy;
+import org.sonatype.nexus.common.collect.AutoClosableIterable;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.emptyIterable;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+/**
+ * Tests for {@link SidecarBlobMetadataStore}.
+ */
+public class SidecarBlobMetadataStoreTest
+  extends TestSupport
+{
+  private Path root;
+
+  private BlobMetadataStore underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    root = util.createTempDir("content").toPath();
+    underTest = new SidecarBlobMetadataStore(root, new VolumeChapterLocationStrategy());
+    underTest.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    if (underTest != null) {
+      underTest.stop();
+    }
+  }
+
+  /**
+   * Helper to find states and close iterable.
+   */
+  private Iterable<BlobId> findWithState(final BlobState state) throws Exception {
+    List<BlobId> results = Lists.newArrayList();
+    try (AutoClosableIterable<BlobId> iter = underTest.findWithState(state)) {
+      for (BlobId id : iter) {
+        results.add(id);
+      }
+    }
+    return results;
+  }
+
+  @Test
+  public void stateTracking() throws Exception {
+    BlobMetadata md = new BlobMetadata(BlobState.CREATING, ImmutableMap.of("foo", "bar"));
+    BlobId id = underTest.add(md);
+
+    assertThat(findWithState(BlobState.CREATING), contains(id));
+    assertThat(findWithState(BlobState.ALIVE), emptyIterable());
+
+    md.setBlobState(BlobState.ALIVE);
+    underTest.update(id, md);
+
+    assertThat(findWithState(BlobState.CREATING), emptyIterable());
+    assertThat(findWithState(BlobState.ALIVE), contains(id));
+
+    underTest.delete(id);
+
+    assertThat(findWithState(BlobState.ALIVE), emptyIterable());
+    assertThat(underTest.get(id), nullValue());
+    assertThat(underTest.getBlobCount(), is(0L));
+    assertThat(underTest.getTotalSize(), is(0L));
+  }
+
+  @Test
+  public void metadataRoundTrips() throws Exception {
+    DateTime created = new DateTime();
+    BlobMetadata md = new BlobMetadata(BlobState.ALIVE, ImmutableMap.of("foo", "bar", "a=b", "c:d"));
+    md.setMetrics(new BlobMetrics(created, "0123456789abcdef", 42L));
+    BlobId id = underTest.add(md);
+
+    BlobMetadata md2 = underTest.get(id);
+    assertThat(md2.getBlobState(), is(BlobState.ALIVE));
+    assertThat(md2.getHeaders(), is(md.getHeaders()));
+    assertThat(md2.getMetrics().getCreationTime().getMillis(), is(created.getMillis()));
+    assertThat(md2.getMetrics().getSHA1Hash(), is("0123456789abcdef"));
+    assertThat(md2.getMetrics().getContentSize(), is(42L));
+  }
+
+  @Test
+  public void indexIsRebuiltOnStart() throws Exception {
+    BlobId alive = underTest.add(new BlobMetadata(BlobState.ALIVE, ImmutableMap.of("foo", "bar")));
+    BlobId deleted = underTest.add(new BlobMetadata(BlobState.MARKED_FOR_DELETION, ImmutableMap.of("foo", "bar")));
+    long totalSize = underTest.getTotalSize();
+
+    underTest.stop();
+    underTest = new SidecarBlobMetadataStore(root, new VolumeChapterLocationStrategy());
+    underTest.start();
+
+    assertThat(underTest.getBlobCount(), is(2L));
+    assertThat(underTest.getTotalSize(), is(totalSize));
+    assertThat(findWithState(BlobState.ALIVE), contains(alive));
+    assertThat(findWithState(BlobState.MARKED_FOR_DELETION), contains(deleted));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void updateOfMissingBlobFails() throws Exception {
+    underTest.update(new BlobId("missing"), new BlobMetadata(BlobState.ALIVE, ImmutableMap.of("foo", "bar")));
+  }
+}
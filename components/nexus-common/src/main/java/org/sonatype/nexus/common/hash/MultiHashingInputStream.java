@@ -15,43 +15,120 @@ package org.sonatype.nexus.common.hash;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.annotation.Nonnull;
 
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Throwables;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.hash.HashCode;
 import com.google.common.hash.Hasher;
 import com.google.common.hash.HashingInputStream;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 /**
  * An {@link InputStream} that maintains multiple hashes and the number of bytes of data read from it.
  *
+ * Small content is hashed inline on the reading thread. Once more than {@code parallelThreshold} bytes have been read
+ * and more than one algorithm is in use, each read buffer is copied and hashed by all algorithms in parallel, while
+ * the reading thread continues. At most {@code maxPendingChunks} buffers are queued; further reads block until the
+ * hashers catch up.
+ *
  * @see HashingInputStream
  * @since 3.0
  */
 public class MultiHashingInputStream
     extends FilterInputStream
 {
+  private static final long PARALLEL_THRESHOLD = SystemPropertiesHelper.getLong(
+      MultiHashingInputStream.class.getName() + ".parallelThreshold", 1024 * 1024);
+
+  private static final int MAX_PENDING_CHUNKS = SystemPropertiesHelper.getInteger(
+      MultiHashingInputStream.class.getName() + ".maxPendingChunks", 8);
+
+  /**
+   * Lazily created executor shared by all streams hashing in parallel.
+   */
+  private static class HashingExecutor
+  {
+    private static final Executor INSTANCE = Executors.newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(),
+        new ThreadFactoryBuilder().setNameFormat("multi-hashing-%d").setDaemon(true).build());
+  }
+
   private final Map<HashAlgorithm, Hasher> hashers = Maps.newLinkedHashMap();
 
+  private final long parallelThreshold;
+
+  private final int maxPendingChunks;
+
+  private final Executor executor;
+
   private long count;
 
+  private Map<HashAlgorithm, HashCode> hashes;
+
+  /**
+   * Per-algorithm lanes, only present once hashing has switched to parallel.
+   */
+  private List<Lane> lanes;
+
+  private Semaphore pendingChunks;
+
+  private volatile Throwable failure;
+
   public MultiHashingInputStream(Iterable<HashAlgorithm> algorithms, InputStream inputStream) {
+    this(algorithms, inputStream, PARALLEL_THRESHOLD, MAX_PENDING_CHUNKS, null);
+  }
+
+  @VisibleForTesting
+  MultiHashingInputStream(final Iterable<HashAlgorithm> algorithms,
+                          final InputStream inputStream,
+                          final long parallelThreshold,
+                          final int maxPendingChunks,
+                          final Executor executor)
+  {
     super(checkNotNull(inputStream));
+    checkArgument(maxPendingChunks > 0, "Invalid max pending chunks: %s", maxPendingChunks);
     for (HashAlgorithm algorithm : checkNotNull(algorithms)) {
       hashers.put(algorithm, algorithm.function().newHasher());
     }
+    this.parallelThreshold = parallelThreshold;
+    this.maxPendingChunks = maxPendingChunks;
+    this.executor = executor;
   }
 
   @Override
   public int read() throws IOException {
     int b = in.read();
     if (b != -1) {
-      for (Hasher hasher : hashers.values()) {
-        hasher.putByte((byte) b);
+      if (parallel()) {
+        submit(new byte[]{(byte) b});
+      }
+      else {
+        for (Hasher hasher : hashers.values()) {
+          hasher.putByte((byte) b);
+        }
       }
       count++;
     }
@@ -62,8 +139,13 @@ public class MultiHashingInputStream
   public int read(@Nonnull byte[] bytes, int off, int len) throws IOException {
     int numRead = in.read(bytes, off, len);
     if (numRead != -1) {
-      for (Hasher hasher : hashers.values()) {
-        hasher.putBytes(bytes, off, numRead);
+      if (parallel()) {
+        submit(Arrays.copyOfRange(bytes, off, off + numRead));
+      }
+      else {
+        for (Hasher hasher : hashers.values()) {
+          hasher.putBytes(bytes, off, numRead);
+        }
       }
       count += numRead;
     }
@@ -85,14 +167,27 @@ public class MultiHashingInputStream
     throw new IOException("reset not supported");
   }
 
+  /**
+   * Gets the algorithms this stream is hashing with.
+   */
+  public Set<HashAlgorithm> algorithms() {
+    return ImmutableSet.copyOf(hashers.keySet());
+  }
+
   /**
    * Gets the {@link HashCode}s based on the data read from this stream.
+   *
+   * Hashes are computed on first call, so this should only be called once the stream has been fully consumed;
+   * subsequent calls return the same hashes, allowing several consumers to share them.
    */
   public Map<HashAlgorithm, HashCode> hashes() {
-    Map<HashAlgorithm, HashCode> hashes = Maps.newHashMap();
-    for (HashAlgorithm algorithm : hashers.keySet()) {
-      Hasher hasher = hashers.get(algorithm);
-      hashes.put(algorithm, hasher.hash());
+    if (hashes == null) {
+      awaitPendingChunks();
+      ImmutableMap.Builder<HashAlgorithm, HashCode> builder = ImmutableMap.builder();
+      for (Map.Entry<HashAlgorithm, Hasher> entry : hashers.entrySet()) {
+        builder.put(entry.getKey(), entry.getValue().hash());
+      }
+      hashes = builder.build();
     }
     return hashes;
   }
@@ -103,4 +198,110 @@ public class MultiHashingInputStream
   public long count() {
     return count;
   }
+
+  /**
+   * Returns {@code true} if data should be hashed in parallel, switching over once the threshold has been reached.
+   */
+  private boolean parallel() {
+    if (lanes == null && hashers.size() > 1 && count >= parallelThreshold) {
+      lanes = Lists.newArrayListWithCapacity(hashers.size());
+      for (Hasher hasher : hashers.values()) {
+        lanes.add(new Lane(hasher));
+      }
+      pendingChunks = new Semaphore(maxPendingChunks);
+    }
+    return lanes != null;
+  }
+
+  /**
+   * Queues a chunk for hashing by every lane, blocking while too many chunks are already pending.
+   */
+  private void submit(final byte[] chunk) throws IOException {
+    checkFailure();
+    try {
+      pendingChunks.acquire();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting to hash content");
+    }
+    final AtomicInteger remaining = new AtomicInteger(lanes.size());
+    for (final Lane lane : lanes) {
+      lane.execute(new Runnable()
+      {
+        @Override
+        public void run() {
+          try {
+            lane.hasher.putBytes(chunk);
+          }
+          catch (Throwable t) {
+            failure = t;
+          }
+          finally {
+            if (remaining.decrementAndGet() == 0) {
+              pendingChunks.release();
+            }
+          }
+        }
+      });
+    }
+  }
+
+  /**
+   * Waits until every pending chunk has been hashed.
+   */
+  private void awaitPendingChunks() {
+    if (lanes != null) {
+      pendingChunks.acquireUninterruptibly(maxPendingChunks);
+      pendingChunks.release(maxPendingChunks);
+      if (failure != null) {
+        throw Throwables.propagate(failure);
+      }
+    }
+  }
+
+  private void checkFailure() throws IOException {
+    if (failure != null) {
+      throw new IOException("Failed to hash content", failure);
+    }
+  }
+
+  /**
+   * Runs hashing tasks for a single {@link Hasher} one at a time and in order, using the shared executor.
+   */
+  private class Lane
+      implements Runnable
+  {
+    private final Hasher hasher;
+
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private Lane(final Hasher hasher) {
+      this.hasher = hasher;
+    }
+
+    void execute(final Runnable task) {
+      tasks.add(task);
+      schedule();
+    }
+
+    private void schedule() {
+      if (!tasks.isEmpty() && scheduled.compareAndSet(false, true)) {
+        (executor != null ? executor : HashingExecutor.INSTANCE).execute(this);
+      }
+    }
+
+    @Override
+    public void run() {
+      Runnable task;
+      while ((task = tasks.poll()) != null) {
+        task.run();
+      }
+      scheduled.set(false);
+      // pick up any task queued after the queue was found empty
+      schedule();
+    }
+  }
 }
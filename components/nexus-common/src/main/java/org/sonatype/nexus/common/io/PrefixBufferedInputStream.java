@@ -0,0 +1,67 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.common.io;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.google.common.base.Supplier;
+import com.google.common.io.ByteStreams;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Buffers a bounded prefix of an {@link InputStream} so it can be inspected (ie. to detect the content type) before
+ * the whole stream is consumed, in a single pass and without spooling the content to a temporary file.
+ *
+ * Reading from this stream returns the complete content, including the prefix.
+ *
+ * @since 3.0
+ */
+public class PrefixBufferedInputStream
+    extends BufferedInputStream
+{
+  private final byte[] prefix;
+
+  private final int prefixLength;
+
+  public PrefixBufferedInputStream(final InputStream inputStream, final int prefixSize) throws IOException {
+    super(checkNotNull(inputStream), prefixSize);
+    this.prefix = new byte[prefixSize];
+    mark(prefixSize);
+    this.prefixLength = ByteStreams.read(this, prefix, 0, prefixSize);
+    reset();
+  }
+
+  /**
+   * Returns the number of prefix bytes buffered, which is less than the requested prefix size for short content.
+   */
+  public int getPrefixLength() {
+    return prefixLength;
+  }
+
+  /**
+   * Returns a supplier of streams over the buffered prefix only.
+   */
+  public Supplier<InputStream> prefix() {
+    return new Supplier<InputStream>()
+    {
+      @Override
+      public InputStream get() {
+        return new ByteArrayInputStream(prefix, 0, prefixLength);
+      }
+    };
+  }
+}
@@ -15,6 +15,10 @@ package org.sonatype.nexus.common.hash;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import com.google.common.hash.HashCode;
 import com.google.common.io.ByteStreams;
@@ -46,6 +50,35 @@ public class MultiHashingInputStreamTest
     assertThat(andUseHashingStream.count(), is(equalTo(byteArrayLength)));
   }
 
+  @Test
+  public void hashesAreComputedOnce() throws IOException {
+    final MultiHashingInputStream hashingStream = createAndUseHashingStream(new byte[100]);
+    assertThat(hashingStream.hashes(), is(equalTo(hashingStream.hashes())));
+  }
+
+  @Test
+  public void parallelHashesMatchInlineHashes() throws IOException {
+    final byte[] bytes = new byte[1024 * 1024];
+    new Random().nextBytes(bytes);
+    final List<HashAlgorithm> algorithms = Arrays.asList(HashAlgorithm.SHA1, HashAlgorithm.MD5, HashAlgorithm.SHA512);
+
+    final MultiHashingInputStream inline = new MultiHashingInputStream(algorithms, new ByteArrayInputStream(bytes));
+    ByteStreams.copy(inline, ByteStreams.nullOutputStream());
+
+    final ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      final MultiHashingInputStream parallel = new MultiHashingInputStream(
+          algorithms, new ByteArrayInputStream(bytes), 1000, 2, executor);
+      ByteStreams.copy(parallel, ByteStreams.nullOutputStream());
+
+      assertThat(parallel.hashes(), is(equalTo(inline.hashes())));
+      assertThat(parallel.count(), is(equalTo((long) bytes.length)));
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
   private MultiHashingInputStream createAndUseHashingStream(final byte[] bytes) throws IOException {
     final MultiHashingInputStream hashingStream = new MultiHashingInputStream(
         Arrays.asList(HashAlgorithm.SHA512), new ByteArrayInputStream(bytes));
@@ -0,0 +1,53 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.common.io;
+
+import java.nio.ByteBuffer;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link ByteBufferInputStream}.
+ */
+public class ByteBufferInputStreamTest
+    extends TestSupport
+{
+  private final byte[] content = "0123456789".getBytes();
+
+  @Test
+  public void readsDirectBufferContent() throws Exception {
+    ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+    buffer.put(content).flip();
+
+    assertThat(ByteStreams.toByteArray(new ByteBufferInputStream(buffer.duplicate())), is(content));
+    // the shared buffer is untouched, so it can be read again
+    assertThat(ByteStreams.toByteArray(new ByteBufferInputStream(buffer.duplicate())), is(content));
+  }
+
+  @Test
+  public void skipAndSingleByteReads() throws Exception {
+    ByteBufferInputStream underTest = new ByteBufferInputStream(ByteBuffer.wrap(content));
+    assertThat(underTest.skip(8), is(8L));
+    assertThat(underTest.available(), is(2));
+    assertThat(underTest.read(), is((int) '8'));
+    assertThat(underTest.read(), is((int) '9'));
+    assertThat(underTest.read(), is(-1));
+    assertThat(underTest.skip(5), is(0L));
+  }
+}
@@ -0,0 +1,55 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.common.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+/**
+ * Tests for {@link PrefixBufferedInputStream}.
+ */
+public class PrefixBufferedInputStreamTest
+    extends TestSupport
+{
+  private final byte[] content = "0123456789".getBytes();
+
+  @Test
+  public void prefixIsBoundedAndContentIsComplete() throws Exception {
+    try (PrefixBufferedInputStream underTest = new PrefixBufferedInputStream(new ByteArrayInputStream(content), 4)) {
+      assertThat(underTest.getPrefixLength(), is(4));
+      try (InputStream prefix = underTest.prefix().get()) {
+        assertThat(new String(ByteStreams.toByteArray(prefix)), is("0123"));
+      }
+      assertThat(ByteStreams.toByteArray(underTest), is(content));
+    }
+  }
+
+  @Test
+  public void shortContentIsFullyBuffered() throws Exception {
+    try (PrefixBufferedInputStream underTest = new PrefixBufferedInputStream(new ByteArrayInputStream(content), 64)) {
+      assertThat(underTest.getPrefixLength(), is(content.length));
+      try (InputStream prefix = underTest.prefix().get()) {
+        assertThat(ByteStreams.toByteArray(prefix), is(content));
+      }
+      assertThat(ByteStreams.toByteArray(underTest), is(content));
+    }
+  }
+}
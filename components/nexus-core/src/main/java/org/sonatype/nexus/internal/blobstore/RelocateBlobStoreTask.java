@@ -0,0 +1,59 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.internal.blobstore;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.sonatype.nexus.blobstore.api.BlobStore;
+import org.sonatype.nexus.blobstore.api.BlobStoreManager;
+import org.sonatype.nexus.blobstore.file.FileBlobStore;
+import org.sonatype.nexus.scheduling.TaskSupport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.sonatype.nexus.internal.blobstore.RelocateBlobStoreTaskDescriptor.BLOB_STORE_NAME_FIELD_ID;
+
+/**
+ * Moves the content of a {@link FileBlobStore} to the layout of its configured location strategy, while the store
+ * remains in use.
+ *
+ * @since 3.0
+ */
+@Named
+public class RelocateBlobStoreTask
+    extends TaskSupport
+{
+  private final BlobStoreManager blobStoreManager;
+
+  @Inject
+  public RelocateBlobStoreTask(final BlobStoreManager blobStoreManager) {
+    this.blobStoreManager = checkNotNull(blobStoreManager);
+  }
+
+  @Override
+  protected Object execute() throws Exception {
+    BlobStore blobStore = blobStoreManager.get(blobStoreName());
+    checkArgument(blobStore instanceof FileBlobStore, "Not a file blob store: %s", blobStoreName());
+    return ((FileBlobStore) blobStore).relocate();
+  }
+
+  @Override
+  public String getMessage() {
+    return "Relocating content of blob store " + blobStoreName();
+  }
+
+  private String blobStoreName() {
+    return getConfiguration().getString(BLOB_STORE_NAME_FIELD_ID);
+  }
+}
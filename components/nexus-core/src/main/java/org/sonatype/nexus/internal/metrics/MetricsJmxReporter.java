@@ -0,0 +1,68 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.internal.metrics;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.nexus.common.app.NexusInitializedEvent;
+import org.sonatype.nexus.common.app.NexusStoppedEvent;
+import org.sonatype.nexus.common.event.EventSubscriber;
+import org.sonatype.sisu.goodies.common.ComponentSupport;
+
+import com.codahale.metrics.JmxReporter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.eventbus.Subscribe;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Publishes the shared {@link MetricRegistry} as JMX MBeans, alongside the {@link MetricsServlet}.
+ *
+ * @since 3.0
+ */
+@Named
+@Singleton
+public class MetricsJmxReporter
+    extends ComponentSupport
+    implements EventSubscriber
+{
+  public static final String DOMAIN = "org.sonatype.nexus.metrics";
+
+  private final MetricRegistry registry;
+
+  private JmxReporter reporter;
+
+  @Inject
+  public MetricsJmxReporter(final MetricRegistry registry) {
+    this.registry = checkNotNull(registry);
+  }
+
+  @Subscribe
+  public synchronized void on(final NexusInitializedEvent event) {
+    if (reporter == null) {
+      reporter = JmxReporter.forRegistry(registry).inDomain(DOMAIN).build();
+      reporter.start();
+      log.info("Publishing metrics to JMX domain: {}", DOMAIN);
+    }
+  }
+
+  @Subscribe
+  public synchronized void on(final NexusStoppedEvent event) {
+    if (reporter != null) {
+      reporter.stop();
+      reporter = null;
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.internal.search;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.manager.RepositoryManager;
+import org.sonatype.nexus.repository.search.SearchFacet;
+import org.sonatype.nexus.scheduling.TaskSupport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static org.sonatype.nexus.internal.search.RebuildIndexTaskDescriptor.REPOSITORY_NAME_FIELD_ID;
+
+/**
+ * Rebuilds the search index of a repository from its components. When cancelled, running it again resumes the
+ * rebuild where it stopped.
+ *
+ * @since 3.0
+ */
+@Named
+public class RebuildIndexTask
+    extends TaskSupport
+{
+  private final RepositoryManager repositoryManager;
+
+  @Inject
+  public RebuildIndexTask(final RepositoryManager repositoryManager) {
+    this.repositoryManager = checkNotNull(repositoryManager);
+  }
+
+  @Override
+  protected Object execute() throws Exception {
+    Repository repository = repositoryManager.get(repositoryName());
+    checkArgument(repository != null, "Missing repository: %s", repositoryName());
+    return repository.facet(SearchFacet.class).rebuildIndex();
+  }
+
+  @Override
+  public String getMessage() {
+    return "Rebuilding search index of " + repositoryName();
+  }
+
+  private String repositoryName() {
+    return getConfiguration().getString(REPOSITORY_NAME_FIELD_ID);
+  }
+}
@@ -0,0 +1,84 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.internal.blobstore
+
+import org.sonatype.nexus.blobstore.api.BlobStore
+import org.sonatype.nexus.blobstore.api.BlobStoreManager
+import org.sonatype.nexus.blobstore.file.FileBlobStore
+import org.sonatype.nexus.scheduling.TaskConfiguration
+import org.sonatype.sisu.litmus.testsupport.TestSupport
+
+import org.junit.Before
+import org.junit.Test
+import org.mockito.Mock
+
+import static org.junit.Assert.fail
+import static org.mockito.Mockito.mock
+import static org.mockito.Mockito.never
+import static org.mockito.Mockito.verify
+import static org.mockito.Mockito.when
+import static org.sonatype.nexus.internal.blobstore.RelocateBlobStoreTaskDescriptor.BLOB_STORE_NAME_FIELD_ID
+
+/**
+ * Tests for {@link RelocateBlobStoreTask}.
+ */
+class RelocateBlobStoreTaskTest
+    extends TestSupport
+{
+  @Mock
+  BlobStoreManager blobStoreManager
+
+  @Mock
+  FileBlobStore fileBlobStore
+
+  RelocateBlobStoreTask underTest
+
+  @Before
+  void setup() {
+    underTest = new RelocateBlobStoreTask(blobStoreManager)
+  }
+
+  @Test
+  void 'relocates the named file blob store'() {
+    when(blobStoreManager.get('default')).thenReturn(fileBlobStore)
+    when(fileBlobStore.relocate()).thenReturn(3L)
+    configure('default')
+
+    assert underTest.call() == 3L
+    verify(fileBlobStore).relocate()
+  }
+
+  @Test
+  void 'rejects blob stores which are not file blob stores'() {
+    BlobStore blobStore = mock(BlobStore)
+    when(blobStoreManager.get('other')).thenReturn(blobStore)
+    configure('other')
+
+    try {
+      underTest.call()
+      fail()
+    }
+    catch (IllegalArgumentException e) {
+      assert e.message.contains('other')
+    }
+    verify(fileBlobStore, never()).relocate()
+  }
+
+  private void configure(final String blobStoreName) {
+    TaskConfiguration configuration = new TaskConfiguration()
+    configuration.id = 'relocate'
+    configuration.typeId = RelocateBlobStoreTask.name
+    configuration.setString(BLOB_STORE_NAME_FIELD_ID, blobStoreName)
+    underTest.configure(configuration)
+  }
+}
@@ -20,8 +20,14 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.zip.GZIPInputStream;
 
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.google.common.io.CountingOutputStream;
 import com.orientechnologies.orient.core.command.OCommandOutputListener;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.db.tool.ODatabaseExport;
@@ -39,19 +45,33 @@ public class DatabaseExternalizerImpl
   extends ComponentSupport
   implements DatabaseExternalizer
 {
-  public static final int BACKUP_BUFFER_SIZE = 16 * 1024;
+  public static final int BACKUP_BUFFER_SIZE = SystemPropertiesHelper.getInteger(
+      DatabaseExternalizerImpl.class.getName() + ".backupBufferSize", 16 * 1024);
 
   public static final int IMPORT_BUFFER_SIZE = 16 * 1024;
 
-  public static final int BACKUP_COMPRESSION_LEVEL = 9;
+  /**
+   * Deflate level used for backups; OrientDB freezes the database while compressing, so lower levels shorten the
+   * freeze at the cost of a larger archive.
+   */
+  public static final int BACKUP_COMPRESSION_LEVEL = SystemPropertiesHelper.getInteger(
+      DatabaseExternalizerImpl.class.getName() + ".backupCompressionLevel", 9);
 
   private final DatabaseManager databaseManager;
 
   private final String name;
 
+  private final Timer backupTimer;
+
+  private final Meter backupBytes;
+
   public DatabaseExternalizerImpl(final DatabaseManager databaseManager, final String name) {
     this.databaseManager = checkNotNull(databaseManager);
     this.name = checkNotNull(name);
+
+    MetricRegistry registry = SharedMetricRegistries.getOrCreate("nexus");
+    this.backupTimer = registry.timer(MetricRegistry.name(DatabaseExternalizer.class, name, "backup"));
+    this.backupBytes = registry.meter(MetricRegistry.name(DatabaseExternalizer.class, name, "backupBytes"));
   }
 
   /**
@@ -88,9 +108,17 @@ public class DatabaseExternalizerImpl
       checkState(db.exists(), "Database does not exist: %s", name);
 
       log.debug("Starting backup");
-      db.backup(output, null, null, new LoggingCommandOutputListener("BACKUP"),
-          BACKUP_COMPRESSION_LEVEL, BACKUP_BUFFER_SIZE);
-      log.debug("Completed backup");
+      CountingOutputStream counting = new CountingOutputStream(output);
+      Timer.Context timing = backupTimer.time();
+      try {
+        db.backup(counting, null, null, new LoggingCommandOutputListener("BACKUP"),
+            BACKUP_COMPRESSION_LEVEL, BACKUP_BUFFER_SIZE);
+      }
+      finally {
+        timing.stop();
+        backupBytes.mark(counting.getCount());
+      }
+      log.debug("Completed backup: {} bytes", counting.getCount());
     }
   }
 
@@ -41,4 +41,9 @@ public interface GroupFacet
    * Return the full list of members, including the members of groups, but excluding groups.
    */
   List<Repository> leafMembers();
+
+  /**
+   * Check if requests are dispatched to members concurrently, instead of one after another.
+   */
+  boolean isParallelDispatch();
 }
@@ -58,10 +58,13 @@ public class GroupFacetImpl
     @JsonDeserialize(as = LinkedHashSet.class) // retain order
     public Set<String> memberNames;
 
+    public boolean parallelDispatch;
+
     @Override
     public String toString() {
       return getClass().getSimpleName() + "{" +
           "memberNames=" + memberNames +
+          ", parallelDispatch=" + parallelDispatch +
           '}';
     }
   }
@@ -118,6 +121,12 @@ public class GroupFacetImpl
     return members;
   }
 
+  @Override
+  @Guarded(by = STARTED)
+  public boolean isParallelDispatch() {
+    return config.parallelDispatch;
+  }
+
   @Override
   public List<Repository> leafMembers() {
     List<Repository> leafMembers = new ArrayList<>();
@@ -15,12 +15,24 @@ package org.sonatype.nexus.repository.group;
 
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
+import org.sonatype.nexus.repository.MissingFacetException;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.http.HttpResponses;
 import org.sonatype.nexus.repository.view.Context;
@@ -28,8 +40,14 @@ import org.sonatype.nexus.repository.view.Handler;
 import org.sonatype.nexus.repository.view.Request;
 import org.sonatype.nexus.repository.view.Response;
 import org.sonatype.nexus.repository.view.ViewFacet;
+import org.sonatype.nexus.thread.NexusExecutorService;
+import org.sonatype.nexus.thread.NexusThreadFactory;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.google.common.base.Throwables;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
@@ -39,6 +57,12 @@ import static org.sonatype.nexus.repository.http.HttpMethods.HEAD;
 /**
  * Group handler.
  *
+ * Members are dispatched to one after another, or concurrently if the group {@link GroupFacet#isParallelDispatch()}.
+ * Concurrent dispatch runs on a bounded pool, falling back to the calling thread when the pool is exhausted, and
+ * gives up on members not responding within {@link #MEMBER_TIMEOUT_SECONDS}.
+ *
+ * Members with a {@link MemberIndexFacet} are skipped when their index tells they do not hold the requested content.
+ *
  * @since 3.0
  */
 @Named
@@ -47,12 +71,19 @@ public class GroupHandler
     extends ComponentSupport
     implements Handler
 {
+  private static final int DISPATCH_THREADS = SystemPropertiesHelper.getInteger(
+      GroupHandler.class.getName() + ".dispatchThreads", 200);
+
+  private static final long MEMBER_TIMEOUT_SECONDS = SystemPropertiesHelper.getLong(
+      GroupHandler.class.getName() + ".memberTimeoutSeconds", 60);
+
   /**
    * Request-context state container for set of repositories already dispatched to.
    */
   protected static class DispatchedRepositories
   {
-    private final Set<String> dispatched = Sets.newHashSet();
+    // members of nested groups may be dispatched to concurrently
+    private final Set<String> dispatched = Sets.newConcurrentHashSet();
 
     public void add(final Repository repository) {
       dispatched.add(repository.getName());
@@ -68,6 +99,18 @@ public class GroupHandler
     }
   }
 
+  private final NexusExecutorService dispatchPool;
+
+  private final MetricRegistry metrics = SharedMetricRegistries.getOrCreate("nexus");
+
+  public GroupHandler() {
+    // direct hand-off, dispatches run in the calling thread when the pool is full, so nested groups can't deadlock
+    ThreadPoolExecutor target = new ThreadPoolExecutor(0, DISPATCH_THREADS, 60L, TimeUnit.SECONDS,
+        new SynchronousQueue<Runnable>(), new NexusThreadFactory("group", "Group Dispatch", Thread.NORM_PRIORITY, true),
+        new CallerRunsPolicy());
+    this.dispatchPool = NexusExecutorService.forCurrentSubject(target);
+  }
+
   @Nonnull
   @Override
   public Response handle(final @Nonnull Context context) throws Exception {
@@ -77,7 +120,14 @@ public class GroupHandler
       case HEAD: {
         final DispatchedRepositories dispatched = context.getRequest().getAttributes()
             .getOrCreate(DispatchedRepositories.class);
-        return doGet(context, dispatched);
+        final Timer.Context timer = metrics.timer(
+            MetricRegistry.name(GroupHandler.class, context.getRepository().getName(), "get")).time();
+        try {
+          return doGet(context, dispatched);
+        }
+        finally {
+          timer.stop();
+        }
       }
 
       default:
@@ -93,6 +143,9 @@ public class GroupHandler
       throws Exception
   {
     final GroupFacet groupFacet = context.getRepository().facet(GroupFacet.class);
+    if (groupFacet.isParallelDispatch()) {
+      return getFirstParallel(context.getRequest(), groupFacet.members(), dispatched);
+    }
     return getFirst(context.getRequest(), groupFacet.members(), dispatched);
   }
 
@@ -112,6 +165,10 @@ public class GroupHandler
         log.trace("Skipping already dispatched member: {}", member);
         continue;
       }
+      final MemberIndexFacet index = memberIndex(member);
+      if (!mightContain(index, member, request)) {
+        continue;
+      }
       dispatched.add(member);
 
       final ViewFacet view = member.facet(ViewFacet.class);
@@ -119,10 +176,41 @@ public class GroupHandler
       if (response.getStatus().isSuccessful()) {
         return response;
       }
+      if (index != null) {
+        metrics.meter(MetricRegistry.name(MemberIndexFacet.class, member.getName(), "falsePositive")).mark();
+      }
     }
     return HttpResponses.notFound();
   }
 
+  /**
+   * Same as {@link #getFirst(Request, List, DispatchedRepositories)}, but dispatches to all members concurrently. The
+   * first OK response in member order wins, so members may be queried in vain.
+   */
+  protected Response getFirstParallel(final @Nonnull Request request,
+                                      final @Nonnull List<Repository> members,
+                                      final @Nonnull DispatchedRepositories dispatched)
+      throws Exception
+  {
+    final LinkedHashMap<Repository, Future<Response>> futures = dispatchAll(request, members, dispatched);
+    try {
+      final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(MEMBER_TIMEOUT_SECONDS);
+      for (Entry<Repository, Future<Response>> entry : futures.entrySet()) {
+        final Response response = await(entry.getKey(), entry.getValue(), deadline);
+        if (response != null && response.getStatus().isSuccessful()) {
+          return response;
+        }
+      }
+      return HttpResponses.notFound();
+    }
+    finally {
+      // responses of lower priority members are not needed anymore
+      for (Future<Response> future : futures.values()) {
+        future.cancel(false);
+      }
+    }
+  }
+
   /**
    * Returns all responses from all members as a linked map, where order is group member order.
    */
@@ -139,6 +227,9 @@ public class GroupHandler
         log.trace("Skipping already dispatched member: {}", member);
         continue;
       }
+      if (!mightContain(memberIndex(member), member, request)) {
+        continue;
+      }
       dispatched.add(member);
 
       final ViewFacet view = member.facet(ViewFacet.class);
@@ -148,4 +239,109 @@ public class GroupHandler
     }
     return responses;
   }
+
+  /**
+   * Same as {@link #getAll(Request, List, DispatchedRepositories)}, but dispatches to all members concurrently.
+   * Members not responding in time are left out.
+   */
+  protected LinkedHashMap<Repository, Response> getAllParallel(final @Nonnull Request request,
+                                                               final @Nonnull List<Repository> members,
+                                                               final @Nonnull DispatchedRepositories dispatched)
+      throws Exception
+  {
+    final LinkedHashMap<Repository, Future<Response>> futures = dispatchAll(request, members, dispatched);
+    final LinkedHashMap<Repository, Response> responses = Maps.newLinkedHashMap();
+    final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(MEMBER_TIMEOUT_SECONDS);
+    for (Entry<Repository, Future<Response>> entry : futures.entrySet()) {
+      final Response response = await(entry.getKey(), entry.getValue(), deadline);
+      if (response != null) {
+        responses.put(entry.getKey(), response);
+      }
+    }
+    return responses;
+  }
+
+  /**
+   * Starts dispatching to all members not already dispatched to, returning their future responses in member order.
+   */
+  private LinkedHashMap<Repository, Future<Response>> dispatchAll(final Request request,
+                                                                  final List<Repository> members,
+                                                                  final DispatchedRepositories dispatched)
+  {
+    final LinkedHashMap<Repository, Future<Response>> futures = Maps.newLinkedHashMap();
+    for (final Repository member : members) {
+      log.trace("Trying member: {}", member);
+      // track repositories we have dispatched to, prevent circular dispatch for nested groups
+      if (dispatched.contains(member)) {
+        log.trace("Skipping already dispatched member: {}", member);
+        continue;
+      }
+      if (!mightContain(memberIndex(member), member, request)) {
+        continue;
+      }
+      dispatched.add(member);
+
+      final ViewFacet view = member.facet(ViewFacet.class);
+      futures.put(member, dispatchPool.submit(new Callable<Response>()
+      {
+        @Override
+        public Response call() throws Exception {
+          return view.dispatch(request);
+        }
+      }));
+    }
+    return futures;
+  }
+
+  @Nullable
+  private MemberIndexFacet memberIndex(final Repository member) {
+    try {
+      return member.facet(MemberIndexFacet.class);
+    }
+    catch (MissingFacetException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Consults the index of a member, if any, recording whether the member was skipped.
+   */
+  private boolean mightContain(@Nullable final MemberIndexFacet index,
+                               final Repository member,
+                               final Request request)
+  {
+    if (index == null) {
+      return true;
+    }
+    if (index.mightContain(request)) {
+      metrics.meter(MetricRegistry.name(MemberIndexFacet.class, member.getName(), "passed")).mark();
+      return true;
+    }
+    log.trace("Skipping member not holding requested content: {}", member);
+    metrics.meter(MetricRegistry.name(MemberIndexFacet.class, member.getName(), "skipped")).mark();
+    return false;
+  }
+
+  /**
+   * Waits for the response of a member until given deadline.
+   *
+   * @return the response or {@code null} if the member did not respond in time
+   */
+  @Nullable
+  private Response await(final Repository member, final Future<Response> future, final long deadline)
+      throws Exception
+  {
+    try {
+      return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+    catch (TimeoutException e) {
+      log.warn("Member {} did not respond within {} seconds", member, MEMBER_TIMEOUT_SECONDS);
+      future.cancel(false);
+      return null;
+    }
+    catch (ExecutionException e) {
+      Throwables.propagateIfInstanceOf(e.getCause(), Exception.class);
+      throw Throwables.propagate(e.getCause());
+    }
+  }
 }
@@ -0,0 +1,34 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.group;
+
+import org.sonatype.nexus.repository.Facet;
+import org.sonatype.nexus.repository.view.Request;
+
+/**
+ * Index of the content held by a hosted repository, allowing groups to skip members that cannot satisfy a request.
+ *
+ * Proxy members do not carry this facet, as their content is not known up-front, they rely on the negative cache.
+ *
+ * @since 3.0
+ */
+@Facet.Exposed
+public interface MemberIndexFacet
+    extends Facet
+{
+  /**
+   * Check if the repository might hold the content requested. {@code false} is definite, while {@code true} may be a
+   * false positive. Until the index is ready every request is reported as possibly held.
+   */
+  boolean mightContain(Request request);
+}
@@ -0,0 +1,281 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.group;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.Nullable;
+import javax.inject.Named;
+
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
+import org.sonatype.nexus.repository.FacetSupport;
+import org.sonatype.nexus.repository.storage.Asset;
+import org.sonatype.nexus.repository.storage.AssetCreatedEvent;
+import org.sonatype.nexus.repository.storage.AssetDeletedEvent;
+import org.sonatype.nexus.repository.storage.AssetEvent;
+import org.sonatype.nexus.repository.storage.StorageFacet;
+import org.sonatype.nexus.repository.storage.StorageTx;
+import org.sonatype.nexus.repository.view.Request;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+/**
+ * Default {@link MemberIndexFacet} implementation, keeping a bloom filter of asset names.
+ *
+ * The filter is built in the background when the facet starts, sized from the asset count, and kept current from
+ * asset events. As bloom filters cannot forget, the filter is rebuilt once too many assets were deleted, or more assets
+ * were added than it was sized for.
+ *
+ * Requests are matched by their path, and assets by their name. Formats where these differ should override
+ * {@link #key(Request)} and {@link #key(Asset)}, returning {@code null} for requests that cannot be decided.
+ *
+ * @since 3.0
+ */
+@Named
+public class MemberIndexFacetImpl
+    extends FacetSupport
+    implements MemberIndexFacet
+{
+  private static final long MIN_CAPACITY = SystemPropertiesHelper.getLong(
+      MemberIndexFacetImpl.class.getName() + ".minCapacity", 100_000L);
+
+  private static final double FALSE_POSITIVE_RATE = 0.01;
+
+  private static final int REBUILD_DELETED_PERCENT = SystemPropertiesHelper.getInteger(
+      MemberIndexFacetImpl.class.getName() + ".rebuildDeletedPercent", 25);
+
+  /**
+   * Shared by all repositories, so that building indexes on startup does not compete with serving requests.
+   */
+  private static final ExecutorService builder = Executors.newSingleThreadExecutor(
+      new NexusThreadFactory("memberindex", "Member Index", Thread.MIN_PRIORITY, true));
+
+  @VisibleForTesting
+  static class Index
+  {
+    private final long capacity;
+
+    private final BloomFilter<CharSequence> filter;
+
+    private long inserted;
+
+    private long deleted;
+
+    Index(final long capacity) {
+      this.capacity = capacity;
+      this.filter = BloomFilter.create(Funnels.unencodedCharsFunnel(), (int) Math.min(capacity, Integer.MAX_VALUE),
+          FALSE_POSITIVE_RATE);
+    }
+
+    synchronized void put(final String key) {
+      filter.put(key);
+      inserted++;
+    }
+
+    synchronized void delete() {
+      deleted++;
+    }
+
+    synchronized boolean mightContain(final String key) {
+      return filter.mightContain(key);
+    }
+
+    synchronized boolean isStale() {
+      return inserted > capacity || deleted * 100 > inserted * REBUILD_DELETED_PERCENT;
+    }
+
+    /**
+     * Returns the capacity for an index of the given number of assets, leaving as much room to grow as is used.
+     */
+    static long capacityFor(final long assets) {
+      return Math.max(MIN_CAPACITY, assets * 2);
+    }
+  }
+
+  /**
+   * Incremented when the facet stops, so builds scheduled before are discarded rather than blocking new ones.
+   */
+  private int generation;
+
+  private boolean building;
+
+  /**
+   * Index answering requests, {@code null} until first built.
+   */
+  private volatile Index index;
+
+  /**
+   * Index being built, also kept current from events so nothing is missed while it is populated.
+   */
+  private volatile Index pending;
+
+  @Override
+  protected void doStart() throws Exception {
+    scheduleBuild();
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    synchronized (this) {
+      generation++;
+      building = false;
+      index = null;
+      pending = null;
+    }
+  }
+
+  @Override
+  public boolean mightContain(final Request request) {
+    final Index current = index;
+    if (current == null) {
+      return true;
+    }
+    final String key = key(request);
+    return key == null || current.mightContain(key);
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void on(final AssetCreatedEvent event) {
+    if (!isOwn(event)) {
+      return;
+    }
+    final String key = key(event.getAsset());
+    if (key == null) {
+      return;
+    }
+    final Index next = pending;
+    if (next != null) {
+      next.put(key);
+    }
+    final Index current = index;
+    if (current != null) {
+      current.put(key);
+      rebuildIfStale(current);
+    }
+  }
+
+  @Subscribe
+  @AllowConcurrentEvents
+  public void on(final AssetDeletedEvent event) {
+    if (!isOwn(event)) {
+      return;
+    }
+    final Index current = index;
+    if (current != null) {
+      current.delete();
+      rebuildIfStale(current);
+    }
+  }
+
+  /**
+   * Returns the index key of a request, or {@code null} if the request can not be decided by the index.
+   */
+  @Nullable
+  protected String key(final Request request) {
+    return normalize(request.getPath());
+  }
+
+  /**
+   * Returns the index key of an asset, or {@code null} if the asset is never requested directly.
+   */
+  @Nullable
+  protected String key(final Asset asset) {
+    return normalize(asset.name());
+  }
+
+  private static String normalize(final String path) {
+    return path.startsWith("/") ? path.substring(1) : path;
+  }
+
+  private boolean isOwn(final AssetEvent event) {
+    return getRepository().getName().equals(event.getRepository().getName());
+  }
+
+  private void rebuildIfStale(final Index current) {
+    if (current.isStale()) {
+      scheduleBuild();
+    }
+  }
+
+  private void scheduleBuild() {
+    final int scheduled;
+    synchronized (this) {
+      if (building) {
+        return;
+      }
+      building = true;
+      scheduled = generation;
+    }
+    builder.execute(new Runnable()
+    {
+      @Override
+      public void run() {
+        try {
+          build(scheduled);
+        }
+        catch (Exception e) {
+          log.warn("Failed to build member index of {}", getRepository().getName(), e);
+          synchronized (MemberIndexFacetImpl.this) {
+            if (generation == scheduled) {
+              pending = null;
+            }
+          }
+        }
+        finally {
+          synchronized (MemberIndexFacetImpl.this) {
+            if (generation == scheduled) {
+              building = false;
+            }
+          }
+        }
+      }
+    });
+  }
+
+  private void build(final int scheduled) {
+    try (StorageTx tx = facet(StorageFacet.class).openTx()) {
+      final long capacity = Index.capacityFor(tx.countAssets(null, null, ImmutableList.of(getRepository()), null));
+      final Index next = new Index(capacity);
+      synchronized (this) {
+        // facet may have been stopped meanwhile
+        if (generation != scheduled) {
+          return;
+        }
+        // kept current from events while populated, so nothing is missed
+        pending = next;
+      }
+      for (Asset asset : tx.browseAssets(tx.getBucket())) {
+        final String key = key(asset);
+        if (key != null) {
+          next.put(key);
+        }
+      }
+      synchronized (this) {
+        if (generation != scheduled) {
+          return;
+        }
+        index = next;
+        pending = null;
+      }
+      log.debug("Built member index of {} with capacity {}", getRepository().getName(), capacity);
+    }
+  }
+}
@@ -24,11 +24,22 @@ import org.sonatype.nexus.repository.view.Context;
 import org.sonatype.nexus.repository.view.Status;
 import org.sonatype.sisu.goodies.common.Time;
 
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+import com.codahale.metrics.SharedMetricRegistries;
 import com.google.common.annotations.VisibleForTesting;
 import net.sf.ehcache.Cache;
+import net.sf.ehcache.CacheException;
 import net.sf.ehcache.CacheManager;
 import net.sf.ehcache.Ehcache;
 import net.sf.ehcache.Element;
+import net.sf.ehcache.config.CacheConfiguration;
+import net.sf.ehcache.config.PersistenceConfiguration;
+import net.sf.ehcache.config.PersistenceConfiguration.Strategy;
+import net.sf.ehcache.event.CacheEventListenerAdapter;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static net.sf.ehcache.Status.STATUS_ALIVE;
@@ -37,6 +48,11 @@ import static org.sonatype.nexus.repository.FacetSupport.State.STARTED;
 /**
  * EHCache based {@link NegativeCacheFacet} implementation.
  *
+ * Path keys are additionally tracked in a {@link PathNegativeCacheKeyTrie}, so {@link #invalidateSubset} only visits
+ * the affected keys. The trie is synchronized with the cache under its own lock after every change of the cache, so
+ * concurrent puts and removals leave it holding exactly the cached keys. Hits, misses, expiries and evictions are
+ * reported as metrics of the repository.
+ *
  * @since 3.0
  */
 @Named("default")
@@ -59,11 +75,23 @@ public class NegativeCacheFacetImpl
      */
     public int timeToLive = Time.hours(24).toSecondsI();
 
+    /**
+     * Maximum number of cached entries.
+     */
+    public int maxElements = 10000;
+
+    /**
+     * Keep only the most recently used entries on heap, overflowing the rest to local disk.
+     */
+    public boolean overflowToDisk;
+
     @Override
     public String toString() {
       return getClass().getSimpleName() + "{" +
           "enabled=" + enabled +
           ", timeToLive=" + timeToLive +
+          ", maxElements=" + maxElements +
+          ", overflowToDisk=" + overflowToDisk +
           '}';
     }
   }
@@ -72,6 +100,19 @@ public class NegativeCacheFacetImpl
 
   private Ehcache cache;
 
+  @VisibleForTesting
+  final PathNegativeCacheKeyTrie pathKeys = new PathNegativeCacheKeyTrie();
+
+  private final MetricRegistry metrics = SharedMetricRegistries.getOrCreate("nexus");
+
+  private Meter hits;
+
+  private Meter misses;
+
+  private Meter expiries;
+
+  private Meter evictions;
+
   @Inject
   public NegativeCacheFacetImpl(final CacheManager cacheManager) {
     this.cacheManager = checkNotNull(cacheManager);
@@ -105,7 +146,9 @@ public class NegativeCacheFacetImpl
 
     // re-create cache if enabled or cache settings changed
     if (config.enabled) {
-      if (config.timeToLive != previous.timeToLive) {
+      if (config.timeToLive != previous.timeToLive
+          || config.maxElements != previous.maxElements
+          || config.overflowToDisk != previous.overflowToDisk) {
         maybeDestroyCache();
         maybeCreateCache();
       }
@@ -127,19 +170,96 @@ public class NegativeCacheFacetImpl
       log.debug("Creating negative-cache for: {}", getRepository());
       cache = newCache("negative-cache-" + getRepository().getName(), config.timeToLive);
       cacheManager.addCache(cache);
+      registerMetrics();
     }
   }
 
   @VisibleForTesting
   Ehcache newCache(final String name, final int timeToLiveSeconds) {
-    return new Cache(
-        name,
-        10000, // maxElementsInMemory
-        false, // overflowToDisk
-        false, // eternal
-        timeToLiveSeconds,
-        0 // timeToIdleSeconds
-    );
+    CacheConfiguration cacheConfig = new CacheConfiguration(name, config.maxElements)
+        .eternal(false)
+        .timeToLiveSeconds(timeToLiveSeconds)
+        .timeToIdleSeconds(0);
+    if (config.overflowToDisk) {
+      cacheConfig
+          .maxEntriesLocalHeap(Math.max(1, config.maxElements / 10))
+          .maxEntriesLocalDisk(config.maxElements)
+          .persistence(new PersistenceConfiguration().strategy(Strategy.LOCALTEMPSWAP));
+    }
+    Cache newCache = new Cache(cacheConfig);
+    newCache.getCacheEventNotificationService().registerListener(new CacheEventListenerAdapter()
+    {
+      @Override
+      public void notifyElementRemoved(final Ehcache cache, final Element element) throws CacheException {
+        syncPathKey(cache, element.getObjectKey());
+      }
+
+      @Override
+      public void notifyElementExpired(final Ehcache cache, final Element element) {
+        syncPathKey(cache, element.getObjectKey());
+        expiries.mark();
+      }
+
+      @Override
+      public void notifyElementEvicted(final Ehcache cache, final Element element) {
+        syncPathKey(cache, element.getObjectKey());
+        evictions.mark();
+      }
+
+      @Override
+      public void notifyRemoveAll(final Ehcache cache) {
+        syncPathKeys(cache);
+      }
+    });
+    return newCache;
+  }
+
+  /**
+   * Tracks the given key in the trie if it is a path key held by the cache, and forgets it otherwise.
+   */
+  private void syncPathKey(final Ehcache cache, final Object key) {
+    if (key instanceof PathNegativeCacheKey) {
+      synchronized (pathKeys) {
+        if (cache.isKeyInCache(key)) {
+          pathKeys.add((PathNegativeCacheKey) key);
+        }
+        else {
+          pathKeys.remove((PathNegativeCacheKey) key);
+        }
+      }
+    }
+  }
+
+  /**
+   * Replaces all keys tracked in the trie by the path keys held by the cache.
+   */
+  private void syncPathKeys(final Ehcache cache) {
+    synchronized (pathKeys) {
+      pathKeys.clear();
+      for (Object key : cache.getKeys()) {
+        if (key instanceof PathNegativeCacheKey) {
+          pathKeys.add((PathNegativeCacheKey) key);
+        }
+      }
+    }
+  }
+
+  private void registerMetrics() {
+    String prefix = MetricRegistry.name(NegativeCacheFacet.class, getRepository().getName());
+    hits = metrics.meter(MetricRegistry.name(prefix, "hits"));
+    misses = metrics.meter(MetricRegistry.name(prefix, "misses"));
+    expiries = metrics.meter(MetricRegistry.name(prefix, "expiries"));
+    evictions = metrics.meter(MetricRegistry.name(prefix, "evictions"));
+    final Meter hits = this.hits;
+    final Meter misses = this.misses;
+    metrics.remove(MetricRegistry.name(prefix, "hitRatio"));
+    metrics.register(MetricRegistry.name(prefix, "hitRatio"), new RatioGauge()
+    {
+      @Override
+      protected Ratio getRatio() {
+        return Ratio.of(hits.getFiveMinuteRate(), hits.getFiveMinuteRate() + misses.getFiveMinuteRate());
+      }
+    });
   }
 
   private void maybeDestroyCache() {
@@ -149,6 +269,14 @@ public class NegativeCacheFacetImpl
         cacheManager.removeCache(cache.getName());
       }
       cache = null;
+      pathKeys.clear();
+      metrics.removeMatching(new MetricFilter()
+      {
+        @Override
+        public boolean matches(final String name, final Metric metric) {
+          return name.startsWith(MetricRegistry.name(NegativeCacheFacet.class, getRepository().getName()) + ".");
+        }
+      });
     }
   }
 
@@ -158,7 +286,12 @@ public class NegativeCacheFacetImpl
     checkNotNull(key);
     if (cache != null) {
       Element element = cache.get(key);
-      return element == null || element.isExpired() ? null : (Status) element.getObjectValue();
+      if (element == null || element.isExpired()) {
+        misses.mark();
+        return null;
+      }
+      hits.mark();
+      return (Status) element.getObjectValue();
     }
     return null;
   }
@@ -171,6 +304,7 @@ public class NegativeCacheFacetImpl
     if (cache != null) {
       log.debug("Adding {}={} to negative-cache of {}", key, status, getRepository());
       cache.put(new Element(key, status));
+      syncPathKey(cache, key);
     }
   }
 
@@ -181,12 +315,24 @@ public class NegativeCacheFacetImpl
     if (cache != null) {
       log.debug("Removing {} from negative-cache of {}", key, getRepository());
       cache.remove(key);
+      syncPathKey(cache, key);
     }
   }
 
   @Override
   public void invalidateSubset(final NegativeCacheKey key) {
     invalidate(key);
+    if (cache == null) {
+      return;
+    }
+    if (key instanceof PathNegativeCacheKey) {
+      for (PathNegativeCacheKey child : pathKeys.children((PathNegativeCacheKey) key)) {
+        if (!key.equals(child)) {
+          invalidate(child);
+        }
+      }
+      return;
+    }
     for (Object entry : cache.getKeys()) {
       if (!key.equals(entry) && key.isParentOf((NegativeCacheKey) entry)) {
         invalidate((NegativeCacheKey) entry);
@@ -200,6 +346,7 @@ public class NegativeCacheFacetImpl
     if (cache != null) {
       log.debug("Removing all from negative-cache of {}", getRepository());
       cache.removeAll();
+      syncPathKeys(cache);
     }
   }
 
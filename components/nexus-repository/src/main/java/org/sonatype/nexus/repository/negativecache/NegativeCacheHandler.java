@@ -20,6 +20,7 @@ import org.sonatype.nexus.repository.view.Context;
 import org.sonatype.nexus.repository.view.Handler;
 import org.sonatype.nexus.repository.view.Response;
 import org.sonatype.nexus.repository.view.Status;
+import org.sonatype.nexus.repository.view.handlers.InstrumentationHandler.CacheOutcome;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
 /**
@@ -59,6 +60,7 @@ public class NegativeCacheHandler
       response = new Response.Builder()
           .status(status)
           .build();
+      CacheOutcome.NEGATIVE_HIT.mark(context);
 
       log.debug("Found {} in negative cache, returning {}", key, response);
     }
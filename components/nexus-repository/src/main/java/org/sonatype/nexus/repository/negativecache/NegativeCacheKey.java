@@ -12,12 +12,17 @@
  */
 package org.sonatype.nexus.repository.negativecache;
 
+import java.io.Serializable;
+
 /**
  * A key for the {@link NegativeCacheFacet} negative cache.
  *
+ * Keys are serializable, as the cache may overflow to disk.
+ *
  * @since 3.0
  */
 public interface NegativeCacheKey
+    extends Serializable
 {
   /**
    * @param key child key
@@ -28,6 +28,10 @@ public class PathNegativeCacheKey
     this.path = checkNotNull(path);
   }
 
+  public String getPath() {
+    return path;
+  }
+
   /**
    * @param key child key
    * @return true if child key path starts with this key path
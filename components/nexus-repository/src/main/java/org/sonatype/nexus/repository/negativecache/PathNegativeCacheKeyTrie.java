@@ -0,0 +1,148 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.negativecache;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Trie of {@link PathNegativeCacheKey}s by path segment, so the children of a key can be found without visiting all
+ * keys.
+ *
+ * @since 3.0
+ */
+class PathNegativeCacheKeyTrie
+{
+  private static class Node
+  {
+    private final Node parent;
+
+    private final String segment;
+
+    private final Map<String, Node> children = new HashMap<>();
+
+    private PathNegativeCacheKey key;
+
+    private Node(@Nullable final Node parent, @Nullable final String segment) {
+      this.parent = parent;
+      this.segment = segment;
+    }
+  }
+
+  private Node root = new Node(null, null);
+
+  private int size;
+
+  public synchronized void add(final PathNegativeCacheKey key) {
+    checkNotNull(key);
+    Node node = root;
+    for (String segment : segments(key.getPath())) {
+      Node child = node.children.get(segment);
+      if (child == null) {
+        child = new Node(node, segment);
+        node.children.put(segment, child);
+      }
+      node = child;
+    }
+    if (node.key == null) {
+      size++;
+    }
+    node.key = key;
+  }
+
+  public synchronized void remove(final PathNegativeCacheKey key) {
+    checkNotNull(key);
+    Node node = find(segments(key.getPath()));
+    if (node == null || node.key == null) {
+      return;
+    }
+    node.key = null;
+    size--;
+    // prune branches left without keys
+    while (node.parent != null && node.key == null && node.children.isEmpty()) {
+      node.parent.children.remove(node.segment);
+      node = node.parent;
+    }
+  }
+
+  /**
+   * Returns all keys the given key {@link PathNegativeCacheKey#isParentOf(NegativeCacheKey) is parent of}.
+   */
+  public synchronized List<PathNegativeCacheKey> children(final PathNegativeCacheKey key) {
+    checkNotNull(key);
+    List<PathNegativeCacheKey> result = new ArrayList<>();
+    String path = key.getPath();
+    if (!path.endsWith("/")) {
+      return result;
+    }
+    // children of "a/b/" are all keys strictly below the "a", "b" node
+    List<String> segments = segments(path);
+    Node node = find(segments.subList(0, segments.size() - 1));
+    if (node == null) {
+      return result;
+    }
+    Deque<Node> pending = new ArrayDeque<>(node.children.values());
+    while (!pending.isEmpty()) {
+      Node next = pending.pop();
+      if (next.key != null) {
+        result.add(next.key);
+      }
+      pending.addAll(next.children.values());
+    }
+    return result;
+  }
+
+  public synchronized void clear() {
+    root = new Node(null, null);
+    size = 0;
+  }
+
+  public synchronized int size() {
+    return size;
+  }
+
+  @Nullable
+  private Node find(final List<String> segments) {
+    Node node = root;
+    for (String segment : segments) {
+      node = node.children.get(segment);
+      if (node == null) {
+        return null;
+      }
+    }
+    return node;
+  }
+
+  /**
+   * Splits a path on '/', retaining empty segments, so "a/b" and "a/b/" end up on different nodes.
+   */
+  private static List<String> segments(final String path) {
+    List<String> segments = new ArrayList<>();
+    int start = 0;
+    int end;
+    while ((end = path.indexOf('/', start)) != -1) {
+      segments.add(path.substring(start, end));
+      start = end + 1;
+    }
+    segments.add(path.substring(start));
+    return segments;
+  }
+}
@@ -0,0 +1,99 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.partial;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.repository.view.Payload;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Range;
+import com.google.common.io.ByteSource;
+import com.google.common.net.HttpHeaders;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A wrapper {@link Payload} that returns several portions of the original payload as a {@code multipart/byteranges}
+ * body, as per <a href="https://tools.ietf.org/html/rfc7233#appendix-A">RFC 7233</a>.
+ *
+ * Each portion is only opened once the body has been sent up to it.
+ */
+class MultipartByteRangesPayload
+    implements Payload
+{
+  private final String boundary;
+
+  private final ByteSource body;
+
+  private final long size;
+
+  /**
+   * The endpoints of each Range are interpreted as the first and last byte positions to send.
+   */
+  public MultipartByteRangesPayload(final Payload payload,
+                                    final List<Range<Long>> rangesToSend,
+                                    final String boundary)
+  {
+    this.boundary = checkNotNull(boundary);
+
+    List<ByteSource> parts = new ArrayList<>();
+    long bodySize = 0;
+    for (Range<Long> range : rangesToSend) {
+      StringBuilder header = new StringBuilder("\r\n--").append(boundary).append("\r\n");
+      if (payload.getContentType() != null) {
+        header.append(HttpHeaders.CONTENT_TYPE).append(": ").append(payload.getContentType()).append("\r\n");
+      }
+      header.append(HttpHeaders.CONTENT_RANGE).append(": ")
+          .append(PartialFetchHandler.contentRange(range, payload.getSize())).append("\r\n\r\n");
+      byte[] headerBytes = header.toString().getBytes(Charsets.US_ASCII);
+
+      final PartialPayload partial = new PartialPayload(payload, range);
+      parts.add(ByteSource.wrap(headerBytes));
+      parts.add(new ByteSource()
+      {
+        @Override
+        public InputStream openStream() throws IOException {
+          return partial.openInputStream();
+        }
+      });
+      bodySize += headerBytes.length + partial.getSize();
+    }
+    byte[] trailer = ("\r\n--" + boundary + "--\r\n").getBytes(Charsets.US_ASCII);
+    parts.add(ByteSource.wrap(trailer));
+
+    this.body = ByteSource.concat(parts);
+    this.size = bodySize + trailer.length;
+  }
+
+  @Override
+  public InputStream openInputStream() throws IOException {
+    return body.openStream();
+  }
+
+  @Override
+  public long getSize() {
+    return size;
+  }
+
+  @Nullable
+  @Override
+  public String getContentType() {
+    return "multipart/byteranges; boundary=" + boundary;
+  }
+}
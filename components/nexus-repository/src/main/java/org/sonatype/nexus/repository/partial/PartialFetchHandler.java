@@ -13,12 +13,14 @@
 package org.sonatype.nexus.repository.partial;
 
 import java.util.List;
+import java.util.UUID;
 
 import javax.annotation.Nonnull;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
 
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.repository.http.HttpMethods;
 import org.sonatype.nexus.repository.http.HttpResponses;
 import org.sonatype.nexus.repository.http.HttpStatus;
@@ -29,7 +31,12 @@ import org.sonatype.nexus.repository.view.Request;
 import org.sonatype.nexus.repository.view.Response;
 import org.sonatype.nexus.repository.view.Status;
 
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.DiscreteDomain;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
 import com.google.common.net.HttpHeaders;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -38,6 +45,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * Implements partial-fetch semantics (as per RFC 2616) for {@link Status#isSuccessful() successful}
  * responses with payloads.
  *
+ * Several ranges are sent as a {@code multipart/byteranges} body, once overlapping and adjacent ranges were coalesced.
+ * Requests for more ranges than {@code PartialFetchHandler.maxRanges} are sent the complete content instead.
+ *
  * @since 3.0
  */
 @Named
@@ -45,6 +55,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class PartialFetchHandler
     implements Handler
 {
+  private static final int MAX_RANGES = SystemPropertiesHelper.getInteger(
+      PartialFetchHandler.class.getName() + ".maxRanges", 16);
+
   private final RangeParser rangeParser;
 
   @Inject
@@ -82,20 +95,28 @@ public class PartialFetchHandler
       return response;
     }
 
-    final List<Range<Long>> ranges = rangeParser.parseRangeSpec(rangeHeader, payload.getSize());
+    final List<Range<Long>> requestedRanges = rangeParser.parseRangeSpec(rangeHeader, payload.getSize());
 
-    if (ranges == null) {
+    if (requestedRanges == null) {
       // The ranges were not satisfiable
       return HttpResponses.rangeNotSatisfiable(payload.getSize());
     }
 
-    if (ranges.isEmpty()) {
+    if (requestedRanges.isEmpty()) {
       // No ranges were specified, or they could not be parsed
       return response;
     }
 
+    if (requestedRanges.size() > MAX_RANGES) {
+      // Too many ranges to be worth splitting up the payload
+      return response;
+    }
+
+    // Never send the same bytes twice
+    final List<Range<Long>> ranges = coalesce(requestedRanges);
+
     if (ranges.size() > 1) {
-      return HttpResponses.notImplemented("Multiple ranges not supported.");
+      return multipartResponse(response, payload, ranges);
     }
 
     Range<Long> requestedRange = ranges.get(0);
@@ -119,12 +140,52 @@ public class PartialFetchHandler
     builder.payload(partialPayload);
 
     // ResponseSender takes care of Content-Length header, via payload.size
-    builder.header(HttpHeaders.CONTENT_RANGE,
-        requestedRange.lowerEndpoint() + "-" + requestedRange.upperEndpoint() + "/" + payload.getSize());
+    builder.header(HttpHeaders.CONTENT_RANGE, contentRange(requestedRange, payload.getSize()));
 
     return builder.build();
   }
 
+  /**
+   * Mutate the response into one that returns several parts of the payload, each with its own content range.
+   */
+  private Response multipartResponse(final Response response,
+                                     final Payload payload,
+                                     final List<Range<Long>> requestedRanges)
+  {
+    Response.Builder builder = new Response.Builder()
+        .copy(response)
+        .status(Status.success(HttpStatus.PARTIAL_CONTENT));
+
+    String boundary = UUID.randomUUID().toString().replace("-", "");
+    builder.payload(new MultipartByteRangesPayload(payload, requestedRanges, boundary));
+
+    return builder.build();
+  }
+
+  /**
+   * Coalesces overlapping and adjacent ranges, as RFC 7233 permits regardless of the order they were requested in.
+   */
+  @VisibleForTesting
+  static List<Range<Long>> coalesce(final List<Range<Long>> ranges) {
+    RangeSet<Long> rangeSet = TreeRangeSet.create();
+    for (Range<Long> range : ranges) {
+      // canonical form [lower, upper + 1) makes adjacent ranges connected
+      rangeSet.add(range.canonical(DiscreteDomain.longs()));
+    }
+    List<Range<Long>> coalesced = Lists.newArrayList();
+    for (Range<Long> range : rangeSet.asRanges()) {
+      coalesced.add(Range.closed(range.lowerEndpoint(), range.upperEndpoint() - 1));
+    }
+    return coalesced;
+  }
+
+  /**
+   * Returns the Content-Range header value of a range of the payload.
+   */
+  static String contentRange(final Range<Long> range, final long size) {
+    return "bytes " + range.lowerEndpoint() + "-" + range.upperEndpoint() + "/" + size;
+  }
+
   private String getRangeHeader(final Context context) {
     final Request request = context.getRequest();
     return request.getHeaders().get(HttpHeaders.RANGE);
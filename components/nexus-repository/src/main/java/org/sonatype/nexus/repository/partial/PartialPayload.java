@@ -18,10 +18,12 @@ import java.io.InputStream;
 import javax.annotation.Nullable;
 
 import org.sonatype.nexus.repository.view.Payload;
+import org.sonatype.nexus.repository.view.SeekablePayload;
 
 import com.google.common.collect.Range;
 
 import static com.google.common.io.ByteStreams.limit;
+import static com.google.common.io.ByteStreams.skipFully;
 
 /**
  * A wrapper {@link Payload} that returns only a portion of the original payload.
@@ -44,10 +46,23 @@ class PartialPayload
     this.partialSize = 1 + rangeToSend.upperEndpoint() - rangeToSend.lowerEndpoint();
   }
 
+  /**
+   * {@link SeekablePayload Seekable} payloads are opened at the start of the range, otherwise the content before it
+   * is skipped.
+   */
   @Override
   public InputStream openInputStream() throws IOException {
+    if (payload instanceof SeekablePayload) {
+      return limit(((SeekablePayload) payload).openInputStream(rangeToSend.lowerEndpoint()), partialSize);
+    }
     final InputStream payloadStream = payload.openInputStream();
-    payloadStream.skip(rangeToSend.lowerEndpoint());
+    try {
+      skipFully(payloadStream, rangeToSend.lowerEndpoint());
+    }
+    catch (IOException e) {
+      payloadStream.close();
+      throw e;
+    }
     return limit(payloadStream, partialSize);
   }
 
@@ -12,16 +12,16 @@
  */
 package org.sonatype.nexus.repository.partial;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
+import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.collect.Range;
 
-import static java.util.Collections.singletonList;
-
 /**
  * Parses the "Range" request header.
  *
@@ -37,47 +37,53 @@ class RangeParser
   public static final List<Range<Long>> WHOLE_RANGE = Collections.emptyList();
 
   /**
-   * Returns a list of {@link Range}s, each indicating a range of byte indices (inclusive).
+   * Returns a list of {@link Range}s, each indicating a range of byte indices (inclusive), in the requested order.
    *
    * Range: bytes=0-10 (from byte 0 to byte 10)
    * Range: bytes=500-999 (from byte 500 to byte 999)
    * Range: bytes=500- (from byte 500 to the end)
    * Range: bytes=-500 (the last 500 bytes, per the RFC)
+   * Range: bytes=0-10,500-999 (several of the above, separated by commas)
+   *
+   * Ranges that cannot be satisfied given the size of the content are dropped from the list.
    *
-   * @return {@code null} if the requested range cannot be satisfied given the size of the content, or an empty list in
-   * the case of parsing errors
+   * @return {@code null} if none of the requested ranges can be satisfied given the size of the content, or an empty
+   * list in the case of parsing errors
    */
   public List<Range<Long>> parseRangeSpec(final String rangeHeader, long size) {
-    Range content = Range.closed(0L, size - 1L);
-
-    // TODO: Current limitation: only one Range of bytes supported in forms of "-X", "X-Y" (where X<Y) and "X-".
     if (!Strings.isNullOrEmpty(rangeHeader)) {
       try {
-        if (rangeHeader.startsWith("bytes=") && rangeHeader.length() > 6 && !rangeHeader.contains(",")) {
-          final String rangeSpec = rangeHeader.substring(6, rangeHeader.length());
-          if (rangeSpec.startsWith("-")) {
-            final long byteCount = Long.parseLong(rangeSpec.substring(1));
-            if (byteCount > size) {
-              return UNSATISFIABLE;
+        if (rangeHeader.startsWith("bytes=") && rangeHeader.length() > 6) {
+          final Range<Long> content = Range.closed(0L, size - 1L);
+          final List<Range<Long>> ranges = new ArrayList<>();
+          for (String rangeSpec : Splitter.on(',').trimResults().split(rangeHeader.substring(6))) {
+            final Range<Long> requested;
+            if (rangeSpec.startsWith("-")) {
+              final long byteCount = Long.parseLong(rangeSpec.substring(1));
+              if (byteCount > size) {
+                continue;
+              }
+              requested = Range.atLeast(size - byteCount);
+            }
+            else if (rangeSpec.endsWith("-")) {
+              requested = Range.atLeast(Long.parseLong(rangeSpec.substring(0, rangeSpec.length() - 1)));
+            }
+            else if (rangeSpec.contains("-")) {
+              final String[] parts = rangeSpec.split("-");
+              requested = Range.closed(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+            }
+            else {
+              log.warn("Malformed HTTP Range value: {}, ignoring it", rangeHeader);
+              return WHOLE_RANGE;
+            }
+            if (requested.isConnected(content)) {
+              ranges.add(requested.intersection(content));
             }
-            final Range<Long> suffix = Range.atLeast(size - byteCount);
-            return ensureSatisfiable(suffix, content);
-          }
-          else if (rangeSpec.endsWith("-")) {
-            final Range<Long> requested = Range.atLeast(Long.parseLong(rangeSpec.substring(0, rangeSpec.length() - 1)));
-            return ensureSatisfiable(requested, content);
-          }
-          else if (rangeSpec.contains("-")) {
-            final String[] parts = rangeSpec.split("-");
-            return ensureSatisfiable(Range.closed(Long.parseLong(parts[0]), Long.parseLong(parts[1])), content);
-          }
-          else {
-            log.warn("Malformed HTTP Range value: {}, ignoring it", rangeHeader);
           }
+          return ranges.isEmpty() ? UNSATISFIABLE : ranges;
         }
         else {
-          log.warn(
-              "Nexus does not support non-byte or multiple HTTP Ranges, sending complete content: Range value {}",
+          log.warn("Nexus does not support non-byte HTTP Ranges, sending complete content: Range value {}",
               rangeHeader);
         }
       }
@@ -93,22 +99,4 @@ class RangeParser
 
     return WHOLE_RANGE;
   }
-
-  private List<Range<Long>> ensureSatisfiable(Range<Long> requested, Range content) {
-    if (requested.isConnected(content)) {
-      return singletonList(requested.intersection(content));
-    }
-    else {
-      return UNSATISFIABLE;
-    }
-  }
-
-  private boolean isSatisfiable(final Range<Long> range, final long contentSize) {
-    if (!range.hasLowerBound()) {
-      return true;
-    }
-    // Per RFC 2616, a requested range is satisfiable as long as its lower bound is within the content size.
-    // Requests for ranges that extend beyond the content size are okay.
-    return range.lowerEndpoint() < contentSize - 1;
-  }
 }
@@ -13,12 +13,25 @@
 package org.sonatype.nexus.repository.proxy;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.net.URI;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.inject.Inject;
 import javax.validation.constraints.NotNull;
 
+import org.sonatype.nexus.common.app.ApplicationDirectories;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.repository.FacetSupport;
 import org.sonatype.nexus.repository.InvalidContentException;
 import org.sonatype.nexus.repository.MissingFacetException;
@@ -29,11 +42,21 @@ import org.sonatype.nexus.repository.negativecache.NegativeCacheFacet;
 import org.sonatype.nexus.repository.view.Content;
 import org.sonatype.nexus.repository.view.Context;
 import org.sonatype.nexus.repository.view.Payload;
+import org.sonatype.nexus.repository.view.handlers.InstrumentationHandler.CacheOutcome;
 import org.sonatype.nexus.repository.view.payloads.HttpEntityPayload;
+import org.sonatype.nexus.repository.view.payloads.StreamPayload.InputStreamSupplier;
+import org.sonatype.nexus.thread.NexusExecutorService;
+import org.sonatype.nexus.thread.NexusThreadFactory;
 
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Strings;
+import com.google.common.base.Throwables;
+import com.google.common.collect.Maps;
 import com.google.common.net.HttpHeaders;
+import com.google.common.util.concurrent.SettableFuture;
 import org.apache.http.Header;
 import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
@@ -59,6 +82,45 @@ public abstract class ProxyFacetSupport
   @VisibleForTesting
   static final String CONFIG_KEY = "proxy";
 
+  private static final int REFRESH_THREADS = SystemPropertiesHelper.getInteger(
+      ProxyFacetSupport.class.getName() + ".refreshThreads", 10);
+
+  private static final int REFRESH_QUEUE_SIZE = SystemPropertiesHelper.getInteger(
+      ProxyFacetSupport.class.getName() + ".refreshQueueSize", 1000);
+
+  /**
+   * Background refreshes of all proxy repositories; refreshes rejected when the queue is full are done in the
+   * foreground, or skipped when refreshing ahead of staleness.
+   */
+  private static final NexusExecutorService refreshPool = NexusExecutorService.forCurrentSubject(
+      new ThreadPoolExecutor(REFRESH_THREADS, REFRESH_THREADS, 60L, TimeUnit.SECONDS,
+          new ArrayBlockingQueue<Runnable>(REFRESH_QUEUE_SIZE),
+          new NexusThreadFactory("proxyrefresh", "Proxy Refresh", Thread.NORM_PRIORITY, true)));
+
+  /**
+   * Remote content of at least this many bytes, or of unknown size, is streamed to requests while being stored;
+   * negative to disable streaming.
+   */
+  private static final long STREAM_THRESHOLD_BYTES = SystemPropertiesHelper.getLong(
+      ProxyFacetSupport.class.getName() + ".streamThresholdBytes", 1024 * 1024);
+
+  private static final int STREAM_THREADS = SystemPropertiesHelper.getInteger(
+      ProxyFacetSupport.class.getName() + ".streamThreads", 50);
+
+  /**
+   * Stores streamed remote content of all proxy repositories; content is stored in the foreground when all threads
+   * are busy.
+   */
+  private static final NexusExecutorService streamPool = NexusExecutorService.forCurrentSubject(
+      new ThreadPoolExecutor(0, STREAM_THREADS, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+          new NexusThreadFactory("proxystream", "Proxy Stream", Thread.NORM_PRIORITY, true)));
+
+  /**
+   * Longest a request waits for the in-flight fetch of the same content before fetching it independently.
+   */
+  private static final int INFLIGHT_TIMEOUT_SECONDS = SystemPropertiesHelper.getInteger(
+      ProxyFacetSupport.class.getName() + ".inflightTimeoutSeconds", 300);
+
   @VisibleForTesting
   static class Config
   {
@@ -71,21 +133,67 @@ public abstract class ProxyFacetSupport
     @NotNull
     public int artifactMaxAge;
 
+    /**
+     * Serve stale content immediately, revalidating it against the remote in the background.
+     */
+    public boolean staleWhileRevalidate;
+
+    /**
+     * Refresh-ahead minutes; content requested this close to turning stale is revalidated in the background.
+     */
+    public int refreshAheadMinutes;
+
     @Override
     public String toString() {
       return getClass().getSimpleName() + "{" +
           "remoteUrl=" + remoteUrl +
           ", artifactMaxAge=" + artifactMaxAge +
+          ", staleWhileRevalidate=" + staleWhileRevalidate +
+          ", refreshAheadMinutes=" + refreshAheadMinutes +
           '}';
     }
   }
 
   private Config config;
 
+  private ApplicationDirectories applicationDirectories;
+
   private HttpClientFacet httpClient;
 
   private boolean remoteUrlChanged;
 
+  /**
+   * In-flight remote fetches, keyed by {@link #getUrl(Context)}; used to coalesce concurrent cache misses.
+   */
+  private final ConcurrentMap<String, SettableFuture<Void>> inflight = Maps.newConcurrentMap();
+
+  /**
+   * Remote content being streamed while stored, keyed by {@link #getUrl(Context)}; coalesced requests follow it.
+   */
+  private final ConcurrentMap<String, Spool> streaming = Maps.newConcurrentMap();
+
+  @VisibleForTesting
+  long inflightTimeoutMillis = TimeUnit.SECONDS.toMillis(INFLIGHT_TIMEOUT_SECONDS);
+
+  private Counter leaderRequests;
+
+  private Counter coalescedRequests;
+
+  private Counter staleServes;
+
+  private Counter backgroundRefreshes;
+
+  private Counter refreshFailures;
+
+  private Counter streamedFetches;
+
+  private Counter inflightTimeouts;
+
+  @Inject
+  public void installProxyDependencies(final ApplicationDirectories applicationDirectories) {
+    this.applicationDirectories = checkNotNull(applicationDirectories);
+  }
+
   @Override
   protected void doValidate(final Configuration configuration) throws Exception {
     facet(ConfigurationFacet.class).validateSection(configuration, CONFIG_KEY, Config.class);
@@ -120,6 +228,17 @@ public abstract class ProxyFacetSupport
   protected void doStart() throws Exception {
     httpClient = facet(HttpClientFacet.class);
 
+    // facets are created by format plugin injectors, so use the shared registry rather than injection
+    MetricRegistry metrics = SharedMetricRegistries.getOrCreate("nexus");
+    String repositoryName = getRepository().getName();
+    leaderRequests = metrics.counter(MetricRegistry.name(ProxyFacet.class, repositoryName, "leaderRequests"));
+    coalescedRequests = metrics.counter(MetricRegistry.name(ProxyFacet.class, repositoryName, "coalescedRequests"));
+    staleServes = metrics.counter(MetricRegistry.name(ProxyFacet.class, repositoryName, "staleServes"));
+    backgroundRefreshes = metrics.counter(MetricRegistry.name(ProxyFacet.class, repositoryName, "backgroundRefreshes"));
+    refreshFailures = metrics.counter(MetricRegistry.name(ProxyFacet.class, repositoryName, "refreshFailures"));
+    streamedFetches = metrics.counter(MetricRegistry.name(ProxyFacet.class, repositoryName, "streamedFetches"));
+    inflightTimeouts = metrics.counter(MetricRegistry.name(ProxyFacet.class, repositoryName, "inflightTimeouts"));
+
     if (remoteUrlChanged) {
       remoteUrlChanged = false;
 
@@ -147,24 +266,268 @@ public abstract class ProxyFacetSupport
 
     Content content = getCachedPayload(context);
 
-    if (content == null || isStale(context)) {
-      try {
-        final Content remote = fetch(context, content);
-        if (remote != null) {
+    if (content != null) {
+      final DateTime lastVerified = getCachedPayloadLastVerified(context);
+      if (!isStale(lastVerified, 0)) {
+        if (config.refreshAheadMinutes > 0 && isStale(lastVerified, config.refreshAheadMinutes)) {
+          refreshInBackground(context, content);
+        }
+        CacheOutcome.HIT.mark(context);
+        return content;
+      }
+      if (config.staleWhileRevalidate && refreshInBackground(context, content)) {
+        staleServes.inc();
+        CacheOutcome.HIT.mark(context);
+        return content;
+      }
+    }
+    CacheOutcome.MISS.mark(context);
+    return fetchCoalesced(context, content);
+  }
+
+  /**
+   * Fetches content from the remote, or waits for the in-flight fetch of the same content to complete.
+   */
+  @Nullable
+  private Content fetchCoalesced(final Context context, @Nullable final Content stale) throws IOException {
+    final String key = getUrl(context);
+    final SettableFuture<Void> leader = SettableFuture.create();
+    final SettableFuture<Void> existing = inflight.putIfAbsent(key, leader);
+    if (existing != null) {
+      coalescedRequests.inc();
+      Spool spool = streaming.get(key);
+      if (spool != null) {
+        // another request is streaming this content; follow it as it arrives
+        log.debug("Following in-flight stream: {}", key);
+        return spool.content();
+      }
+      // another request is already fetching this content; wait for it and serve what it cached
+      log.debug("Coalescing with in-flight fetch: {}", key);
+      if (!awaitInflight(key, existing)) {
+        // the in-flight fetch is slow rather than failed; fetch independently instead of failing this request
+        inflightTimeouts.inc();
+        log.debug("In-flight fetch still running, fetching independently: {}", key);
+        return fetchAndStore(context, stale);
+      }
+      return getCachedPayload(context);
+    }
 
-          // TODO: Introduce content validation.. perhaps content's type not matching path's implied type.
+    leaderRequests.inc();
+    if (stale == null && STREAM_THRESHOLD_BYTES >= 0) {
+      return fetchAndStream(context, key, leader);
+    }
+    try {
+      Content content = fetchAndStore(context, stale);
+      leader.set(null);
+      return content;
+    }
+    catch (IOException | RuntimeException e) {
+      leader.setException(e);
+      throw e;
+    }
+    finally {
+      abandon(key, leader);
+      inflight.remove(key, leader);
+    }
+  }
 
-          store(context, remote);
+  /**
+   * Fetches content missing from the cache, streaming large content to the request while it is stored in the
+   * background.  The in-flight fetch completes once the content is stored.
+   */
+  @Nullable
+  private Content fetchAndStream(final Context context, final String key, final SettableFuture<Void> leader)
+      throws IOException
+  {
+    boolean streamed = false;
+    try {
+      final Content remote = fetch(context, null);
+      if (remote == null) {
+        leader.set(null);
+        return null;
+      }
+      if (remote.getSize() < 0 || remote.getSize() >= STREAM_THRESHOLD_BYTES) {
+        Content content = stream(context, key, leader, remote);
+        if (content != null) {
+          streamed = true;
+          return content;
+        }
+      }
+      store(context, remote);
+      leader.set(null);
+      return getCachedPayload(context);
+    }
+    catch (IOException | RuntimeException e) {
+      log.warn("Failed to fetch: {}", key, e);
+      leader.setException(e);
+      throw e;
+    }
+    finally {
+      if (!streamed) {
+        abandon(key, leader);
+        inflight.remove(key, leader);
+      }
+    }
+  }
 
-          content = getCachedPayload(context);
+  /**
+   * Stores the given remote content in the background, returning content which follows it as it is stored, or
+   * {@code null} if no thread was available to store it.
+   */
+  @Nullable
+  private Content stream(final Context context,
+                         final String key,
+                         final SettableFuture<Void> leader,
+                         final Content remote) throws IOException
+  {
+    final Spool spool = new Spool(remote, new InputStreamSupplier()
+    {
+      @Override
+      public InputStream get() throws IOException {
+        // spool was released after the content was stored
+        Content content = getCachedPayload(context);
+        if (content == null) {
+          throw new IOException("Content no longer available: " + key);
         }
+        return content.openInputStream();
       }
-      catch (IOException e) {
-        log.warn("Failed to fetch: {}", getUrl(context), e);
-        throw e;
+    }, applicationDirectories.getTemporaryDirectory());
+    streaming.put(key, spool);
+    try {
+      streamPool.execute(new Runnable()
+      {
+        @Override
+        public void run() {
+          try {
+            store(context, spool.tee());
+            spool.complete();
+            leader.set(null);
+          }
+          catch (Exception e) {
+            log.warn("Failed to fetch: {}", key, e);
+            spool.fail(e);
+            leader.setException(e);
+          }
+          finally {
+            // unless already done, an Error escaped storing; fail readers rather than leave them waiting
+            spool.fail(new IOException("Failed to store: " + key));
+            abandon(key, leader);
+            streaming.remove(key, spool);
+            inflight.remove(key, leader);
+          }
+        }
+      });
+    }
+    catch (RejectedExecutionException e) {
+      log.debug("No thread available to stream: {}", key);
+      streaming.remove(key, spool);
+      spool.discard();
+      return null;
+    }
+    streamedFetches.inc();
+    log.debug("Streaming while storing: {}", key);
+    return spool.content();
+  }
+
+  /**
+   * Revalidates the given cached content against the remote in the background, unless already in-flight.  Returns
+   * {@code false} if the refresh could not be scheduled.
+   */
+  private boolean refreshInBackground(final Context context, final Content cached) {
+    final String key = getUrl(context);
+    final SettableFuture<Void> leader = SettableFuture.create();
+    if (inflight.putIfAbsent(key, leader) != null) {
+      log.trace("Refresh already in-flight: {}", key);
+      return true;
+    }
+
+    try {
+      refreshPool.execute(new Runnable()
+      {
+        @Override
+        public void run() {
+          backgroundRefreshes.inc();
+          try {
+            fetchAndStore(context, cached);
+            leader.set(null);
+          }
+          catch (Exception e) {
+            refreshFailures.inc();
+            log.debug("Background refresh failed: {}", key, e);
+            leader.setException(e);
+          }
+          finally {
+            abandon(key, leader);
+            inflight.remove(key, leader);
+          }
+        }
+      });
+      log.debug("Refreshing in background: {}", key);
+      return true;
+    }
+    catch (RejectedExecutionException e) {
+      log.debug("Background refresh queue full: {}", key);
+      inflight.remove(key, leader);
+      // release any request which coalesced meanwhile, it serves the cached content
+      leader.set(null);
+      return false;
+    }
+  }
+
+  /**
+   * Fetches content from the remote and stores it, returning the freshly cached content, or the given stale content
+   * if the remote had nothing newer.
+   */
+  @Nullable
+  private Content fetchAndStore(final Context context, @Nullable final Content stale) throws IOException {
+    try {
+      final Content remote = fetch(context, stale);
+      if (remote != null) {
+
+        // TODO: Introduce content validation.. perhaps content's type not matching path's implied type.
+
+        store(context, remote);
+
+        return getCachedPayload(context);
       }
+      return stale;
+    }
+    catch (IOException e) {
+      log.warn("Failed to fetch: {}", getUrl(context), e);
+      throw e;
+    }
+  }
+
+  /**
+   * Fails the in-flight fetch for the given key unless it was completed, releasing requests waiting for it when an
+   * {@link Error} escaped the fetch.
+   */
+  private static void abandon(final String key, final SettableFuture<Void> future) {
+    if (!future.isDone()) {
+      future.setException(new IOException("In-flight fetch did not complete: " + key));
+    }
+  }
+
+  /**
+   * Blocks until the in-flight fetch for the given key completes, re-throwing its failure if any. Returns {@code
+   * false} if it did not complete in time.
+   */
+  private boolean awaitInflight(final String key, final SettableFuture<Void> future) throws IOException {
+    try {
+      future.get(inflightTimeoutMillis, TimeUnit.MILLISECONDS);
+      return true;
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted waiting for in-flight fetch: " + key);
+    }
+    catch (TimeoutException e) {
+      return false;
+    }
+    catch (ExecutionException e) {
+      Throwables.propagateIfPossible(e.getCause());
+      throw new IOException("In-flight fetch failed: " + key, e.getCause());
     }
-    return content;
   }
 
   /**
@@ -278,20 +641,21 @@ public abstract class ProxyFacetSupport
    */
   protected abstract String getUrl(final @Nonnull Context context);
 
-  private boolean isStale(final Context context) throws IOException {
+  /**
+   * Returns whether content last verified at the given date is stale, or will be within the given minutes.
+   */
+  private boolean isStale(@Nullable final DateTime lastUpdated, final int aheadMinutes) {
     if (config.artifactMaxAge < 0) {
       log.trace("Artifact max age checking disabled");
       return false;
     }
 
-    final DateTime lastUpdated = getCachedPayloadLastVerified(context);
-
     if (lastUpdated == null) {
       log.debug("Artifact last modified date unknown");
       return true;
     }
 
-    final DateTime earliestFreshDate = new DateTime().minusMinutes(config.artifactMaxAge);
+    final DateTime earliestFreshDate = new DateTime().minusMinutes(config.artifactMaxAge - aheadMinutes);
     return lastUpdated.isBefore(earliestFreshDate);
   }
 }
@@ -0,0 +1,346 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.proxy;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.repository.view.Content;
+import org.sonatype.nexus.repository.view.Payload;
+import org.sonatype.nexus.repository.view.payloads.StreamPayload.InputStreamSupplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Spools remote content to a temporary file while it is being stored, so requests can be served as it arrives.
+ *
+ * The remote content is read once, by whoever stores the {@link #tee()} payload; any number of requests follow it
+ * through {@link #content()}.  Readers only reach the end once the content was stored, and fail if storing failed.
+ * Readers opened after the spool was released read the stored content instead.
+ *
+ * @since 3.0
+ */
+class Spool
+{
+  private static final Logger log = LoggerFactory.getLogger(Spool.class);
+
+  private final Content remote;
+
+  private final InputStreamSupplier stored;
+
+  private final File file;
+
+  private final OutputStream output;
+
+  private boolean teed;
+
+  private long written;
+
+  private boolean writing = true;
+
+  private Throwable failure;
+
+  private int readers;
+
+  private boolean released;
+
+  Spool(final Content remote, final InputStreamSupplier stored, final File directory) throws IOException {
+    this.remote = checkNotNull(remote);
+    this.stored = checkNotNull(stored);
+    this.file = File.createTempFile("proxy-", ".spool", checkNotNull(directory));
+    this.output = new FileOutputStream(file);
+  }
+
+  /**
+   * Returns the remote content, which spools its bytes as they are read.
+   */
+  Content tee() {
+    Content content = new Content(new Payload()
+    {
+      @Override
+      public InputStream openInputStream() throws IOException {
+        synchronized (Spool.this) {
+          checkState(!teed, "Remote content already read");
+          teed = true;
+        }
+        return new TeeStream(remote.openInputStream());
+      }
+
+      @Override
+      public long getSize() {
+        return remote.getSize();
+      }
+
+      @Nullable
+      @Override
+      public String getContentType() {
+        return remote.getContentType();
+      }
+    });
+    copyAttributes(content);
+    return content;
+  }
+
+  /**
+   * Returns content following the spooled bytes, for one request.
+   */
+  Content content() {
+    Content content = new Content(new Payload()
+    {
+      @Override
+      public InputStream openInputStream() throws IOException {
+        return openReader();
+      }
+
+      @Override
+      public long getSize() {
+        return remote.getSize();
+      }
+
+      @Nullable
+      @Override
+      public String getContentType() {
+        return remote.getContentType();
+      }
+    });
+    copyAttributes(content);
+    return content;
+  }
+
+  private void copyAttributes(final Content content) {
+    for (String key : new String[]{Content.CONTENT_LAST_MODIFIED, Content.CONTENT_ETAG}) {
+      content.getAttributes().set(key, remote.getAttributes().get(key));
+    }
+  }
+
+  /**
+   * Marks the spooled content as stored, letting readers reach its end.
+   */
+  synchronized void complete() {
+    stopWriting();
+  }
+
+  /**
+   * Marks storing the spooled content as failed, failing its readers; ignored once the spool completed.
+   */
+  synchronized void fail(final Throwable cause) {
+    checkNotNull(cause);
+    if (!writing) {
+      return;
+    }
+    failure = cause;
+    stopWriting();
+  }
+
+  /**
+   * Releases a spool which was never handed out.
+   */
+  synchronized void discard() {
+    failure = new IOException("Discarded");
+    stopWriting();
+  }
+
+  private void stopWriting() {
+    writing = false;
+    try {
+      output.close();
+    }
+    catch (IOException e) {
+      log.debug("Failed to close spool file: {}", file, e);
+    }
+    notifyAll();
+    maybeRelease();
+  }
+
+  private void maybeRelease() {
+    if (!writing && readers == 0 && !released) {
+      released = true;
+      if (!file.delete()) {
+        log.warn("Failed to delete spool file: {}", file);
+      }
+    }
+  }
+
+  private InputStream openReader() throws IOException {
+    synchronized (this) {
+      if (!released) {
+        InputStream input = new FileInputStream(file);
+        readers++;
+        return new Reader(input);
+      }
+      if (failure != null) {
+        throw new IOException("Failed to fetch remote content", failure);
+      }
+    }
+    return stored.get();
+  }
+
+  private synchronized void spooled(final int count) {
+    written += count;
+    notifyAll();
+  }
+
+  /**
+   * Copies remote bytes to the spool file as they are read.
+   */
+  private class TeeStream
+      extends FilterInputStream
+  {
+    private TeeStream(final InputStream input) {
+      super(input);
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] buffer = new byte[1];
+      int count = read(buffer, 0, 1);
+      return count < 0 ? -1 : buffer[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+      int count = super.read(buffer, offset, length);
+      if (count > 0) {
+        output.write(buffer, offset, count);
+        spooled(count);
+      }
+      return count;
+    }
+
+    @Override
+    public long skip(final long count) throws IOException {
+      // skipped bytes must still be spooled
+      byte[] buffer = new byte[(int) Math.min(count, 8192)];
+      int read = read(buffer, 0, buffer.length);
+      return Math.max(read, 0);
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+  }
+
+  /**
+   * Follows the spool file as it is written.
+   */
+  private class Reader
+      extends FilterInputStream
+  {
+    private long position;
+
+    private boolean closed;
+
+    private Reader(final InputStream input) {
+      super(input);
+    }
+
+    @Override
+    public int read() throws IOException {
+      byte[] buffer = new byte[1];
+      int count = read(buffer, 0, 1);
+      return count < 0 ? -1 : buffer[0] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+      if (length == 0) {
+        return 0;
+      }
+      int available = await();
+      if (available < 0) {
+        return -1;
+      }
+      int count = super.read(buffer, offset, Math.min(length, available));
+      if (count > 0) {
+        position += count;
+      }
+      return count;
+    }
+
+    @Override
+    public long skip(final long count) throws IOException {
+      int available = await();
+      if (available < 0) {
+        return 0;
+      }
+      long skipped = super.skip(Math.min(count, available));
+      position += skipped;
+      return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+      synchronized (Spool.this) {
+        return (int) Math.min(written - position, Integer.MAX_VALUE);
+      }
+    }
+
+    @Override
+    public boolean markSupported() {
+      return false;
+    }
+
+    /**
+     * Waits for spooled bytes past the current position, returning how many, or -1 at the end of stored content.
+     */
+    private int await() throws IOException {
+      synchronized (Spool.this) {
+        try {
+          while (position >= written && writing) {
+            Spool.this.wait();
+          }
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted waiting for remote content");
+        }
+        if (failure != null) {
+          throw new IOException("Failed to fetch remote content", failure);
+        }
+        if (position >= written) {
+          return -1;
+        }
+        return (int) Math.min(written - position, Integer.MAX_VALUE);
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      try {
+        super.close();
+      }
+      finally {
+        synchronized (Spool.this) {
+          if (!closed) {
+            closed = true;
+            readers--;
+            maybeRelease();
+          }
+        }
+      }
+    }
+  }
+}
@@ -23,4 +23,13 @@ import org.sonatype.nexus.repository.Facet;
 public interface SearchFacet
     extends Facet
 {
+  /**
+   * Rebuilds the index of the repository from its components, into a fresh index that replaces the current one when
+   * complete. Searches keep using the current index meanwhile. An interrupted rebuild is resumed from its last
+   * checkpoint.
+   *
+   * @return number of components indexed by this invocation
+   * @throws InterruptedException if interrupted, in which case a later invocation resumes the rebuild
+   */
+  long rebuildIndex() throws InterruptedException;
 }
@@ -13,20 +13,29 @@
 package org.sonatype.nexus.repository.search;
 
 import java.io.IOException;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.sonatype.nexus.common.entity.EntityHelper;
 import org.sonatype.nexus.common.entity.EntityId;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.common.stateguard.Guarded;
 import org.sonatype.nexus.repository.FacetSupport;
 import org.sonatype.nexus.repository.Format;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.config.Configuration;
 import org.sonatype.nexus.repository.storage.Asset;
+import org.sonatype.nexus.repository.storage.Bucket;
 import org.sonatype.nexus.repository.storage.Component;
 import org.sonatype.nexus.repository.storage.StorageFacet;
 import org.sonatype.nexus.repository.storage.StorageTx;
@@ -36,6 +45,7 @@ import com.google.common.base.Supplier;
 import com.google.common.base.Throwables;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
@@ -54,10 +64,18 @@ public class SearchFacetImpl
     implements SearchFacet
 
 {
+  private static final int REBUILD_PAGE_SIZE = SystemPropertiesHelper.getInteger(
+      SearchFacetImpl.class.getName() + ".rebuildPageSize", 1000);
+
+  private static final int REBUILD_THREADS = SystemPropertiesHelper.getInteger(
+      SearchFacetImpl.class.getName() + ".rebuildThreads", Runtime.getRuntime().availableProcessors());
+
   private final SearchService searchService;
 
   private final Map<String, ComponentMetadataProducer> componentMetadataProducers;
 
+  private final SearchIndexer searchIndexer;
+
   private final Supplier<StorageTxHook> searchHook = new Supplier<StorageTxHook>()
   {
     @Override
@@ -68,10 +86,12 @@ public class SearchFacetImpl
 
   @Inject
   public SearchFacetImpl(final SearchService searchService,
-                         final Map<String, ComponentMetadataProducer> componentMetadataProducers)
+                         final Map<String, ComponentMetadataProducer> componentMetadataProducers,
+                         final SearchIndexer searchIndexer)
   {
     this.searchService = checkNotNull(searchService);
     this.componentMetadataProducers = checkNotNull(componentMetadataProducers);
+    this.searchIndexer = checkNotNull(searchIndexer);
   }
 
   @Override
@@ -114,14 +134,155 @@ public class SearchFacetImpl
     searchService.delete(getRepository(), componentId.toString());
   }
 
+  /**
+   * Queues components with given ids to be indexed and deindexed in the background by {@link SearchIndexer}.
+   */
+  protected void enqueue(final Collection<EntityId> indexable, final Collection<EntityId> deindexable) {
+    searchIndexer.enqueue(this, indexable, deindexable);
+  }
+
+  /**
+   * Indexes and deindexes components with given ids, reading all indexed components in a single transaction and
+   * updating the index with a single bulk request.
+   */
+  @Guarded(by = STARTED)
+  protected void bulkIndex(final Collection<EntityId> indexable, final Collection<EntityId> deindexable) {
+    checkNotNull(indexable);
+    checkNotNull(deindexable);
+    try {
+      List<String> deletes = Lists.newArrayList();
+      for (EntityId componentId : deindexable) {
+        deletes.add(componentId.toString());
+      }
+
+      Map<String, String> puts = Maps.newHashMap();
+      if (!indexable.isEmpty()) {
+        try (StorageTx tx = facet(StorageFacet.class).openTx()) {
+          Bucket bucket = tx.getBucket();
+          for (EntityId componentId : indexable) {
+            Component component = tx.findComponent(componentId, bucket);
+            if (component == null) {
+              // deleted since it was queued
+              deletes.add(componentId.toString());
+              continue;
+            }
+            puts.put(EntityHelper.id(component).toString(), componentJson(component, tx.browseAssets(component)));
+          }
+        }
+      }
+      searchService.bulk(getRepository(), puts, deletes);
+    }
+    catch (IOException e) {
+      throw Throwables.propagate(e);
+    }
+  }
+
+  @Override
+  @Guarded(by = STARTED)
+  public long rebuildIndex() throws InterruptedException {
+    String checkpoint = searchService.startRebuild(getRepository());
+    EntityId after = checkpoint == null ? null : new EntityId(checkpoint);
+    long count = 0;
+    ExecutorService executor = Executors.newFixedThreadPool(REBUILD_THREADS, new ThreadFactoryBuilder()
+        .setNameFormat("search-rebuild-" + getRepository().getName() + "-%d")
+        .setDaemon(true)
+        .build());
+    try {
+      List<EntityId> page = browseComponentIds(after);
+      while (!page.isEmpty()) {
+        if (Thread.interrupted()) {
+          throw new InterruptedException();
+        }
+        after = page.get(page.size() - 1);
+        searchService.rebuild(getRepository(), componentsMetadata(executor, page), after.toString());
+        count += page.size();
+        log.debug("Rebuilt index of {} components of {}", count, getRepository());
+        page = browseComponentIds(after);
+      }
+      searchService.finishRebuild(getRepository());
+      return count;
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Returns the ids of the next page of components to rebuild the index from.
+   */
+  private List<EntityId> browseComponentIds(@Nullable final EntityId after) {
+    List<EntityId> ids = Lists.newArrayListWithCapacity(REBUILD_PAGE_SIZE);
+    try (StorageTx tx = facet(StorageFacet.class).openTx()) {
+      for (Component component : tx.browseComponents(tx.getBucket(), after, REBUILD_PAGE_SIZE)) {
+        // detach from the transaction, ids are used by other threads
+        ids.add(new EntityId(EntityHelper.id(component).getValue()));
+      }
+    }
+    return ids;
+  }
+
+  /**
+   * Produces the json documents of the given components, spread over the threads of given executor.
+   */
+  private Map<String, String> componentsMetadata(final ExecutorService executor, final List<EntityId> componentIds)
+      throws InterruptedException
+  {
+    int sliceSize = Math.max(1, (componentIds.size() + REBUILD_THREADS - 1) / REBUILD_THREADS);
+    List<Future<Map<String, String>>> slices = Lists.newArrayList();
+    for (final List<EntityId> slice : Lists.partition(componentIds, sliceSize)) {
+      slices.add(executor.submit(new Callable<Map<String, String>>()
+      {
+        @Override
+        public Map<String, String> call() throws Exception {
+          Map<String, String> jsons = Maps.newHashMap();
+          try (StorageTx tx = facet(StorageFacet.class).openTx()) {
+            Bucket bucket = tx.getBucket();
+            for (EntityId componentId : slice) {
+              Component component = tx.findComponent(componentId, bucket);
+              if (component != null) {
+                jsons.put(componentId.toString(), componentJson(component, tx.browseAssets(component)));
+              }
+            }
+          }
+          return jsons;
+        }
+      }));
+    }
+    Map<String, String> jsons = Maps.newHashMapWithExpectedSize(componentIds.size());
+    try {
+      for (Future<Map<String, String>> slice : slices) {
+        jsons.putAll(slice.get());
+      }
+    }
+    catch (ExecutionException e) {
+      throw Throwables.propagate(e.getCause());
+    }
+    return jsons;
+  }
+
+  /**
+   * Creates the json document of a component to be indexed.
+   */
+  private String componentJson(final Component component, final Iterable<Asset> assets) throws IOException {
+    Map<String, Object> additional = Maps.newHashMap();
+    additional.put(P_REPOSITORY_NAME, getRepository().getName());
+    return JsonUtils.merge(componentMetadata(component, Lists.newArrayList(assets)), JsonUtils.from(additional));
+  }
+
   @Override
   protected void doStart() throws Exception {
     searchService.createIndex(getRepository());
   }
 
+  @Override
+  protected void doStop() throws Exception {
+    searchIndexer.flush(this);
+  }
+
   @Override
   protected void doDelete() {
     facet(StorageFacet.class).unregisterHookSupplier(searchHook);
+    searchIndexer.discard(this);
     searchService.deleteIndex(getRepository());
   }
 
@@ -0,0 +1,585 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.search;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nullable;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.nexus.common.app.NexusInitializedEvent;
+import org.sonatype.nexus.common.app.NexusStoppingEvent;
+import org.sonatype.nexus.common.entity.EntityId;
+import org.sonatype.nexus.common.event.EventSubscriber;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
+import org.sonatype.nexus.thread.NexusThreadFactory;
+import org.sonatype.sisu.goodies.lifecycle.LifecycleSupport;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+import com.codahale.metrics.Timer;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.eventbus.Subscribe;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Indexes components in the background, on behalf of {@link SearchFacetImpl}.
+ *
+ * Requests are de-duplicated per component, with the latest request winning, and flushed as bulk requests once
+ * {@link #BATCH_SIZE} components are pending or the oldest has waited {@link #FLUSH_INTERVAL_MILLIS}. Callers
+ * block while {@link #MAX_PENDING} components are pending, so indexing can not fall arbitrarily far behind.
+ *
+ * Failed bulk requests are retried up to {@link #MAX_ATTEMPTS} times, backing off exponentially from
+ * {@link #RETRY_BACKOFF_MILLIS}. Only one batch per repository is processed at a time, so requests for the same
+ * component are always applied in order.
+ *
+ * The worker runs while Nexus is up; requests left on shutdown are processed before it completes.
+ *
+ * @since 3.0
+ */
+@Named
+@Singleton
+public class SearchIndexer
+    extends LifecycleSupport
+    implements EventSubscriber
+{
+  private static final int MAX_PENDING = SystemPropertiesHelper.getInteger(
+      SearchIndexer.class.getName() + ".maxPending", 10000);
+
+  private static final int BATCH_SIZE = SystemPropertiesHelper.getInteger(
+      SearchIndexer.class.getName() + ".batchSize", 500);
+
+  private static final long FLUSH_INTERVAL_MILLIS = SystemPropertiesHelper.getLong(
+      SearchIndexer.class.getName() + ".flushIntervalMillis", 1000);
+
+  private static final int MAX_ATTEMPTS = SystemPropertiesHelper.getInteger(
+      SearchIndexer.class.getName() + ".maxAttempts", 3);
+
+  private static final long RETRY_BACKOFF_MILLIS = SystemPropertiesHelper.getLong(
+      SearchIndexer.class.getName() + ".retryBackoffMillis", 1000);
+
+  private final NexusThreadFactory threadFactory =
+      new NexusThreadFactory("searchindexer", "Search Indexer", Thread.NORM_PRIORITY, true);
+
+  private final Lock lock = new ReentrantLock();
+
+  private final Condition pendingAdded = lock.newCondition();
+
+  private final Condition pendingRemoved = lock.newCondition();
+
+  private final Condition batchDone = lock.newCondition();
+
+  /**
+   * Pending requests in order of first request; guarded by {@link #lock}.
+   */
+  private final LinkedHashMap<Key, Request> pending = Maps.newLinkedHashMap();
+
+  /**
+   * Facets with a batch being processed, by the worker or a flush; guarded by {@link #lock}.
+   */
+  private final Set<SearchFacetImpl> busy = Sets.newIdentityHashSet();
+
+  private final Histogram batchSize;
+
+  private final Timer lag;
+
+  private final Meter failures;
+
+  /**
+   * Guarded by {@link #lock}.
+   */
+  private Thread worker;
+
+  /**
+   * Guarded by {@link #lock}.
+   */
+  private boolean stopping;
+
+  public SearchIndexer() {
+    MetricRegistry metrics = SharedMetricRegistries.getOrCreate("nexus");
+    metrics.remove(MetricRegistry.name(SearchIndexer.class, "queueDepth"));
+    metrics.register(MetricRegistry.name(SearchIndexer.class, "queueDepth"), new Gauge<Integer>()
+    {
+      @Override
+      public Integer getValue() {
+        return queueDepth();
+      }
+    });
+    batchSize = metrics.histogram(MetricRegistry.name(SearchIndexer.class, "batchSize"));
+    lag = metrics.timer(MetricRegistry.name(SearchIndexer.class, "lag"));
+    failures = metrics.meter(MetricRegistry.name(SearchIndexer.class, "failures"));
+  }
+
+  @Subscribe
+  public void on(final NexusInitializedEvent event) throws Exception {
+    start();
+  }
+
+  @Subscribe
+  public void on(final NexusStoppingEvent event) throws Exception {
+    stop();
+  }
+
+  @Override
+  protected void doStart() throws Exception {
+    lock.lock();
+    try {
+      stopping = false;
+      worker = threadFactory.newThread(new Runnable()
+      {
+        @Override
+        public void run() {
+          work();
+        }
+      });
+      worker.start();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  protected void doStop() throws Exception {
+    Thread stopped;
+    lock.lock();
+    try {
+      stopping = true;
+      stopped = worker;
+      worker = null;
+      pendingAdded.signalAll();
+    }
+    finally {
+      lock.unlock();
+    }
+    if (stopped != null) {
+      stopped.join();
+    }
+    processNow(claim(null));
+  }
+
+  /**
+   * Component request key; facets are compared by identity, as each repository has its own.
+   */
+  private static final class Key
+  {
+    private final SearchFacetImpl facet;
+
+    private final String componentId;
+
+    private Key(final SearchFacetImpl facet, final String componentId) {
+      this.facet = facet;
+      this.componentId = componentId;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Key)) {
+        return false;
+      }
+      Key that = (Key) o;
+      return facet == that.facet && componentId.equals(that.componentId);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(System.identityHashCode(facet), componentId);
+    }
+  }
+
+  private static final class Request
+  {
+    private final SearchFacetImpl facet;
+
+    private final EntityId componentId;
+
+    private final boolean delete;
+
+    private final long enqueued;
+
+    /**
+     * Number of failed attempts so far.
+     */
+    private final int failed;
+
+    /**
+     * Earliest {@link System#nanoTime()} at which the request may be retried.
+     */
+    private final long retryAt;
+
+    private Request(final SearchFacetImpl facet, final EntityId componentId, final boolean delete,
+                    final long enqueued, final int failed, final long retryAt)
+    {
+      this.facet = facet;
+      this.componentId = componentId;
+      this.delete = delete;
+      this.enqueued = enqueued;
+      this.failed = failed;
+      this.retryAt = retryAt;
+    }
+
+    private Key key() {
+      return new Key(facet, componentId.toString());
+    }
+  }
+
+  /**
+   * Queues components of the given facet's repository to be (re)indexed or removed from its index, blocking while
+   * the queue is full.
+   */
+  public void enqueue(final SearchFacetImpl facet,
+                      final Collection<EntityId> indexable,
+                      final Collection<EntityId> deindexable)
+  {
+    checkNotNull(facet);
+    checkNotNull(indexable);
+    checkNotNull(deindexable);
+
+    lock.lock();
+    try {
+      awaitCapacity();
+      long now = System.nanoTime();
+      for (EntityId componentId : deindexable) {
+        add(new Request(facet, componentId, true, now, 0, now));
+      }
+      for (EntityId componentId : indexable) {
+        add(new Request(facet, componentId, false, now, 0, now));
+      }
+      pendingAdded.signalAll();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Adds request, replacing any pending request for the same component but keeping its place in the queue.
+   */
+  private void add(final Request request) {
+    Key key = request.key();
+    Request previous = pending.get(key);
+    pending.put(key, previous == null
+        ? request
+        : new Request(request.facet, request.componentId, request.delete, previous.enqueued, 0, request.retryAt));
+  }
+
+  private void awaitCapacity() {
+    boolean interrupted = false;
+    while (pending.size() >= MAX_PENDING) {
+      try {
+        pendingRemoved.await();
+      }
+      catch (InterruptedException e) {
+        // do not lose index updates for already committed changes, just stop waiting
+        interrupted = true;
+        break;
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Synchronously processes all pending requests of the given facet, ie. before it stops, after any batch of the
+   * facet already being processed.
+   */
+  public void flush(final SearchFacetImpl facet) {
+    checkNotNull(facet);
+    processNow(claim(facet));
+  }
+
+  /**
+   * Waits until no batch of the given facet, or of any facet if {@code null}, is being processed, then removes its
+   * pending requests from the queue and marks it busy.
+   */
+  private List<Request> claim(@Nullable final SearchFacetImpl facet) {
+    List<Request> batch = Lists.newArrayList();
+    lock.lock();
+    try {
+      while (facet == null ? !busy.isEmpty() : busy.contains(facet)) {
+        batchDone.awaitUninterruptibly();
+      }
+      Iterator<Request> requests = pending.values().iterator();
+      while (requests.hasNext()) {
+        Request request = requests.next();
+        if (facet == null || request.facet == facet) {
+          batch.add(request);
+          busy.add(request.facet);
+          requests.remove();
+        }
+      }
+      pendingRemoved.signalAll();
+    }
+    finally {
+      lock.unlock();
+    }
+    return batch;
+  }
+
+  /**
+   * Processes a claimed batch in the calling thread, backing off between attempts.
+   */
+  private void processNow(final List<Request> batch) {
+    try {
+      List<Request> remaining = batch;
+      for (int attempt = 1; !remaining.isEmpty(); attempt++) {
+        remaining = process(remaining);
+        if (remaining.isEmpty()) {
+          break;
+        }
+        if (attempt >= MAX_ATTEMPTS) {
+          log.warn("Dropping {} index requests after {} attempts", remaining.size(), attempt);
+          break;
+        }
+        try {
+          Thread.sleep(backoffMillis(attempt));
+        }
+        catch (InterruptedException e) {
+          log.warn("Dropping {} index requests, interrupted while backing off", remaining.size());
+          Thread.currentThread().interrupt();
+          break;
+        }
+      }
+    }
+    finally {
+      release(batch);
+    }
+  }
+
+  /**
+   * Discards all pending requests of the given facet, ie. when its index is deleted.
+   */
+  public void discard(final SearchFacetImpl facet) {
+    checkNotNull(facet);
+    lock.lock();
+    try {
+      Iterator<Request> requests = pending.values().iterator();
+      while (requests.hasNext()) {
+        if (requests.next().facet == facet) {
+          requests.remove();
+        }
+      }
+      pendingRemoved.signalAll();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  private int queueDepth() {
+    lock.lock();
+    try {
+      return pending.size();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  private void work() {
+    while (true) {
+      List<Request> batch;
+      try {
+        batch = take();
+      }
+      catch (InterruptedException e) {
+        log.debug("Search indexer interrupted");
+        return;
+      }
+      if (batch == null) {
+        log.debug("Search indexer stopped");
+        return;
+      }
+      try {
+        requeue(process(batch));
+      }
+      finally {
+        release(batch);
+      }
+    }
+  }
+
+  /**
+   * Waits for a batch to be due, by size or by age of its oldest request, and removes it from the queue, skipping
+   * requests of busy facets and requests backing off. Returns {@code null} once stopping.
+   */
+  @Nullable
+  private List<Request> take() throws InterruptedException {
+    lock.lock();
+    try {
+      while (!stopping) {
+        long now = System.nanoTime();
+        long wait = Long.MAX_VALUE;
+        int ready = 0;
+        for (Request request : pending.values()) {
+          if (busy.contains(request.facet)) {
+            // woken up when released
+            continue;
+          }
+          if (request.retryAt - now > 0) {
+            wait = Math.min(wait, request.retryAt - now);
+            continue;
+          }
+          ready++;
+          wait = Math.min(wait, request.enqueued + TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL_MILLIS) - now);
+        }
+
+        if (ready > 0 && (ready >= BATCH_SIZE || wait <= 0)) {
+          List<Request> batch = Lists.newArrayListWithCapacity(Math.min(ready, BATCH_SIZE));
+          Iterator<Request> requests = pending.values().iterator();
+          while (batch.size() < BATCH_SIZE && requests.hasNext()) {
+            Request request = requests.next();
+            if (!busy.contains(request.facet) && request.retryAt - now <= 0) {
+              batch.add(request);
+              requests.remove();
+            }
+          }
+          for (Request request : batch) {
+            busy.add(request.facet);
+          }
+          pendingRemoved.signalAll();
+          return batch;
+        }
+
+        if (wait == Long.MAX_VALUE) {
+          pendingAdded.await();
+        }
+        else {
+          pendingAdded.awaitNanos(wait);
+        }
+      }
+      return null;
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Marks the facets of a processed batch as no longer busy.
+   */
+  private void release(final List<Request> batch) {
+    lock.lock();
+    try {
+      for (Request request : batch) {
+        busy.remove(request.facet);
+      }
+      batchDone.signalAll();
+      // worker may be waiting for requests of these facets
+      pendingAdded.signalAll();
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Puts failed requests back in the queue to be retried after backing off, unless superseded by a newer request
+   * for the same component or out of attempts.
+   */
+  private void requeue(final List<Request> failed) {
+    if (failed.isEmpty()) {
+      return;
+    }
+    int dropped = 0;
+    lock.lock();
+    try {
+      long now = System.nanoTime();
+      for (Request request : failed) {
+        int attempts = request.failed + 1;
+        if (attempts >= MAX_ATTEMPTS) {
+          dropped++;
+        }
+        else if (!pending.containsKey(request.key())) {
+          pending.put(request.key(), new Request(request.facet, request.componentId, request.delete, request.enqueued,
+              attempts, now + TimeUnit.MILLISECONDS.toNanos(backoffMillis(attempts))));
+        }
+      }
+      pendingAdded.signalAll();
+    }
+    finally {
+      lock.unlock();
+    }
+    if (dropped > 0) {
+      log.warn("Dropping {} index requests after {} attempts", dropped, MAX_ATTEMPTS);
+    }
+  }
+
+  private static long backoffMillis(final int attempts) {
+    return RETRY_BACKOFF_MILLIS << Math.min(attempts - 1, 16);
+  }
+
+  /**
+   * Indexes a batch, with one bulk request per repository, and returns the requests which failed.
+   */
+  private List<Request> process(final List<Request> batch) {
+    List<Request> failed = Lists.newArrayList();
+    if (batch.isEmpty()) {
+      return failed;
+    }
+    batchSize.update(batch.size());
+
+    Map<SearchFacetImpl, List<Request>> byFacet = Maps.newIdentityHashMap();
+    for (Request request : batch) {
+      List<Request> requests = byFacet.get(request.facet);
+      if (requests == null) {
+        requests = Lists.newArrayList();
+        byFacet.put(request.facet, requests);
+      }
+      requests.add(request);
+    }
+
+    for (Map.Entry<SearchFacetImpl, List<Request>> entry : byFacet.entrySet()) {
+      List<EntityId> indexable = Lists.newArrayList();
+      List<EntityId> deindexable = Lists.newArrayList();
+      for (Request request : entry.getValue()) {
+        (request.delete ? deindexable : indexable).add(request.componentId);
+      }
+      try {
+        entry.getKey().bulkIndex(indexable, deindexable);
+      }
+      catch (Exception e) {
+        log.warn("Failed to index {} components of {}", entry.getValue().size(), entry.getKey(), e);
+        failures.mark(entry.getValue().size());
+        failed.addAll(entry.getValue());
+        continue;
+      }
+      long now = System.nanoTime();
+      for (Request request : entry.getValue()) {
+        lag.update(now - request.enqueued, TimeUnit.NANOSECONDS);
+      }
+    }
+    return failed;
+  }
+}
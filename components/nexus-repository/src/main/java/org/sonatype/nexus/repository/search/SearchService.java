@@ -12,7 +12,9 @@
  */
 package org.sonatype.nexus.repository.search;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Nullable;
 
@@ -51,6 +53,38 @@ public interface SearchService
    */
   void delete(Repository repository, String identifier);
 
+  /**
+   * Puts and removes data of given identifiers into/from index of given repository, using a single bulk request.
+   *
+   * @param puts    json data keyed by identifier
+   * @param deletes identifiers to remove
+   */
+  void bulk(Repository repository, Map<String, String> puts, Collection<String> deletes);
+
+  /**
+   * Starts rebuilding the index of given repository into a fresh index, or resumes an interrupted rebuild. Until the
+   * rebuild is finished searches use the current index, while updates are written to both indexes.
+   *
+   * @return identifier of the last document written by the interrupted rebuild, or {@code null} to start from scratch
+   */
+  @Nullable
+  String startRebuild(Repository repository);
+
+  /**
+   * Writes data of a rebuild into the fresh index of given repository and records the identifier to resume after.
+   * Documents already written by concurrent updates are kept.
+   *
+   * @param puts       json data keyed by identifier
+   * @param checkpoint identifier to resume after, if the rebuild is interrupted from now on
+   */
+  void rebuild(Repository repository, Map<String, String> puts, String checkpoint);
+
+  /**
+   * Finishes the rebuild of the index of given repository, making the fresh index the one used by searches and
+   * deleting the previous one.
+   */
+  void finishRebuild(Repository repository);
+
   /**
    * Search component metadata and browse results.
    */
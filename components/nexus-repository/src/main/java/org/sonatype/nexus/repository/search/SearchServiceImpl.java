@@ -16,12 +16,16 @@ package org.sonatype.nexus.repository.search;
 import java.io.IOException;
 import java.net.URL;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -30,33 +34,57 @@ import javax.inject.Named;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 
+import org.sonatype.nexus.common.event.EventSubscriber;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.common.text.Strings2;
 import org.sonatype.nexus.repository.MissingFacetException;
 import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.RepositoryEvent;
 import org.sonatype.nexus.repository.manager.RepositoryManager;
 import org.sonatype.nexus.repository.security.BreadActions;
 import org.sonatype.nexus.repository.security.RepositoryViewPermission;
+import org.sonatype.nexus.security.SecurityConfigurationChanged;
 import org.sonatype.nexus.security.SecurityHelper;
+import org.sonatype.nexus.security.UserPrincipalsExpired;
+import org.sonatype.nexus.security.authz.AuthorizationConfigurationChanged;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
 import com.google.common.base.Charsets;
+import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
 import com.google.common.io.Resources;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.Subject;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequestBuilder;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequestBuilder;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.index.IndexRequest.OpType;
+import org.elasticsearch.action.search.SearchPhaseExecutionException;
 import org.elasticsearch.action.search.SearchRequestBuilder;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.ShardSearchFailure;
+import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.client.Client;
+import org.elasticsearch.client.IndicesAdminClient;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.index.query.QueryBuilder;
-import org.elasticsearch.indices.IndexMissingException;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.internal.InternalSearchResponse;
 import org.elasticsearch.search.sort.SortBuilder;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static org.sonatype.nexus.repository.storage.StorageFacet.P_REPOSITORY_NAME;
+import static com.google.common.base.Preconditions.checkState;
 
 /**
  * Default {@link SearchService} implementation. It does not expects that {@link Repository} have storage facet
@@ -68,7 +96,7 @@ import static org.sonatype.nexus.repository.storage.StorageFacet.P_REPOSITORY_NA
 @Singleton
 public class SearchServiceImpl
     extends ComponentSupport
-    implements SearchService
+    implements SearchService, EventSubscriber
 {
   public static final String TYPE = "component";
 
@@ -77,6 +105,26 @@ public class SearchServiceImpl
    */
   public static final String MAPPING_JSON = "elasticsearch-mapping.json";
 
+  /**
+   * Separates the index name of a repository from the generation of the physical index it aliases, once rebuilt.
+   */
+  private static final String GENERATION_SEPARATOR = "~";
+
+  private static final String CHECKPOINT_TYPE = "rebuild";
+
+  private static final String CHECKPOINT_ID = "checkpoint";
+
+  private static final String CHECKPOINT_FIELD = "after";
+
+  private static final int PERMITTED_INDEXES_CACHE_SIZE = SystemPropertiesHelper.getInteger(
+      SearchServiceImpl.class.getName() + ".permittedIndexesCacheSize", 1000);
+
+  /**
+   * Bounds staleness caused by permission changes not announced by events, like those of external realms.
+   */
+  private static final long PERMITTED_INDEXES_CACHE_TTL_SECONDS = SystemPropertiesHelper.getLong(
+      SearchServiceImpl.class.getName() + ".permittedIndexesCacheTtlSeconds", 60);
+
   private final Provider<Client> client;
 
   private final RepositoryManager repositoryManager;
@@ -85,6 +133,35 @@ public class SearchServiceImpl
 
   private final List<IndexSettingsContributor> indexSettingsContributors;
 
+  /**
+   * Fresh indexes of rebuilds in progress, keyed by the index name of their repository.
+   */
+  private final ConcurrentMap<String, String> rebuilds = Maps.newConcurrentMap();
+
+  /**
+   * Identifiers of documents deleted while a rebuild is in progress, keyed by its fresh index. A rebuild may have read
+   * such a document before it was deleted, and must not write it back. Kept in memory only, as the pages of a rebuild
+   * in flight do not survive a restart either.
+   */
+  private final ConcurrentMap<String, Set<String>> tombstones = Maps.newConcurrentMap();
+
+  /**
+   * Fresh indexes of rebuilds replacing an index by an alias of the same name, keyed by that name.
+   */
+  private final ConcurrentMap<String, String> switching = Maps.newConcurrentMap();
+
+  /**
+   * Incremented whenever repositories or security configuration change, to discard cached searchable indexes.
+   */
+  private final AtomicLong generation = new AtomicLong();
+
+  private volatile SearchableRepositories searchableRepositories;
+
+  private final Cache<PrincipalCollection, PermittedIndexes> permittedIndexes = CacheBuilder.newBuilder()
+      .maximumSize(PERMITTED_INDEXES_CACHE_SIZE)
+      .expireAfterWrite(PERMITTED_INDEXES_CACHE_TTL_SECONDS, TimeUnit.SECONDS)
+      .build();
+
   @Inject
   public SearchServiceImpl(final Provider<Client> client,
                            final RepositoryManager repositoryManager,
@@ -102,47 +179,70 @@ public class SearchServiceImpl
     checkNotNull(repository);
     // TODO we should calculate the checksum of index settings and compare it with a value stored in index _meta tags
     // in case that they not match (settings changed) we should drop the index, recreate it and re-index all components
-    if (!client.get().admin().indices().prepareExists(safeIndexName(repository)).execute().actionGet()
-        .isExists()) {
-      // determine list of mapping configuration urls
-      List<URL> urls = Lists.newArrayListWithExpectedSize(indexSettingsContributors.size() + 1);
-      urls.add(Resources.getResource(getClass(), MAPPING_JSON)); // core mapping
-      for (IndexSettingsContributor contributor : indexSettingsContributors) {
-        URL url = contributor.getIndexSettings(repository);
-        if (url != null) {
-          urls.add(url);
-        }
-      }
+    String indexName = safeIndexName(repository);
+    if (!client.get().admin().indices().prepareExists(indexName).execute().actionGet().isExists()) {
+      createIndex(repository, indexName);
+    }
+    // keep updating the fresh index of a rebuild interrupted by a restart
+    String rebuildIndex = findRebuildIndex(indexName);
+    if (rebuildIndex != null) {
+      rebuilds.put(indexName, rebuildIndex);
+    }
+  }
 
-      try {
-        // merge all mapping configuration
-        String source = "{}";
-        for (URL url : urls) {
-          log.debug("Merging ElasticSearch mapping: {}", url);
-          String contributed = Resources.toString(url, Charsets.UTF_8);
-          log.trace("Contributed ElasticSearch mapping: {}", contributed);
-          source = JsonUtils.merge(source, contributed);
-        }
-        // update runtime configuration
-        log.trace("ElasticSearch mapping: {}", source);
-        log.debug("Creating index for {}", repository);
-        client.get().admin().indices().prepareCreate(safeIndexName(repository))
-            .setSource(source)
-            .execute()
-            .actionGet();
+  /**
+   * Creates physical index with given name and the mapping of given repository.
+   */
+  private void createIndex(final Repository repository, final String indexName) {
+    // determine list of mapping configuration urls
+    List<URL> urls = Lists.newArrayListWithExpectedSize(indexSettingsContributors.size() + 1);
+    urls.add(Resources.getResource(getClass(), MAPPING_JSON)); // core mapping
+    for (IndexSettingsContributor contributor : indexSettingsContributors) {
+      URL url = contributor.getIndexSettings(repository);
+      if (url != null) {
+        urls.add(url);
       }
-      catch (IOException e) {
-        throw Throwables.propagate(e);
+    }
+
+    try {
+      // merge all mapping configuration
+      String source = "{}";
+      for (URL url : urls) {
+        log.debug("Merging ElasticSearch mapping: {}", url);
+        String contributed = Resources.toString(url, Charsets.UTF_8);
+        log.trace("Contributed ElasticSearch mapping: {}", contributed);
+        source = JsonUtils.merge(source, contributed);
       }
+      // update runtime configuration
+      log.trace("ElasticSearch mapping: {}", source);
+      log.debug("Creating index {} for {}", indexName, repository);
+      client.get().admin().indices().prepareCreate(indexName)
+          .setSource(source)
+          .execute()
+          .actionGet();
+    }
+    catch (IOException e) {
+      throw Throwables.propagate(e);
     }
   }
 
   @Override
   public void deleteIndex(final Repository repository) {
     checkNotNull(repository);
-    if (client.get().admin().indices().prepareExists(repository.getName()).execute().actionGet().isExists()) {
-      log.debug("Removing index of {}", repository);
-      client.get().admin().indices().prepareDelete(safeIndexName(repository)).execute().actionGet();
+    String indexName = safeIndexName(repository);
+    String rebuildIndex = rebuilds.remove(indexName);
+    if (rebuildIndex != null) {
+      tombstones.remove(rebuildIndex);
+    }
+    // all generations created by rebuilds, including the one aliased by the index name
+    Set<String> indexes = Sets.newHashSet(getIndexes(indexName + GENERATION_SEPARATOR + "*"));
+    if (aliasTargets(indexName).isEmpty()
+        && client.get().admin().indices().prepareExists(indexName).execute().actionGet().isExists()) {
+      indexes.add(indexName);
+    }
+    if (!indexes.isEmpty()) {
+      log.debug("Removing index of {}: {}", repository, indexes);
+      client.get().admin().indices().prepareDelete(indexes.toArray(new String[indexes.size()])).execute().actionGet();
     }
   }
 
@@ -152,10 +252,9 @@ public class SearchServiceImpl
     checkNotNull(identifier);
     checkNotNull(json);
     log.debug("Adding to index document {} from {}: {}", identifier, repository, json);
-    Map<String, Object> additional = Maps.newHashMap();
-    additional.put(P_REPOSITORY_NAME, repository.getName());
-    client.get().prepareIndex(safeIndexName(repository), TYPE, identifier)
-        .setSource(json).execute();
+    for (String indexName : writeIndexes(repository)) {
+      client.get().prepareIndex(indexName, TYPE, identifier).setSource(json).execute();
+    }
   }
 
   @Override
@@ -163,21 +262,255 @@ public class SearchServiceImpl
     checkNotNull(repository);
     checkNotNull(identifier);
     log.debug("Removing from index document {} from {}", identifier, repository);
-    client.get().prepareDelete(safeIndexName(repository), TYPE, identifier).execute();
+    recordTombstones(repository, Collections.singleton(identifier));
+    for (String indexName : writeIndexes(repository)) {
+      client.get().prepareDelete(indexName, TYPE, identifier).execute();
+    }
   }
 
   @Override
-  public Iterable<SearchHit> browse(final QueryBuilder query) {
-    checkNotNull(query);
-    try {
-      if (!client.get().admin().indices().prepareValidateQuery().setQuery(query).execute().actionGet().isValid()) {
-        throw new IllegalArgumentException("Invalid query");
+  public void bulk(final Repository repository, final Map<String, String> puts, final Collection<String> deletes) {
+    checkNotNull(repository);
+    checkNotNull(puts);
+    checkNotNull(deletes);
+    if (puts.isEmpty() && deletes.isEmpty()) {
+      return;
+    }
+    log.debug("Bulk indexing {} and removing {} documents from {}", puts.size(), deletes.size(), repository);
+    recordTombstones(repository, deletes);
+    BulkRequestBuilder bulk = client.get().prepareBulk();
+    for (String indexName : writeIndexes(repository)) {
+      for (String identifier : deletes) {
+        bulk.add(client.get().prepareDelete(indexName, TYPE, identifier));
+      }
+      for (Map.Entry<String, String> entry : puts.entrySet()) {
+        bulk.add(client.get().prepareIndex(indexName, TYPE, entry.getKey()).setSource(entry.getValue()));
+      }
+    }
+    BulkResponse response = bulk.execute().actionGet();
+    if (response.hasFailures()) {
+      log.warn("Failed to bulk index documents of {}: {}", repository, response.buildFailureMessage());
+    }
+  }
+
+  @Nullable
+  @Override
+  public String startRebuild(final Repository repository) {
+    checkNotNull(repository);
+    String indexName = safeIndexName(repository);
+    String rebuildIndex = null;
+    for (String index : rebuildCandidates(indexName)) {
+      if (rebuildIndex == null && readCheckpoint(index) != null) {
+        rebuildIndex = index;
+      }
+      else {
+        log.debug("Removing index {} left over by a failed rebuild of {}", index, repository);
+        client.get().admin().indices().prepareDelete(index).execute().actionGet();
       }
     }
-    catch (IndexMissingException e) {
-      // no repositories were created yet, so there is no point in searching
+
+    if (rebuildIndex == null) {
+      rebuildIndex = indexName + GENERATION_SEPARATOR + System.currentTimeMillis();
+      log.info("Rebuilding index of {} into {}", repository, rebuildIndex);
+      createIndex(repository, rebuildIndex);
+      rebuilds.put(indexName, rebuildIndex);
+      writeCheckpoint(rebuildIndex, "");
       return null;
     }
+
+    rebuilds.put(indexName, rebuildIndex);
+    String checkpoint = Strings.emptyToNull(readCheckpoint(rebuildIndex));
+    log.info("Resuming rebuild of index of {} into {} after {}", repository, rebuildIndex, checkpoint);
+    return checkpoint;
+  }
+
+  @Override
+  public void rebuild(final Repository repository, final Map<String, String> puts, final String checkpoint) {
+    checkNotNull(repository);
+    checkNotNull(puts);
+    checkNotNull(checkpoint);
+    String rebuildIndex = rebuilds.get(safeIndexName(repository));
+    checkState(rebuildIndex != null, "No index rebuild in progress for %s", repository);
+    if (!puts.isEmpty()) {
+      BulkRequestBuilder bulk = client.get().prepareBulk();
+      for (Map.Entry<String, String> entry : puts.entrySet()) {
+        // create only, as concurrent updates written meanwhile are newer
+        bulk.add(client.get().prepareIndex(rebuildIndex, TYPE, entry.getKey())
+            .setSource(entry.getValue())
+            .setOpType(OpType.CREATE));
+      }
+      executeRebuild(repository, bulk);
+      removeTombstoned(repository, rebuildIndex, puts.keySet());
+    }
+    writeCheckpoint(rebuildIndex, checkpoint);
+  }
+
+  /**
+   * Records deletes of documents while given repository's index is rebuilt, before they are sent to the fresh index.
+   */
+  private void recordTombstones(final Repository repository, final Collection<String> deletes) {
+    String rebuildIndex = rebuilds.get(safeIndexName(repository));
+    if (rebuildIndex == null || deletes.isEmpty()) {
+      return;
+    }
+    Set<String> deleted = tombstones.get(rebuildIndex);
+    if (deleted == null) {
+      Set<String> created = Sets.newConcurrentHashSet();
+      deleted = tombstones.putIfAbsent(rebuildIndex, created);
+      if (deleted == null) {
+        deleted = created;
+      }
+    }
+    deleted.addAll(deletes);
+  }
+
+  /**
+   * Removes documents just written by a rebuild again if they were deleted meanwhile. Checked after writing them, as a
+   * delete recorded later is sent to the fresh index after they were written, and removes them by itself.
+   */
+  private void removeTombstoned(final Repository repository, final String rebuildIndex, final Set<String> written) {
+    Set<String> deleted = tombstones.get(rebuildIndex);
+    if (deleted == null) {
+      return;
+    }
+    BulkRequestBuilder bulk = client.get().prepareBulk();
+    for (String identifier : written) {
+      if (deleted.contains(identifier)) {
+        bulk.add(client.get().prepareDelete(rebuildIndex, TYPE, identifier));
+      }
+    }
+    if (bulk.numberOfActions() > 0) {
+      log.debug("Removing {} documents deleted during rebuild of {}", bulk.numberOfActions(), repository);
+      executeRebuild(repository, bulk);
+    }
+  }
+
+  private void executeRebuild(final Repository repository, final BulkRequestBuilder bulk) {
+    for (BulkItemResponse item : bulk.execute().actionGet()) {
+      if (item.isFailed() && item.getFailure().getStatus() != RestStatus.CONFLICT) {
+        throw new IllegalStateException(
+            "Failed to rebuild index of " + repository + ": " + item.getFailureMessage());
+      }
+    }
+  }
+
+  @Override
+  public void finishRebuild(final Repository repository) {
+    checkNotNull(repository);
+    String indexName = safeIndexName(repository);
+    String rebuildIndex = rebuilds.get(indexName);
+    checkState(rebuildIndex != null, "No index rebuild in progress for %s", repository);
+    IndicesAdminClient indices = client.get().admin().indices();
+    indices.prepareRefresh(rebuildIndex).execute().actionGet();
+
+    Set<String> previous = aliasTargets(indexName);
+    if (previous.isEmpty()) {
+      // index created before it was first rebuilt, has to make room for the alias of the same name
+      if (indices.prepareExists(indexName).execute().actionGet().isExists()) {
+        // only write to the fresh index meanwhile, as writing to a missing index creates it
+        switching.put(indexName, rebuildIndex);
+        indices.prepareDelete(indexName).execute().actionGet();
+      }
+      try {
+        indices.prepareAliases().addAlias(rebuildIndex, indexName).execute().actionGet();
+      }
+      finally {
+        switching.remove(indexName);
+      }
+    }
+    else {
+      // swap atomically, so searches keep working
+      IndicesAliasesRequestBuilder aliases = indices.prepareAliases();
+      for (String index : previous) {
+        aliases.removeAlias(index, indexName);
+      }
+      aliases.addAlias(rebuildIndex, indexName).execute().actionGet();
+    }
+    rebuilds.remove(indexName);
+    tombstones.remove(rebuildIndex);
+    client.get().prepareDelete(rebuildIndex, CHECKPOINT_TYPE, CHECKPOINT_ID).execute().actionGet();
+
+    previous.remove(rebuildIndex);
+    if (!previous.isEmpty()) {
+      indices.prepareDelete(previous.toArray(new String[previous.size()])).execute().actionGet();
+    }
+    log.info("Rebuilt index of {} into {}", repository, rebuildIndex);
+  }
+
+  /**
+   * Returns the physical indexes updates of given repository are written to.
+   */
+  private List<String> writeIndexes(final Repository repository) {
+    String indexName = safeIndexName(repository);
+    String switchingIndex = switching.get(indexName);
+    if (switchingIndex != null) {
+      return Collections.singletonList(switchingIndex);
+    }
+    String rebuildIndex = rebuilds.get(indexName);
+    return rebuildIndex == null ? Collections.singletonList(indexName) : Arrays.asList(indexName, rebuildIndex);
+  }
+
+  /**
+   * Returns the fresh index of an interrupted rebuild, if any.
+   */
+  @Nullable
+  private String findRebuildIndex(final String indexName) {
+    for (String index : rebuildCandidates(indexName)) {
+      if (readCheckpoint(index) != null) {
+        return index;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the generations of given index not in use by searches.
+   */
+  private List<String> rebuildCandidates(final String indexName) {
+    List<String> candidates = Lists.newArrayList(getIndexes(indexName + GENERATION_SEPARATOR + "*"));
+    if (!candidates.isEmpty()) {
+      candidates.removeAll(aliasTargets(indexName));
+    }
+    return candidates;
+  }
+
+  private String[] getIndexes(final String pattern) {
+    return client.get().admin().indices().prepareGetIndex()
+        .addIndices(pattern)
+        .setIndicesOptions(IndicesOptions.lenientExpandOpen())
+        .execute()
+        .actionGet()
+        .getIndices();
+  }
+
+  private Set<String> aliasTargets(final String alias) {
+    Set<String> indexes = Sets.newHashSet();
+    Iterator<String> keys = client.get().admin().indices().prepareGetAliases(alias)
+        .setIndicesOptions(IndicesOptions.lenientExpandOpen())
+        .execute()
+        .actionGet()
+        .getAliases()
+        .keysIt();
+    Iterators.addAll(indexes, keys);
+    return indexes;
+  }
+
+  @Nullable
+  private String readCheckpoint(final String index) {
+    GetResponse response = client.get().prepareGet(index, CHECKPOINT_TYPE, CHECKPOINT_ID).execute().actionGet();
+    return response.isExists() ? (String) response.getSource().get(CHECKPOINT_FIELD) : null;
+  }
+
+  private void writeCheckpoint(final String index, final String checkpoint) {
+    client.get().prepareIndex(index, CHECKPOINT_TYPE, CHECKPOINT_ID)
+        .setSource(CHECKPOINT_FIELD, checkpoint)
+        .execute()
+        .actionGet();
+  }
+
+  @Override
+  public Iterable<SearchHit> browse(final QueryBuilder query) {
+    checkNotNull(query);
     final String[] searchableIndexes = getSearchableIndexes();
     if (searchableIndexes.length == 0) {
       return Collections.emptyList();
@@ -200,13 +533,12 @@ public class SearchServiceImpl
               return false;
             }
             if (response == null) {
-              response = client.get().prepareSearch(searchableIndexes)
+              response = execute(client.get().prepareSearch(searchableIndexes)
+                  .setIndicesOptions(IndicesOptions.lenientExpandOpen())
                   .setTypes(TYPE)
                   .setQuery(query)
                   .setScroll(new TimeValue(1, TimeUnit.MINUTES))
-                  .setSize(100)
-                  .execute()
-                  .actionGet();
+                  .setSize(100));
               iterator = Arrays.asList(response.getHits().getHits()).iterator();
               noMoreHits = !iterator.hasNext();
             }
@@ -251,21 +583,13 @@ public class SearchServiceImpl
                                final int size)
   {
     checkNotNull(query);
-    try {
-      if (!client.get().admin().indices().prepareValidateQuery().setQuery(query).execute().actionGet().isValid()) {
-        throw new IllegalArgumentException("Invalid query");
-      }
-    }
-    catch (IndexMissingException e) {
-      // no repositories were created yet, so there is no point in searching
-      return new SearchResponse(InternalSearchResponse.empty(), null, 0, 0, 0, new ShardSearchFailure[]{});
-    }
     final String[] searchableIndexes = getSearchableIndexes();
     if (searchableIndexes.length == 0) {
       return new SearchResponse(InternalSearchResponse.empty(), null, 0, 0, 0, new ShardSearchFailure[]{});
     }
 
     SearchRequestBuilder searchRequestBuilder = client.get().prepareSearch(searchableIndexes)
+        .setIndicesOptions(IndicesOptions.lenientExpandOpen())
         .setTypes(TYPE)
         .setQuery(query)
         .setFrom(from)
@@ -275,27 +599,136 @@ public class SearchServiceImpl
         searchRequestBuilder.addSort(entry);
       }
     }
-    return searchRequestBuilder.execute().actionGet();
+    return execute(searchRequestBuilder);
   }
 
+  /**
+   * Executes search request, letting elasticsearch validate the query as part of the search instead of up front.
+   */
+  private SearchResponse execute(final SearchRequestBuilder request) {
+    try {
+      return request.execute().actionGet();
+    }
+    catch (SearchPhaseExecutionException e) {
+      if (e.status() == RestStatus.BAD_REQUEST) {
+        throw new IllegalArgumentException("Invalid query", e);
+      }
+      throw e;
+    }
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final RepositoryEvent event) {
+    invalidateSearchableIndexes();
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final AuthorizationConfigurationChanged event) {
+    invalidateSearchableIndexes();
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final SecurityConfigurationChanged event) {
+    invalidateSearchableIndexes();
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final UserPrincipalsExpired event) {
+    invalidateSearchableIndexes();
+  }
+
+  private void invalidateSearchableIndexes() {
+    generation.incrementAndGet();
+    searchableRepositories = null;
+    permittedIndexes.invalidateAll();
+  }
+
+  /**
+   * Returns the indexes of online repositories the current subject may browse, cached per subject.
+   */
   private String[] getSearchableIndexes() {
+    long currentGeneration = generation.get();
+    Subject subject = securityHelper.subject();
+    PrincipalCollection principals = subject.getPrincipals();
+    if (principals == null || principals.isEmpty()) {
+      return permittedIndexes(subject, currentGeneration);
+    }
+    PermittedIndexes cached = permittedIndexes.getIfPresent(principals);
+    if (cached == null || cached.generation != currentGeneration) {
+      cached = new PermittedIndexes(currentGeneration, permittedIndexes(subject, currentGeneration));
+      permittedIndexes.put(principals, cached);
+    }
+    return cached.indexes;
+  }
+
+  private String[] permittedIndexes(final Subject subject, final long currentGeneration) {
     List<String> indexes = Lists.newArrayList();
-    for (Repository repository : repositoryManager.browse()) {
-      try {
-        // check if search facet is available so avoid searching repositories without an index
-        repository.facet(SearchFacet.class);
-        if (repository.getConfiguration().isOnline()
-            && securityHelper.allPermitted(new RepositoryViewPermission(repository, BreadActions.BROWSE))) {
-          indexes.add(safeIndexName(repository));
-        }
-      }
-      catch (MissingFacetException e) {
-        // no search facet, no search
+    for (Repository repository : searchableRepositories(currentGeneration)) {
+      if (repository.getConfiguration().isOnline()
+          && securityHelper.allPermitted(subject, new RepositoryViewPermission(repository, BreadActions.BROWSE))) {
+        indexes.add(safeIndexName(repository));
       }
     }
     return indexes.toArray(new String[indexes.size()]);
   }
 
+  /**
+   * Returns the repositories having a search index.
+   */
+  private List<Repository> searchableRepositories(final long currentGeneration) {
+    SearchableRepositories cached = searchableRepositories;
+    if (cached == null || cached.generation != currentGeneration) {
+      List<Repository> repositories = Lists.newArrayList();
+      for (Repository repository : repositoryManager.browse()) {
+        try {
+          // check if search facet is available so avoid searching repositories without an index
+          repository.facet(SearchFacet.class);
+          repositories.add(repository);
+        }
+        catch (MissingFacetException e) {
+          // no search facet, no search
+        }
+      }
+      cached = new SearchableRepositories(currentGeneration, repositories);
+      searchableRepositories = cached;
+    }
+    return cached.repositories;
+  }
+
+  /**
+   * Indexes permitted to a subject, as of a generation of repositories and security configuration.
+   */
+  private static class PermittedIndexes
+  {
+    private final long generation;
+
+    private final String[] indexes;
+
+    private PermittedIndexes(final long generation, final String[] indexes) {
+      this.generation = generation;
+      this.indexes = indexes;
+    }
+  }
+
+  /**
+   * Repositories having a search index, as of a generation of repositories.
+   */
+  private static class SearchableRepositories
+  {
+    private final long generation;
+
+    private final List<Repository> repositories;
+
+    private SearchableRepositories(final long generation, final List<Repository> repositories) {
+      this.generation = generation;
+      this.repositories = repositories;
+    }
+  }
+
   /**
    * Sanitize repository name in a consistent fashion to ensure that the name used for an index is safe.
    */
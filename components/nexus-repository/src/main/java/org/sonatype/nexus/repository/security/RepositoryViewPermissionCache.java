@@ -0,0 +1,154 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.security;
+
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.nexus.common.event.EventSubscriber;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.RepositoryEvent;
+import org.sonatype.nexus.security.SecurityConfigurationChanged;
+import org.sonatype.nexus.security.SecurityHelper;
+import org.sonatype.nexus.security.UserPrincipalsExpired;
+import org.sonatype.nexus.security.authz.AuthorizationConfigurationChanged;
+import org.sonatype.sisu.goodies.common.ComponentSupport;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Maps;
+import com.google.common.eventbus.AllowConcurrentEvents;
+import com.google.common.eventbus.Subscribe;
+import org.apache.shiro.subject.PrincipalCollection;
+import org.apache.shiro.subject.Subject;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Caches {@link RepositoryViewPermission} decisions per subject, keyed by repository and action, so repeated requests
+ * of the same subject do not resolve roles and imply wildcard permissions again.
+ *
+ * Decisions are discarded whenever repositories or security configuration change.
+ *
+ * @since 3.0
+ */
+@Named
+@Singleton
+public class RepositoryViewPermissionCache
+    extends ComponentSupport
+    implements EventSubscriber
+{
+  private static final int CACHE_SIZE = SystemPropertiesHelper.getInteger(
+      RepositoryViewPermissionCache.class.getName() + ".cacheSize", 1000);
+
+  /**
+   * Bounds staleness caused by permission changes not announced by events, like those of external realms.
+   */
+  private static final long CACHE_TTL_SECONDS = SystemPropertiesHelper.getLong(
+      RepositoryViewPermissionCache.class.getName() + ".cacheTtlSeconds", 60);
+
+  private final SecurityHelper securityHelper;
+
+  /**
+   * Incremented whenever repositories or security configuration change, to discard decisions made concurrently.
+   */
+  private final AtomicLong generation = new AtomicLong();
+
+  private final Cache<PrincipalCollection, Decisions> decisions = CacheBuilder.newBuilder()
+      .maximumSize(CACHE_SIZE)
+      .expireAfterWrite(CACHE_TTL_SECONDS, TimeUnit.SECONDS)
+      .build();
+
+  @Inject
+  public RepositoryViewPermissionCache(final SecurityHelper securityHelper) {
+    this.securityHelper = checkNotNull(securityHelper);
+  }
+
+  /**
+   * Returns whether the current subject is permitted the given action on the given repository.
+   */
+  public boolean isPermitted(final Repository repository, final String action) {
+    checkNotNull(repository);
+    checkNotNull(action);
+
+    long currentGeneration = generation.get();
+    Subject subject = securityHelper.subject();
+    PrincipalCollection principals = subject.getPrincipals();
+    if (principals == null || principals.isEmpty()) {
+      return subject.isPermitted(new RepositoryViewPermission(repository, action));
+    }
+
+    Decisions cached = decisions.getIfPresent(principals);
+    if (cached == null || cached.generation != currentGeneration) {
+      cached = new Decisions(currentGeneration);
+      decisions.put(principals, cached);
+    }
+
+    String key = repository.getName() + ':' + action;
+    Boolean permitted = cached.permitted.get(key);
+    if (permitted == null) {
+      permitted = subject.isPermitted(new RepositoryViewPermission(repository, action));
+      cached.permitted.put(key, permitted);
+    }
+    return permitted;
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final RepositoryEvent event) {
+    invalidate();
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final AuthorizationConfigurationChanged event) {
+    invalidate();
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final SecurityConfigurationChanged event) {
+    invalidate();
+  }
+
+  @AllowConcurrentEvents
+  @Subscribe
+  public void on(final UserPrincipalsExpired event) {
+    invalidate();
+  }
+
+  private void invalidate() {
+    generation.incrementAndGet();
+    decisions.invalidateAll();
+  }
+
+  /**
+   * Decisions of one subject, made in a given generation.
+   */
+  private static class Decisions
+  {
+    final long generation;
+
+    final ConcurrentMap<String, Boolean> permitted = Maps.newConcurrentMap();
+
+    Decisions(final long generation) {
+      this.generation = generation;
+    }
+  }
+}
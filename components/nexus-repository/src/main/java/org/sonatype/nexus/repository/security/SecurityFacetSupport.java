@@ -19,7 +19,8 @@ import org.sonatype.nexus.repository.FacetSupport;
 import org.sonatype.nexus.repository.config.Configuration;
 import org.sonatype.nexus.repository.http.HttpMethods;
 import org.sonatype.nexus.repository.view.Request;
-import org.sonatype.nexus.security.SecurityHelper;
+
+import org.apache.shiro.authz.UnauthorizedException;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -32,15 +33,15 @@ public class SecurityFacetSupport
     extends FacetSupport
     implements SecurityFacet
 {
-  private final SecurityHelper securityHelper;
+  private final RepositoryViewPermissionCache permissionCache;
 
   private final RepositoryFormatSecurityConfigurationResource securityResource;
 
   @Inject
-  public SecurityFacetSupport(final SecurityHelper securityHelper,
+  public SecurityFacetSupport(final RepositoryViewPermissionCache permissionCache,
                               final RepositoryFormatSecurityConfigurationResource securityResource)
   {
-    this.securityHelper = checkNotNull(securityHelper);
+    this.permissionCache = checkNotNull(permissionCache);
     this.securityResource = checkNotNull(securityResource);
   }
 
@@ -61,7 +62,10 @@ public class SecurityFacetSupport
     // determine permission action from request
     String action = action(request);
 
-    securityHelper.ensurePermitted(new RepositoryViewPermission(getRepository(), action));
+    if (!permissionCache.isPermitted(getRepository(), action)) {
+      throw new UnauthorizedException(
+          "Subject does not have permission [" + new RepositoryViewPermission(getRepository(), action) + "]");
+    }
   }
 
   /**
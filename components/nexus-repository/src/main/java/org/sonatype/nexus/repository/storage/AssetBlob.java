@@ -43,6 +43,8 @@ public class AssetBlob
 
   private boolean attached;
 
+  private boolean retained;
+
   public AssetBlob(final BlobRef blobRef,
                    final long size,
                    final String contentType,
@@ -72,6 +74,25 @@ public class AssetBlob
     this.attached = attached;
   }
 
+  /**
+   * Returns {@code true} if the blob referenced by this instance must survive a rollback, so that a retried
+   * transaction can attach it again instead of re-reading content. See {@link ReusableBlob}.
+   */
+  boolean isRetained() {
+    return retained;
+  }
+
+  void setRetained(final boolean retained) {
+    this.retained = retained;
+  }
+
+  /**
+   * Resets the attached state of this instance, after the transaction it was attached in was rolled back.
+   */
+  void detach() {
+    this.attached = false;
+  }
+
   /**
    * The blob reference this instance is pointing to.
    */
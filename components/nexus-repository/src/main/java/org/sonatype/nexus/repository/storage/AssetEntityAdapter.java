@@ -15,6 +15,7 @@ package org.sonatype.nexus.repository.storage;
 
 import java.util.Map;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -63,6 +64,12 @@ public class AssetEntityAdapter
       .property(P_NAME)
       .build();
 
+  private static final String I_BUCKET_NAME = new OIndexNameBuilder()
+      .type(DB_CLASS)
+      .property(P_BUCKET)
+      .property(P_NAME)
+      .build();
+
   private static final String I_COMPONENT = new OIndexNameBuilder()
       .type(DB_CLASS)
       .property(P_COMPONENT)
@@ -94,6 +101,19 @@ public class AssetEntityAdapter
         new String[]{P_BUCKET, P_COMPONENT, P_NAME}
     );
     type.createIndex(I_COMPONENT, INDEX_TYPE.NOTUNIQUE, P_COMPONENT);
+    type.createIndex(I_BUCKET_NAME, INDEX_TYPE.NOTUNIQUE, P_BUCKET, P_NAME);
+  }
+
+  @Override
+  public void register(final ODatabaseDocumentTx db) {
+    super.register(db);
+
+    // databases created before the name index was introduced
+    OClass type = getType();
+    if (type.getClassIndex(I_BUCKET_NAME) == null) {
+      type.createIndex(I_BUCKET_NAME, INDEX_TYPE.NOTUNIQUE, P_BUCKET, P_NAME);
+      log.info("Created index: {}", I_BUCKET_NAME);
+    }
   }
 
   @Override
@@ -135,6 +155,15 @@ public class AssetEntityAdapter
     document.field(P_BLOB_REF, blobRef != null ? blobRef.toString() : null);
   }
 
+  /**
+   * Finds an asset of the bucket by name, using the bucket and name index.
+   */
+  @Nullable
+  Asset findByName(final ODatabaseDocumentTx db, final String name, final Bucket bucket) {
+    checkNotNull(name);
+    return findByIndex(db, I_BUCKET_NAME, bucket, name);
+  }
+
   Iterable<Asset> browseByComponent(final ODatabaseDocumentTx db, final Component component) {
     checkNotNull(component, "component");
     checkState(component.isPersisted(), "component must be persisted");
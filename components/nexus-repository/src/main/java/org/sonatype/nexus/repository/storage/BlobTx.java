@@ -26,7 +26,12 @@ import org.sonatype.nexus.common.hash.MultiHashingInputStream;
 import org.sonatype.nexus.common.node.LocalNodeAccess;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
+import com.google.common.base.Predicates;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.hash.HashCode;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -57,14 +62,27 @@ class BlobTx
                           final Iterable<HashAlgorithm> hashAlgorithms,
                           final String contentType)
   {
-    final MultiHashingInputStream hashingStream = new MultiHashingInputStream(hashAlgorithms, inputStream);
+    // the blob store records SHA1, so always compute it here where it is shared rather than computed twice
+    final Set<HashAlgorithm> requested = ImmutableSet.copyOf(hashAlgorithms);
+    final Set<HashAlgorithm> algorithms = Sets.newLinkedHashSet(requested);
+    algorithms.add(HashAlgorithm.SHA1);
+
+    final MultiHashingInputStream hashingStream = new MultiHashingInputStream(algorithms, inputStream);
     Blob blob = blobStore.create(hashingStream, headers);
     BlobRef blobRef = new BlobRef(localNodeAccess.getId(), blobStore.getBlobStoreConfiguration().getName(), blob.getId().asUniqueString());
-    AssetBlob assetBlob = new AssetBlob(blobRef, hashingStream.count(), contentType, hashingStream.hashes());
+    Map<HashAlgorithm, HashCode> hashes = Maps.filterKeys(hashingStream.hashes(), Predicates.in(requested));
+    AssetBlob assetBlob = new AssetBlob(blobRef, hashingStream.count(), contentType, ImmutableMap.copyOf(hashes));
     newlyCreatedBlobs.add(assetBlob);
     return assetBlob;
   }
 
+  /**
+   * Makes a retained blob created by an earlier, rolled back transaction part of this one.
+   */
+  public void adopt(final AssetBlob assetBlob) {
+    newlyCreatedBlobs.add(assetBlob);
+  }
+
   @Nullable
   public Blob get(BlobRef blobRef) {
     return blobStore.get(blobRef.getBlobId());
@@ -92,12 +110,18 @@ class BlobTx
       catch (Throwable t) {
         log.warn("Unable to delete new orphan blob {} while committing transaction", t, assetBlob.getBlobRef());
       }
+      assetBlob.setRetained(false);
     }
     clearState();
   }
 
   public void rollback() {
     for (AssetBlob assetBlob : newlyCreatedBlobs) {
+      if (assetBlob.isRetained()) {
+        // kept for a retry of this transaction, which will adopt it again
+        assetBlob.detach();
+        continue;
+      }
       try {
         blobStore.delete(assetBlob.getBlobRef().getBlobId());
       }
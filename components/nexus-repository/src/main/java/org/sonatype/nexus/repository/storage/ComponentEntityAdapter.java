@@ -13,6 +13,7 @@
 
 package org.sonatype.nexus.repository.storage;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Singleton;
@@ -26,6 +27,7 @@ import com.orientechnologies.orient.core.metadata.schema.OClass.INDEX_TYPE;
 import com.orientechnologies.orient.core.metadata.schema.OType;
 import com.orientechnologies.orient.core.record.impl.ODocument;
 
+import static com.google.common.base.Preconditions.checkNotNull;
 import static org.sonatype.nexus.repository.storage.StorageFacet.P_BUCKET;
 import static org.sonatype.nexus.repository.storage.StorageFacet.P_GROUP;
 import static org.sonatype.nexus.repository.storage.StorageFacet.P_NAME;
@@ -99,4 +101,18 @@ public class ComponentEntityAdapter
     document.field(P_VERSION, entity.version());
   }
 
+  /**
+   * Finds a component of the bucket by group, name and version, using the unique component index.
+   */
+  @Nullable
+  Component findByGroupNameVersion(final ODatabaseDocumentTx db,
+                                   final @Nullable String group,
+                                   final String name,
+                                   final @Nullable String version,
+                                   final Bucket bucket)
+  {
+    checkNotNull(name);
+    return findByIndex(db, I_BUCKET_GROUP_NAME_VERSION, bucket, group, name, version);
+  }
+
 }
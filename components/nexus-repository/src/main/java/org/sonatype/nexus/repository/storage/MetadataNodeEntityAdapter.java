@@ -13,6 +13,8 @@
 
 package org.sonatype.nexus.repository.storage;
 
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -20,6 +22,7 @@ import java.util.Map;
 import javax.annotation.Nullable;
 
 import org.sonatype.nexus.common.collect.NestedAttributesMap;
+import org.sonatype.nexus.common.entity.EntityId;
 import org.sonatype.nexus.orient.OIndexNameBuilder;
 import org.sonatype.nexus.orient.entity.CollectionEntityAdapter;
 import org.sonatype.nexus.repository.Repository;
@@ -29,8 +32,12 @@ import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.db.record.OIdentifiable;
 import com.orientechnologies.orient.core.id.ORID;
+import com.orientechnologies.orient.core.index.OCompositeKey;
+import com.orientechnologies.orient.core.index.OIndex;
 import com.orientechnologies.orient.core.metadata.schema.OClass;
 import com.orientechnologies.orient.core.metadata.schema.OClass.INDEX_TYPE;
 import com.orientechnologies.orient.core.metadata.schema.OType;
@@ -38,6 +45,7 @@ import com.orientechnologies.orient.core.record.impl.ODocument;
 import com.orientechnologies.orient.core.sql.OCommandSQL;
 import org.joda.time.DateTime;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static org.sonatype.nexus.repository.storage.StorageFacet.P_ATTRIBUTES;
@@ -107,6 +115,31 @@ public abstract class MetadataNodeEntityAdapter<T extends MetadataNode<?>>
     return readEntities(docs);
   }
 
+  /**
+   * Browses a page of entities of the bucket in record identity order, starting after the given entity.
+   */
+  Iterable<T> browseByBucket(final ODatabaseDocumentTx db,
+                             final Bucket bucket,
+                             final @Nullable EntityId after,
+                             final int limit)
+  {
+    checkNotNull(bucket);
+    checkState(bucket.isPersisted());
+    checkArgument(limit > 0, "Limit must be positive");
+
+    Map<String, Object> parameters = Maps.newHashMap();
+    parameters.put("bucket", bucketEntityAdapter.recordIdentity(bucket));
+    StringBuilder query = new StringBuilder();
+    query.append(String.format("select from %s where bucket = :bucket", getTypeName()));
+    if (after != null) {
+      parameters.put("after", recordIdentity(after));
+      query.append(" and @rid > :after");
+    }
+    query.append(" order by @rid limit ").append(limit);
+    Iterable<ODocument> docs = db.command(new OCommandSQL(query.toString())).execute(parameters);
+    return readEntities(docs);
+  }
+
   T findByProperty(final ODatabaseDocumentTx db,
                    final String propName, final Object propValue,
                    final Bucket bucket)
@@ -125,6 +158,37 @@ public abstract class MetadataNodeEntityAdapter<T extends MetadataNode<?>>
     return first != null ? readEntity(first) : null;
   }
 
+  /**
+   * Looks up an entity of the bucket through a composite index led by the bucket, without going through SQL.
+   * For non-unique indexes the first matching entity is returned.
+   */
+  @Nullable
+  protected T findByIndex(final ODatabaseDocumentTx db,
+                          final String indexName,
+                          final Bucket bucket,
+                          final Object... keys)
+  {
+    checkNotNull(bucket);
+    checkState(bucket.isPersisted());
+
+    OIndex<?> index = db.getMetadata().getIndexManager().getIndex(indexName);
+    checkState(index != null, "Missing index: %s", indexName);
+
+    List<Object> compositeKey = Lists.newArrayListWithCapacity(keys.length + 1);
+    compositeKey.add(bucketEntityAdapter.recordIdentity(bucket));
+    compositeKey.addAll(Arrays.asList(keys));
+
+    Object value = index.get(new OCompositeKey(compositeKey));
+    if (value instanceof Collection) {
+      value = Iterables.getFirst((Collection<?>) value, null);
+    }
+    if (value == null) {
+      return null;
+    }
+    ODocument document = ((OIdentifiable) value).getRecord();
+    return document != null ? readEntity(document) : null;
+  }
+
   Iterable<T> browseByQuery(final ODatabaseDocumentTx db,
                             final @Nullable String whereClause,
                             final @Nullable Map<String, Object> parameters,
@@ -0,0 +1,108 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.blobstore.api.BlobStore;
+import org.sonatype.nexus.common.hash.HashAlgorithm;
+import org.sonatype.sisu.goodies.common.ComponentSupport;
+
+import com.google.common.io.Closeables;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Content to be stored by a {@link StorageFacet.Operation} that might be retried. The blob is written by the first
+ * attempt and survives its rollback, so retries attach the same blob instead of re-reading the content, which
+ * therefore does not need to be spooled ahead. Once the operation is done, this instance must be closed to delete the
+ * blob if no attempt committed it.
+ *
+ * @since 3.0
+ */
+public class ReusableBlob
+    extends ComponentSupport
+    implements AutoCloseable
+{
+  private final BlobStore blobStore;
+
+  private final String blobName;
+
+  private final InputStream inputStream;
+
+  private final Iterable<HashAlgorithm> hashAlgorithms;
+
+  private final Map<String, String> headers;
+
+  private final String declaredContentType;
+
+  private boolean consumed;
+
+  private AssetBlob assetBlob;
+
+  ReusableBlob(final BlobStore blobStore,
+               final String blobName,
+               final InputStream inputStream,
+               final Iterable<HashAlgorithm> hashAlgorithms,
+               @Nullable final Map<String, String> headers,
+               @Nullable final String declaredContentType)
+  {
+    this.blobStore = checkNotNull(blobStore);
+    this.blobName = checkNotNull(blobName);
+    this.inputStream = checkNotNull(inputStream);
+    this.hashAlgorithms = checkNotNull(hashAlgorithms);
+    this.headers = headers;
+    this.declaredContentType = declaredContentType;
+  }
+
+  /**
+   * Returns the unattached {@link AssetBlob} to be attached during the given transaction using {@link
+   * StorageTx#attachBlob(Asset, AssetBlob)}. The blob is created on first invocation, later invocations return the
+   * same instance.
+   *
+   * @throws IOException if the content could not be stored, or was consumed by an earlier attempt that failed while
+   *                     storing it.
+   */
+  public AssetBlob get(final StorageTx tx) throws IOException {
+    if (assetBlob == null) {
+      if (consumed) {
+        throw new IOException("Content of " + blobName + " was consumed by a failed attempt");
+      }
+      consumed = true;
+      assetBlob = tx.createBlob(blobName, inputStream, hashAlgorithms, headers, declaredContentType);
+      assetBlob.setRetained(true);
+    }
+    return assetBlob;
+  }
+
+  /**
+   * Deletes the blob if no transaction committed it, and closes the content if it was never read.
+   */
+  @Override
+  public void close() {
+    Closeables.closeQuietly(inputStream);
+    if (assetBlob != null && assetBlob.isRetained()) {
+      try {
+        blobStore.delete(assetBlob.getBlobRef().getBlobId());
+      }
+      catch (Throwable t) {
+        log.warn("Unable to delete unused blob {}", assetBlob.getBlobRef(), t);
+      }
+      assetBlob.setRetained(false);
+    }
+  }
+}
@@ -12,6 +12,12 @@
  */
 package org.sonatype.nexus.repository.storage;
 
+import java.io.InputStream;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.sonatype.nexus.common.hash.HashAlgorithm;
 import org.sonatype.nexus.repository.Facet;
 
 import com.google.common.base.Supplier;
@@ -106,4 +112,16 @@ public interface StorageFacet
    * method will use given OrientDB connection.
    */
   <T> T perform(ODatabaseDocumentTx db, Operation<T> operation);
+
+  /**
+   * Prepares content to be stored by an {@link Operation}, such that it is streamed to the blob store only once even
+   * if the operation is retried. The returned {@link ReusableBlob} must be closed once the operation is done.
+   *
+   * @see StorageTx#createBlob(String, InputStream, Iterable, Map, String)
+   */
+  ReusableBlob createReusableBlob(String blobName,
+                                  InputStream inputStream,
+                                  Iterable<HashAlgorithm> hashAlgorithms,
+                                  @Nullable Map<String, String> headers,
+                                  @Nullable String declaredContentType);
 }
@@ -13,10 +13,13 @@
 
 package org.sonatype.nexus.repository.storage;
 
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Named;
 import javax.inject.Provider;
@@ -25,6 +28,7 @@ import javax.validation.groups.Default;
 
 import org.sonatype.nexus.blobstore.api.BlobStore;
 import org.sonatype.nexus.blobstore.api.BlobStoreManager;
+import org.sonatype.nexus.common.hash.HashAlgorithm;
 import org.sonatype.nexus.common.node.LocalNodeAccess;
 import org.sonatype.nexus.common.stateguard.Guarded;
 import org.sonatype.nexus.common.stateguard.StateGuardAspect;
@@ -262,6 +266,18 @@ public class StorageFacetImpl
         lastException);
   }
 
+  @Override
+  @Guarded(by = STARTED)
+  public ReusableBlob createReusableBlob(final String blobName,
+                                         final InputStream inputStream,
+                                         final Iterable<HashAlgorithm> hashAlgorithms,
+                                         @Nullable final Map<String, String> headers,
+                                         @Nullable final String declaredContentType)
+  {
+    return new ReusableBlob(blobStoreManager.get(config.blobStoreName), blobName, inputStream, hashAlgorithms,
+        headers, declaredContentType);
+  }
+
 
   /**
    * Returns the "principal name" to be used with current instance of {@link StorageTx}.
@@ -88,6 +88,14 @@ public interface StorageTx
    */
   Iterable<Component> browseComponents(Bucket bucket);
 
+  /**
+   * Gets a page of the components owned by the specified bucket, in a stable order suitable for resuming.
+   *
+   * @param after id of the last component of the previous page, or {@code null} to start with the first component
+   * @param limit maximum number of components to return
+   */
+  Iterable<Component> browseComponents(Bucket bucket, @Nullable EntityId after, int limit);
+
   /**
    * Gets an asset by id, owned by the specified bucket, or {@code null} if not found.
    */
@@ -100,6 +108,13 @@ public interface StorageTx
   @Nullable
   Asset findAssetWithProperty(String propName, Object propValue, Bucket bucket);
 
+  /**
+   * Gets an asset by name, owned by the specified bucket, or {@code null} if not found. Unlike
+   * {@link #findAssetWithProperty(String, Object, Bucket)} this is an index lookup, independent of the bucket size.
+   */
+  @Nullable
+  Asset findAssetWithName(String name, Bucket bucket);
+
   /**
    * Gets all assets in the specified repositories that match the given where clause.
    *
@@ -138,6 +153,16 @@ public interface StorageTx
   @Nullable
   Component findComponentWithProperty(String propName, Object propValue, Bucket bucket);
 
+  /**
+   * Gets a component by group, name and version, owned by the specified bucket, or {@code null} if not found. Unlike
+   * {@link #findComponentWithProperty(String, Object, Bucket)} this is an index lookup, independent of the bucket size.
+   */
+  @Nullable
+  Component findComponentWithGroupNameVersion(@Nullable String group,
+                                              String name,
+                                              @Nullable String version,
+                                              Bucket bucket);
+
   /**
    * Gets all component in the specified repositories that match the given where clause.
    *
@@ -27,7 +27,7 @@ import org.sonatype.nexus.blobstore.api.BlobStore;
 import org.sonatype.nexus.common.collect.NestedAttributesMap;
 import org.sonatype.nexus.common.entity.EntityId;
 import org.sonatype.nexus.common.hash.HashAlgorithm;
-import org.sonatype.nexus.common.io.TempStreamSupplier;
+import org.sonatype.nexus.common.io.PrefixBufferedInputStream;
 import org.sonatype.nexus.common.stateguard.Guarded;
 import org.sonatype.nexus.common.stateguard.StateGuard;
 import org.sonatype.nexus.common.stateguard.StateGuardAware;
@@ -65,6 +65,12 @@ public class StorageTxImpl
 {
   private static final long DELETE_BATCH_SIZE = 100L;
 
+  /**
+   * Number of leading content bytes buffered for content type detection, which covers the magic offsets inspected by
+   * the mime detector.
+   */
+  private static final int CONTENT_TYPE_PREFIX_SIZE = 64 * 1024;
+
   private final String createdBy;
 
   private final BlobTx blobTx;
@@ -219,6 +225,12 @@ public class StorageTxImpl
     return componentEntityAdapter.browseByBucket(db, bucket);
   }
 
+  @Override
+  @Guarded(by = OPEN)
+  public Iterable<Component> browseComponents(final Bucket bucket, @Nullable final EntityId after, final int limit) {
+    return componentEntityAdapter.browseByBucket(db, bucket, after, limit);
+  }
+
   @Nullable
   @Override
   @Guarded(by = OPEN)
@@ -240,6 +252,13 @@ public class StorageTxImpl
     return assetEntityAdapter.findByProperty(db, propName, propValue, bucket);
   }
 
+  @Nullable
+  @Override
+  @Guarded(by = OPEN)
+  public Asset findAssetWithName(final String name, final Bucket bucket) {
+    return assetEntityAdapter.findByName(db, name, bucket);
+  }
+
 
   @Override
   @Guarded(by = OPEN)
@@ -278,6 +297,17 @@ public class StorageTxImpl
     return componentEntityAdapter.findByProperty(db, propName, propValue, bucket);
   }
 
+  @Nullable
+  @Override
+  @Guarded(by = OPEN)
+  public Component findComponentWithGroupNameVersion(@Nullable final String group,
+                                                     final String name,
+                                                     @Nullable final String version,
+                                                     final Bucket bucket)
+  {
+    return componentEntityAdapter.findByGroupNameVersion(db, group, name, version, bucket);
+  }
+
   @Override
   @Guarded(by = OPEN)
   public Iterable<Component> findComponents(@Nullable String whereClause,
@@ -442,8 +472,9 @@ public class StorageTxImpl
       throw new IllegalOperationException("Repository is read only: " + getBucket().repositoryName());
     }
 
-    try (TempStreamSupplier supplier = new TempStreamSupplier(inputStream)) {
-      final String contentType = determineContentType(supplier, blobName, declaredContentType);
+    // content type is determined from a bounded prefix, so the content itself is streamed to the blob store once
+    try (PrefixBufferedInputStream content = new PrefixBufferedInputStream(inputStream, CONTENT_TYPE_PREFIX_SIZE)) {
+      final String contentType = determineContentType(content.prefix(), blobName, declaredContentType);
 
       ImmutableMap.Builder<String, String> storageHeaders = ImmutableMap.builder();
       storageHeaders.put(Bucket.REPO_NAME_HEADER, bucket.repositoryName());
@@ -453,7 +484,7 @@ public class StorageTxImpl
       if (headers != null) {
         storageHeaders.putAll(headers);
       }
-      return blobTx.create(supplier.get(), storageHeaders.build(), hashAlgorithms, contentType);
+      return blobTx.create(content, storageHeaders.build(), hashAlgorithms, contentType);
     }
   }
 
@@ -490,6 +521,10 @@ public class StorageTxImpl
       checksums.set(algorithm.name(), assetBlob.getHashes().get(algorithm).toString());
     }
 
+    if (assetBlob.isRetained()) {
+      // created by an earlier attempt of a retried operation, this transaction now decides its fate
+      blobTx.adopt(assetBlob);
+    }
     assetBlob.setAttached(true);
   }
 
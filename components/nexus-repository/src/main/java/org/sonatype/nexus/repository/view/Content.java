@@ -14,6 +14,7 @@ package org.sonatype.nexus.repository.view;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.FileChannel;
 import java.util.Map;
 
 import javax.annotation.Nonnull;
@@ -23,6 +24,7 @@ import org.sonatype.nexus.common.collect.AttributesMap;
 import org.sonatype.nexus.common.hash.HashAlgorithm;
 
 import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
 import org.joda.time.DateTime;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -33,7 +35,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * @since 3.0
  */
 public class Content
-    implements Payload
+    implements FileChannelPayload, SeekablePayload
 {
   /**
    * Key of the "last modified" attribute of type {@link DateTime}.
@@ -77,6 +79,31 @@ public class Content
     return payload.openInputStream();
   }
 
+  @Override
+  public InputStream openInputStream(final long position) throws IOException {
+    if (payload instanceof SeekablePayload) {
+      return ((SeekablePayload) payload).openInputStream(position);
+    }
+    InputStream input = payload.openInputStream();
+    try {
+      ByteStreams.skipFully(input, position);
+    }
+    catch (IOException e) {
+      input.close();
+      throw e;
+    }
+    return input;
+  }
+
+  @Nullable
+  @Override
+  public FileChannel openChannel() throws IOException {
+    if (payload instanceof FileChannelPayload) {
+      return ((FileChannelPayload) payload).openChannel();
+    }
+    return null;
+  }
+
   @Override
   public long getSize() {
     return payload.getSize();
@@ -15,6 +15,7 @@ package org.sonatype.nexus.repository.view;
 import java.util.ListIterator;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 import org.sonatype.nexus.common.collect.AttributesMap;
 import org.sonatype.nexus.repository.Repository;
@@ -39,6 +40,8 @@ public class Context
 
   private final Request request;
 
+  private Route route;
+
   private ListIterator<Handler> handlers;
 
   public Context(final Repository repository,
@@ -60,6 +63,14 @@ public class Context
     return request;
   }
 
+  /**
+   * Returns the route handling this context, or {@code null} if not yet started.
+   */
+  @Nullable
+  public Route getRoute() {
+    return route;
+  }
+
   /**
    * Invokes the next handler in the handler chain.
    *
@@ -112,6 +123,7 @@ public class Context
     checkNotNull(route);
     checkState(handlers == null, "Already started");
     log.debug("Starting: {}", route);
+    this.route = route;
     handlers = route.getHandlers().listIterator();
     return proceed();
   }
@@ -26,7 +26,9 @@ public class DefaultRoute
 {
   private static final Matcher MATCHER = new AlwaysMatcher();
 
+  public static final String NAME = "default";
+
   public DefaultRoute(final List<Handler> handlers) {
-    super(MATCHER, handlers);
+    super(NAME, MATCHER, handlers);
   }
 }
@@ -0,0 +1,34 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+
+import javax.annotation.Nullable;
+
+/**
+ * {@link Payload} that may be backed by a file, allowing it to be sent with {@link FileChannel#transferTo}.
+ *
+ * @since 3.0
+ */
+public interface FileChannelPayload
+    extends Payload
+{
+  /**
+   * Opens a read-only channel to the payload content, or returns {@code null} if the content is not file backed and
+   * must be read with {@link #openInputStream()}. The caller is responsible for closing the channel.
+   */
+  @Nullable
+  FileChannel openChannel() throws IOException;
+}
@@ -0,0 +1,44 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view;
+
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+/**
+ * Optional {@link Matcher} extension exposing static hints which {@link Router} uses to skip routes that can not
+ * match a request, without evaluating them.
+ *
+ * Hints are a necessary condition only: a matcher must never match a request which falls outside of its hints, but
+ * {@link #matches(Context)} is still evaluated for every request that falls within them.
+ *
+ * @since 3.0
+ */
+public interface IndexableMatcher
+    extends Matcher
+{
+  /**
+   * Returns the literal prefix every matched {@link Request#getPath() request path} starts with, compared
+   * ignoring case, or {@code null} if the matcher may match any path.
+   */
+  @Nullable
+  String getLiteralPrefix();
+
+  /**
+   * Returns the {@link Request#getAction() request actions} the matcher may match, or {@code null} if the matcher
+   * may match any action.
+   */
+  @Nullable
+  Set<String> getActions();
+}
@@ -0,0 +1,186 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.annotation.Nullable;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.primitives.Ints;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Compiled {@link Route} dispatch index.
+ *
+ * Routes are grouped in a trie keyed by the (case-insensitive) literal path prefix advertised by their
+ * {@link IndexableMatcher}, and filtered by advertised request action. Each trie node holds the indexes of every
+ * route whose prefix is a prefix of the node's path, in declaration order, so a lookup walks the request path once,
+ * then evaluates only the candidate routes in the same order as a linear scan would, preserving first-match
+ * semantics. Lookups do not allocate.
+ *
+ * @since 3.0
+ */
+class RouteIndex
+{
+  private static final int[] NO_ROUTES = new int[0];
+
+  private final List<Route> routes;
+
+  private final List<Set<String>> actions;
+
+  private final Node root;
+
+  RouteIndex(final List<Route> routes) {
+    this.routes = new ArrayList<>(checkNotNull(routes));
+    this.actions = new ArrayList<>(routes.size());
+
+    NodeBuilder rootBuilder = new NodeBuilder();
+    for (int i = 0; i < this.routes.size(); i++) {
+      Matcher matcher = this.routes.get(i).getMatcher();
+      String prefix = null;
+      Set<String> routeActions = null;
+      if (matcher instanceof IndexableMatcher) {
+        prefix = ((IndexableMatcher) matcher).getLiteralPrefix();
+        Set<String> hinted = ((IndexableMatcher) matcher).getActions();
+        if (hinted != null) {
+          routeActions = ImmutableSet.copyOf(hinted);
+        }
+      }
+      actions.add(routeActions);
+
+      NodeBuilder node = rootBuilder;
+      if (prefix != null) {
+        for (int c = 0; c < prefix.length(); c++) {
+          node = node.child(fold(prefix.charAt(c)));
+        }
+      }
+      node.routes.add(i);
+    }
+    this.root = rootBuilder.build(NO_ROUTES);
+  }
+
+  /**
+   * Returns the first route matching the context, or {@code null}.
+   */
+  @Nullable
+  Route find(final Context context) {
+    String path = context.getRequest().getPath();
+    String action = context.getRequest().getAction();
+
+    Node node = root;
+    for (int i = 0; i < path.length(); i++) {
+      Node child = node.child(fold(path.charAt(i)));
+      if (child == null) {
+        break;
+      }
+      node = child;
+    }
+
+    for (int index : node.candidates) {
+      Set<String> allowed = actions.get(index);
+      if (allowed != null && !allowed.contains(action)) {
+        continue;
+      }
+      Route route = routes.get(index);
+      if (route.getMatcher().matches(context)) {
+        return route;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Folds case the same way {@link String#equalsIgnoreCase(String)} does.
+   */
+  static char fold(final char c) {
+    return Character.toLowerCase(Character.toUpperCase(c));
+  }
+
+  private static class Node
+  {
+    private final int[] candidates;
+
+    private final char[] keys;
+
+    private final Node[] children;
+
+    private Node(final int[] candidates, final char[] keys, final Node[] children) {
+      this.candidates = candidates;
+      this.keys = keys;
+      this.children = children;
+    }
+
+    @Nullable
+    private Node child(final char key) {
+      int i = Arrays.binarySearch(keys, key);
+      return i < 0 ? null : children[i];
+    }
+  }
+
+  private static class NodeBuilder
+  {
+    private final List<Integer> routes = new ArrayList<>();
+
+    private final Map<Character, NodeBuilder> children = new TreeMap<>();
+
+    private NodeBuilder child(final char key) {
+      NodeBuilder child = children.get(key);
+      if (child == null) {
+        child = new NodeBuilder();
+        children.put(key, child);
+      }
+      return child;
+    }
+
+    /**
+     * Builds the node, merging inherited candidates from ancestor nodes with the routes registered here.
+     */
+    private Node build(final int[] inherited) {
+      int[] candidates = merge(inherited, Ints.toArray(routes));
+      char[] keys = new char[children.size()];
+      Node[] nodes = new Node[children.size()];
+      int i = 0;
+      for (Map.Entry<Character, NodeBuilder> entry : children.entrySet()) {
+        keys[i] = entry.getKey();
+        nodes[i] = entry.getValue().build(candidates);
+        i++;
+      }
+      return new Node(candidates, keys, nodes);
+    }
+
+    private static int[] merge(final int[] a, final int[] b) {
+      if (b.length == 0) {
+        return a;
+      }
+      int[] result = new int[a.length + b.length];
+      int i = 0, j = 0, k = 0;
+      while (i < a.length && j < b.length) {
+        result[k++] = a[i] < b[j] ? a[i++] : b[j++];
+      }
+      while (i < a.length) {
+        result[k++] = a[i++];
+      }
+      while (j < b.length) {
+        result[k++] = b[j++];
+      }
+      return result;
+    }
+  }
+}
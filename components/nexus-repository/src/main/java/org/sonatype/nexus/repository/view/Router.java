@@ -19,6 +19,7 @@ import java.util.Map;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -32,12 +33,12 @@ import static com.google.common.base.Preconditions.checkState;
 public class Router
     extends ComponentSupport
 {
-  private final List<Route> routes;
+  private final RouteIndex index;
 
   private final DefaultRoute defaultRoute;
 
   public Router(final List<Route> routes, final DefaultRoute defaultRoute) {
-    this.routes = checkNotNull(routes, "Missing routes");
+    this.index = new RouteIndex(checkNotNull(routes, "Missing routes"));
     this.defaultRoute = checkNotNull(defaultRoute, "Missing default route");
   }
 
@@ -120,14 +121,13 @@ public class Router
 
   /**
    * Find the first matching route for the given context.
+   *
+   * @see RouteIndex
    */
-  private Route findRoute(final Context context) {
-    for (Route route : routes) {
-      if (route.getMatcher().matches(context)) {
-        return route;
-      }
-    }
-    return defaultRoute;
+  @VisibleForTesting
+  Route findRoute(final Context context) {
+    Route route = index.find(context);
+    return route != null ? route : defaultRoute;
   }
 
   //
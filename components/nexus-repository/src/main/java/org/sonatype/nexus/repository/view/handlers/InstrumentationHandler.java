@@ -0,0 +1,143 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view.handlers;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.inject.Named;
+import javax.inject.Singleton;
+
+import org.sonatype.nexus.repository.http.HttpMethods;
+import org.sonatype.nexus.repository.view.Context;
+import org.sonatype.nexus.repository.view.Handler;
+import org.sonatype.nexus.repository.view.Payload;
+import org.sonatype.nexus.repository.view.Response;
+import org.sonatype.nexus.repository.view.Route;
+import org.sonatype.nexus.repository.view.ViewFacet;
+import org.sonatype.sisu.goodies.common.ComponentSupport;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.SharedMetricRegistries;
+
+/**
+ * Records request metrics per repository and per route into the shared metric registry, which is published through
+ * the metrics servlet and JMX.
+ *
+ * For each repository, under {@code ViewFacet.<repository>}, and for each route, under
+ * {@code ViewFacet.<repository>.route.<route>}:
+ *
+ * <ul>
+ * <li>{@code requests} - timer of request latency</li>
+ * <li>{@code bytes} - meter of response payload bytes, excluding HEAD requests</li>
+ * <li>{@code status.<code>} - meter of responses by status code</li>
+ * <li>{@code exceptions} - meter of requests that failed with an exception</li>
+ * <li>{@code cache.<outcome>} - meter of requests by {@link CacheOutcome}, when reported by the route</li>
+ * </ul>
+ *
+ * Should be the first handler of a route, so the whole handler chain is measured.
+ *
+ * @since 3.0
+ */
+@Named
+@Singleton
+public class InstrumentationHandler
+    extends ComponentSupport
+    implements Handler
+{
+  /**
+   * Outcome of a cache lookup, reported by handlers and facets into the context attributes.
+   */
+  public enum CacheOutcome
+  {
+    /**
+     * Content served from the cache.
+     */
+    HIT("hit"),
+
+    /**
+     * Content missing or stale in the cache, requested from the remote.
+     */
+    MISS("miss"),
+
+    /**
+     * Not found status served from the negative cache.
+     */
+    NEGATIVE_HIT("negativeHit");
+
+    private final String metricName;
+
+    CacheOutcome(final String metricName) {
+      this.metricName = metricName;
+    }
+
+    /**
+     * Reports this outcome for the given context.
+     */
+    public void mark(final Context context) {
+      context.getAttributes().set(CacheOutcome.class, this);
+    }
+  }
+
+  private final MetricRegistry metrics = SharedMetricRegistries.getOrCreate("nexus");
+
+  @Nonnull
+  @Override
+  public Response handle(final @Nonnull Context context) throws Exception {
+    long start = System.nanoTime();
+    Response response = null;
+    try {
+      response = context.proceed();
+      return response;
+    }
+    finally {
+      long elapsed = System.nanoTime() - start;
+      String repositoryPrefix = MetricRegistry.name(ViewFacet.class, context.getRepository().getName());
+      record(repositoryPrefix, context, response, elapsed);
+      record(MetricRegistry.name(repositoryPrefix, "route", routeName(context.getRoute())), context, response,
+          elapsed);
+    }
+  }
+
+  private void record(final String prefix,
+                      final Context context,
+                      @Nullable final Response response,
+                      final long elapsedNanos)
+  {
+    metrics.timer(MetricRegistry.name(prefix, "requests")).update(elapsedNanos, TimeUnit.NANOSECONDS);
+
+    if (response == null) {
+      metrics.meter(MetricRegistry.name(prefix, "exceptions")).mark();
+    }
+    else {
+      metrics.meter(MetricRegistry.name(prefix, "status", String.valueOf(response.getStatus().getCode()))).mark();
+      Payload payload = response.getPayload();
+      if (payload != null && payload.getSize() > 0 && !HttpMethods.HEAD.equals(context.getRequest().getAction())) {
+        metrics.meter(MetricRegistry.name(prefix, "bytes")).mark(payload.getSize());
+      }
+    }
+
+    CacheOutcome outcome = context.getAttributes().get(CacheOutcome.class);
+    if (outcome != null) {
+      metrics.meter(MetricRegistry.name(prefix, "cache", outcome.metricName)).mark();
+    }
+  }
+
+  private static String routeName(@Nullable final Route route) {
+    if (route == null || route.getName() == null) {
+      return "unnamed";
+    }
+    return route.getName();
+  }
+}
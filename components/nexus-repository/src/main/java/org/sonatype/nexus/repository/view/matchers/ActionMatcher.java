@@ -13,12 +13,17 @@
 package org.sonatype.nexus.repository.view.matchers;
 
 import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nullable;
 
 import org.sonatype.nexus.repository.view.Context;
-import org.sonatype.nexus.repository.view.Matcher;
+import org.sonatype.nexus.repository.view.IndexableMatcher;
 import org.sonatype.nexus.repository.view.Request;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
+import com.google.common.collect.ImmutableSet;
+
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Arrays.asList;
@@ -30,7 +35,7 @@ import static java.util.Arrays.asList;
  */
 public class ActionMatcher
     extends ComponentSupport
-    implements Matcher
+    implements IndexableMatcher
 {
   private final List<String> allowedActions;
 
@@ -45,4 +50,15 @@ public class ActionMatcher
     final String action = context.getRequest().getAction();
     return allowedActions.contains(action);
   }
+
+  @Nullable
+  @Override
+  public String getLiteralPrefix() {
+    return null;
+  }
+
+  @Override
+  public Set<String> getActions() {
+    return ImmutableSet.copyOf(allowedActions);
+  }
 }
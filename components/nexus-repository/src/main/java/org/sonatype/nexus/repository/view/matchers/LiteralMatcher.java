@@ -12,8 +12,12 @@
  */
 package org.sonatype.nexus.repository.view.matchers;
 
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
 import org.sonatype.nexus.repository.view.Context;
-import org.sonatype.nexus.repository.view.Matcher;
+import org.sonatype.nexus.repository.view.IndexableMatcher;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -25,7 +29,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class LiteralMatcher
   extends ComponentSupport
-  implements Matcher
+  implements IndexableMatcher
 {
   private final String literal;
 
@@ -53,6 +57,17 @@ public class LiteralMatcher
     }
   }
 
+  @Override
+  public String getLiteralPrefix() {
+    return literal;
+  }
+
+  @Nullable
+  @Override
+  public Set<String> getActions() {
+    return null;
+  }
+
   @Override
   public String toString() {
     return getClass().getSimpleName() + "{" +
@@ -13,13 +13,18 @@
 package org.sonatype.nexus.repository.view.matchers.logic;
 
 import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nullable;
 
 import org.sonatype.nexus.repository.view.Context;
+import org.sonatype.nexus.repository.view.IndexableMatcher;
 import org.sonatype.nexus.repository.view.Matcher;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
+import com.google.common.collect.Sets;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -32,7 +37,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class AndMatcher
     extends ComponentSupport
-    implements Matcher
+    implements IndexableMatcher
 {
   private final List<Matcher> matchers;
 
@@ -56,6 +61,42 @@ public class AndMatcher
     return true;
   }
 
+  /**
+   * Returns the longest literal prefix of the child matchers, as all of them must match.
+   */
+  @Nullable
+  @Override
+  public String getLiteralPrefix() {
+    String result = null;
+    for (Matcher matcher : matchers) {
+      if (matcher instanceof IndexableMatcher) {
+        String prefix = ((IndexableMatcher) matcher).getLiteralPrefix();
+        if (prefix != null && (result == null || prefix.length() > result.length())) {
+          result = prefix;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the intersection of the actions of the child matchers.
+   */
+  @Nullable
+  @Override
+  public Set<String> getActions() {
+    Set<String> result = null;
+    for (Matcher matcher : matchers) {
+      if (matcher instanceof IndexableMatcher) {
+        Set<String> actions = ((IndexableMatcher) matcher).getActions();
+        if (actions != null) {
+          result = result == null ? Sets.newHashSet(actions) : Sets.newHashSet(Sets.intersection(result, actions));
+        }
+      }
+    }
+    return result;
+  }
+
   @Override
   public String toString() {
     return getClass().getSimpleName() + "{" +
@@ -13,13 +13,18 @@
 package org.sonatype.nexus.repository.view.matchers.logic;
 
 import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nullable;
 
 import org.sonatype.nexus.repository.view.Context;
+import org.sonatype.nexus.repository.view.IndexableMatcher;
 import org.sonatype.nexus.repository.view.Matcher;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Joiner;
+import com.google.common.collect.Sets;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -32,7 +37,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class OrMatcher
     extends ComponentSupport
-    implements Matcher
+    implements IndexableMatcher
 {
   private final List<Matcher> matchers;
 
@@ -56,6 +61,56 @@ public class OrMatcher
     return false;
   }
 
+  /**
+   * Returns the literal prefix common to all child matchers, or {@code null} if any of them may match any path.
+   */
+  @Nullable
+  @Override
+  public String getLiteralPrefix() {
+    String result = null;
+    for (Matcher matcher : matchers) {
+      if (!(matcher instanceof IndexableMatcher)) {
+        return null;
+      }
+      String prefix = ((IndexableMatcher) matcher).getLiteralPrefix();
+      if (prefix == null) {
+        return null;
+      }
+      if (result == null) {
+        result = prefix;
+      }
+      else {
+        int length = 0;
+        while (length < result.length() && length < prefix.length()
+            && result.regionMatches(true, length, prefix, length, 1)) {
+          length++;
+        }
+        result = result.substring(0, length);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns the union of the actions of the child matchers, or {@code null} if any of them may match any action.
+   */
+  @Nullable
+  @Override
+  public Set<String> getActions() {
+    Set<String> result = Sets.newHashSet();
+    for (Matcher matcher : matchers) {
+      if (!(matcher instanceof IndexableMatcher)) {
+        return null;
+      }
+      Set<String> actions = ((IndexableMatcher) matcher).getActions();
+      if (actions == null) {
+        return null;
+      }
+      result.addAll(actions);
+    }
+    return result;
+  }
+
   @Override
   public String toString() {
     return getClass().getSimpleName() + "{" +
@@ -13,8 +13,12 @@
 package org.sonatype.nexus.repository.view.matchers.token;
 
 import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
 
 import org.sonatype.nexus.repository.view.Context;
+import org.sonatype.nexus.repository.view.IndexableMatcher;
 import org.sonatype.nexus.repository.view.Matcher;
 import org.sonatype.nexus.repository.view.Request;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
@@ -31,7 +35,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class TokenMatcher
     extends ComponentSupport
-    implements Matcher
+    implements IndexableMatcher
 {
   public static interface State
   {
@@ -76,4 +80,17 @@ public class TokenMatcher
     });
     return true;
   }
+
+  @Nullable
+  @Override
+  public String getLiteralPrefix() {
+    String prefix = parser.getLiteralPrefix();
+    return prefix.isEmpty() ? null : prefix;
+  }
+
+  @Nullable
+  @Override
+  public Set<String> getActions() {
+    return null;
+  }
 }
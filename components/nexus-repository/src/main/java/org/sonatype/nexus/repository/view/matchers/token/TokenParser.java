@@ -44,6 +44,9 @@ import static com.google.common.base.Preconditions.checkState;
  * Caveat: the {@link TokenParser} cannot handle groups in variable regexp definitions. This will cause
  * parsing errors.
  *
+ * Paths are checked against the literal prefix and suffix of the template before any regular expression work, and
+ * the regular expression matcher is reused per thread, so rejecting a path does not allocate.
+ *
  * @since 3.0
  */
 public class TokenParser
@@ -53,11 +56,29 @@ public class TokenParser
 
   private final Pattern pattern;
 
+  private final ThreadLocal<Matcher> matchers;
+
+  private final String literalPrefix;
+
+  private final String literalSuffix;
+
   public TokenParser(final String templatePattern) {
     final List<Token> tokens = new PatternParser(templatePattern).getTokens();
     pattern = Pattern.compile(regexp(tokens));
     log.trace("Pattern: {}", pattern);
 
+    matchers = new ThreadLocal<Matcher>()
+    {
+      @Override
+      protected Matcher initialValue() {
+        return pattern.matcher("");
+      }
+    };
+
+    // Leading and trailing literals every matching path must carry
+    literalPrefix = tokens.isEmpty() ? "" : literal(tokens.get(0));
+    literalSuffix = tokens.size() > 1 ? literal(tokens.get(tokens.size() - 1)) : "";
+
     // Separate the variable tokens
     variables = new ArrayList<>();
     for (Token token : tokens) {
@@ -74,7 +95,23 @@ public class TokenParser
    */
   @Nullable
   public Map<String, String> parse(final String path) {
-    final Matcher matcher = pattern.matcher(path);
+    if (path.length() < literalPrefix.length() + literalSuffix.length()
+        || !path.startsWith(literalPrefix) || !path.endsWith(literalSuffix)) {
+      return null;
+    }
+
+    final Matcher matcher = matchers.get().reset(path);
+    try {
+      return matches(matcher);
+    }
+    finally {
+      // do not retain the path
+      matcher.reset("");
+    }
+  }
+
+  @Nullable
+  private Map<String, String> matches(final Matcher matcher) {
     if (!matcher.matches()) {
       return null;
     }
@@ -106,6 +143,17 @@ public class TokenParser
     return pattern.toString();
   }
 
+  /**
+   * Returns the literal text every path matching the template pattern starts with, possibly empty.
+   */
+  public String getLiteralPrefix() {
+    return literalPrefix;
+  }
+
+  private static String literal(final Token token) {
+    return token instanceof LiteralToken ? token.value : "";
+  }
+
   private String regexp(final List<Token> tokens) {
     StringBuilder b = new StringBuilder();
     for (Token token : tokens) {
@@ -14,11 +14,17 @@ package org.sonatype.nexus.repository.view.payloads;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 
 import javax.annotation.Nullable;
 
 import org.sonatype.nexus.blobstore.api.Blob;
-import org.sonatype.nexus.repository.view.Payload;
+import org.sonatype.nexus.blobstore.api.FileChannelBlob;
+import org.sonatype.nexus.repository.view.FileChannelPayload;
+import org.sonatype.nexus.repository.view.SeekablePayload;
+
+import com.google.common.io.ByteStreams;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -28,7 +34,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * @since 3.0
  */
 public class BlobPayload
-    implements Payload
+    implements FileChannelPayload, SeekablePayload
 {
   private final Blob blob;
 
@@ -44,6 +50,42 @@ public class BlobPayload
     return blob.getInputStream();
   }
 
+  /**
+   * File backed blobs are read from a positioned channel, other blobs have the content before the position skipped.
+   */
+  @Override
+  public InputStream openInputStream(final long position) throws IOException {
+    if (blob instanceof FileChannelBlob) {
+      FileChannel channel = ((FileChannelBlob) blob).openChannel();
+      try {
+        channel.position(position);
+      }
+      catch (IOException e) {
+        channel.close();
+        throw e;
+      }
+      return Channels.newInputStream(channel);
+    }
+    InputStream input = blob.getInputStream();
+    try {
+      ByteStreams.skipFully(input, position);
+    }
+    catch (IOException e) {
+      input.close();
+      throw e;
+    }
+    return input;
+  }
+
+  @Nullable
+  @Override
+  public FileChannel openChannel() throws IOException {
+    if (blob instanceof FileChannelBlob) {
+      return ((FileChannelBlob) blob).openChannel();
+    }
+    return null;
+  }
+
   @Override
   public long getSize() {
     return blob.getMetrics().getContentSize();
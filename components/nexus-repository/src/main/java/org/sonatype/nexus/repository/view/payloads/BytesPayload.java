@@ -18,7 +18,7 @@ import java.io.InputStream;
 
 import javax.annotation.Nullable;
 
-import org.sonatype.nexus.repository.view.Payload;
+import org.sonatype.nexus.repository.view.SeekablePayload;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -28,7 +28,7 @@ import static com.google.common.base.Preconditions.checkNotNull;
  * @since 3.0
  */
 public class BytesPayload
-    implements Payload
+    implements SeekablePayload
 {
   private final byte[] content;
 
@@ -44,6 +44,12 @@ public class BytesPayload
     return new ByteArrayInputStream(content);
   }
 
+  @Override
+  public InputStream openInputStream(final long position) throws IOException {
+    int offset = (int) Math.min(position, content.length);
+    return new ByteArrayInputStream(content, offset, content.length - offset);
+  }
+
   @Override
   public long getSize() {
     return content.length;
@@ -0,0 +1,135 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.group;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.group.GroupHandler.DispatchedRepositories;
+import org.sonatype.nexus.repository.http.HttpResponses;
+import org.sonatype.nexus.repository.view.Request;
+import org.sonatype.nexus.repository.view.Response;
+import org.sonatype.nexus.repository.view.ViewFacet;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.ImmutableList;
+import org.apache.shiro.mgt.DefaultSecurityManager;
+import org.apache.shiro.subject.Subject;
+import org.apache.shiro.util.ThreadContext;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link GroupHandler}.
+ */
+public class GroupHandlerTest
+    extends TestSupport
+{
+  private final Request request = new Request.Builder().action("GET").path("/foo").build();
+
+  private GroupHandler underTest;
+
+  @Before
+  public void setUp() {
+    ThreadContext.bind(new Subject.Builder(new DefaultSecurityManager()).buildSubject());
+    underTest = new GroupHandler();
+  }
+
+  @After
+  public void tearDown() {
+    ThreadContext.unbindSubject();
+  }
+
+  @Test
+  public void parallelGetFirstHonoursMemberOrder() throws Exception {
+    Response slow = HttpResponses.ok();
+    Response fast = HttpResponses.ok();
+    List<Repository> members = ImmutableList.of(
+        member("missing", HttpResponses.notFound(), 0),
+        member("slow", slow, 200),
+        member("fast", fast, 0)
+    );
+
+    Response response = underTest.getFirstParallel(request, members, new DispatchedRepositories());
+
+    assertThat(response, is(sameInstance(slow)));
+  }
+
+  @Test
+  public void parallelGetAllKeepsMemberOrder() throws Exception {
+    Repository slow = member("slow", HttpResponses.ok(), 200);
+    Repository fast = member("fast", HttpResponses.notFound(), 0);
+
+    LinkedHashMap<Repository, Response> responses =
+        underTest.getAllParallel(request, ImmutableList.of(slow, fast), new DispatchedRepositories());
+
+    assertThat(responses.keySet(), contains(slow, fast));
+  }
+
+  @Test
+  public void parallelDispatchSkipsAlreadyDispatchedMembers() throws Exception {
+    Repository member = member("member", HttpResponses.ok(), 0);
+    DispatchedRepositories dispatched = new DispatchedRepositories();
+    dispatched.add(member);
+
+    Response response = underTest.getFirstParallel(request, ImmutableList.of(member), dispatched);
+
+    assertThat(response.getStatus().getCode(), is(404));
+    verify(member, never()).facet(ViewFacet.class);
+  }
+
+  @Test
+  public void membersNotHoldingContentAreSkipped() throws Exception {
+    Repository indexed = member("indexed", HttpResponses.ok(), 0);
+    MemberIndexFacet index = mock(MemberIndexFacet.class);
+    when(index.mightContain(request)).thenReturn(false);
+    when(indexed.facet(MemberIndexFacet.class)).thenReturn(index);
+    Response found = HttpResponses.ok();
+    Repository other = member("other", found, 0);
+
+    Response response = underTest.getFirst(request, ImmutableList.of(indexed, other), new DispatchedRepositories());
+
+    assertThat(response, is(sameInstance(found)));
+    verify(indexed, never()).facet(ViewFacet.class);
+  }
+
+  private Repository member(final String name, final Response response, final long delay) throws Exception {
+    ViewFacet view = mock(ViewFacet.class);
+    when(view.dispatch(any(Request.class))).thenAnswer(new Answer<Response>()
+    {
+      @Override
+      public Response answer(final InvocationOnMock invocation) throws Throwable {
+        Thread.sleep(delay);
+        return response;
+      }
+    });
+    Repository repository = mock(Repository.class);
+    when(repository.getName()).thenReturn(name);
+    when(repository.facet(ViewFacet.class)).thenReturn(view);
+    return repository;
+  }
+}
@@ -0,0 +1,199 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.group
+
+import java.util.concurrent.CopyOnWriteArrayList
+import java.util.concurrent.CountDownLatch
+
+import org.sonatype.nexus.repository.Repository
+import org.sonatype.nexus.repository.group.MemberIndexFacetImpl.Index
+import org.sonatype.nexus.repository.storage.Asset
+import org.sonatype.nexus.repository.storage.AssetCreatedEvent
+import org.sonatype.nexus.repository.storage.AssetDeletedEvent
+import org.sonatype.nexus.repository.storage.Bucket
+import org.sonatype.nexus.repository.storage.StorageFacet
+import org.sonatype.nexus.repository.storage.StorageTx
+import org.sonatype.nexus.repository.view.Request
+import org.sonatype.sisu.goodies.eventbus.EventBus
+import org.sonatype.sisu.litmus.testsupport.TestSupport
+
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+import org.mockito.stubbing.Answer
+
+import static java.util.concurrent.TimeUnit.SECONDS
+import static org.mockito.Matchers.any
+import static org.mockito.Mockito.mock
+import static org.mockito.Mockito.when
+
+/**
+ * Tests for {@link MemberIndexFacetImpl}.
+ */
+class MemberIndexFacetImplTest
+    extends TestSupport
+{
+  private Repository repository
+
+  private List<Asset> assets
+
+  private long assetCount
+
+  private Closure onBrowse
+
+  private MemberIndexFacetImpl underTest
+
+  @Before
+  void setUp() {
+    assets = new CopyOnWriteArrayList<>([asset('a/1'), asset('a/2')])
+    assetCount = -1
+
+    StorageTx tx = mock(StorageTx)
+    when(tx.bucket).thenReturn(mock(Bucket))
+    when(tx.countAssets(any(String), any(Map), any(Iterable), any(String))).thenAnswer(
+        { assetCount < 0 ? assets.size() as long : assetCount } as Answer<Long>)
+    when(tx.browseAssets(any(Bucket))).thenAnswer({
+      if (onBrowse) {
+        onBrowse.call()
+      }
+      return new ArrayList<>(assets)
+    } as Answer<Iterable<Asset>>)
+    StorageFacet storageFacet = mock(StorageFacet)
+    when(storageFacet.openTx()).thenReturn(tx)
+
+    repository = repository('hosted')
+    when(repository.facet(StorageFacet)).thenReturn(storageFacet)
+
+    underTest = new MemberIndexFacetImpl()
+    underTest.installDependencies(mock(EventBus))
+    underTest.attach(repository)
+    underTest.init()
+  }
+
+  @After
+  void tearDown() {
+    underTest.stop()
+  }
+
+  private static Repository repository(final String name) {
+    Repository repository = mock(Repository)
+    when(repository.name).thenReturn(name)
+    return repository
+  }
+
+  private static Asset asset(final String name) {
+    Asset asset = mock(Asset)
+    when(asset.name()).thenReturn(name)
+    return asset
+  }
+
+  private static Request request(final String path) {
+    return new Request.Builder().action('GET').path(path).build()
+  }
+
+  /**
+   * Waits for an index other than the given one to answer requests.
+   */
+  private Index awaitIndex(final Index previous = null) {
+    long deadline = System.currentTimeMillis() + 5000
+    while (underTest.index == null || underTest.index.is(previous)) {
+      assert System.currentTimeMillis() < deadline
+      Thread.sleep(10)
+    }
+    return underTest.index
+  }
+
+  @Test
+  void 'index is stale once more assets were added than it was sized for'() {
+    Index index = new Index(10)
+    10.times { index.put("a/$it") }
+    assert !index.isStale()
+    index.put('a/10')
+    assert index.isStale()
+  }
+
+  @Test
+  void 'index is stale once too many assets were deleted'() {
+    Index index = new Index(100)
+    8.times { index.put("a/$it") }
+    2.times { index.delete() }
+    assert !index.isStale()
+    index.delete()
+    assert index.isStale()
+  }
+
+  @Test
+  void 'every request might be held until the index is built'() {
+    CountDownLatch release = new CountDownLatch(1)
+    onBrowse = { release.await(5, SECONDS) }
+    underTest.start()
+
+    assert underTest.mightContain(request('/missing'))
+    release.countDown()
+    awaitIndex()
+    assert !underTest.mightContain(request('/missing'))
+    assert underTest.mightContain(request('/a/1'))
+  }
+
+  @Test
+  void 'first build is sized from the asset count'() {
+    assetCount = 1_000_000
+    underTest.start()
+
+    assert awaitIndex().capacity == 2_000_000
+  }
+
+  @Test
+  void 'created assets are added and those of other repositories ignored'() {
+    underTest.start()
+    awaitIndex()
+
+    underTest.on(new AssetCreatedEvent(asset('b/1'), repository))
+    underTest.on(new AssetCreatedEvent(asset('c/1'), repository('other')))
+
+    assert underTest.mightContain(request('/b/1'))
+    assert !underTest.mightContain(request('/c/1'))
+  }
+
+  @Test
+  void 'index is rebuilt and swapped once too many assets were deleted'() {
+    underTest.start()
+    Index previous = awaitIndex()
+
+    Asset deleted = assets.remove(1)
+    underTest.on(new AssetDeletedEvent(deleted, repository))
+
+    awaitIndex(previous)
+    assert underTest.mightContain(request('/a/1'))
+    assert !underTest.mightContain(request('/a/2'))
+  }
+
+  @Test
+  void 'restart while building builds the index again'() {
+    CountDownLatch browsing = new CountDownLatch(1)
+    CountDownLatch release = new CountDownLatch(1)
+    onBrowse = {
+      browsing.countDown()
+      release.await(5, SECONDS)
+    }
+    underTest.start()
+    assert browsing.await(5, SECONDS)
+
+    underTest.stop()
+    underTest.start()
+    release.countDown()
+
+    awaitIndex()
+    assert !underTest.mightContain(request('/missing'))
+  }
+}
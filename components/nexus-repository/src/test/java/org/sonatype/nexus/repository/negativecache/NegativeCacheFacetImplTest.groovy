@@ -22,6 +22,8 @@ import org.sonatype.sisu.goodies.common.Time
 import org.sonatype.sisu.goodies.eventbus.EventBus
 import org.sonatype.sisu.litmus.testsupport.TestSupport
 
+import com.codahale.metrics.MetricRegistry
+import com.codahale.metrics.SharedMetricRegistries
 import com.google.common.collect.Lists
 import net.sf.ehcache.Cache
 import net.sf.ehcache.CacheManager
@@ -296,4 +298,114 @@ class NegativeCacheFacetImplTest
     verify(cache, never()).remove(key1)
     verify(cache).remove(key2)
   }
+
+  /**
+   * Starts a facet backed by a real cache, so the cache listener keeping the path key trie in sync is exercised.
+   */
+  private NegativeCacheFacetImpl startWithRealCache() {
+    config.enabled = true
+    underTest = new NegativeCacheFacetImpl(cacheManager) {
+      Ehcache realCache
+
+      @Override
+      Ehcache newCache(final String name, final int timeToLiveSeconds) {
+        realCache = super.newCache(name, timeToLiveSeconds)
+        realCache.initialise()
+        return realCache
+      }
+    }
+    underTest.installDependencies(mock(EventBus))
+    underTest.attach(repository)
+    underTest.init()
+    underTest.start()
+    return underTest
+  }
+
+  private Set<PathNegativeCacheKey> trieKeys() {
+    return underTest.pathKeys.children(new PathNegativeCacheKey('/')) as Set
+  }
+
+  private Set<PathNegativeCacheKey> cachedKeys() {
+    return underTest.realCache.keys as Set
+  }
+
+  private long meterCount(final String name) {
+    return SharedMetricRegistries.getOrCreate('nexus')
+        .meter(MetricRegistry.name(NegativeCacheFacet, 'test', name)).count
+  }
+
+  @Test
+  void 'path keys evicted or removed by the cache are forgotten'() {
+    config.maxElements = 2
+    startWithRealCache()
+    long evictions = meterCount('evictions')
+    long expiries = meterCount('expiries')
+
+    (1..3).each { underTest.put(new PathNegativeCacheKey("/a/$it"), status) }
+
+    assert cachedKeys().size() == 2
+    assert trieKeys() == cachedKeys()
+    assert meterCount('evictions') == evictions + 1
+    assert meterCount('expiries') == expiries
+
+    PathNegativeCacheKey removed = cachedKeys().iterator().next()
+    underTest.realCache.remove(removed)
+    assert !trieKeys().contains(removed)
+    assert trieKeys() == cachedKeys()
+
+    underTest.realCache.removeAll()
+    assert trieKeys().isEmpty()
+
+    underTest.stop()
+    underTest.destroy()
+  }
+
+  @Test
+  void 'expired path keys are forgotten and counted as expiries'() {
+    config.timeToLive = 1
+    startWithRealCache()
+    long evictions = meterCount('evictions')
+    long expiries = meterCount('expiries')
+    PathNegativeCacheKey expiring = new PathNegativeCacheKey('/a/1')
+
+    underTest.put(expiring, status)
+    assert trieKeys() == [expiring] as Set
+    Thread.sleep(1500)
+
+    assert underTest.get(expiring) == null
+    assert trieKeys().isEmpty()
+    assert meterCount('expiries') == expiries + 1
+    assert meterCount('evictions') == evictions
+
+    underTest.stop()
+    underTest.destroy()
+  }
+
+  @Test
+  void 'concurrent puts and invalidations leave the trie holding exactly the cached path keys'() {
+    config.maxElements = 100
+    startWithRealCache()
+    List<PathNegativeCacheKey> keys = (1..10).collect { new PathNegativeCacheKey("/a/$it") }
+
+    List<Thread> threads = (1..4).collect { int seed ->
+      Thread.start {
+        Random random = new Random(seed)
+        1000.times {
+          PathNegativeCacheKey next = keys[random.nextInt(keys.size())]
+          if (random.nextBoolean()) {
+            underTest.put(next, status)
+          }
+          else {
+            underTest.invalidate(next)
+          }
+        }
+      }
+    }
+    threads*.join()
+
+    assert trieKeys() == cachedKeys()
+
+    underTest.stop()
+    underTest.destroy()
+  }
 }
@@ -22,6 +22,7 @@ import org.sonatype.nexus.repository.view.Context
 import org.sonatype.nexus.repository.view.Request
 import org.sonatype.nexus.repository.view.Response
 import org.sonatype.nexus.repository.view.Status
+import org.sonatype.nexus.repository.view.handlers.InstrumentationHandler.CacheOutcome
 import org.sonatype.sisu.litmus.testsupport.TestSupport
 
 import static org.mockito.Matchers.any
@@ -53,6 +54,7 @@ extends TestSupport
     repository = mock(Repository)
     when(context.getRequest()).thenReturn(request)
     when(context.getRepository()).thenReturn(repository)
+    when(context.getAttributes()).thenReturn(new Context.Attributes())
     when(request.getAction()).thenReturn(HttpMethods.GET)
     when(repository.facet(NegativeCacheFacet)).thenReturn(facet)
     when(facet.getCacheKey(context)).thenReturn(key)
@@ -114,6 +116,7 @@ extends TestSupport
     when(facet.get(key)).thenReturn(cachedStatus)
     Response response = underTest.handle(context)
     assert response.getStatus() == cachedStatus
+    assert context.attributes.get(CacheOutcome) == CacheOutcome.NEGATIVE_HIT
     verify(context, never()).proceed()
     verify(facet, never()).put(any(NegativeCacheKey), any(Status))
     verify(facet, never()).invalidate(any(NegativeCacheKey))
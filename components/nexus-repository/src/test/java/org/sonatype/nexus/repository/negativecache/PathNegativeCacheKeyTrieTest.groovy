@@ -0,0 +1,68 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.negativecache
+
+import org.junit.Test
+import org.sonatype.sisu.litmus.testsupport.TestSupport
+
+/**
+ * Tests for {@link PathNegativeCacheKeyTrie}.
+ */
+class PathNegativeCacheKeyTrieTest
+extends TestSupport
+{
+  private PathNegativeCacheKeyTrie underTest = new PathNegativeCacheKeyTrie()
+
+  /**
+   * Given:
+   * - keys below, next to and at a parent path
+   * Then:
+   * - #children returns exactly the keys the parent #isParentOf
+   */
+  @Test
+  void 'children agree with isParentOf'() {
+    def keys = ['/foo/bar.jar', '/foo/and/more/bar.jar', '/foo', '/foo/', '/foobar/baz.jar', '/other/foo/x.jar']
+        .collect { new PathNegativeCacheKey(it) }
+    keys.each { underTest.add(it) }
+
+    ['/foo/', '/foo', '/', '/foo/and/', '/missing/'].each { path ->
+      def parent = new PathNegativeCacheKey(path)
+      assert underTest.children(parent) as Set == keys.findAll { parent.isParentOf(it) } as Set
+    }
+  }
+
+  /**
+   * Given:
+   * - added keys
+   * Then:
+   * - removed keys are no longer returned, and size is tracked
+   */
+  @Test
+  void 'removed keys are forgotten'() {
+    def jar = new PathNegativeCacheKey('/foo/bar.jar')
+    def pom = new PathNegativeCacheKey('/foo/bar.pom')
+    underTest.add(jar)
+    underTest.add(pom)
+    underTest.add(jar)
+    assert underTest.size() == 2
+
+    underTest.remove(jar)
+    underTest.remove(new PathNegativeCacheKey('/foo/missing.jar'))
+    assert underTest.size() == 1
+    assert underTest.children(new PathNegativeCacheKey('/foo/')) == [pom]
+
+    underTest.clear()
+    assert underTest.size() == 0
+    assert underTest.children(new PathNegativeCacheKey('/')).empty
+  }
+}
@@ -0,0 +1,145 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.partial
+
+import org.sonatype.nexus.repository.http.HttpMethods
+import org.sonatype.nexus.repository.http.HttpStatus
+import org.sonatype.nexus.repository.view.Context
+import org.sonatype.nexus.repository.view.Request
+import org.sonatype.nexus.repository.view.Response
+import org.sonatype.nexus.repository.view.Status
+import org.sonatype.nexus.repository.view.payloads.StringPayload
+import org.sonatype.sisu.litmus.testsupport.TestSupport
+
+import com.google.common.io.ByteStreams
+import com.google.common.net.HttpHeaders
+import org.junit.Before
+import org.junit.Test
+import org.mockito.Mock
+
+import static org.mockito.Mockito.when
+
+/**
+ * Tests for {@link PartialFetchHandler}.
+ */
+class PartialFetchHandlerTest
+    extends TestSupport
+{
+  @Mock
+  Context context
+
+  PartialFetchHandler underTest = new PartialFetchHandler(new RangeParser())
+
+  @Before
+  void setUp() {
+    when(context.proceed()).thenReturn(new Response.Builder()
+        .status(Status.success(HttpStatus.OK))
+        .payload(new StringPayload('0123456789', 'text/plain'))
+        .build())
+  }
+
+  private Response fetch(final String range) {
+    when(context.getRequest()).thenReturn(new Request.Builder()
+        .action(HttpMethods.GET)
+        .path('/foo')
+        .header(HttpHeaders.RANGE, range)
+        .build())
+    return underTest.handle(context)
+  }
+
+  private static String body(final Response response) {
+    return new String(ByteStreams.toByteArray(response.payload.openInputStream()), 'US-ASCII')
+  }
+
+  @Test
+  void 'single range is sent with its content range'() {
+    Response response = fetch('bytes=2-4')
+
+    assert response.status.code == HttpStatus.PARTIAL_CONTENT
+    assert response.headers.get(HttpHeaders.CONTENT_RANGE) == 'bytes 2-4/10'
+    assert response.payload.size == 3
+    assert body(response) == '234'
+  }
+
+  @Test
+  void 'multiple ranges are sent as multipart byteranges'() {
+    Response response = fetch('bytes=0-1,-2')
+
+    assert response.status.code == HttpStatus.PARTIAL_CONTENT
+    assert response.headers.get(HttpHeaders.CONTENT_RANGE) == null
+
+    def matcher = response.payload.contentType =~ /^multipart\/byteranges; boundary=(\w+)$/
+    assert matcher.matches()
+    String boundary = matcher.group(1)
+
+    String body = body(response)
+    assert body.length() == response.payload.size
+    assert body == "\r\n--${boundary}\r\n" +
+        "Content-Type: text/plain\r\n" +
+        "Content-Range: bytes 0-1/10\r\n" +
+        "\r\n" +
+        "01" +
+        "\r\n--${boundary}\r\n" +
+        "Content-Type: text/plain\r\n" +
+        "Content-Range: bytes 8-9/10\r\n" +
+        "\r\n" +
+        "89" +
+        "\r\n--${boundary}--\r\n"
+  }
+
+  @Test
+  void 'duplicate ranges are sent once'() {
+    Response response = fetch('bytes=' + (['0-'] * 16).join(','))
+
+    assert response.status.code == HttpStatus.PARTIAL_CONTENT
+    assert response.headers.get(HttpHeaders.CONTENT_RANGE) == 'bytes 0-9/10'
+    assert response.payload.size == 10
+    assert body(response) == '0123456789'
+  }
+
+  @Test
+  void 'overlapping and adjacent ranges are coalesced'() {
+    Response response = fetch('bytes=6-7,0-1,2-3,1-2,5-5')
+
+    def matcher = response.payload.contentType =~ /^multipart\/byteranges; boundary=(\w+)$/
+    assert matcher.matches()
+    String boundary = matcher.group(1)
+
+    assert body(response) == "\r\n--${boundary}\r\n" +
+        "Content-Type: text/plain\r\n" +
+        "Content-Range: bytes 0-3/10\r\n" +
+        "\r\n" +
+        "0123" +
+        "\r\n--${boundary}\r\n" +
+        "Content-Type: text/plain\r\n" +
+        "Content-Range: bytes 5-7/10\r\n" +
+        "\r\n" +
+        "567" +
+        "\r\n--${boundary}--\r\n"
+  }
+
+  @Test
+  void 'too many ranges are sent the complete content'() {
+    Response response = fetch('bytes=' + (0..16).collect { "${it}-${it}" }.join(','))
+
+    assert response.status.code == HttpStatus.OK
+    assert body(response) == '0123456789'
+  }
+
+  @Test
+  void 'unsatisfiable ranges are rejected'() {
+    Response response = fetch('bytes=20-30,40-')
+
+    assert response.status.code == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE
+  }
+}
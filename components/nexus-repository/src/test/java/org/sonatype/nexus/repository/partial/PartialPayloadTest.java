@@ -12,9 +12,15 @@
  */
 package org.sonatype.nexus.repository.partial;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
 
 import org.sonatype.nexus.repository.view.payloads.BytesPayload;
+import org.sonatype.nexus.repository.view.payloads.StreamPayload;
+import org.sonatype.nexus.repository.view.payloads.StreamPayload.InputStreamSupplier;
 import org.sonatype.sisu.litmus.testsupport.TestSupport;
 
 import com.google.common.collect.Range;
@@ -61,4 +67,20 @@ public class PartialPayloadTest
     final PartialPayload partial = new PartialPayload(bytes, closed);
     return ByteStreams.toByteArray(partial.openInputStream());
   }
-}
\ No newline at end of file
+
+  @Test
+  public void nonSeekablePayloadIsSkipped() throws IOException {
+    final StreamPayload streamPayload = new StreamPayload(new InputStreamSupplier()
+    {
+      @Nonnull
+      @Override
+      public InputStream get() throws IOException {
+        return new ByteArrayInputStream(input);
+      }
+    }, input.length, "n/a");
+
+    final PartialPayload partial = new PartialPayload(streamPayload, Range.closed(7L, 9L));
+
+    assertThat(ByteStreams.toByteArray(partial.openInputStream()), is(Bytes.toArray(asList(7, 8, 9))));
+  }
+}
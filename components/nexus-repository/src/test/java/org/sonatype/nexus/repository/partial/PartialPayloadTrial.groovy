@@ -0,0 +1,153 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.partial
+
+import java.nio.channels.FileChannel
+import java.nio.file.StandardOpenOption
+
+import org.sonatype.nexus.blobstore.api.Blob
+import org.sonatype.nexus.blobstore.api.BlobId
+import org.sonatype.nexus.blobstore.api.BlobMetrics
+import org.sonatype.nexus.blobstore.api.FileChannelBlob
+import org.sonatype.nexus.repository.view.payloads.BlobPayload
+import org.sonatype.sisu.litmus.testsupport.TestSupport
+
+import com.google.common.base.Stopwatch
+import com.google.common.collect.Range
+import com.google.common.io.ByteStreams
+import org.joda.time.DateTime
+import org.junit.Test
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS
+
+/**
+ * Trials of {@link PartialPayload} serving the tail of a large blob, comparing a blob whose channel can be
+ * positioned with one that can only be streamed and skipped.
+ */
+class PartialPayloadTrial
+    extends TestSupport
+{
+  static final long SIZE = 2L * 1024 * 1024 * 1024
+
+  static final long TAIL = 1024 * 1024
+
+  static final int ITERATIONS = 5
+
+  @Test
+  void 'serve tail of large blob'() {
+    File file = new File(util.createTempDir(), 'large.bin')
+    RandomAccessFile raf = new RandomAccessFile(file, 'rw')
+    try {
+      // sparse file, only the metadata is written
+      raf.setLength(SIZE)
+    }
+    finally {
+      raf.close()
+    }
+
+    Range<Long> tail = Range.closed(SIZE - TAIL, SIZE - 1)
+    PartialPayload seekable = new PartialPayload(new BlobPayload(new ChannelBlob(file), null), tail)
+    PartialPayload streamed = new PartialPayload(new BlobPayload(new StreamBlob(file), null), tail)
+
+    // sanity check both paths agree, then warm them up before measuring
+    assert drain(seekable) == TAIL
+    assert drain(streamed) == TAIL
+
+    double seeked = run(seekable)
+    double skipped = run(streamed)
+    log "tail ${TAIL} of ${SIZE}: seek ${seeked} ms, skip ${skipped} ms per request"
+  }
+
+  private static long drain(final PartialPayload payload) {
+    InputStream input = payload.openInputStream()
+    try {
+      return ByteStreams.copy(input, ByteStreams.nullOutputStream())
+    }
+    finally {
+      input.close()
+    }
+  }
+
+  private static double run(final PartialPayload payload) {
+    Stopwatch stopwatch = Stopwatch.createStarted()
+    for (int i = 0; i < ITERATIONS; i++) {
+      drain(payload)
+    }
+    return stopwatch.elapsed(MILLISECONDS) / (double) ITERATIONS
+  }
+
+  /**
+   * Blob over a local file which only offers a stream that must read through skipped bytes, as a remote or
+   * compressed store would.
+   */
+  private static class StreamBlob
+      implements Blob
+  {
+    final File file
+
+    StreamBlob(final File file) {
+      this.file = file
+    }
+
+    @Override
+    BlobId getId() {
+      return new BlobId(file.name)
+    }
+
+    @Override
+    Map<String, String> getHeaders() {
+      return [:]
+    }
+
+    @Override
+    InputStream getInputStream() {
+      return new FilterInputStream(new BufferedInputStream(new FileInputStream(file))) {
+        @Override
+        long skip(final long n) {
+          byte[] buffer = new byte[8192]
+          long skipped = 0
+          while (skipped < n) {
+            int read = read(buffer, 0, (int) Math.min(buffer.length, n - skipped))
+            if (read < 0) {
+              break
+            }
+            skipped += read
+          }
+          return skipped
+        }
+      }
+    }
+
+    @Override
+    BlobMetrics getMetrics() {
+      return new BlobMetrics(new DateTime(), '', file.length())
+    }
+  }
+
+  /**
+   * Blob over a local file which also exposes its channel, so it can be positioned.
+   */
+  private static class ChannelBlob
+      extends StreamBlob
+      implements FileChannelBlob
+  {
+    ChannelBlob(final File file) {
+      super(file)
+    }
+
+    @Override
+    FileChannel openChannel() {
+      return FileChannel.open(file.toPath(), StandardOpenOption.READ)
+    }
+  }
+}
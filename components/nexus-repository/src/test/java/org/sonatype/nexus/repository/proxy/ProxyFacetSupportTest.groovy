@@ -0,0 +1,329 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.proxy
+
+import java.util.concurrent.Callable
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+import java.util.concurrent.atomic.AtomicInteger
+
+import javax.annotation.Nonnull
+
+import org.sonatype.nexus.common.app.ApplicationDirectories
+import org.sonatype.nexus.repository.InvalidContentException
+import org.sonatype.nexus.repository.Repository
+import org.sonatype.nexus.repository.config.Configuration
+import org.sonatype.nexus.repository.config.ConfigurationFacet
+import org.sonatype.nexus.repository.httpclient.HttpClientFacet
+import org.sonatype.nexus.repository.view.Content
+import org.sonatype.nexus.repository.view.Context
+import org.sonatype.nexus.repository.view.handlers.InstrumentationHandler.CacheOutcome
+import org.sonatype.nexus.repository.view.payloads.StreamPayload
+import org.sonatype.nexus.repository.view.payloads.StreamPayload.InputStreamSupplier
+import org.sonatype.nexus.repository.view.payloads.StringPayload
+import org.sonatype.sisu.goodies.eventbus.EventBus
+import org.sonatype.sisu.litmus.testsupport.TestSupport
+
+import org.joda.time.DateTime
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import static java.util.concurrent.TimeUnit.SECONDS
+import static org.mockito.Matchers.any
+import static org.mockito.Mockito.eq
+import static org.mockito.Mockito.mock
+import static org.mockito.Mockito.when
+
+/**
+ * Tests for {@link ProxyFacetSupport}.
+ */
+class ProxyFacetSupportTest
+    extends TestSupport
+{
+  private TestProxyFacet underTest
+
+  private ProxyFacetSupport.Config config
+
+  private Context context
+
+  private ExecutorService executor
+
+  private File spoolDirectory
+
+  @Before
+  void setUp() {
+    config = new ProxyFacetSupport.Config(remoteUrl: new URI('http://example.com/'), artifactMaxAge: 60)
+    def configurationFacet = mock(ConfigurationFacet)
+    when(configurationFacet.readSection(any(Configuration), eq(ProxyFacetSupport.CONFIG_KEY),
+        eq(ProxyFacetSupport.Config))).thenReturn(config)
+
+    Repository repository = mock(Repository)
+    when(repository.name).thenReturn('proxy-test')
+    when(repository.facet(ConfigurationFacet)).thenReturn(configurationFacet)
+    when(repository.facet(HttpClientFacet)).thenReturn(mock(HttpClientFacet))
+
+    spoolDirectory = util.createTempDir()
+    ApplicationDirectories applicationDirectories = mock(ApplicationDirectories)
+    when(applicationDirectories.temporaryDirectory).thenReturn(spoolDirectory)
+
+    underTest = new TestProxyFacet()
+    underTest.installDependencies(mock(EventBus))
+    underTest.installProxyDependencies(applicationDirectories)
+    underTest.attach(repository)
+    underTest.init()
+    underTest.start()
+
+    context = mock(Context)
+    when(context.getAttributes()).thenReturn(new Context.Attributes())
+
+    executor = Executors.newCachedThreadPool()
+  }
+
+  @After
+  void tearDown() {
+    executor.shutdownNow()
+    underTest.stop()
+  }
+
+  @Test
+  void 'stale content is revalidated in the foreground by default'() {
+    underTest.cache('cached', new DateTime().minusMinutes(61))
+
+    assert underTest.get(context).attributes.get('value') == 'remote'
+    assert underTest.fetchThread == Thread.currentThread()
+    assert context.attributes.get(CacheOutcome) == CacheOutcome.MISS
+  }
+
+  @Test
+  void 'stale content is served while revalidating in the background'() {
+    config.staleWhileRevalidate = true
+    underTest.cache('cached', new DateTime().minusMinutes(61))
+
+    assert underTest.get(context).attributes.get('value') == 'cached'
+    assert underTest.stored.await(5, SECONDS)
+    assert underTest.fetchThread != Thread.currentThread()
+    assert underTest.get(context).attributes.get('value') == 'remote'
+  }
+
+  @Test
+  void 'content about to turn stale is refreshed ahead in the background'() {
+    config.refreshAheadMinutes = 10
+    underTest.cache('cached', new DateTime().minusMinutes(55))
+
+    assert underTest.get(context).attributes.get('value') == 'cached'
+    assert underTest.stored.await(5, SECONDS)
+    assert underTest.fetchThread != Thread.currentThread()
+  }
+
+  @Test
+  void 'fresh content is not refreshed'() {
+    config.staleWhileRevalidate = true
+    config.refreshAheadMinutes = 10
+    underTest.cache('cached', new DateTime().minusMinutes(30))
+
+    assert underTest.get(context).attributes.get('value') == 'cached'
+    assert underTest.fetchThread == null
+    assert context.attributes.get(CacheOutcome) == CacheOutcome.HIT
+  }
+
+  @Test
+  void 'missing content is fetched in the foreground'() {
+    config.staleWhileRevalidate = true
+
+    assert underTest.get(context).attributes.get('value') == 'remote'
+    assert underTest.fetchThread == Thread.currentThread()
+  }
+
+  @Test
+  void 'requests coalesced with a fetch which died with an error are released'() {
+    CountDownLatch fetching = new CountDownLatch(1)
+    CountDownLatch release = new CountDownLatch(1)
+    underTest.onFetch = {
+      fetching.countDown()
+      release.await(5, SECONDS)
+      throw new Error('fetch died')
+    }
+
+    Future<Content> leader = executor.submit({ underTest.get(context) } as Callable<Content>)
+    assert fetching.await(5, SECONDS)
+    long coalesced = underTest.coalescedRequests.count
+    Future<Content> follower = executor.submit({ underTest.get(context) } as Callable<Content>)
+    while (underTest.coalescedRequests.count == coalesced) {
+      Thread.sleep(10)
+    }
+    release.countDown()
+
+    try {
+      leader.get(5, SECONDS)
+      assert false
+    }
+    catch (ExecutionException e) {
+      assert e.cause instanceof Error
+    }
+    try {
+      follower.get(5, SECONDS)
+      assert false
+    }
+    catch (ExecutionException e) {
+      assert e.cause instanceof IOException
+    }
+  }
+
+  @Test
+  void 'requests coalesced with a slow fetch fetch independently after the timeout'() {
+    underTest.inflightTimeoutMillis = 100
+    CountDownLatch fetching = new CountDownLatch(1)
+    CountDownLatch release = new CountDownLatch(1)
+    AtomicInteger fetches = new AtomicInteger()
+    underTest.onFetch = {
+      if (fetches.getAndIncrement() == 0) {
+        fetching.countDown()
+        release.await(5, SECONDS)
+      }
+    }
+
+    Future<Content> leader = executor.submit({ underTest.get(context) } as Callable<Content>)
+    assert fetching.await(5, SECONDS)
+    try {
+      assert underTest.get(context).attributes.get('value') == 'remote'
+      assert fetches.get() == 2
+      assert underTest.inflightTimeouts.count == 1
+      assert !leader.done
+    }
+    finally {
+      release.countDown()
+    }
+    assert leader.get(5, SECONDS).attributes.get('value') == 'remote'
+  }
+
+  @Test
+  void 'requests coalesced with a background refresh which died with an error are released'() {
+    config.refreshAheadMinutes = 10
+    underTest.cache('cached', new DateTime().minusMinutes(55))
+    CountDownLatch fetching = new CountDownLatch(1)
+    CountDownLatch release = new CountDownLatch(1)
+    underTest.onFetch = {
+      fetching.countDown()
+      release.await(5, SECONDS)
+      throw new Error('refresh died')
+    }
+
+    assert underTest.get(context).attributes.get('value') == 'cached'
+    assert fetching.await(5, SECONDS)
+    underTest.lastVerified = new DateTime().minusMinutes(61)
+    long coalesced = underTest.coalescedRequests.count
+    Future<Content> follower = executor.submit({ underTest.get(context) } as Callable<Content>)
+    while (underTest.coalescedRequests.count == coalesced) {
+      Thread.sleep(10)
+    }
+    release.countDown()
+
+    try {
+      follower.get(5, SECONDS)
+      assert false
+    }
+    catch (ExecutionException e) {
+      assert e.cause instanceof IOException
+    }
+  }
+
+  @Test
+  void 'requests following a stream whose store died with an error are released'() {
+    underTest.remote = new Content(new StreamPayload(
+        { new ByteArrayInputStream('remote'.bytes) } as InputStreamSupplier, -1, 'text/plain'))
+    underTest.onStore = {
+      throw new Error('store died')
+    }
+
+    Content content = underTest.get(context)
+    try {
+      content.openInputStream().withStream { InputStream input -> input.text }
+      assert false
+    }
+    catch (IOException e) {
+      // expected
+    }
+    assert spoolDirectory.list().length == 0
+  }
+
+  private static class TestProxyFacet
+      extends ProxyFacetSupport
+  {
+    volatile Content cached
+
+    volatile DateTime lastVerified
+
+    volatile Thread fetchThread
+
+    volatile Closure onFetch
+
+    volatile Closure onStore
+
+    volatile Content remote
+
+    final CountDownLatch stored = new CountDownLatch(1)
+
+    void cache(final String value, final DateTime verified) {
+      cached = content(value)
+      lastVerified = verified
+    }
+
+    static Content content(final String value) {
+      Content content = new Content(new StringPayload(value, 'text/plain'))
+      content.attributes.set('value', value)
+      return content
+    }
+
+    @Override
+    protected Content fetch(final Context context, final Content stale) throws IOException {
+      fetchThread = Thread.currentThread()
+      if (onFetch) {
+        onFetch.call()
+      }
+      return remote ?: content('remote')
+    }
+
+    @Override
+    protected Content getCachedPayload(final Context context) throws IOException {
+      return cached
+    }
+
+    @Override
+    protected void store(final Context context, final Content content) throws IOException, InvalidContentException {
+      if (onStore) {
+        onStore.call()
+      }
+      cache(content.attributes.get('value', String), new DateTime())
+      stored.countDown()
+    }
+
+    @Override
+    protected DateTime getCachedPayloadLastVerified(final Context context) throws IOException {
+      return lastVerified
+    }
+
+    @Override
+    protected void indicateVerified(final Context context) throws IOException {
+      lastVerified = new DateTime()
+    }
+
+    @Override
+    protected String getUrl(@Nonnull final Context context) {
+      return 'path/file.txt'
+    }
+  }
+}
@@ -0,0 +1,129 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.proxy
+
+import java.util.concurrent.Callable
+import java.util.concurrent.ExecutionException
+import java.util.concurrent.ExecutorService
+import java.util.concurrent.Executors
+import java.util.concurrent.Future
+
+import org.sonatype.nexus.repository.view.Content
+import org.sonatype.nexus.repository.view.payloads.BytesPayload
+import org.sonatype.nexus.repository.view.payloads.StreamPayload.InputStreamSupplier
+import org.sonatype.sisu.litmus.testsupport.TestSupport
+
+import com.google.common.io.ByteStreams
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import static java.util.concurrent.TimeUnit.SECONDS
+
+/**
+ * Tests for {@link Spool}.
+ */
+class SpoolTest
+    extends TestSupport
+{
+  private ExecutorService executor
+
+  private byte[] bytes
+
+  private Spool underTest
+
+  @Before
+  void setUp() {
+    executor = Executors.newCachedThreadPool()
+    bytes = new byte[100_000]
+    new Random(7).nextBytes(bytes)
+    Content remote = new Content(new BytesPayload(bytes, 'application/octet-stream'))
+    remote.attributes.set(Content.CONTENT_ETAG, 'etag')
+    underTest = new Spool(remote, { new ByteArrayInputStream('stored'.bytes) } as InputStreamSupplier,
+        util.createTempDir())
+  }
+
+  @After
+  void tearDown() {
+    executor.shutdownNow()
+  }
+
+  private Future<byte[]> readInBackground(final Content content) {
+    return executor.submit({
+      content.openInputStream().withStream { InputStream input -> ByteStreams.toByteArray(input) }
+    } as Callable<byte[]>)
+  }
+
+  @Test
+  void 'readers follow the remote content and end once it is stored'() {
+    Content content = underTest.content()
+    assert content.size == bytes.length
+    assert content.attributes.get(Content.CONTENT_ETAG) == 'etag'
+    Future<byte[]> first = readInBackground(content)
+    Future<byte[]> second = readInBackground(underTest.content())
+
+    byte[] stored = underTest.tee().openInputStream().withStream { InputStream input -> ByteStreams.toByteArray(input) }
+    assert stored == bytes
+
+    // readers wait for the content to be stored before reaching its end
+    Thread.sleep(100)
+    assert !first.done
+    assert !second.done
+
+    underTest.complete()
+    assert first.get(5, SECONDS) == bytes
+    assert second.get(5, SECONDS) == bytes
+  }
+
+  @Test
+  void 'readers fail when storing fails'() {
+    Future<byte[]> reader = readInBackground(underTest.content())
+    underTest.tee().openInputStream().withStream { InputStream input -> input.read(new byte[1000]) }
+    underTest.fail(new IOException('invalid content'))
+
+    try {
+      reader.get(5, SECONDS)
+      assert false
+    }
+    catch (ExecutionException e) {
+      assert e.cause instanceof IOException
+    }
+  }
+
+  @Test
+  void 'readers opened after release read stored content'() {
+    underTest.tee().openInputStream().withStream { InputStream input -> ByteStreams.toByteArray(input) }
+    underTest.complete()
+
+    assert underTest.content().openInputStream().text == 'stored'
+  }
+
+  @Test
+  void 'discarded spool fails readers'() {
+    underTest.discard()
+
+    try {
+      underTest.content().openInputStream()
+      assert false
+    }
+    catch (IOException e) {
+      // expected
+    }
+  }
+
+  @Test(expected = IllegalStateException)
+  void 'remote content is only read once'() {
+    underTest.tee().openInputStream().close()
+    underTest.tee().openInputStream()
+  }
+}
@@ -0,0 +1,127 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.search;
+
+import java.util.Collection;
+import java.util.Collections;
+
+import org.sonatype.nexus.common.entity.EntityId;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.mockito.Matchers.anyCollectionOf;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests for {@link SearchIndexer}.
+ */
+public class SearchIndexerTest
+    extends TestSupport
+{
+  @Mock
+  private SearchFacetImpl facet;
+
+  @Mock
+  private SearchFacetImpl otherFacet;
+
+  private SearchIndexer underTest;
+
+  private final EntityId id1 = new EntityId("1");
+
+  private final EntityId id2 = new EntityId("2");
+
+  @Before
+  public void setUp() {
+    underTest = new SearchIndexer();
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void latestRequestPerComponentWins() {
+    underTest.enqueue(facet, ImmutableList.of(id1, id2), Collections.<EntityId>emptyList());
+    underTest.enqueue(facet, Collections.<EntityId>emptyList(), ImmutableList.of(new EntityId("1")));
+    underTest.flush(facet);
+
+    ArgumentCaptor<Collection> indexable = ArgumentCaptor.forClass(Collection.class);
+    ArgumentCaptor<Collection> deindexable = ArgumentCaptor.forClass(Collection.class);
+    verify(facet).bulkIndex(indexable.capture(), deindexable.capture());
+    assertThat((Collection<EntityId>) indexable.getValue(), contains(id2));
+    assertThat((Collection<EntityId>) deindexable.getValue(), contains(id1));
+  }
+
+  @Test
+  public void flushOnlyProcessesGivenFacet() {
+    underTest.enqueue(facet, ImmutableList.of(id1), Collections.<EntityId>emptyList());
+    underTest.enqueue(otherFacet, ImmutableList.of(id1), Collections.<EntityId>emptyList());
+    underTest.flush(facet);
+
+    verify(facet).bulkIndex(anyCollectionOf(EntityId.class), anyCollectionOf(EntityId.class));
+    verify(otherFacet, never()).bulkIndex(anyCollectionOf(EntityId.class), anyCollectionOf(EntityId.class));
+  }
+
+  @Test
+  public void discardDropsPendingRequests() {
+    underTest.enqueue(facet, ImmutableList.of(id1), Collections.<EntityId>emptyList());
+    underTest.discard(facet);
+    underTest.flush(facet);
+
+    verify(facet, never()).bulkIndex(anyCollectionOf(EntityId.class), anyCollectionOf(EntityId.class));
+  }
+
+  @Test
+  public void failedBulkIndexIsRetried() throws Exception {
+    doThrow(new RuntimeException("failed")).doNothing()
+        .when(facet).bulkIndex(anyCollectionOf(EntityId.class), anyCollectionOf(EntityId.class));
+
+    underTest.start();
+    try {
+      underTest.enqueue(facet, ImmutableList.of(id1), Collections.<EntityId>emptyList());
+
+      verify(facet, timeout(10000).times(2)).bulkIndex(ImmutableList.of(id1), Collections.<EntityId>emptyList());
+    }
+    finally {
+      underTest.stop();
+    }
+  }
+
+  @Test
+  public void flushRetriesFailedBulkIndex() {
+    doThrow(new RuntimeException("failed")).doNothing()
+        .when(facet).bulkIndex(anyCollectionOf(EntityId.class), anyCollectionOf(EntityId.class));
+
+    underTest.enqueue(facet, ImmutableList.of(id1), Collections.<EntityId>emptyList());
+    underTest.flush(facet);
+
+    verify(facet, times(2)).bulkIndex(ImmutableList.of(id1), Collections.<EntityId>emptyList());
+  }
+
+  @Test
+  public void stopProcessesPendingRequests() throws Exception {
+    underTest.start();
+    underTest.enqueue(facet, ImmutableList.of(id1), Collections.<EntityId>emptyList());
+    underTest.stop();
+
+    verify(facet).bulkIndex(ImmutableList.of(id1), Collections.<EntityId>emptyList());
+  }
+}
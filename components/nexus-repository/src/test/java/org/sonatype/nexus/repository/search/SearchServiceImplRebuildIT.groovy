@@ -0,0 +1,174 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.search
+
+import javax.inject.Provider
+
+import org.sonatype.nexus.repository.Repository
+import org.sonatype.nexus.repository.manager.RepositoryManager
+import org.sonatype.nexus.security.SecurityHelper
+import org.sonatype.sisu.litmus.testsupport.TestSupport
+
+import org.elasticsearch.client.Client
+import org.elasticsearch.common.settings.ImmutableSettings
+import org.elasticsearch.node.Node
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import static org.elasticsearch.node.NodeBuilder.nodeBuilder
+import static org.mockito.Mockito.mock
+import static org.mockito.Mockito.when
+
+/**
+ * {@link SearchServiceImpl} integration tests of rebuilding the index of a repository, against a local node.
+ */
+class SearchServiceImplRebuildIT
+    extends TestSupport
+{
+  Node node
+
+  Client client
+
+  Repository repository
+
+  SearchServiceImpl underTest
+
+  @Before
+  void setUp() {
+    node = nodeBuilder().local(true).settings(ImmutableSettings.settingsBuilder()
+        .put('path.home', util.createTempDir().absolutePath)
+        .put('http.enabled', false)
+        .put('index.number_of_shards', 1)
+        .put('index.number_of_replicas', 0)
+    ).node()
+    client = node.client()
+    client.admin().cluster().prepareHealth().setWaitForYellowStatus().execute().actionGet()
+
+    repository = mock(Repository)
+    when(repository.getName()).thenReturn('Test-Repo')
+    underTest = searchService()
+    underTest.createIndex(repository)
+  }
+
+  @After
+  void tearDown() {
+    node?.close()
+  }
+
+  @Test
+  void 'rebuild replaces index by alias of fresh index'() {
+    underTest.bulk(repository, [stale: doc('stale')], [])
+
+    assert underTest.startRebuild(repository) == null
+    underTest.rebuild(repository, [fresh: doc('fresh')], 'fresh')
+    underTest.finishRebuild(repository)
+
+    def targets = aliasTargets()
+    assert targets.size() == 1
+    assert targets[0].startsWith('test-repo~')
+    assert exists('fresh')
+    assert !exists('stale')
+
+    // rebuilding again swaps the alias and removes the previous generation
+    assert underTest.startRebuild(repository) == null
+    underTest.rebuild(repository, [again: doc('again')], 'again')
+    underTest.finishRebuild(repository)
+
+    assert aliasTargets().size() == 1
+    assert aliasTargets() != targets
+    assert !client.admin().indices().prepareExists(targets[0]).execute().actionGet().exists
+    assert exists('again')
+  }
+
+  @Test
+  void 'live updates during rebuild are kept'() {
+    underTest.startRebuild(repository)
+    underTest.bulk(repository, [doc1: doc('live')], [])
+    underTest.rebuild(repository, [doc1: doc('rebuilt')], 'doc1')
+    underTest.finishRebuild(repository)
+
+    assert source('doc1') == 'live'
+  }
+
+  @Test
+  void 'document deleted during rebuild is not written back'() {
+    underTest.bulk(repository, [doc1: doc('live')], [])
+    underTest.startRebuild(repository)
+
+    // the rebuild read the document before it was deleted, and writes it after
+    underTest.bulk(repository, [:], ['doc1'])
+    underTest.rebuild(repository, [doc1: doc('rebuilt'), doc2: doc('rebuilt')], 'doc2')
+    underTest.finishRebuild(repository)
+
+    assert !exists('doc1')
+    assert exists('doc2')
+  }
+
+  @Test
+  void 'interrupted rebuild is resumed after restart'() {
+    underTest.startRebuild(repository)
+    underTest.rebuild(repository, [doc1: doc('rebuilt')], 'doc1')
+
+    // restarted: updates keep going to the fresh index of the interrupted rebuild
+    underTest = searchService()
+    underTest.createIndex(repository)
+    underTest.bulk(repository, [doc2: doc('live')], [])
+
+    assert underTest.startRebuild(repository) == 'doc1'
+    underTest.rebuild(repository, [doc3: doc('rebuilt')], 'doc3')
+    underTest.finishRebuild(repository)
+
+    assert exists('doc1')
+    assert exists('doc2')
+    assert exists('doc3')
+  }
+
+  @Test
+  void 'rebuild without checkpoint is started over'() {
+    underTest.startRebuild(repository)
+    def stray = rebuildIndexes()
+    assert stray.size() == 1
+    client.prepareDelete(stray[0], 'rebuild', 'checkpoint').execute().actionGet()
+
+    assert underTest.startRebuild(repository) == null
+    assert !client.admin().indices().prepareExists(stray[0]).execute().actionGet().exists
+    assert rebuildIndexes().size() == 1
+  }
+
+  private SearchServiceImpl searchService() {
+    return new SearchServiceImpl({ client } as Provider<Client>, mock(RepositoryManager), new SecurityHelper(), [])
+  }
+
+  private static String doc(final String name) {
+    return "{\"name\":\"${name}\"}"
+  }
+
+  private boolean exists(final String identifier) {
+    return client.prepareGet('test-repo', SearchServiceImpl.TYPE, identifier).execute().actionGet().exists
+  }
+
+  private String source(final String identifier) {
+    return client.prepareGet('test-repo', SearchServiceImpl.TYPE, identifier).execute().actionGet().source.name
+  }
+
+  private List<String> aliasTargets() {
+    return client.admin().indices().prepareGetAliases('test-repo').execute().actionGet().aliases.keysIt()
+        .collect { it } as List<String>
+  }
+
+  private List<String> rebuildIndexes() {
+    return client.admin().indices().prepareGetIndex().addIndices('test-repo~*').execute().actionGet()
+        .indices as List<String>
+  }
+}
@@ -16,19 +16,37 @@ import javax.inject.Provider
 
 import org.sonatype.nexus.repository.Format
 import org.sonatype.nexus.repository.Repository
+import org.sonatype.nexus.repository.config.Configuration
+import org.sonatype.nexus.repository.manager.RepositoryCreatedEvent
 import org.sonatype.nexus.repository.manager.RepositoryImpl
 import org.sonatype.nexus.repository.manager.RepositoryManager
 import org.sonatype.nexus.repository.types.HostedType
+import org.sonatype.nexus.security.SecurityConfigurationChanged
 import org.sonatype.nexus.security.SecurityHelper
+import org.sonatype.nexus.security.UserPrincipalsExpired
+import org.sonatype.nexus.security.authz.AuthorizationConfigurationChanged
 import org.sonatype.sisu.goodies.eventbus.EventBus
 import org.sonatype.sisu.litmus.testsupport.TestSupport
 
+import org.apache.shiro.authz.Permission
+import org.apache.shiro.subject.SimplePrincipalCollection
+import org.apache.shiro.subject.Subject
+
 import org.elasticsearch.action.ListenableActionFuture
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsRequestBuilder
 import org.elasticsearch.action.admin.indices.exists.indices.IndicesExistsResponse
+import org.elasticsearch.action.admin.indices.get.GetIndexRequestBuilder
+import org.elasticsearch.action.admin.indices.get.GetIndexResponse
+import org.elasticsearch.action.search.SearchPhaseExecutionException
+import org.elasticsearch.action.search.SearchRequestBuilder
+import org.elasticsearch.action.search.SearchResponse
+import org.elasticsearch.action.support.IndicesOptions
 import org.elasticsearch.client.AdminClient
 import org.elasticsearch.client.Client
 import org.elasticsearch.client.IndicesAdminClient
+import org.elasticsearch.index.query.QueryBuilder
+import org.elasticsearch.index.query.QueryBuilders
+import org.elasticsearch.rest.RestStatus
 import org.junit.Before
 import org.junit.Test
 import org.mockito.ArgumentCaptor
@@ -37,6 +55,14 @@ import org.mockito.Mock
 
 import static org.hamcrest.MatcherAssert.assertThat
 import static org.hamcrest.Matchers.contains
+import static org.hamcrest.Matchers.is
+import static org.junit.Assert.fail
+import static org.mockito.Matchers.any
+import static org.mockito.Matchers.anyInt
+import static org.mockito.Matchers.anyVararg
+import static org.mockito.Mockito.mock
+import static org.mockito.Mockito.times
+import static org.mockito.Mockito.verify
 import static org.powermock.api.mockito.PowerMockito.when
 
 class SearchServiceImplTest
@@ -64,6 +90,15 @@ class SearchServiceImplTest
   @Mock
   IndicesExistsResponse indicesExistsResponse
 
+  @Mock
+  GetIndexRequestBuilder getIndexRequestBuilder
+
+  @Mock
+  ListenableActionFuture<GetIndexResponse> getIndexFuture
+
+  @Mock
+  GetIndexResponse getIndexResponse
+
   @Mock
   RepositoryManager repositoryManager
 
@@ -76,14 +111,38 @@ class SearchServiceImplTest
   @Mock
   EventBus eventBus
 
+  @Mock
+  Repository searchableRepository
+
+  @Mock
+  Configuration searchableConfiguration
+
+  @Mock
+  SearchRequestBuilder searchRequestBuilder
+
+  @Mock
+  ListenableActionFuture<SearchResponse> searchFuture
+
+  @Mock
+  SearchResponse searchResponse
+
   @InjectMocks
   SearchServiceImpl searchService
 
+  QueryBuilder query = QueryBuilders.matchAllQuery()
+
   @Before
   public void setup() {
     when(clientProvider.get()).thenReturn(client);
     when(client.admin()).thenReturn(adminClient)
     when(adminClient.indices()).thenReturn(indicesAdminClient)
+    // no rebuild in progress
+    when(indicesAdminClient.prepareGetIndex()).thenReturn(getIndexRequestBuilder)
+    when(getIndexRequestBuilder.addIndices(anyVararg())).thenReturn(getIndexRequestBuilder)
+    when(getIndexRequestBuilder.setIndicesOptions(any(IndicesOptions))).thenReturn(getIndexRequestBuilder)
+    when(getIndexRequestBuilder.execute()).thenReturn(getIndexFuture)
+    when(getIndexFuture.actionGet()).thenReturn(getIndexResponse)
+    when(getIndexResponse.getIndices()).thenReturn([] as String[])
   }
 
   @Test
@@ -112,6 +171,116 @@ class SearchServiceImplTest
     assertThat(varArgs.getAllValues(), contains('uppercase'))
   }
 
+  @Test
+  public void searchableIndexesAreCachedPerSubject() {
+    prepareSearch()
+    Subject alice = subject('alice')
+    Subject bob = subject('bob')
+
+    search(alice)
+    search(alice)
+    verify(searchableConfiguration, times(1)).isOnline()
+
+    search(bob)
+    search(alice)
+    verify(searchableConfiguration, times(2)).isOnline()
+  }
+
+  @Test
+  public void searchableIndexesAreInvalidatedOnRepositoryEvent() {
+    assertInvalidatedBy(new RepositoryCreatedEvent(searchableRepository))
+  }
+
+  @Test
+  public void searchableIndexesAreInvalidatedOnAuthorizationConfigurationChanged() {
+    assertInvalidatedBy(new AuthorizationConfigurationChanged())
+  }
+
+  @Test
+  public void searchableIndexesAreInvalidatedOnSecurityConfigurationChanged() {
+    assertInvalidatedBy(new SecurityConfigurationChanged())
+  }
+
+  @Test
+  public void searchableIndexesAreInvalidatedOnUserPrincipalsExpired() {
+    assertInvalidatedBy(new UserPrincipalsExpired('alice', 'test'))
+  }
+
+  @Test
+  public void badRequestSearchFailureIsIllegalArgument() {
+    prepareSearch()
+    SearchPhaseExecutionException failure = mock(SearchPhaseExecutionException)
+    when(failure.status()).thenReturn(RestStatus.BAD_REQUEST)
+    when(searchFuture.actionGet()).thenThrow(failure)
+
+    try {
+      search(subject('alice'))
+      fail('Invalid query not rejected')
+    }
+    catch (IllegalArgumentException e) {
+      assertThat(e.cause, is(failure))
+    }
+  }
+
+  @Test
+  public void otherSearchFailureIsPropagated() {
+    prepareSearch()
+    SearchPhaseExecutionException failure = mock(SearchPhaseExecutionException)
+    when(failure.status()).thenReturn(RestStatus.SERVICE_UNAVAILABLE)
+    when(searchFuture.actionGet()).thenThrow(failure)
+
+    try {
+      search(subject('alice'))
+      fail('Search failure not propagated')
+    }
+    catch (SearchPhaseExecutionException e) {
+      assertThat(e, is(failure))
+    }
+  }
+
+  private void assertInvalidatedBy(final Object event) {
+    prepareSearch()
+    Subject alice = subject('alice')
+
+    search(alice)
+    searchService.on(event)
+    search(alice)
+
+    verify(searchableConfiguration, times(2)).isOnline()
+  }
+
+  /**
+   * Makes one online repository with a search index browsable by everyone.
+   */
+  private void prepareSearch() {
+    when(searchableRepository.name).thenReturn('searchable')
+    when(searchableRepository.configuration).thenReturn(searchableConfiguration)
+    when(searchableRepository.facet(SearchFacet)).thenReturn(mock(SearchFacet))
+    when(searchableConfiguration.online).thenReturn(true)
+    when(repositoryManager.browse()).thenReturn([searchableRepository])
+    when(securityHelper.allPermitted(any(Subject) as Subject, anyVararg() as Permission[])).thenReturn(true)
+
+    when(client.prepareSearch(anyVararg())).thenReturn(searchRequestBuilder)
+    when(searchRequestBuilder.setIndicesOptions(any(IndicesOptions))).thenReturn(searchRequestBuilder)
+    when(searchRequestBuilder.setTypes(anyVararg())).thenReturn(searchRequestBuilder)
+    when(searchRequestBuilder.setQuery(any(QueryBuilder))).thenReturn(searchRequestBuilder)
+    when(searchRequestBuilder.setFrom(anyInt())).thenReturn(searchRequestBuilder)
+    when(searchRequestBuilder.setSize(anyInt())).thenReturn(searchRequestBuilder)
+    when(searchRequestBuilder.execute()).thenReturn(searchFuture)
+    when(searchFuture.actionGet()).thenReturn(searchResponse)
+  }
+
+  private Subject subject(final String userId) {
+    Subject subject = mock(Subject)
+    when(subject.principals).thenReturn(new SimplePrincipalCollection(userId, 'test'))
+    return subject
+  }
+
+  private SearchResponse search(final Subject subject) {
+    when(securityHelper.subject()).thenReturn(subject)
+    return searchService.search(query, null, 0, 10)
+  }
+
   private ArgumentCaptor<String> captureRepoNameArg() {
     ArgumentCaptor<String> varArgs = ArgumentCaptor.forClass(String.class);
     when(indicesAdminClient.prepareExists(varArgs.capture())).thenReturn(indicesExistsRequestBuilder)
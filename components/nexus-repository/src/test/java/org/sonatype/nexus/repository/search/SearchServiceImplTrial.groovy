@@ -0,0 +1,146 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.search
+
+import javax.inject.Provider
+
+import org.sonatype.nexus.repository.Format
+import org.sonatype.nexus.repository.Repository
+import org.sonatype.nexus.repository.config.Configuration
+import org.sonatype.nexus.repository.manager.RepositoryManager
+import org.sonatype.nexus.security.SecurityHelper
+import org.sonatype.nexus.security.authz.AuthorizationConfigurationChanged
+import org.sonatype.sisu.litmus.testsupport.TestSupport
+
+import com.google.common.base.Stopwatch
+import org.apache.shiro.authc.AuthenticationInfo
+import org.apache.shiro.authc.AuthenticationToken
+import org.apache.shiro.authz.AuthorizationInfo
+import org.apache.shiro.authz.SimpleAuthorizationInfo
+import org.apache.shiro.mgt.DefaultSecurityManager
+import org.apache.shiro.realm.AuthorizingRealm
+import org.apache.shiro.subject.PrincipalCollection
+import org.apache.shiro.subject.SimplePrincipalCollection
+import org.apache.shiro.subject.Subject
+import org.apache.shiro.util.ThreadContext
+import org.elasticsearch.action.ListenableActionFuture
+import org.elasticsearch.action.search.SearchRequestBuilder
+import org.elasticsearch.action.search.SearchResponse
+import org.elasticsearch.action.support.IndicesOptions
+import org.elasticsearch.client.Client
+import org.elasticsearch.index.query.QueryBuilder
+import org.elasticsearch.index.query.QueryBuilders
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS
+import static org.mockito.Matchers.any
+import static org.mockito.Matchers.anyInt
+import static org.mockito.Matchers.anyVararg
+import static org.mockito.Mockito.mock
+import static org.mockito.Mockito.when
+
+/**
+ * Trials of {@link SearchServiceImpl} search overhead with 500 repositories, each browse permission granted by its
+ * own privilege, comparing searches with cold and with cached searchable indexes.
+ */
+class SearchServiceImplTrial
+    extends TestSupport
+{
+  static final int REPOSITORIES = 500
+
+  static final int ITERATIONS = 200
+
+  SearchServiceImpl underTest
+
+  @Before
+  void setUp() {
+    def format = new Format('maven2') {}
+    def configuration = mock(Configuration)
+    when(configuration.isOnline()).thenReturn(true)
+    List<Repository> repositories = (1..REPOSITORIES).collect { i ->
+      Repository repository = mock(Repository)
+      when(repository.getName()).thenReturn("repo-${i}".toString())
+      when(repository.getFormat()).thenReturn(format)
+      when(repository.getConfiguration()).thenReturn(configuration)
+      when(repository.facet(SearchFacet)).thenReturn(mock(SearchFacet))
+      repository
+    }
+    def repositoryManager = mock(RepositoryManager)
+    when(repositoryManager.browse()).thenReturn(repositories)
+
+    def authorizationInfo = new SimpleAuthorizationInfo()
+    authorizationInfo.stringPermissions = (1..REPOSITORIES).collect { i ->
+      "nexus:repository-view:maven2:repo-${i}:browse,read".toString()
+    } as Set
+    def realm = new AuthorizingRealm() {
+      @Override
+      protected AuthorizationInfo doGetAuthorizationInfo(final PrincipalCollection principals) {
+        return authorizationInfo
+      }
+
+      @Override
+      protected AuthenticationInfo doGetAuthenticationInfo(final AuthenticationToken token) {
+        return null
+      }
+    }
+    Subject subject = new Subject.Builder(new DefaultSecurityManager(realm))
+        .principals(new SimplePrincipalCollection('trial', realm.name))
+        .authenticated(true)
+        .buildSubject()
+    ThreadContext.bind(subject)
+
+    def searchRequestBuilder = mock(SearchRequestBuilder)
+    when(searchRequestBuilder.setIndicesOptions(any(IndicesOptions))).thenReturn(searchRequestBuilder)
+    when(searchRequestBuilder.setTypes(anyVararg())).thenReturn(searchRequestBuilder)
+    when(searchRequestBuilder.setQuery(any(QueryBuilder))).thenReturn(searchRequestBuilder)
+    when(searchRequestBuilder.setFrom(anyInt())).thenReturn(searchRequestBuilder)
+    when(searchRequestBuilder.setSize(anyInt())).thenReturn(searchRequestBuilder)
+    def future = mock(ListenableActionFuture)
+    when(future.actionGet()).thenReturn(mock(SearchResponse))
+    when(searchRequestBuilder.execute()).thenReturn(future)
+    def client = mock(Client)
+    when(client.prepareSearch(anyVararg())).thenReturn(searchRequestBuilder)
+
+    underTest = new SearchServiceImpl({ client } as Provider<Client>, repositoryManager, new SecurityHelper(), [])
+  }
+
+  @After
+  void tearDown() {
+    ThreadContext.unbindSubject()
+  }
+
+  @Test
+  void 'search 500 repositories'() {
+    // warm up both paths before measuring
+    run(ITERATIONS / 10 as int, true)
+    run(ITERATIONS / 10 as int, false)
+
+    double cold = run(ITERATIONS, true)
+    double cached = run(ITERATIONS, false)
+    log "${REPOSITORIES} repositories: cold ${cold} ms, cached ${cached} ms per search"
+  }
+
+  private double run(final int iterations, final boolean cold) {
+    def query = QueryBuilders.matchAllQuery()
+    Stopwatch stopwatch = Stopwatch.createStarted()
+    iterations.times {
+      if (cold) {
+        underTest.on(new AuthorizationConfigurationChanged())
+      }
+      underTest.search(query, null, 0, 10)
+    }
+    return stopwatch.elapsed(NANOSECONDS) / 1_000_000d / iterations
+  }
+}
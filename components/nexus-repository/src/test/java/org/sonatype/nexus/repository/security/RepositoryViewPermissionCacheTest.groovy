@@ -0,0 +1,127 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.security
+
+import org.sonatype.nexus.repository.Format
+import org.sonatype.nexus.repository.Repository
+import org.sonatype.nexus.security.SecurityHelper
+import org.sonatype.nexus.security.authz.AuthorizationConfigurationChanged
+import org.sonatype.sisu.litmus.testsupport.TestSupport
+
+import org.apache.shiro.authc.AuthenticationInfo
+import org.apache.shiro.authc.AuthenticationToken
+import org.apache.shiro.authz.AuthorizationInfo
+import org.apache.shiro.authz.SimpleAuthorizationInfo
+import org.apache.shiro.mgt.DefaultSecurityManager
+import org.apache.shiro.realm.AuthorizingRealm
+import org.apache.shiro.subject.PrincipalCollection
+import org.apache.shiro.subject.SimplePrincipalCollection
+import org.apache.shiro.subject.Subject
+import org.apache.shiro.util.ThreadContext
+import org.junit.After
+import org.junit.Before
+import org.junit.Test
+
+import static org.mockito.Mockito.mock
+import static org.mockito.Mockito.when
+
+/**
+ * Tests for {@link RepositoryViewPermissionCache}.
+ */
+class RepositoryViewPermissionCacheTest
+    extends TestSupport
+{
+  Repository repository
+
+  int lookups
+
+  Set<String> granted
+
+  DefaultSecurityManager securityManager
+
+  RepositoryViewPermissionCache underTest
+
+  @Before
+  void setUp() {
+    repository = mock(Repository)
+    when(repository.getName()).thenReturn('releases')
+    when(repository.getFormat()).thenReturn(new Format('maven2') {})
+
+    granted = ['nexus:repository-view:maven2:releases:read'] as Set
+    def realm = new AuthorizingRealm() {
+      @Override
+      protected AuthorizationInfo doGetAuthorizationInfo(final PrincipalCollection principals) {
+        lookups++
+        def info = new SimpleAuthorizationInfo()
+        info.stringPermissions = granted
+        return info
+      }
+
+      @Override
+      protected AuthenticationInfo doGetAuthenticationInfo(final AuthenticationToken token) {
+        return null
+      }
+    }
+    realm.authorizationCachingEnabled = false
+    securityManager = new DefaultSecurityManager(realm)
+
+    underTest = new RepositoryViewPermissionCache(new SecurityHelper())
+  }
+
+  @After
+  void tearDown() {
+    ThreadContext.unbindSubject()
+  }
+
+  private void bind(final String user) {
+    Subject subject = new Subject.Builder(securityManager)
+        .principals(new SimplePrincipalCollection(user, 'test'))
+        .authenticated(true)
+        .buildSubject()
+    ThreadContext.bind(subject)
+  }
+
+  @Test
+  void 'decisions are cached per subject and action'() {
+    bind('alice')
+    assert underTest.isPermitted(repository, BreadActions.READ)
+    assert underTest.isPermitted(repository, BreadActions.READ)
+    assert !underTest.isPermitted(repository, BreadActions.EDIT)
+    assert !underTest.isPermitted(repository, BreadActions.EDIT)
+    assert lookups == 2
+
+    bind('bob')
+    assert underTest.isPermitted(repository, BreadActions.READ)
+    assert lookups == 3
+  }
+
+  @Test
+  void 'configuration changes discard decisions'() {
+    bind('alice')
+    assert !underTest.isPermitted(repository, BreadActions.EDIT)
+
+    granted = ['nexus:repository-view:maven2:releases:*'] as Set
+    assert !underTest.isPermitted(repository, BreadActions.EDIT)
+
+    underTest.on(new AuthorizationConfigurationChanged())
+    assert underTest.isPermitted(repository, BreadActions.EDIT)
+  }
+
+  @Test
+  void 'subjects without principals are not cached'() {
+    ThreadContext.bind(new Subject.Builder(securityManager).buildSubject())
+    assert !underTest.isPermitted(repository, BreadActions.READ)
+    assert !underTest.isPermitted(repository, BreadActions.READ)
+    assert lookups == 0
+  }
+}
@@ -0,0 +1,112 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.security
+
+import org.sonatype.nexus.repository.Format
+import org.sonatype.nexus.repository.Repository
+import org.sonatype.nexus.security.SecurityHelper
+import org.sonatype.sisu.litmus.testsupport.TestSupport
+
+import com.google.common.base.Stopwatch
+import org.apache.shiro.authc.AuthenticationInfo
+import org.apache.shiro.authc.AuthenticationToken
+import org.apache.shiro.authz.AuthorizationInfo
+import org.apache.shiro.authz.Permission
+import org.apache.shiro.authz.SimpleAuthorizationInfo
+import org.apache.shiro.authz.permission.RolePermissionResolver
+import org.apache.shiro.authz.permission.WildcardPermission
+import org.apache.shiro.mgt.DefaultSecurityManager
+import org.apache.shiro.realm.AuthorizingRealm
+import org.apache.shiro.subject.PrincipalCollection
+import org.apache.shiro.subject.SimplePrincipalCollection
+import org.apache.shiro.subject.Subject
+import org.apache.shiro.util.ThreadContext
+import org.junit.After
+import org.junit.Test
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS
+import static org.mockito.Mockito.mock
+import static org.mockito.Mockito.when
+
+/**
+ * Trials of {@link RepositoryViewPermissionCache} overhead for subjects with 1, 50 and 500 roles, each role granting
+ * access to its own repository, comparing uncached permission checks with cached decisions.
+ */
+class RepositoryViewPermissionCacheTrial
+    extends TestSupport
+{
+  static final int ITERATIONS = 100_000
+
+  @After
+  void tearDown() {
+    ThreadContext.unbindSubject()
+  }
+
+  @Test
+  void 'check permissions of 1, 50 and 500 roles'() {
+    [1, 50, 500].each { roles ->
+      Repository repository = bind(roles)
+      def securityHelper = new SecurityHelper()
+      def underTest = new RepositoryViewPermissionCache(securityHelper)
+
+      // warm up both paths before measuring
+      run(ITERATIONS / 10 as int) { securityHelper.ensurePermitted(new RepositoryViewPermission(repository, 'read')) }
+      run(ITERATIONS / 10 as int) { assert underTest.isPermitted(repository, 'read') }
+
+      double uncached = run(ITERATIONS) {
+        securityHelper.ensurePermitted(new RepositoryViewPermission(repository, 'read'))
+      }
+      double cached = run(ITERATIONS) { assert underTest.isPermitted(repository, 'read') }
+      log "${roles} roles: uncached ${uncached} us, cached ${cached} us per check"
+    }
+  }
+
+  /**
+   * Binds a subject holding the given number of roles, and returns the repository granted by the last one.
+   */
+  private Repository bind(final int roles) {
+    def authorizationInfo = new SimpleAuthorizationInfo((1..roles).collect { "role-${it}".toString() } as Set)
+    def realm = new AuthorizingRealm() {
+      @Override
+      protected AuthorizationInfo doGetAuthorizationInfo(final PrincipalCollection principals) {
+        return authorizationInfo
+      }
+
+      @Override
+      protected AuthenticationInfo doGetAuthenticationInfo(final AuthenticationToken token) {
+        return null
+      }
+    }
+    realm.rolePermissionResolver = { String role ->
+      [new WildcardPermission("nexus:repository-view:maven2:repo-${role - 'role-'}:browse,read")] as
+          Collection<Permission>
+    } as RolePermissionResolver
+
+    Subject subject = new Subject.Builder(new DefaultSecurityManager(realm))
+        .principals(new SimplePrincipalCollection('trial', realm.name))
+        .authenticated(true)
+        .buildSubject()
+    ThreadContext.bind(subject)
+
+    Repository repository = mock(Repository)
+    when(repository.getName()).thenReturn("repo-${roles}".toString())
+    when(repository.getFormat()).thenReturn(new Format('maven2') {})
+    return repository
+  }
+
+  private double run(final int iterations, final Closure check) {
+    Stopwatch stopwatch = Stopwatch.createStarted()
+    iterations.times check
+    return stopwatch.elapsed(NANOSECONDS) / 1_000d / iterations
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.storage;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.sonatype.nexus.blobstore.api.BlobStore;
+import org.sonatype.nexus.blobstore.api.BlobStoreManager;
+import org.sonatype.nexus.common.node.LocalNodeAccess;
+import org.sonatype.nexus.mime.MimeRulesSource;
+import org.sonatype.nexus.mime.internal.DefaultMimeSupport;
+import org.sonatype.nexus.orient.HexRecordIdObfuscator;
+import org.sonatype.nexus.orient.PersistentDatabaseInstanceRule;
+import org.sonatype.nexus.repository.Format;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.config.Configuration;
+import org.sonatype.nexus.repository.config.ConfigurationFacet;
+import org.sonatype.nexus.repository.search.SearchFacet;
+import org.sonatype.nexus.security.ClientInfoProvider;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Splitter;
+import com.google.common.base.Stopwatch;
+import com.google.inject.util.Providers;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.sonatype.nexus.repository.storage.StorageFacet.P_ATTRIBUTES;
+import static org.sonatype.nexus.repository.storage.StorageFacet.P_PATH;
+
+/**
+ * Trials of GET-style asset lookup latency, comparing the attribute-path query with the bucket and name index lookup,
+ * as the bucket grows. Bucket sizes default to 10k, set "-DAssetLookupTrial.sizes=10000,1000000,10000000" for the
+ * larger runs, which take a long time to populate.
+ */
+public class AssetLookupTrial
+    extends TestSupport
+{
+  private static final List<String> SIZES = Splitter.on(',').trimResults().splitToList(
+      System.getProperty(AssetLookupTrial.class.getSimpleName() + ".sizes", "10000"));
+
+  private static final int LOOKUPS = 1000;
+
+  private static final int BATCH_SIZE = 1000;
+
+  private static final String PATH_PROPERTY = P_ATTRIBUTES + ".test." + P_PATH;
+
+  @Rule
+  public PersistentDatabaseInstanceRule database = new PersistentDatabaseInstanceRule("test");
+
+  private StorageFacetImpl underTest;
+
+  private final Format testFormat = new Format("test")
+  {
+  };
+
+  @Before
+  public void setUp() throws Exception {
+    LocalNodeAccess localNodeAccess = mock(LocalNodeAccess.class);
+    when(localNodeAccess.getId()).thenReturn("testNodeId");
+    BlobStoreManager blobStoreManager = mock(BlobStoreManager.class);
+    when(blobStoreManager.get(anyString())).thenReturn(mock(BlobStore.class));
+    HexRecordIdObfuscator recordIdObfuscator = new HexRecordIdObfuscator();
+    BucketEntityAdapter bucketEntityAdapter = new BucketEntityAdapter();
+    bucketEntityAdapter.installDependencies(recordIdObfuscator);
+    ComponentEntityAdapter componentEntityAdapter = new ComponentEntityAdapter(bucketEntityAdapter);
+    componentEntityAdapter.installDependencies(recordIdObfuscator);
+    AssetEntityAdapter assetEntityAdapter = new AssetEntityAdapter(bucketEntityAdapter, componentEntityAdapter);
+    assetEntityAdapter.installDependencies(recordIdObfuscator);
+    underTest = new StorageFacetImpl(
+        localNodeAccess,
+        blobStoreManager,
+        Providers.of(database.getInstance()),
+        bucketEntityAdapter,
+        componentEntityAdapter,
+        assetEntityAdapter,
+        mock(ClientInfoProvider.class),
+        new ContentValidatorSelector(Collections.<String, ContentValidator>emptyMap(),
+            new DefaultContentValidator(new DefaultMimeSupport())),
+        new MimeRulesSourceSelector(Collections.<String, MimeRulesSource>emptyMap())
+    );
+    underTest.installDependencies(mock(EventBus.class));
+
+    ConfigurationFacet configurationFacet = mock(ConfigurationFacet.class);
+    when(configurationFacet.readSection(
+        any(Configuration.class),
+        eq(StorageFacetImpl.CONFIG_KEY),
+        eq(StorageFacetImpl.Config.class)))
+        .thenReturn(new StorageFacetImpl.Config());
+    Repository repository = mock(Repository.class);
+    when(repository.getName()).thenReturn("test-repository");
+    when(repository.getFormat()).thenReturn(testFormat);
+    when(repository.facet(ConfigurationFacet.class)).thenReturn(configurationFacet);
+    when(repository.facet(SearchFacet.class)).thenReturn(mock(SearchFacet.class));
+
+    underTest.attach(repository);
+    underTest.init();
+    underTest.start();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    underTest.stop();
+  }
+
+  @Test
+  public void lookupLatency() {
+    int populated = 0;
+    for (String size : SIZES) {
+      int target = Integer.parseInt(size);
+      populate(populated, target);
+      populated = target;
+
+      log.info("{} assets: by attribute path {} us/lookup, by indexed name {} us/lookup", populated,
+          lookup(populated, false), lookup(populated, true));
+    }
+  }
+
+  private void populate(final int from, final int to) {
+    for (int start = from; start < to; start += BATCH_SIZE) {
+      try (StorageTx tx = underTest.openTx()) {
+        for (int i = start; i < Math.min(start + BATCH_SIZE, to); i++) {
+          Asset asset = tx.createAsset(tx.getBucket(), testFormat).name(path(i));
+          asset.formatAttributes().set(P_PATH, path(i));
+          tx.saveAsset(asset);
+        }
+        tx.commit();
+      }
+    }
+  }
+
+  private long lookup(final int populated, final boolean indexed) {
+    Random random = new Random(populated);
+    try (StorageTx tx = underTest.openTx()) {
+      Bucket bucket = tx.getBucket();
+      Stopwatch stopwatch = Stopwatch.createStarted();
+      for (int i = 0; i < LOOKUPS; i++) {
+        String path = path(random.nextInt(populated));
+        Asset asset = indexed
+            ? tx.findAssetWithName(path, bucket)
+            : tx.findAssetWithProperty(PATH_PROPERTY, path, bucket);
+        assertNotNull(asset);
+      }
+      return stopwatch.elapsed(TimeUnit.MICROSECONDS) / LOOKUPS;
+    }
+  }
+
+  private static String path(final int i) {
+    return String.format("org/example/artifact-%d/1.0/artifact-%d-1.0.jar", i % 1000, i);
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+
+import org.sonatype.nexus.blobstore.api.Blob;
+import org.sonatype.nexus.blobstore.api.BlobId;
+import org.sonatype.nexus.blobstore.api.BlobStore;
+import org.sonatype.nexus.blobstore.api.BlobStoreConfiguration;
+import org.sonatype.nexus.common.collect.NestedAttributesMap;
+import org.sonatype.nexus.common.hash.HashAlgorithm;
+import org.sonatype.nexus.common.hash.MultiHashingInputStream;
+import org.sonatype.nexus.common.node.LocalNodeAccess;
+import org.sonatype.nexus.mime.MimeRulesSource;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Supplier;
+import com.google.common.collect.Maps;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import com.orientechnologies.orient.core.tx.OTransaction;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link ReusableBlob}.
+ */
+public class ReusableBlobTest
+    extends TestSupport
+{
+  private static final BlobId BLOB_ID = new BlobId("blob");
+
+  @Mock
+  private LocalNodeAccess localNodeAccess;
+
+  @Mock
+  private BlobStore blobStore;
+
+  @Mock
+  private BlobStoreConfiguration blobStoreConfiguration;
+
+  @Mock
+  private Blob blob;
+
+  @Mock
+  private ODatabaseDocumentTx db;
+
+  @Mock
+  private OTransaction transaction;
+
+  @Mock
+  private Bucket bucket;
+
+  @Mock
+  private BucketEntityAdapter bucketEntityAdapter;
+
+  @Mock
+  private ComponentEntityAdapter componentEntityAdapter;
+
+  @Mock
+  private AssetEntityAdapter assetEntityAdapter;
+
+  @Mock
+  private ContentValidator contentValidator;
+
+  @Mock
+  private Asset asset;
+
+  private ReusableBlob underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    when(localNodeAccess.getId()).thenReturn("node");
+    when(blobStore.getBlobStoreConfiguration()).thenReturn(blobStoreConfiguration);
+    when(blobStoreConfiguration.getName()).thenReturn("default");
+    when(blobStore.create(any(MultiHashingInputStream.class), any(Map.class))).thenReturn(blob);
+    when(blob.getId()).thenReturn(BLOB_ID);
+    when(db.getTransaction()).thenReturn(transaction);
+    when(bucket.repositoryName()).thenReturn("repo");
+    when(contentValidator.determineContentType(anyBoolean(), any(Supplier.class), any(MimeRulesSource.class),
+        anyString(), anyString())).thenReturn("text/plain");
+    when(asset.attributes()).thenReturn(new NestedAttributesMap("attributes", Maps.<String, Object>newHashMap()));
+
+    underTest = new ReusableBlob(blobStore, "test.txt", new ByteArrayInputStream("content".getBytes()),
+        Collections.<HashAlgorithm>emptyList(), null, "text/plain");
+  }
+
+  @Test
+  public void retryReusesBlobOfRolledBackAttempt() throws Exception {
+    BlobTx first = new BlobTx(localNodeAccess, blobStore);
+    StorageTx firstTx = tx(first);
+    AssetBlob assetBlob = underTest.get(firstTx);
+    firstTx.attachBlob(asset, assetBlob);
+    first.rollback();
+    verify(blobStore, never()).delete(BLOB_ID);
+
+    BlobTx second = new BlobTx(localNodeAccess, blobStore);
+    StorageTx secondTx = tx(second);
+    assertThat(underTest.get(secondTx), sameInstance(assetBlob));
+    secondTx.attachBlob(asset, assetBlob);
+    second.commit();
+    underTest.close();
+
+    verify(blobStore, times(1)).create(any(MultiHashingInputStream.class), any(Map.class));
+    verify(blobStore, never()).delete(BLOB_ID);
+  }
+
+  @Test
+  public void blobIsDeletedWhenNoAttemptCommits() throws Exception {
+    BlobTx first = new BlobTx(localNodeAccess, blobStore);
+    StorageTx firstTx = tx(first);
+    firstTx.attachBlob(asset, underTest.get(firstTx));
+    first.rollback();
+    underTest.close();
+
+    verify(blobStore, times(1)).delete(BLOB_ID);
+  }
+
+  @Test
+  public void blobNotAttachedByCommittingAttemptIsDeleted() throws Exception {
+    BlobTx first = new BlobTx(localNodeAccess, blobStore);
+    StorageTx firstTx = tx(first);
+    firstTx.attachBlob(asset, underTest.get(firstTx));
+    first.rollback();
+
+    BlobTx second = new BlobTx(localNodeAccess, blobStore);
+    second.commit();
+    underTest.close();
+
+    verify(blobStore, times(1)).delete(BLOB_ID);
+  }
+
+  @Test
+  public void contentIsNotReadAgainAfterFailedWrite() throws Exception {
+    when(blobStore.create(any(MultiHashingInputStream.class), any(Map.class))).thenThrow(new IllegalStateException());
+    BlobTx first = new BlobTx(localNodeAccess, blobStore);
+    try {
+      underTest.get(tx(first));
+      fail();
+    }
+    catch (IllegalStateException e) {
+      // expected
+    }
+
+    try {
+      underTest.get(tx(new BlobTx(localNodeAccess, blobStore)));
+      fail();
+    }
+    catch (IOException e) {
+      // expected
+    }
+    verify(blobStore, times(1)).create(any(MultiHashingInputStream.class), any(Map.class));
+  }
+
+  private StorageTxImpl tx(final BlobTx blobTx) {
+    return new StorageTxImpl("test", blobTx, db, false, bucket, WritePolicy.ALLOW, WritePolicySelector.DEFAULT,
+        bucketEntityAdapter, componentEntityAdapter, assetEntityAdapter, false, contentValidator,
+        MimeRulesSource.NOOP, new StorageTxHooks(Collections.<StorageTxHook>emptyList()));
+  }
+}
@@ -762,4 +762,29 @@ public class StorageFacetImplIT
       tx.browseAssets(component);
     }
   }
+
+  @Test
+  public void findWithIndexedName() throws Exception {
+    try (StorageTx tx = underTest.openTx()) {
+      final Component component = tx.createComponent(tx.getBucket(), testFormat)
+          .group("myGroup").name("myName").version("1.0");
+      tx.saveComponent(component);
+      tx.saveAsset(tx.createAsset(tx.getBucket(), component).name("/my/path"));
+
+      // uncommitted changes are visible to the index lookups of the same transaction
+      assertNotNull(tx.findAssetWithName("/my/path", tx.getBucket()));
+      tx.commit();
+    }
+
+    try (StorageTx tx = underTest.openTx()) {
+      final Bucket bucket = tx.getBucket();
+
+      assertThat(tx.findAssetWithName("/my/path", bucket).name(), is("/my/path"));
+      assertNull(tx.findAssetWithName("/my/other/path", bucket));
+
+      assertThat(tx.findComponentWithGroupNameVersion("myGroup", "myName", "1.0", bucket).name(), is("myName"));
+      assertNull(tx.findComponentWithGroupNameVersion("myGroup", "myName", "2.0", bucket));
+      assertNull(tx.findComponentWithGroupNameVersion(null, "myName", "1.0", bucket));
+    }
+  }
 }
@@ -0,0 +1,109 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view
+
+import org.sonatype.nexus.repository.Repository
+import org.sonatype.nexus.repository.view.matchers.ActionMatcher
+import org.sonatype.nexus.repository.view.matchers.LiteralMatcher
+import org.sonatype.nexus.repository.view.matchers.SuffixMatcher
+import org.sonatype.nexus.repository.view.matchers.token.TokenMatcher
+import org.sonatype.sisu.litmus.testsupport.TestSupport
+
+import org.junit.Test
+
+import static org.mockito.Mockito.mock
+import static org.sonatype.nexus.repository.view.matchers.logic.LogicMatchers.and
+import static org.sonatype.nexus.repository.view.matchers.logic.LogicMatchers.or
+
+/**
+ * Tests for {@link Router} route dispatch.
+ */
+class RouterTest
+    extends TestSupport
+{
+  private final Router.Builder builder = new Router.Builder().defaultHandlers(mock(Handler))
+
+  private Route route(final Matcher matcher) {
+    Route route = new Route(matcher, [mock(Handler)])
+    builder.route(route)
+    return route
+  }
+
+  private Context context(final String action, final String path) {
+    return new Context(mock(Repository), new Request.Builder().action(action).path(path).build())
+  }
+
+  @Test
+  void 'first matching route wins regardless of prefix length'() {
+    def anything = route(new TokenMatcher('/{path:.+}'))
+    def feed = route(new LiteralMatcher('/feed'))
+    def router = builder.create()
+
+    assert router.findRoute(context('GET', '/feed')).is(anything)
+    assert router.findRoute(context('GET', '/other')).is(anything)
+    assert !router.findRoute(context('GET', '/FEED')).is(feed)
+  }
+
+  @Test
+  void 'routes are filtered by literal prefix ignoring case'() {
+    def feed = route(or(new LiteralMatcher('/'), new LiteralMatcher('/$metadata')))
+    def count = route(new TokenMatcher('/{operation}()/$count'))
+    def entry = route(new TokenMatcher("/Packages(Id='{id}',Version='{version}')"))
+    def item = route(new TokenMatcher('/{id}/{version}'))
+    def router = builder.create()
+
+    assert router.findRoute(context('GET', '/')).is(feed)
+    assert router.findRoute(context('GET', '/$METADATA')).is(feed)
+    assert router.findRoute(context('GET', '/Search()/$count')).is(count)
+    assert router.findRoute(context('GET', "/Packages(Id='foo',Version='1.0')")).is(entry)
+    assert router.findRoute(context('GET', '/foo/1.0')).is(item)
+    assert router.findRoute(context('GET', '/foo/1.0/bar')) instanceof DefaultRoute
+  }
+
+  @Test
+  void 'routes are filtered by action'() {
+    def get = route(and(new ActionMatcher('GET', 'HEAD'), new TokenMatcher('/content/{name}')))
+    def put = route(and(new ActionMatcher('PUT'), new TokenMatcher('/content/{name}')))
+    def router = builder.create()
+
+    assert router.findRoute(context('HEAD', '/content/foo')).is(get)
+    assert router.findRoute(context('PUT', '/content/foo')).is(put)
+    assert router.findRoute(context('DELETE', '/content/foo')) instanceof DefaultRoute
+  }
+
+  @Test
+  void 'routes without hints keep their position'() {
+    def index = route(new LiteralMatcher('/content/index.html'))
+    def directory = route(and(new ActionMatcher('GET'), new SuffixMatcher('/')))
+    def custom = route({ Context context -> context.request.path.contains('custom') } as Matcher)
+    def content = route(new TokenMatcher('/content/{name:.+}'))
+    def router = builder.create()
+
+    assert router.findRoute(context('GET', '/content/index.html')).is(index)
+    assert router.findRoute(context('GET', '/content/')).is(directory)
+    assert router.findRoute(context('GET', '/content/custom')).is(custom)
+    assert router.findRoute(context('GET', '/content/foo')).is(content)
+    assert router.findRoute(context('PUT', '/content/foo/')).is(content)
+    assert router.findRoute(context('GET', '/other')) instanceof DefaultRoute
+  }
+
+  @Test
+  void 'token matcher state is exposed for matched route'() {
+    route(new TokenMatcher('/{id}/{version}'))
+    def router = builder.create()
+
+    def context = context('GET', '/foo/1.0')
+    router.findRoute(context)
+    assert context.attributes.require(TokenMatcher.State).tokens == [id: 'foo', version: '1.0']
+  }
+}
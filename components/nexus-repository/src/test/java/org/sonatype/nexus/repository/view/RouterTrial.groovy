@@ -0,0 +1,107 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view
+
+import org.sonatype.nexus.repository.Repository
+import org.sonatype.nexus.repository.view.matchers.ActionMatcher
+import org.sonatype.nexus.repository.view.matchers.LiteralMatcher
+import org.sonatype.nexus.repository.view.matchers.token.TokenMatcher
+import org.sonatype.sisu.litmus.testsupport.TestSupport
+
+import com.google.common.base.Stopwatch
+import org.junit.Test
+
+import static java.util.concurrent.TimeUnit.NANOSECONDS
+import static org.mockito.Mockito.mock
+import static org.sonatype.nexus.repository.view.matchers.logic.LogicMatchers.and
+import static org.sonatype.nexus.repository.view.matchers.logic.LogicMatchers.or
+
+/**
+ * Trials of {@link Router} route dispatch over realistic Maven and NuGet request paths, comparing a linear scan of
+ * the routes with the {@link RouteIndex}.
+ */
+class RouterTrial
+    extends TestSupport
+{
+  static final int ITERATIONS = 200_000
+
+  @Test
+  void 'dispatch maven requests'() {
+    trial('maven', [
+        and(new ActionMatcher('GET', 'HEAD'), new TokenMatcher('/.index/{name}')),
+        new LiteralMatcher('/archetype-catalog.xml'),
+        new TokenMatcher('/.meta/{name:.+}'),
+        new TokenMatcher('/{path:.+}/maven-metadata.xml{hash:.*}'),
+        and(new ActionMatcher('PUT'), new TokenMatcher('/{group:.+}/{artifact}/{version}/{name}.{ext}')),
+        new TokenMatcher('/{group:.+}/{artifact}/{version}/{name}.{ext}')
+    ], [
+        ['GET', '/org/apache/maven/plugins/maven-compiler-plugin/3.3/maven-compiler-plugin-3.3.jar'],
+        ['GET', '/org/apache/maven/plugins/maven-compiler-plugin/maven-metadata.xml'],
+        ['HEAD', '/org/eclipse/jetty/jetty-io/8.1.16.v20140903/jetty-io-8.1.16.v20140903.pom.sha1'],
+        ['GET', '/.index/nexus-maven-repository-index.properties'],
+        ['GET', '/archetype-catalog.xml']
+    ])
+  }
+
+  @Test
+  void 'dispatch nuget requests'() {
+    trial('nuget', [
+        or(new LiteralMatcher('/'), new LiteralMatcher('/$metadata')),
+        or(new TokenMatcher('/{operation}()/$count'), new TokenMatcher('/{operation}()'),
+            new TokenMatcher("/Packages(Id='{id}',Version='{version}')")),
+        and(new ActionMatcher('PUT'), new LiteralMatcher('/')),
+        and(new ActionMatcher('DELETE'), new TokenMatcher('/{id}/{version}')),
+        new TokenMatcher('/{id}/{version}')
+    ], [
+        ['GET', '/FindPackagesById()'],
+        ['GET', '/Search()/$count'],
+        ['GET', "/Packages(Id='jQuery',Version='2.1.4')"],
+        ['GET', '/jQuery/2.1.4'],
+        ['GET', '/$metadata']
+    ])
+  }
+
+  private void trial(final String format, final List<Matcher> matchers, final List<List<String>> requests) {
+    List<Route> routes = matchers.collect { new Route(it, [mock(Handler)]) }
+    Router router = new Router(routes, new DefaultRoute([mock(Handler)]))
+    List<Context> contexts = requests.collect {
+      new Context(mock(Repository), new Request.Builder().action(it[0]).path(it[1]).build())
+    }
+
+    // sanity check both paths agree, then warm them up before measuring
+    contexts.each { context -> assert router.findRoute(context).is(linear(routes, context)) }
+    run(ITERATIONS / 10 as int, contexts) { router.findRoute(it) }
+    run(ITERATIONS / 10 as int, contexts) { linear(routes, it) }
+
+    double linear = run(ITERATIONS, contexts) { linear(routes, it) }
+    double indexed = run(ITERATIONS, contexts) { router.findRoute(it) }
+    log "${format}: linear ${linear} us, indexed ${indexed} us per dispatch"
+  }
+
+  private static Route linear(final List<Route> routes, final Context context) {
+    for (Route route : routes) {
+      if (route.matcher.matches(context)) {
+        return route
+      }
+    }
+    return null
+  }
+
+  private double run(final int iterations, final List<Context> contexts, final Closure dispatch) {
+    Stopwatch stopwatch = Stopwatch.createStarted()
+    for (int i = 0; i < iterations; i++) {
+      dispatch.call(contexts[i % contexts.size()])
+    }
+    return stopwatch.elapsed(NANOSECONDS) / 1_000d / iterations
+  }
+}
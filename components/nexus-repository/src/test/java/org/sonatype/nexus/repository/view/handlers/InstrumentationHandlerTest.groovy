@@ -0,0 +1,124 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.view.handlers
+
+import org.sonatype.nexus.repository.Repository
+import org.sonatype.nexus.repository.http.HttpMethods
+import org.sonatype.nexus.repository.view.ContentTypes
+import org.sonatype.nexus.repository.view.Context
+import org.sonatype.nexus.repository.view.Handler
+import org.sonatype.nexus.repository.view.Request
+import org.sonatype.nexus.repository.view.Response
+import org.sonatype.nexus.repository.view.Route
+import org.sonatype.nexus.repository.view.Status
+import org.sonatype.nexus.repository.view.ViewFacet
+import org.sonatype.nexus.repository.view.handlers.InstrumentationHandler.CacheOutcome
+import org.sonatype.nexus.repository.view.matchers.AlwaysMatcher
+import org.sonatype.nexus.repository.view.payloads.StringPayload
+import org.sonatype.sisu.litmus.testsupport.TestSupport
+
+import com.codahale.metrics.MetricRegistry
+import com.codahale.metrics.SharedMetricRegistries
+import org.junit.Before
+import org.junit.Test
+import org.mockito.Mock
+import org.mockito.stubbing.Answer
+
+import static org.mockito.Mockito.mock
+import static org.mockito.Mockito.when
+
+/**
+ * Tests for {@link InstrumentationHandler}.
+ */
+class InstrumentationHandlerTest
+    extends TestSupport
+{
+  @Mock
+  Context context
+
+  @Mock
+  Repository repository
+
+  MetricRegistry metrics = SharedMetricRegistries.getOrCreate('nexus')
+
+  InstrumentationHandler underTest = new InstrumentationHandler()
+
+  String repositoryPrefix
+
+  String routePrefix
+
+  @Before
+  void setUp() {
+    String repositoryName = "instrumented-${UUID.randomUUID()}".toString()
+    repositoryPrefix = MetricRegistry.name(ViewFacet, repositoryName)
+    routePrefix = MetricRegistry.name(repositoryPrefix, 'route', 'content')
+
+    when(repository.getName()).thenReturn(repositoryName)
+    when(context.getRepository()).thenReturn(repository)
+    when(context.getRoute()).thenReturn(new Route('content', new AlwaysMatcher(), [mock(Handler)]))
+    when(context.getRequest()).thenReturn(new Request.Builder().action(HttpMethods.GET).path('/foo').build())
+    when(context.getAttributes()).thenReturn(new Context.Attributes())
+  }
+
+  @Test
+  void 'latency, status and bytes are recorded per repository and route'() {
+    when(context.proceed()).thenReturn(new Response.Builder()
+        .status(Status.success(200))
+        .payload(new StringPayload('payload', ContentTypes.TEXT_PLAIN))
+        .build())
+
+    underTest.handle(context)
+    underTest.handle(context)
+
+    [repositoryPrefix, routePrefix].each { prefix ->
+      assert metrics.timer(MetricRegistry.name(prefix, 'requests')).count == 2
+      assert metrics.meter(MetricRegistry.name(prefix, 'status', '200')).count == 2
+      assert metrics.meter(MetricRegistry.name(prefix, 'bytes')).count == 14
+      assert metrics.meter(MetricRegistry.name(prefix, 'exceptions')).count == 0
+    }
+  }
+
+  @Test
+  void 'exceptions are recorded'() {
+    when(context.proceed()).thenThrow(new IllegalStateException('failed'))
+
+    try {
+      underTest.handle(context)
+      assert false
+    }
+    catch (IllegalStateException e) {
+      // expected
+    }
+
+    [repositoryPrefix, routePrefix].each { prefix ->
+      assert metrics.timer(MetricRegistry.name(prefix, 'requests')).count == 1
+      assert metrics.meter(MetricRegistry.name(prefix, 'exceptions')).count == 1
+    }
+  }
+
+  @Test
+  void 'cache outcome is recorded'() {
+    when(context.proceed()).thenAnswer({
+      CacheOutcome.NEGATIVE_HIT.mark(context)
+      return new Response.Builder().status(Status.failure(404)).build()
+    } as Answer)
+
+    underTest.handle(context)
+
+    [repositoryPrefix, routePrefix].each { prefix ->
+      assert metrics.meter(MetricRegistry.name(prefix, 'status', '404')).count == 1
+      assert metrics.meter(MetricRegistry.name(prefix, 'cache', 'negativeHit')).count == 1
+      assert metrics.meter(MetricRegistry.name(prefix, 'cache', 'hit')).count == 0
+    }
+  }
+}
@@ -138,4 +138,39 @@ public class TokenParserTest
     assertThat(tokens.get("version"), is(equalTo("8.1.16.v20140903")));
     assertThat(tokens.get("ext"), is(equalTo("pom")));
   }
+
+  @Test
+  public void literalPrefixAndSuffix() {
+    final TokenParser parser = new TokenParser("/Packages(Id='{id}',Version='{version}')");
+    log(parser);
+
+    assertThat(parser.getLiteralPrefix(), is(equalTo("/Packages(Id='")));
+
+    assertThat(parser.parse("/Packages(Id='foo',Version='1.0'"), is(nullValue()));
+    assertThat(parser.parse("/packages(Id='foo',Version='1.0')"), is(nullValue()));
+    assertThat(parser.parse("/Packages(Id=')"), is(nullValue()));
+
+    // matcher is reused between parses
+    assertThat(parser.parse("/Packages(Id='foo',Version='1.0')").get("id"), is(equalTo("foo")));
+    assertThat(parser.parse("/Packages(Id='bar',Version='2.0')").get("id"), is(equalTo("bar")));
+  }
+
+  @Test
+  public void literalOnlyPattern() {
+    final TokenParser parser = new TokenParser("/$metadata");
+    log(parser);
+
+    assertThat(parser.getLiteralPrefix(), is(equalTo("/$metadata")));
+    assertThat(parser.parse("/$metadata").entrySet(), hasSize(0));
+    assertThat(parser.parse("/$metadata/"), is(nullValue()));
+  }
+
+  @Test
+  public void variablePrefix() {
+    final TokenParser parser = new TokenParser("{name}.{ext}");
+    log(parser);
+
+    assertThat(parser.getLiteralPrefix(), is(equalTo("")));
+    assertThat(parser.parse("foo.jar").get("ext"), is(equalTo("jar")));
+  }
 }
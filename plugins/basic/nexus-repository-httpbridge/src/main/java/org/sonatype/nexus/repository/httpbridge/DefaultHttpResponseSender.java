@@ -15,6 +15,7 @@ package org.sonatype.nexus.repository.httpbridge;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.util.Map;
 
 import javax.annotation.Nullable;
@@ -24,6 +25,7 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletResponse;
 
 import org.sonatype.nexus.repository.http.HttpMethods;
+import org.sonatype.nexus.repository.view.FileChannelPayload;
 import org.sonatype.nexus.repository.view.Payload;
 import org.sonatype.nexus.repository.view.Request;
 import org.sonatype.nexus.repository.view.Response;
@@ -31,6 +33,7 @@ import org.sonatype.nexus.repository.view.Status;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
 import com.google.common.io.ByteStreams;
+import org.eclipse.jetty.server.HttpOutput;
 
 /**
  * Default {@link HttpResponseSender}.
@@ -43,6 +46,27 @@ public class DefaultHttpResponseSender
     extends ComponentSupport
     implements HttpResponseSender
 {
+  /**
+   * Payloads smaller than this are streamed; opening a channel costs more than copying them, and the blob store may
+   * serve them from its cache.
+   */
+  private static final long TRANSFER_THRESHOLD = 64 * 1024;
+
+  /**
+   * Jetty is an optional import; without it payloads are always streamed.
+   */
+  private static final boolean JETTY_AVAILABLE = isJettyAvailable();
+
+  private static boolean isJettyAvailable() {
+    try {
+      Class.forName("org.eclipse.jetty.server.HttpOutput", false, DefaultHttpResponseSender.class.getClassLoader());
+      return true;
+    }
+    catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
   @Override
   public void send(@Nullable final Request request, final Response response, final HttpServletResponse httpResponse)
       throws ServletException, IOException
@@ -71,9 +95,7 @@ public class DefaultHttpResponseSender
         }
 
         if (request != null && !HttpMethods.HEAD.equals(request.getAction())) {
-          try (InputStream input = payload.openInputStream(); OutputStream output = httpResponse.getOutputStream()) {
-            ByteStreams.copy(input, output);
-          }
+          sendPayload(payload, httpResponse);
         }
       }
     }
@@ -81,4 +103,41 @@ public class DefaultHttpResponseSender
       httpResponse.sendError(status.getCode(), status.getMessage());
     }
   }
+
+  /**
+   * Writes the payload content to the response, sending file backed payloads straight from their channel when the
+   * container supports it.
+   */
+  private void sendPayload(final Payload payload, final HttpServletResponse httpResponse) throws IOException {
+    try (OutputStream output = httpResponse.getOutputStream()) {
+      if (JETTY_AVAILABLE && payload instanceof FileChannelPayload && payload.getSize() >= TRANSFER_THRESHOLD
+          && JettyOutput.accepts(output)) {
+        FileChannel channel = ((FileChannelPayload) payload).openChannel();
+        if (channel != null) {
+          try (FileChannel input = channel) {
+            JettyOutput.send(output, input);
+          }
+          return;
+        }
+      }
+      try (InputStream input = payload.openInputStream()) {
+        ByteStreams.copy(input, output);
+      }
+    }
+  }
+
+  /**
+   * Sends channel content through Jetty's response output, which writes it from direct buffers rather than copying
+   * it through the heap.  Kept apart so Jetty classes are only loaded when available.
+   */
+  private static class JettyOutput
+  {
+    static boolean accepts(final OutputStream output) {
+      return output instanceof HttpOutput;
+    }
+
+    static void send(final OutputStream output, final FileChannel channel) throws IOException {
+      ((HttpOutput) output).sendContent(channel);
+    }
+  }
 }
@@ -0,0 +1,162 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.httpbridge;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.sonatype.nexus.repository.http.HttpMethods;
+import org.sonatype.nexus.repository.view.FileChannelPayload;
+import org.sonatype.nexus.repository.view.Request;
+import org.sonatype.nexus.repository.view.Response;
+import org.sonatype.nexus.repository.view.Status;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.io.ByteStreams;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.servlet.ServletContextHandler;
+import org.eclipse.jetty.servlet.ServletHolder;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link DefaultHttpResponseSender}.
+ */
+public class DefaultHttpResponseSenderTest
+    extends TestSupport
+{
+  @Mock
+  private Request request;
+
+  @Mock
+  private HttpServletResponse httpResponse;
+
+  @Mock
+  private FileChannelPayload payload;
+
+  private ByteArrayOutputStream sent;
+
+  private DefaultHttpResponseSender underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    sent = new ByteArrayOutputStream();
+    when(request.getAction()).thenReturn(HttpMethods.GET);
+    when(httpResponse.getOutputStream()).thenReturn(new ServletOutputStream()
+    {
+      @Override
+      public boolean isReady() {
+        return true;
+      }
+
+      @Override
+      public void setWriteListener(final WriteListener writeListener) {
+        // blocking only
+      }
+
+      @Override
+      public void write(final int b) throws IOException {
+        sent.write(b);
+      }
+
+      @Override
+      public void write(final byte[] b, final int off, final int len) throws IOException {
+        sent.write(b, off, len);
+      }
+    });
+    underTest = new DefaultHttpResponseSender();
+  }
+
+  private Path contentFile(final byte[] content) throws IOException {
+    for (int i = 0; i < content.length; i++) {
+      content[i] = (byte) i;
+    }
+    Path file = util.createTempFile("content").toPath();
+    Files.write(file, content);
+    return file;
+  }
+
+  @Test
+  public void fileBackedPayloadIsStreamedToPlainOutput() throws Exception {
+    byte[] content = new byte[100_000];
+    contentFile(content);
+
+    when(payload.getSize()).thenReturn((long) content.length);
+    when(payload.openInputStream()).thenReturn(new ByteArrayInputStream(content));
+
+    underTest.send(request, new Response.Builder().status(Status.success(200)).payload(payload).build(), httpResponse);
+
+    assertThat(sent.toByteArray(), is(content));
+    verify(payload, never()).openChannel();
+  }
+
+  @Test
+  public void fileBackedPayloadIsSentFromChannelThroughJettyOutput() throws Exception {
+    byte[] content = new byte[100_000];
+    Path file = contentFile(content);
+
+    when(payload.getSize()).thenReturn((long) content.length);
+    when(payload.openChannel()).thenReturn(FileChannel.open(file, StandardOpenOption.READ));
+
+    Server server = new Server(0);
+    ServletContextHandler context = new ServletContextHandler();
+    context.addServlet(new ServletHolder(new HttpServlet()
+    {
+      @Override
+      protected void doGet(final HttpServletRequest req, final HttpServletResponse resp)
+          throws ServletException, IOException
+      {
+        underTest.send(request, new Response.Builder().status(Status.success(200)).payload(payload).build(), resp);
+      }
+    }), "/*");
+    server.setHandler(context);
+    server.start();
+    try {
+      int port = ((ServerConnector) server.getConnectors()[0]).getLocalPort();
+      HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + port + "/").openConnection();
+      assertThat(connection.getResponseCode(), is(200));
+      try (InputStream input = connection.getInputStream()) {
+        assertThat(ByteStreams.toByteArray(input), is(content));
+      }
+    }
+    finally {
+      server.stop();
+    }
+
+    verify(payload).openChannel();
+    verify(payload, never()).openInputStream();
+  }
+}
@@ -37,6 +37,14 @@ public interface MavenAttributes
 
   String P_COMPONENT_KEY = "key";
 
+  // artifact component properties maintained by metadata rebuild
+
+  String P_METADATA_FINGERPRINT = "metadataFingerprint";
+
+  String P_PLUGIN_PREFIX = "pluginPrefix";
+
+  String P_PLUGIN_NAME = "pluginName";
+
   // shared properties for both artifact and metadata assets
 
   String P_ASSET_KEY = "key";
@@ -13,7 +13,6 @@
 package org.sonatype.nexus.repository.maven.internal;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.Date;
 import java.util.Map;
 
@@ -28,7 +27,6 @@ import org.sonatype.nexus.blobstore.api.Blob;
 import org.sonatype.nexus.common.collect.AttributesMap;
 import org.sonatype.nexus.common.collect.NestedAttributesMap;
 import org.sonatype.nexus.common.hash.HashAlgorithm;
-import org.sonatype.nexus.common.io.TempStreamSupplier;
 import org.sonatype.nexus.repository.FacetSupport;
 import org.sonatype.nexus.repository.config.Configuration;
 import org.sonatype.nexus.repository.config.ConfigurationFacet;
@@ -42,6 +40,7 @@ import org.sonatype.nexus.repository.storage.Asset;
 import org.sonatype.nexus.repository.storage.AssetBlob;
 import org.sonatype.nexus.repository.storage.Bucket;
 import org.sonatype.nexus.repository.storage.Component;
+import org.sonatype.nexus.repository.storage.ReusableBlob;
 import org.sonatype.nexus.repository.storage.StorageFacet;
 import org.sonatype.nexus.repository.storage.StorageFacet.Operation;
 import org.sonatype.nexus.repository.storage.StorageTx;
@@ -207,13 +206,20 @@ public class MavenFacetImpl
   public void put(final MavenPath path, final Payload payload)
       throws IOException
   {
-    try (final TempStreamSupplier streamSupplier = new TempStreamSupplier(payload.openInputStream())) {
+    log.debug("PUT {} : {}", getRepository().getName(), path.getPath());
+    try (final ReusableBlob reusableBlob = storageFacet.createReusableBlob(
+        path.getPath(),
+        payload.openInputStream(),
+        HashType.ALGORITHMS,
+        null,
+        payload.getContentType()
+    )) {
       storageFacet.perform(new Operation<Void>()
       {
         @Override
         public Void execute(final StorageTx tx) {
           try {
-            put(tx, path, payload, streamSupplier.get());
+            put(tx, path, payload, reusableBlob.get(tx));
             return null;
           }
           catch (IOException e) {
@@ -238,24 +244,24 @@ public class MavenFacetImpl
   @Override
   public void put(final StorageTx tx, final MavenPath path, final Payload payload)
       throws IOException
-  {
-    put(tx, path, payload, payload.openInputStream());
-  }
-
-  private void put(final StorageTx tx,
-                   final MavenPath path,
-                   final Payload payload,
-                   final InputStream inputStream)
-      throws IOException
   {
     log.debug("PUT {} : {}", getRepository().getName(), path.getPath());
     final AssetBlob assetBlob = tx.createBlob(
         path.getPath(),
-        inputStream,
+        payload.openInputStream(),
         HashType.ALGORITHMS,
         null,
         payload.getContentType()
     );
+    put(tx, path, payload, assetBlob);
+  }
+
+  private void put(final StorageTx tx,
+                   final MavenPath path,
+                   final Payload payload,
+                   final AssetBlob assetBlob)
+      throws IOException
+  {
     AttributesMap contentAttributes = null;
     if (payload instanceof Content) {
       contentAttributes = ((Content) payload).getAttributes();
@@ -466,16 +472,16 @@ public class MavenFacetImpl
   }
 
   /**
-   * Finds component by key.
+   * Finds component by coordinates, which make up its group, name and version.
    */
   @Nullable
   private Component findComponent(final StorageTx tx,
                                   final Bucket bucket,
                                   final MavenPath mavenPath)
   {
-    final String componentKeyName =
-        StorageFacet.P_ATTRIBUTES + "." + getRepository().getFormat().getValue() + "." + P_COMPONENT_KEY;
-    return tx.findComponentWithProperty(componentKeyName, getComponentKey(mavenPath.getCoordinates()), bucket);
+    final Coordinates coordinates = mavenPath.getCoordinates();
+    return tx.findComponentWithGroupNameVersion(
+        coordinates.getGroupId(), coordinates.getArtifactId(), coordinates.getVersion(), bucket);
   }
 
   /**
@@ -497,15 +503,13 @@ public class MavenFacetImpl
   }
 
   /**
-   * Finds asset by key.
+   * Finds asset by key, which is also its name.
    */
   @Nullable
   private Asset findAsset(final StorageTx tx,
                           final Bucket bucket,
                           final MavenPath mavenPath)
   {
-    final String assetKeyName =
-        StorageFacet.P_ATTRIBUTES + "." + getRepository().getFormat().getValue() + "." + P_ASSET_KEY;
-    return tx.findAssetWithProperty(assetKeyName, getAssetKey(mavenPath), bucket);
+    return tx.findAssetWithName(getAssetKey(mavenPath), bucket);
   }
 }
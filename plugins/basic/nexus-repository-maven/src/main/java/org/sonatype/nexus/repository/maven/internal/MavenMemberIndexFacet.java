@@ -0,0 +1,52 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.maven.internal;
+
+import javax.annotation.Nullable;
+import javax.inject.Named;
+
+import org.sonatype.nexus.repository.group.MemberIndexFacetImpl;
+import org.sonatype.nexus.repository.maven.MavenFacet;
+import org.sonatype.nexus.repository.maven.MavenPath;
+import org.sonatype.nexus.repository.storage.Asset;
+import org.sonatype.nexus.repository.view.Request;
+
+/**
+ * Maven {@link MemberIndexFacetImpl}. Hashes are stored as assets of their own, but are written and removed apart
+ * from the file they hash, so both share one key: a hash request is possibly held whenever the hashed file or any of
+ * its hashes is.
+ *
+ * @since 3.0
+ */
+@Named
+public class MavenMemberIndexFacet
+    extends MemberIndexFacetImpl
+{
+  @Nullable
+  @Override
+  protected String key(final Request request) {
+    return key(request.getPath());
+  }
+
+  @Nullable
+  @Override
+  protected String key(final Asset asset) {
+    return key(asset.name());
+  }
+
+  private String key(final String path) {
+    final MavenPath mavenPath = facet(MavenFacet.class).getMavenPathParser().parsePath(path);
+    final String key = (mavenPath.isHash() ? mavenPath.subordinateOf() : mavenPath).getPath();
+    return key.startsWith("/") ? key.substring(1) : key;
+  }
+}
@@ -28,6 +28,7 @@ import org.sonatype.nexus.repository.view.ConfigurableViewFacet
 import org.sonatype.nexus.repository.view.handlers.ContentHeadersHandler
 import org.sonatype.nexus.repository.view.handlers.ExceptionHandler
 import org.sonatype.nexus.repository.view.Route.Builder
+import org.sonatype.nexus.repository.view.handlers.InstrumentationHandler
 import org.sonatype.nexus.repository.view.handlers.TimingHandler
 
 /**
@@ -50,6 +51,9 @@ abstract class MavenRecipeSupport
   @Inject
   ExceptionHandler exceptionHandler
 
+  @Inject
+  InstrumentationHandler instrumentationHandler
+
   @Inject
   TimingHandler timingHandler
 
@@ -77,7 +81,9 @@ abstract class MavenRecipeSupport
 
   Builder newArtifactRouteBuilder() {
     return new Builder()
+        .name('artifact')
         .matcher(new MavenArtifactMatcher(mavenPathParser))
+        .handler(instrumentationHandler)
         .handler(timingHandler)
         .handler(securityHandler)
         .handler(exceptionHandler)
@@ -86,7 +92,9 @@ abstract class MavenRecipeSupport
 
   Builder newMetadataRouteBuilder() {
     return new Builder()
+        .name('metadata')
         .matcher(new MavenMetadataMatcher(mavenPathParser))
+        .handler(instrumentationHandler)
         .handler(timingHandler)
         .handler(securityHandler)
         .handler(exceptionHandler)
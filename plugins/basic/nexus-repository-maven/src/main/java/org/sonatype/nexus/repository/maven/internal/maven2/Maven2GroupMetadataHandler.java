@@ -55,8 +55,9 @@ public class Maven2GroupMetadataHandler
     }
     else {
       // metadata, merge and cache it and get it
-      final LinkedHashMap<Repository, Response> responses =
-          getAll(context.getRequest(), groupFacet.members(), dispatched);
+      final LinkedHashMap<Repository, Response> responses = groupFacet.isParallelDispatch()
+          ? getAllParallel(context.getRequest(), groupFacet.members(), dispatched)
+          : getAll(context.getRequest(), groupFacet.members(), dispatched);
       content = groupFacet.mergeAndCacheMetadata(mavenPath, responses);
       if (content != null) {
         return HttpResponses.ok(content);
@@ -23,6 +23,7 @@ import org.sonatype.nexus.repository.Repository
 import org.sonatype.nexus.repository.Type
 import org.sonatype.nexus.repository.maven.internal.HostedHandler
 import org.sonatype.nexus.repository.maven.internal.MavenHostedFacetImpl
+import org.sonatype.nexus.repository.maven.internal.MavenMemberIndexFacet
 import org.sonatype.nexus.repository.maven.MavenPathParser
 import org.sonatype.nexus.repository.maven.internal.MavenRecipeSupport
 import org.sonatype.nexus.repository.maven.internal.VersionPolicyHandler
@@ -52,6 +53,9 @@ extends MavenRecipeSupport
   @Inject
   Provider<MavenHostedFacetImpl> mavenHostedFacet
 
+  @Inject
+  Provider<MavenMemberIndexFacet> memberIndexFacet
+
   @Inject
   VersionPolicyHandler versionPolicyHandler
 
@@ -78,6 +82,7 @@ extends MavenRecipeSupport
     repository.attach(searchFacet.get())
     repository.attach(mavenFacet.get())
     repository.attach(mavenHostedFacet.get())
+    repository.attach(memberIndexFacet.get())
     repository.attach(configure(viewFacet.get()))
   }
 
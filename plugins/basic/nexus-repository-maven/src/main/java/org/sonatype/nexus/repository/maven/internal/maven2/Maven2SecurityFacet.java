@@ -17,8 +17,8 @@ import javax.inject.Inject;
 import javax.inject.Named;
 
 import org.sonatype.nexus.repository.maven.internal.maven2.Maven2FormatSecurityConfigurationResource;
+import org.sonatype.nexus.repository.security.RepositoryViewPermissionCache;
 import org.sonatype.nexus.repository.security.SecurityFacetSupport;
-import org.sonatype.nexus.security.SecurityHelper;
 
 /**
  * Maven 2 security facet.
@@ -30,9 +30,9 @@ public class Maven2SecurityFacet
     extends SecurityFacetSupport
 {
   @Inject
-  public Maven2SecurityFacet(final SecurityHelper securityHelper,
+  public Maven2SecurityFacet(final RepositoryViewPermissionCache permissionCache,
                              final Maven2FormatSecurityConfigurationResource securityResource)
   {
-    super(securityHelper, securityResource);
+    super(permissionCache, securityResource);
   }
 }
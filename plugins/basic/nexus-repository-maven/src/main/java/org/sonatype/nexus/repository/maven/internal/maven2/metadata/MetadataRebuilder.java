@@ -15,9 +15,17 @@ package org.sonatype.nexus.repository.maven.internal.maven2.metadata;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -28,6 +36,8 @@ import javax.inject.Provider;
 import javax.inject.Singleton;
 
 import org.sonatype.nexus.common.collect.AttributesMap;
+import org.sonatype.nexus.common.collect.NestedAttributesMap;
+import org.sonatype.nexus.common.property.SystemPropertiesHelper;
 import org.sonatype.nexus.orient.DatabaseInstance;
 import org.sonatype.nexus.repository.Repository;
 import org.sonatype.nexus.repository.maven.MavenFacet;
@@ -48,12 +58,16 @@ import org.sonatype.nexus.repository.view.Content;
 import org.sonatype.nexus.repository.view.payloads.StringPayload;
 import org.sonatype.sisu.goodies.common.ComponentSupport;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Charsets;
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.orientechnologies.orient.core.command.OCommandResultListener;
 import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
 import com.orientechnologies.orient.core.id.ORID;
@@ -70,6 +84,8 @@ import static com.google.common.base.Preconditions.checkNotNull;
 /**
  * Maven 2 repository metadata re-builder.
  *
+ * GroupIds are rebuilt concurrently, each by a {@link Worker} of its own.
+ *
  * @since 3.0
  */
 @Singleton
@@ -77,6 +93,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
 public class MetadataRebuilder
     extends ComponentSupport
 {
+  private static final int THREADS = SystemPropertiesHelper.getInteger(
+      MetadataRebuilder.class.getName() + ".threads", Runtime.getRuntime().availableProcessors());
+
   private final Provider<DatabaseInstance> databaseInstanceProvider;
 
   private final BucketEntityAdapter bucketEntityAdapter;
@@ -110,14 +129,28 @@ public class MetadataRebuilder
     final Map<String, Object> sqlParams = Maps.newHashMap();
     buildSql(sql, sqlParams, groupId, artifactId, baseVersion);
 
+    final Stats stats = new Stats();
+    final ExecutorService executor = Executors.newFixedThreadPool(THREADS, new ThreadFactoryBuilder()
+        .setNameFormat("maven-metadata-" + repository.getName() + "-%d")
+        .setDaemon(true)
+        .build());
     try (ODatabaseDocumentTx db = databaseInstanceProvider.get().acquire()) {
       try (StorageTx tx = repository.facet(StorageFacet.class).openTx(db)) {
         final ORID bucketOrid = bucketEntityAdapter.recordIdentity(tx.getBucket());
         sqlParams.put("bucket", bucketOrid);
       }
-      final Worker worker = new Worker(db, repository, update, sql.toString(), sqlParams);
-      worker.rebuildMetadata();
+      final Dispatcher dispatcher = new Dispatcher(executor, repository, update, stats);
+      db.command(new OSQLAsynchQuery<ODocument>(sql.toString(), dispatcher)).execute(sqlParams);
+      dispatcher.await();
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw Throwables.propagate(e);
+    }
+    finally {
+      executor.shutdownNow();
     }
+    log.info("Rebuilt Maven metadata of {}: {}", repository.getName(), stats);
   }
 
   /**
@@ -148,23 +181,159 @@ public class MetadataRebuilder
         }
       }
     }
-    sql.append(" GROUP BY group, name");
+    // ordered, so all artifacts of a groupId arrive together and can be handed off as one unit of work
+    sql.append(" GROUP BY group, name ORDER BY group, name");
   }
 
   /**
-   * Inner class that encapsulates the work, as metadata builder is stateful.
+   * Counters of a rebuild, shared by its workers.
    */
-  private static class Worker
-      extends ComponentSupport
+  @VisibleForTesting
+  static class Stats
   {
-    private final ODatabaseDocumentTx db;
+    final AtomicLong groupIds = new AtomicLong();
+
+    final AtomicLong baseVersions = new AtomicLong();
 
-    private final String sql;
+    final AtomicLong unchangedBaseVersions = new AtomicLong();
 
-    private final Map<String, Object> sqlParams;
+    @Override
+    public String toString() {
+      return "groupIds=" + groupIds + ", baseVersions=" + baseVersions +
+          ", unchangedBaseVersions=" + unchangedBaseVersions;
+    }
+  }
+
+  /**
+   * Collects the artifactIds of each groupId as query results are arriving, and hands each groupId off to a
+   * {@link Worker}. The number of groupIds in flight is bounded, so the query is paced by the workers.
+   */
+  @VisibleForTesting
+  class Dispatcher
+      implements OCommandResultListener
+  {
+    private final ExecutorService executor;
 
     private final Repository repository;
 
+    private final boolean update;
+
+    private final Stats stats;
+
+    private final Semaphore inFlight = new Semaphore(THREADS * 2);
+
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    private String currentGroupId;
+
+    private Map<String, Set<String>> currentArtifacts = Maps.newLinkedHashMap();
+
+    Dispatcher(final ExecutorService executor,
+               final Repository repository,
+               final boolean update,
+               final Stats stats)
+    {
+      this.executor = executor;
+      this.repository = repository;
+      this.update = update;
+      this.stats = stats;
+    }
+
+    @Override
+    public boolean result(final Object iRecord) {
+      final ODocument doc = (ODocument) iRecord;
+      final String groupId = doc.field("groupId", OType.STRING);
+      final String artifactId = doc.field("artifactId", OType.STRING);
+      final Set<String> baseVersions = doc.field("baseVersions", OType.EMBEDDEDSET);
+      return add(groupId, artifactId, baseVersions);
+    }
+
+    /**
+     * Adds an artifactId, dispatching the previous groupId once a new one arrives. Returns {@code false} if the
+     * rebuild failed and no more results should be added.
+     */
+    @VisibleForTesting
+    boolean add(final String groupId, final String artifactId, final Set<String> baseVersions) {
+      if (!Objects.equals(currentGroupId, groupId)) {
+        if (currentGroupId != null && !dispatch()) {
+          return false;
+        }
+        currentGroupId = groupId;
+        currentArtifacts = Maps.newLinkedHashMap();
+      }
+      currentArtifacts.put(artifactId, baseVersions);
+      return failure.get() == null;
+    }
+
+    @Override
+    public void end() {
+      if (currentGroupId != null && failure.get() == null) {
+        dispatch();
+      }
+    }
+
+    private boolean dispatch() {
+      try {
+        inFlight.acquire();
+      }
+      catch (InterruptedException e) {
+        failure.compareAndSet(null, e);
+        Thread.currentThread().interrupt();
+        return false;
+      }
+      final String groupId = currentGroupId;
+      final Map<String, Set<String>> artifacts = currentArtifacts;
+      executor.execute(new Runnable()
+      {
+        @Override
+        public void run() {
+          try (ODatabaseDocumentTx db = databaseInstanceProvider.get().acquire()) {
+            if (failure.get() == null) {
+              new Worker(db, repository, update, stats).rebuildGroup(groupId, artifacts);
+            }
+          }
+          catch (Throwable e) {
+            log.warn("Failed to rebuild Maven metadata of {} groupId {}", repository.getName(), groupId, e);
+            failure.compareAndSet(null, e);
+          }
+          finally {
+            inFlight.release();
+          }
+        }
+      });
+      return true;
+    }
+
+    /**
+     * Waits for all dispatched work to complete, propagating the first failure.
+     */
+    @VisibleForTesting
+    void await() throws InterruptedException {
+      inFlight.acquire(THREADS * 2);
+      inFlight.release(THREADS * 2);
+      final Throwable e = failure.get();
+      if (e instanceof InterruptedException) {
+        throw (InterruptedException) e;
+      }
+      if (e != null) {
+        throw Throwables.propagate(e);
+      }
+    }
+  }
+
+  /**
+   * Inner class that encapsulates the work of a single groupId, as metadata builder is stateful.
+   */
+  @VisibleForTesting
+  static class Worker
+      extends ComponentSupport
+  {
+    private final ODatabaseDocumentTx db;
+
+    private final Repository repository;
+
+    private final Stats stats;
+
     private final StorageFacet storageFacet;
 
     private final MavenFacet mavenFacet;
@@ -175,64 +344,34 @@ public class MetadataRebuilder
 
     private final MetadataUpdater metadataUpdater;
 
-    public Worker(final ODatabaseDocumentTx db,
-                  final Repository repository,
-                  final boolean update,
-                  final String sql,
-                  final Map<String, Object> sqlParams)
+    private final boolean update;
+
+    Worker(final ODatabaseDocumentTx db,
+           final Repository repository,
+           final boolean update,
+           final Stats stats)
     {
       this.db = db;
-      this.sql = sql;
-      this.sqlParams = sqlParams;
       this.repository = repository;
+      this.stats = stats;
       this.storageFacet = repository.facet(StorageFacet.class);
       this.mavenFacet = repository.facet(MavenFacet.class);
       this.mavenPathParser = mavenFacet.getMavenPathParser();
       this.metadataBuilder = new MetadataBuilder();
       this.metadataUpdater = new MetadataUpdater(update, repository);
+      this.update = update;
     }
 
     /**
-     * Method rebuilding metadata that performs the group level processing. It uses memory conservative "async" SQL
-     * approach, and calls {@link #rebuildMetadataInner(String, String, Set)} method as results are arriving.
+     * Method rebuilding metadata of a groupId, processing each of its artifactIds and finally the group level.
      */
-    public void rebuildMetadata()
-    {
-      db.command(
-          new OSQLAsynchQuery<ODocument>(
-              sql,
-              new OCommandResultListener()
-              {
-                String currentGroupId = null;
-
-                @Override
-                public boolean result(Object iRecord) {
-                  final ODocument doc = (ODocument) iRecord;
-                  final String groupId = doc.field("groupId", OType.STRING);
-                  final String artifactId = doc.field("artifactId", OType.STRING);
-                  final Set<String> baseVersions = doc.field("baseVersions", OType.EMBEDDEDSET);
-
-                  final boolean groupChange = !Objects.equals(currentGroupId, groupId);
-                  if (groupChange) {
-                    if (currentGroupId != null) {
-                      rebuildMetadataExitGroup(currentGroupId);
-                    }
-                    currentGroupId = groupId;
-                    metadataBuilder.onEnterGroupId(groupId);
-                  }
-                  rebuildMetadataInner(groupId, artifactId, baseVersions);
-                  return true;
-                }
-
-                @Override
-                public void end() {
-                  if (currentGroupId != null) {
-                    rebuildMetadataExitGroup(currentGroupId);
-                  }
-                }
-              }
-          )
-      ).execute(sqlParams);
+    void rebuildGroup(final String groupId, final Map<String, Set<String>> artifacts) {
+      metadataBuilder.onEnterGroupId(groupId);
+      for (Map.Entry<String, Set<String>> artifact : artifacts.entrySet()) {
+        rebuildMetadataInner(groupId, artifact.getKey(), artifact.getValue());
+      }
+      rebuildMetadataExitGroup(groupId);
+      stats.groupIds.incrementAndGet();
     }
 
     /**
@@ -259,9 +398,17 @@ public class MetadataRebuilder
     }
 
     /**
-     * Method rebuilding metadata that performs artifact and baseVersion processing. While it is called from {@link
-     * #rebuildMetadata()} method, it will use a separate TX/DB to perform writes, it does NOT
-     * accept the TX from caller. Executed in isolation.
+     * Method rebuilding metadata that performs artifact and baseVersion processing, each baseVersion in a TX of its
+     * own. Executed in isolation.
+     *
+     * BaseVersions whose artifacts and their checksum files did not change since they were last processed, according
+     * to the fingerprint recorded on their components, only contribute their versions and plugins: checksums are not
+     * verified, POMs are not parsed and version level metadata is not rewritten. A missing or rewritten checksum file
+     * changes the fingerprint, so it is still repaired. This also makes an interrupted rebuild resume where it left
+     * off. BaseVersions are only skipped when updating, as overwriting is meant to regenerate all metadata, ie. to
+     * replace corrupt files the fingerprint does not cover.
+     *
+     * Components are only saved when their recorded attributes change, as each save re-indexes the component.
      */
     private void rebuildMetadataInner(final String groupId,
                                       final String artifactId,
@@ -285,33 +432,83 @@ public class MetadataRebuilder
                 ImmutableList.of(repository),
                 null // order by
             );
+            final MavenPath metadataPath = metadataMavenPath(groupId, artifactId, baseVersion);
+            final Map<Component, Map<Asset, MavenPath>> artifacts = Maps.newLinkedHashMap();
+            final Map<String, String> inputs = Maps.newHashMap();
             for (Component component : components) {
+              final Map<Asset, MavenPath> assets = Maps.newLinkedHashMap();
               for (Asset asset : tx.browseAssets(component)) {
                 final MavenPath mavenPath = mavenPathParser.parsePath(
                     asset.formatAttributes().require(StorageFacet.P_PATH, String.class)
                 );
                 if (mavenPath.isSubordinate()) {
+                  if (mavenPath.isHash() && !mavenPath.subordinateOf().isSubordinate()) {
+                    inputs.put(mavenPath.getPath(), sha1(asset));
+                  }
                   continue;
                 }
                 metadataBuilder.addArtifactVersion(mavenPath);
-                mayUpdateChecksum(tx, asset, mavenPath, HashType.SHA1);
-                mayUpdateChecksum(tx, asset, mavenPath, HashType.MD5);
+                assets.put(asset, mavenPath);
+                inputs.put(mavenPath.getPath(), sha1(asset));
+              }
+              artifacts.put(component, assets);
+            }
+            stats.baseVersions.incrementAndGet();
+
+            if (update && isUnchanged(tx, artifacts.keySet(), fingerprint(inputs), baseVersion, metadataPath)) {
+              for (Component component : artifacts.keySet()) {
+                final String prefix = component.formatAttributes().get(MavenAttributes.P_PLUGIN_PREFIX, String.class);
+                if (prefix != null) {
+                  metadataBuilder.addPlugin(prefix, artifactId,
+                      component.formatAttributes().get(MavenAttributes.P_PLUGIN_NAME, String.class));
+                }
+              }
+              stats.unchangedBaseVersions.incrementAndGet();
+              return null;
+            }
+
+            final Map<Component, List<Object>> recorded = Maps.newIdentityHashMap();
+            for (Component component : artifacts.keySet()) {
+              recorded.put(component, recordedAttributes(component));
+            }
+            for (Map.Entry<Component, Map<Asset, MavenPath>> entry : artifacts.entrySet()) {
+              final Component component = entry.getKey();
+              component.formatAttributes().remove(MavenAttributes.P_PLUGIN_PREFIX);
+              component.formatAttributes().remove(MavenAttributes.P_PLUGIN_NAME);
+              for (Map.Entry<Asset, MavenPath> assetEntry : entry.getValue().entrySet()) {
+                final Asset asset = assetEntry.getKey();
+                final MavenPath mavenPath = assetEntry.getValue();
+                for (HashType hashType : HashType.values()) {
+                  final String checksumPath = mavenPath.hash(hashType).getPath();
+                  inputs.put(checksumPath, mayUpdateChecksum(tx, asset, mavenPath, hashType, inputs.get(checksumPath)));
+                }
                 if (mavenPath.isPom()) {
                   final Xpp3Dom pom = getModel(tx, mavenPath);
                   if (pom != null) {
                     final String packaging = getChildValue(pom, "packaging", "jar");
                     log.debug("POM packaging: {}", packaging);
                     if ("maven-plugin".equals(packaging)) {
-                      metadataBuilder.addPlugin(getPluginPrefix(tx, mavenPath.locateMainArtifact("jar")), artifactId,
-                          getChildValue(pom, "name", null));
+                      final String prefix = getPluginPrefix(tx, mavenPath.locateMainArtifact("jar"));
+                      final String name = getChildValue(pom, "name", null);
+                      metadataBuilder.addPlugin(prefix, artifactId, name);
+                      component.formatAttributes().set(MavenAttributes.P_PLUGIN_PREFIX, prefix);
+                      component.formatAttributes().set(MavenAttributes.P_PLUGIN_NAME, name);
                     }
                   }
                 }
               }
             }
+            // recorded as of after the checksum repair above, so the next rebuild finds the repaired files unchanged
+            final String fingerprint = fingerprint(inputs);
+            for (Component component : artifacts.keySet()) {
+              component.formatAttributes().set(MavenAttributes.P_METADATA_FINGERPRINT, fingerprint);
+              if (!recordedAttributes(component).equals(recorded.get(component))) {
+                tx.saveComponent(component);
+              }
+            }
             metadataUpdater.processMetadata(
                 tx,
-                metadataMavenPath(groupId, artifactId, baseVersion),
+                metadataPath,
                 metadataBuilder.onExitBaseVersion()
             );
             return null;
@@ -343,17 +540,78 @@ public class MetadataRebuilder
     }
 
     /**
-     * Verifies and may fix/create the broken/non-existent Maven hashes (.sha1/.md5 files).
+     * Returns the attributes the rebuild records on a component, to tell whether it needs to be saved.
+     */
+    private List<Object> recordedAttributes(final Component component) {
+      final NestedAttributesMap attributes = component.formatAttributes();
+      return Arrays.<Object>asList(
+          attributes.get(MavenAttributes.P_METADATA_FINGERPRINT),
+          attributes.get(MavenAttributes.P_PLUGIN_PREFIX),
+          attributes.get(MavenAttributes.P_PLUGIN_NAME)
+      );
+    }
+
+    /**
+     * Returns the SHA1 checksum recorded on an asset, or {@code null}.
      */
-    private void mayUpdateChecksum(final StorageTx tx, final Asset asset, final MavenPath mavenPath,
-                                   final HashType hashType)
+    @Nullable
+    private String sha1(final Asset asset) {
+      return asset.attributes().child(StorageFacet.P_CHECKSUM)
+          .get(HashType.SHA1.getHashAlgorithm().name(), String.class);
+    }
+
+    /**
+     * Returns the fingerprint of the inputs of a baseVersion: the paths and SHA1 checksums of its artifacts and of
+     * their checksum files.
+     */
+    private String fingerprint(final Map<String, String> inputs) {
+      final Hasher hasher = Hashing.sha1().newHasher();
+      for (Map.Entry<String, String> input : new TreeMap<>(inputs).entrySet()) {
+        if (input.getValue() != null) {
+          hasher.putString(input.getKey(), Charsets.UTF_8).putChar(':')
+              .putString(input.getValue(), Charsets.UTF_8).putChar('\n');
+        }
+      }
+      return hasher.hash().toString();
+    }
+
+    /**
+     * A baseVersion is unchanged if all of its components were processed with the same fingerprint, and its version
+     * level metadata, which only snapshots have, is still present.
+     */
+    private boolean isUnchanged(final StorageTx tx,
+                                final Set<Component> components,
+                                final String fingerprint,
+                                final String baseVersion,
+                                final MavenPath metadataPath)
+    {
+      if (components.isEmpty()) {
+        return false;
+      }
+      for (Component component : components) {
+        if (!fingerprint.equals(
+            component.formatAttributes().get(MavenAttributes.P_METADATA_FINGERPRINT, String.class))) {
+          return false;
+        }
+      }
+      return !baseVersion.endsWith(Constants.SNAPSHOT_VERSION_SUFFIX)
+          || tx.findAssetWithName(metadataPath.getPath(), tx.getBucket()) != null;
+    }
+
+    /**
+     * Verifies and may fix/create the broken/non-existent Maven hashes (.sha1/.md5 files). Returns the SHA1 of the
+     * checksum file as it is afterwards, given its SHA1 before, or {@code null} if there is none.
+     */
+    @Nullable
+    private String mayUpdateChecksum(final StorageTx tx, final Asset asset, final MavenPath mavenPath,
+                                     final HashType hashType, @Nullable final String checksumSha1)
     {
       final AttributesMap checksums = asset.attributes().child(StorageFacet.P_CHECKSUM);
       final String assetChecksum = (String) checksums.get(hashType.getHashAlgorithm().name());
       if (Strings.isNullOrEmpty(assetChecksum)) {
         // this means that an asset stored in maven repository lacks checksum required by maven repository (see maven facet)
         log.warn("Asset with path {} lacks checksum {}", mavenPath, hashType);
-        return;
+        return checksumSha1;
       }
       final MavenPath checksumPath = mavenPath.hash(hashType);
       try {
@@ -362,7 +620,7 @@ public class MetadataRebuilder
           try (InputStream is = content.openInputStream()) {
             final String mavenChecksum = DigestExtractor.extract(is);
             if (Objects.equals(assetChecksum, mavenChecksum)) {
-              return; // all is OK: exists and matches
+              return checksumSha1; // all is OK: exists and matches
             }
           }
         }
@@ -374,6 +632,7 @@ public class MetadataRebuilder
       try {
         final StringPayload mavenChecksum = new StringPayload(assetChecksum, Constants.CHECKSUM_CONTENT_TYPE);
         mavenFacet.put(tx, checksumPath, mavenChecksum);
+        return Hashing.sha1().hashString(assetChecksum, Charsets.UTF_8).toString();
       }
       catch (IOException e) {
         log.warn("Error writing {}", checksumPath, e);
@@ -0,0 +1,85 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.maven.internal;
+
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.maven.MavenFacet;
+import org.sonatype.nexus.repository.maven.internal.maven2.Maven2MavenPathParser;
+import org.sonatype.nexus.repository.storage.Asset;
+import org.sonatype.nexus.repository.view.Request;
+import org.sonatype.sisu.goodies.eventbus.EventBus;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests for {@link MavenMemberIndexFacet}.
+ */
+public class MavenMemberIndexFacetTest
+    extends TestSupport
+{
+  private MavenMemberIndexFacet underTest;
+
+  @Before
+  public void setUp() throws Exception {
+    MavenFacet mavenFacet = mock(MavenFacet.class);
+    when(mavenFacet.getMavenPathParser()).thenReturn(new Maven2MavenPathParser());
+    Repository repository = mock(Repository.class);
+    when(repository.facet(MavenFacet.class)).thenReturn(mavenFacet);
+
+    underTest = new MavenMemberIndexFacet();
+    underTest.installDependencies(mock(EventBus.class));
+    underTest.attach(repository);
+  }
+
+  private String requestKey(final String path) {
+    return underTest.key(new Request.Builder().action("GET").path(path).build());
+  }
+
+  private String assetKey(final String name) {
+    Asset asset = mock(Asset.class);
+    when(asset.name()).thenReturn(name);
+    return underTest.key(asset);
+  }
+
+  @Test
+  public void artifactIsKeyedByItsPath() {
+    assertThat(requestKey("/org/foo/foo/1.0/foo-1.0.jar"), equalTo("org/foo/foo/1.0/foo-1.0.jar"));
+    assertThat(assetKey("org/foo/foo/1.0/foo-1.0.jar"), equalTo("org/foo/foo/1.0/foo-1.0.jar"));
+  }
+
+  @Test
+  public void hashRequestSharesKeyOfHashedFile() {
+    assertThat(requestKey("/org/foo/foo/1.0/foo-1.0.jar.sha1"), equalTo("org/foo/foo/1.0/foo-1.0.jar"));
+    assertThat(requestKey("/org/foo/foo/maven-metadata.xml.md5"), equalTo("org/foo/foo/maven-metadata.xml"));
+  }
+
+  @Test
+  public void hashAssetSharesKeyOfHashedFile() {
+    // a hash asset stored without the file it hashes must still be found
+    assertThat(assetKey("org/foo/foo/1.0/foo-1.0.jar.sha1"), equalTo("org/foo/foo/1.0/foo-1.0.jar"));
+    assertThat(assetKey("org/foo/foo/maven-metadata.xml.md5"), equalTo("org/foo/foo/maven-metadata.xml"));
+  }
+
+  @Test
+  public void signatureIsKeyedByItsPath() {
+    assertThat(requestKey("/org/foo/foo/1.0/foo-1.0.jar.asc"), equalTo("org/foo/foo/1.0/foo-1.0.jar.asc"));
+    assertThat(assetKey("org/foo/foo/1.0/foo-1.0.jar.asc.sha1"), equalTo("org/foo/foo/1.0/foo-1.0.jar.asc"));
+  }
+}
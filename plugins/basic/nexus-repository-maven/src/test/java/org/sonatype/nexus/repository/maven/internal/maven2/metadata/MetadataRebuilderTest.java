@@ -0,0 +1,350 @@
+/*
+ * Sonatype Nexus (TM) Open Source Version
+ * Copyright (c) 2008-2015 Sonatype, Inc.
+ * All rights reserved. Includes the third-party code listed at http://links.sonatype.com/products/nexus/oss/attributions.
+ *
+ * This program and the accompanying materials are made available under the terms of the Eclipse Public License Version 1.0,
+ * which accompanies this distribution and is available at http://www.eclipse.org/legal/epl-v10.html.
+ *
+ * Sonatype Nexus (TM) Professional Version is available from Sonatype, Inc. "Sonatype" and "Sonatype Nexus" are trademarks
+ * of Sonatype, Inc. Apache Maven is a trademark of the Apache Software Foundation. M2eclipse is a trademark of the
+ * Eclipse Foundation. All other trademarks are the property of their respective owners.
+ */
+package org.sonatype.nexus.repository.maven.internal.maven2.metadata;
+
+import java.io.InputStream;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Provider;
+
+import org.sonatype.nexus.common.collect.NestedAttributesMap;
+import org.sonatype.nexus.common.hash.HashAlgorithm;
+import org.sonatype.nexus.orient.DatabaseInstance;
+import org.sonatype.nexus.repository.Repository;
+import org.sonatype.nexus.repository.maven.MavenFacet;
+import org.sonatype.nexus.repository.maven.MavenPath;
+import org.sonatype.nexus.repository.maven.internal.MavenAttributes;
+import org.sonatype.nexus.repository.maven.internal.maven2.Maven2MavenPathParser;
+import org.sonatype.nexus.repository.maven.internal.maven2.metadata.MetadataRebuilder.Dispatcher;
+import org.sonatype.nexus.repository.maven.internal.maven2.metadata.MetadataRebuilder.Stats;
+import org.sonatype.nexus.repository.maven.internal.maven2.metadata.MetadataRebuilder.Worker;
+import org.sonatype.nexus.repository.storage.Asset;
+import org.sonatype.nexus.repository.storage.Bucket;
+import org.sonatype.nexus.repository.storage.BucketEntityAdapter;
+import org.sonatype.nexus.repository.storage.Component;
+import org.sonatype.nexus.repository.storage.StorageFacet;
+import org.sonatype.nexus.repository.storage.StorageFacet.Operation;
+import org.sonatype.nexus.repository.storage.StorageTx;
+import org.sonatype.nexus.repository.view.Content;
+import org.sonatype.nexus.repository.view.Payload;
+import org.sonatype.nexus.repository.view.payloads.StringPayload;
+import org.sonatype.sisu.litmus.testsupport.TestSupport;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import com.orientechnologies.orient.core.db.document.ODatabaseDocumentTx;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * UT for {@link MetadataRebuilder}: fingerprint based skipping of baseVersions, checksum repair and failures of
+ * workers.
+ *
+ * @since 3.0
+ */
+public class MetadataRebuilderTest
+    extends TestSupport
+{
+  private static final String JAR = "/org/example/foo/1.0/foo-1.0.jar";
+
+  private static final String POM = "/org/example/foo/1.0/foo-1.0.pom";
+
+  private static final Map<String, Set<String>> ARTIFACTS = ImmutableMap.<String, Set<String>>of(
+      "foo", ImmutableSet.of("1.0"));
+
+  @Mock
+  private Repository repository;
+
+  @Mock
+  private StorageFacet storageFacet;
+
+  @Mock
+  private MavenFacet mavenFacet;
+
+  @Mock
+  private StorageTx tx;
+
+  @Mock
+  private ODatabaseDocumentTx db;
+
+  @Mock
+  private Component component;
+
+  /**
+   * Content of the repository by path.
+   */
+  private final Map<String, String> files = Maps.newHashMap();
+
+  /**
+   * Assets of the component by path.
+   */
+  private final Map<String, Asset> assets = Maps.newTreeMap();
+
+  private Stats stats;
+
+  @Before
+  public void prepare() throws Exception {
+    when(repository.getName()).thenReturn("maven-releases");
+    when(repository.facet(StorageFacet.class)).thenReturn(storageFacet);
+    when(repository.facet(MavenFacet.class)).thenReturn(mavenFacet);
+    when(mavenFacet.getMavenPathParser()).thenReturn(new Maven2MavenPathParser());
+    when(storageFacet.perform(any(ODatabaseDocumentTx.class), any(Operation.class))).thenAnswer(new Answer<Object>()
+    {
+      @Override
+      public Object answer(final InvocationOnMock invocation) {
+        return ((Operation<?>) invocation.getArguments()[1]).execute(tx);
+      }
+    });
+
+    when(tx.getBucket()).thenReturn(mock(Bucket.class));
+    when(tx.findComponents(anyString(), anyMapOf(String.class, Object.class), any(Iterable.class), anyString()))
+        .thenReturn(ImmutableSet.of(component));
+    when(tx.browseAssets(component)).thenAnswer(new Answer<Iterable<Asset>>()
+    {
+      @Override
+      public Iterable<Asset> answer(final InvocationOnMock invocation) {
+        return Lists.newArrayList(assets.values());
+      }
+    });
+    when(component.formatAttributes()).thenReturn(
+        new NestedAttributesMap("attributes", Maps.<String, Object>newHashMap()).child("maven2"));
+
+    when(mavenFacet.get(any(StorageTx.class), any(MavenPath.class))).thenAnswer(new Answer<Content>()
+    {
+      @Override
+      public Content answer(final InvocationOnMock invocation) {
+        final String text = files.get(((MavenPath) invocation.getArguments()[1]).getPath());
+        if (text == null) {
+          return null;
+        }
+        final Content content = new Content(new StringPayload(text, null));
+        content.getAttributes().set(Content.CONTENT_HASH_CODES_MAP, ImmutableMap.of(
+            HashAlgorithm.SHA1, HashAlgorithm.SHA1.function().hashString(text, Charsets.UTF_8),
+            HashAlgorithm.MD5, HashAlgorithm.MD5.function().hashString(text, Charsets.UTF_8)));
+        return content;
+      }
+    });
+    doAnswer(new Answer<Void>()
+    {
+      @Override
+      public Void answer(final InvocationOnMock invocation) throws Throwable {
+        try (InputStream in = ((Payload) invocation.getArguments()[2]).openInputStream()) {
+          files.put(((MavenPath) invocation.getArguments()[1]).getPath(),
+              new String(ByteStreams.toByteArray(in), Charsets.UTF_8));
+        }
+        return null;
+      }
+    }).when(mavenFacet).put(any(StorageTx.class), any(MavenPath.class), any(Payload.class));
+
+    stats = new Stats();
+  }
+
+  @Test
+  public void changedBaseVersionIsRebuilt() {
+    artifactWithChecksums(JAR, "jar");
+    artifactWithChecksums(POM, "<project/>");
+    rebuild();
+    final String fingerprint = fingerprint();
+    assertThat(fingerprint, notNullValue());
+
+    artifactWithChecksums(JAR, "jar, rebuilt");
+    rebuild();
+
+    verify(tx, times(2)).saveComponent(component);
+    assertThat(stats.baseVersions.get(), is(2L));
+    assertThat(stats.unchangedBaseVersions.get(), is(0L));
+    assertThat(fingerprint().equals(fingerprint), is(false));
+  }
+
+  @Test
+  public void unchangedBaseVersionIsSkipped() {
+    artifactWithChecksums(JAR, "jar");
+    artifactWithChecksums(POM, "<project/>");
+    rebuild();
+    final String fingerprint = fingerprint();
+
+    rebuild();
+
+    verify(tx, times(1)).saveComponent(component);
+    assertThat(stats.baseVersions.get(), is(2L));
+    assertThat(stats.unchangedBaseVersions.get(), is(1L));
+    assertThat(fingerprint(), equalTo(fingerprint));
+  }
+
+  @Test
+  public void unchangedBaseVersionIsRebuiltWhenNotUpdating() {
+    artifactWithChecksums(JAR, "jar");
+    artifactWithChecksums(POM, "<project/>");
+    rebuild(false);
+    final String fingerprint = fingerprint();
+
+    rebuild(false);
+
+    assertThat(stats.baseVersions.get(), is(2L));
+    assertThat(stats.unchangedBaseVersions.get(), is(0L));
+    assertThat(fingerprint(), equalTo(fingerprint));
+    // nothing recorded on the component changed, so it is not saved again
+    verify(tx, times(1)).saveComponent(component);
+  }
+
+  @Test
+  public void missingChecksumsAreRepaired() {
+    artifact(JAR, "jar");
+    artifact(POM, "<project/>");
+    rebuild();
+
+    assertThat(files.get(JAR + ".sha1"), equalTo(sha1("jar")));
+    assertThat(files.get(JAR + ".md5"), equalTo(md5("jar")));
+    assertThat(files.get(POM + ".sha1"), equalTo(sha1("<project/>")));
+    assertThat(files.get(POM + ".md5"), equalTo(md5("<project/>")));
+
+    // the fingerprint recorded is that of the repaired checksums
+    checksums(JAR, "jar");
+    checksums(POM, "<project/>");
+    rebuild();
+
+    assertThat(stats.unchangedBaseVersions.get(), is(1L));
+  }
+
+  @Test
+  public void checksumRemovedFromUnchangedBaseVersionIsRepaired() {
+    artifactWithChecksums(JAR, "jar");
+    artifactWithChecksums(POM, "<project/>");
+    rebuild();
+
+    assets.remove(JAR + ".sha1");
+    files.remove(JAR + ".sha1");
+    rebuild();
+
+    assertThat(files.get(JAR + ".sha1"), equalTo(sha1("jar")));
+    assertThat(stats.unchangedBaseVersions.get(), is(0L));
+  }
+
+  @Test
+  public void corruptChecksumOfUnchangedBaseVersionIsRepaired() {
+    artifactWithChecksums(JAR, "jar");
+    artifactWithChecksums(POM, "<project/>");
+    rebuild();
+
+    put(JAR + ".md5", "corrupt");
+    rebuild();
+
+    assertThat(files.get(JAR + ".md5"), equalTo(md5("jar")));
+    assertThat(stats.unchangedBaseVersions.get(), is(0L));
+  }
+
+  @Test
+  public void workerFailureIsPropagated() throws Exception {
+    final IllegalStateException failure = new IllegalStateException("boom");
+    when(storageFacet.perform(any(ODatabaseDocumentTx.class), any(Operation.class))).thenThrow(failure);
+    final DatabaseInstance databaseInstance = mock(DatabaseInstance.class);
+    when(databaseInstance.acquire()).thenReturn(db);
+    @SuppressWarnings("unchecked")
+    final Provider<DatabaseInstance> databaseInstanceProvider = mock(Provider.class);
+    when(databaseInstanceProvider.get()).thenReturn(databaseInstance);
+
+    final MetadataRebuilder underTest = new MetadataRebuilder(databaseInstanceProvider,
+        mock(BucketEntityAdapter.class));
+    final ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      final Dispatcher dispatcher = underTest.new Dispatcher(executor, repository, false, stats);
+      dispatcher.add("org.example", "foo", ImmutableSet.of("1.0"));
+      dispatcher.add("org.example", "bar", ImmutableSet.of("1.0"));
+      dispatcher.end();
+      try {
+        dispatcher.await();
+        fail("Failure of worker not propagated");
+      }
+      catch (IllegalStateException e) {
+        assertThat(e, is(failure));
+      }
+      assertThat(stats.groupIds.get(), is(0L));
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void rebuild() {
+    rebuild(true);
+  }
+
+  private void rebuild(final boolean update) {
+    new Worker(db, repository, update, stats).rebuildGroup("org.example", ARTIFACTS);
+  }
+
+  private String fingerprint() {
+    return component.formatAttributes().get(MavenAttributes.P_METADATA_FINGERPRINT, String.class);
+  }
+
+  private void artifactWithChecksums(final String path, final String text) {
+    artifact(path, text);
+    checksums(path, text);
+  }
+
+  private void artifact(final String path, final String text) {
+    put(path, text);
+  }
+
+  private void checksums(final String path, final String text) {
+    put(path + ".sha1", sha1(text));
+    put(path + ".md5", md5(text));
+  }
+
+  /**
+   * Stores content as an asset of the component, with the checksums the blob store would record.
+   */
+  private void put(final String path, final String text) {
+    files.put(path, text);
+    final NestedAttributesMap attributes = new NestedAttributesMap("attributes", Maps.<String, Object>newHashMap());
+    attributes.child("maven2").set(StorageFacet.P_PATH, path);
+    attributes.child(StorageFacet.P_CHECKSUM).set(HashAlgorithm.SHA1.name(), sha1(text));
+    attributes.child(StorageFacet.P_CHECKSUM).set(HashAlgorithm.MD5.name(), md5(text));
+    final Asset asset = mock(Asset.class);
+    when(asset.attributes()).thenReturn(attributes);
+    when(asset.formatAttributes()).thenReturn(attributes.child("maven2"));
+    assets.put(path, asset);
+  }
+
+  private static String sha1(final String text) {
+    return HashAlgorithm.SHA1.function().hashString(text, Charsets.UTF_8).toString();
+  }
+
+  private static String md5(final String text) {
+    return HashAlgorithm.MD5.function().hashString(text, Charsets.UTF_8).toString();
+  }
+}
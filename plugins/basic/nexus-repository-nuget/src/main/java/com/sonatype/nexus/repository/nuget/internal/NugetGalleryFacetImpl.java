@@ -46,6 +46,7 @@ import org.sonatype.nexus.repository.group.GroupFacet;
 import org.sonatype.nexus.repository.proxy.ProxyFacet;
 import org.sonatype.nexus.repository.storage.Asset;
 import org.sonatype.nexus.repository.storage.Component;
+import org.sonatype.nexus.repository.storage.ReusableBlob;
 import org.sonatype.nexus.repository.storage.StorageFacet;
 import org.sonatype.nexus.repository.storage.StorageFacet.Operation;
 import org.sonatype.nexus.repository.storage.StorageTx;
@@ -265,7 +266,9 @@ public class NugetGalleryFacetImpl
 
   @Override
   public void putContent(final String id, final String version, final InputStream content) throws IOException {
-    try (TempStreamSupplier t = new TempStreamSupplier(content)) {
+    // same name as blobName(component), as the component is looked up by exactly this id and version
+    try (ReusableBlob reusableBlob = storage.createReusableBlob(id + "-" + version + ".nupkg", content,
+        singletonList(HashAlgorithm.SHA512), null, "application/zip")) {
       storage.perform(new Operation<Object>()
       {
         @Override
@@ -275,7 +278,14 @@ public class NugetGalleryFacetImpl
               component != null && tx.browseAssets(component).iterator().hasNext(),
               "Component metadata does not exist yet"
           );
-          createOrUpdateAssetAndContents(tx, component, t.get(), null);
+          try {
+            Asset asset = prepareAsset(tx, component, null);
+            tx.attachBlob(asset, reusableBlob.get(tx));
+            tx.saveAsset(asset);
+          }
+          catch (IOException e) {
+            throw Throwables.propagate(e);
+          }
           return null;
         }
 
@@ -285,6 +295,12 @@ public class NugetGalleryFacetImpl
         }
       });
     }
+    catch (RuntimeException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw e;
+    }
   }
 
   @VisibleForTesting
@@ -610,10 +626,7 @@ public class NugetGalleryFacetImpl
                                               final Map<String, String> data)
   {
     try {
-      Asset asset = findOrCreateAsset(storageTx, component);
-      updateAssetMetadata(asset, data, component.isNew());
-
-      asset.formatAttributes().set(P_LAST_VERIFIED_DATE, new Date());
+      Asset asset = prepareAsset(storageTx, component, data);
       storageTx.setBlob(asset, blobName(component), in, singletonList(HashAlgorithm.SHA512), null, "application/zip");
 
       storageTx.saveAsset(asset);
@@ -623,6 +636,14 @@ public class NugetGalleryFacetImpl
     }
   }
 
+  private Asset prepareAsset(final StorageTx storageTx, final Component component, final Map<String, String> data) {
+    Asset asset = findOrCreateAsset(storageTx, component);
+    updateAssetMetadata(asset, data, component.isNew());
+
+    asset.formatAttributes().set(P_LAST_VERIFIED_DATE, new Date());
+    return asset;
+  }
+
   private String checkVersion(String stringValue) {
     try {
       SCHEME.parseVersion(checkNotNull(stringValue));
@@ -67,7 +67,9 @@ class NugetHostedRecipe
 
     // Uploading packages
     router.route(new Route.Builder()
+        .name('push')
         .matcher(new ActionMatcher(HttpMethods.PUT))
+        .handler(instrumentationHandler)
         .handler(timingHandler)
         .handler(securityHandler)
         .handler(exceptionHandler)
@@ -24,6 +24,7 @@ import org.sonatype.nexus.repository.view.ConfigurableViewFacet
 import org.sonatype.nexus.repository.view.handlers.ExceptionHandler
 import org.sonatype.nexus.repository.view.Route
 import org.sonatype.nexus.repository.view.Router
+import org.sonatype.nexus.repository.view.handlers.InstrumentationHandler
 import org.sonatype.nexus.repository.view.handlers.TimingHandler
 import org.sonatype.nexus.repository.view.matchers.LiteralMatcher
 import org.sonatype.nexus.repository.view.matchers.logic.LogicMatchers
@@ -59,6 +60,9 @@ abstract class NugetRecipeSupport
   @Inject
   ExceptionHandler exceptionHandler
 
+  @Inject
+  InstrumentationHandler instrumentationHandler
+
   @Inject
   TimingHandler timingHandler
 
@@ -102,7 +106,9 @@ abstract class NugetRecipeSupport
   protected void addFeedRoutes(Router.Builder router) {
     // Services root and /$metadata static content
     router.route(new Route.Builder()
+        .name('static')
         .matcher(LogicMatchers.or(new LiteralMatcher("/"), new LiteralMatcher("/\$metadata")))
+        .handler(instrumentationHandler)
         .handler(securityHandler)
         .handler(staticFeedHandler)
         .create());
@@ -112,8 +118,10 @@ abstract class NugetRecipeSupport
     // includes $count, Packages, Search, and FindPackagesById
     // TODO: Are the parentheses optional? They are in the old code
     router.route(new Route.Builder()
+        .name('feed')
         .matcher(LogicMatchers.or(new TokenMatcher(FEED_COUNT_PATTERN), new TokenMatcher(FEED_PATTERN),
         new TokenMatcher(PACKAGE_ENTRY_PATTERN)))
+        .handler(instrumentationHandler)
         .handler(timingHandler)
         .handler(securityHandler)
         .handler(feedHandler)
@@ -123,7 +131,9 @@ abstract class NugetRecipeSupport
 
   protected Router.Builder addPackageRoute(Router.Builder router) {
     router.route(new Route.Builder()
+        .name('package')
         .matcher(new TokenMatcher("/{id}/{version}"))
+        .handler(instrumentationHandler)
         .handler(timingHandler)
         .handler(securityHandler)
         .handler(itemHandler)
@@ -16,8 +16,8 @@ package com.sonatype.nexus.repository.nuget.internal;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.sonatype.nexus.repository.security.RepositoryViewPermissionCache;
 import org.sonatype.nexus.repository.security.SecurityFacetSupport;
-import org.sonatype.nexus.security.SecurityHelper;
 
 /**
  * RAW security facet.
@@ -29,9 +29,9 @@ public class NugetSecurityFacet
     extends SecurityFacetSupport
 {
   @Inject
-  public NugetSecurityFacet(final SecurityHelper securityHelper,
+  public NugetSecurityFacet(final RepositoryViewPermissionCache permissionCache,
                             final NugetFormatSecurityConfigurationResource securityResource)
   {
-    super(securityHelper, securityResource);
+    super(permissionCache, securityResource);
   }
 }
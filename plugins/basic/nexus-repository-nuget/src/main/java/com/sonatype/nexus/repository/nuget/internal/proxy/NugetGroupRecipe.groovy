@@ -88,7 +88,9 @@ class NugetGroupRecipe
 
     // just like the default package route, but send to proxyHandler
     router.route(new Route.Builder()
+        .name('package')
         .matcher(new TokenMatcher("/{id}/{version}"))
+        .handler(instrumentationHandler)
         .handler(timingHandler)
         .handler(securityHandler)
         .handler(exceptionHandler)
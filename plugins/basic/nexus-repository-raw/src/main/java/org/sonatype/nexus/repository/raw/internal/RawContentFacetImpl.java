@@ -22,7 +22,6 @@ import javax.inject.Named;
 
 import org.sonatype.nexus.blobstore.api.Blob;
 import org.sonatype.nexus.common.hash.HashAlgorithm;
-import org.sonatype.nexus.common.io.TempStreamSupplier;
 import org.sonatype.nexus.repository.FacetSupport;
 import org.sonatype.nexus.repository.InvalidContentException;
 import org.sonatype.nexus.repository.config.Configuration;
@@ -30,6 +29,7 @@ import org.sonatype.nexus.repository.raw.RawContent;
 import org.sonatype.nexus.repository.storage.Asset;
 import org.sonatype.nexus.repository.storage.Bucket;
 import org.sonatype.nexus.repository.storage.Component;
+import org.sonatype.nexus.repository.storage.ReusableBlob;
 import org.sonatype.nexus.repository.storage.StorageFacet;
 import org.sonatype.nexus.repository.storage.StorageFacet.Operation;
 import org.sonatype.nexus.repository.storage.StorageTx;
@@ -83,7 +83,8 @@ public class RawContentFacetImpl
 
   @Override
   public void put(final String path, final RawContent content) throws IOException, InvalidContentException {
-    try (final TempStreamSupplier streamSupplier = new TempStreamSupplier(content.openInputStream())) {
+    try (final ReusableBlob reusableBlob = getStorage().createReusableBlob(path, content.openInputStream(),
+        hashAlgorithms, null, content.getContentType())) {
       getStorage().perform(new Operation<Void>()
       {
         @Override
@@ -111,7 +112,7 @@ public class RawContentFacetImpl
             }
 
             asset.formatAttributes().set(P_LAST_VERIFIED_DATE, new Date());
-            tx.setBlob(asset, path, streamSupplier.get(), hashAlgorithms, null, content.getContentType());
+            tx.attachBlob(asset, reusableBlob.get(tx));
             tx.saveAsset(asset);
 
             return null;
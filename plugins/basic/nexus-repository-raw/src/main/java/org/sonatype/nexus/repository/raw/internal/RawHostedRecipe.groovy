@@ -35,6 +35,7 @@ import org.sonatype.nexus.repository.view.Route
 import org.sonatype.nexus.repository.view.Router
 import org.sonatype.nexus.repository.view.ViewFacet
 import org.sonatype.nexus.repository.view.handlers.IndexHtmlForwardHandler
+import org.sonatype.nexus.repository.view.handlers.InstrumentationHandler
 import org.sonatype.nexus.repository.view.handlers.TimingHandler
 import org.sonatype.nexus.repository.view.matchers.ActionMatcher
 import org.sonatype.nexus.repository.view.matchers.SuffixMatcher
@@ -72,6 +73,9 @@ class RawHostedRecipe
   @Inject
   ExceptionHandler exceptionHandler
 
+  @Inject
+  InstrumentationHandler instrumentationHandler
+
   @Inject
   TimingHandler timingHandler
 
@@ -111,14 +115,18 @@ class RawHostedRecipe
 
     // handle GET / forwards to /index.html
     builder.route(new Route.Builder()
+        .name('index')
         .matcher(and(new ActionMatcher(HttpMethods.GET), new SuffixMatcher('/')))
+        .handler(instrumentationHandler)
         .handler(timingHandler)
         .handler(indexHtmlForwardHandler)
         .create()
     )
 
     builder.route(new Route.Builder()
+        .name('content')
         .matcher(new TokenMatcher('/{name:.+}'))
+        .handler(instrumentationHandler)
         .handler(timingHandler)
         .handler(securityHandler)
         .handler(exceptionHandler)
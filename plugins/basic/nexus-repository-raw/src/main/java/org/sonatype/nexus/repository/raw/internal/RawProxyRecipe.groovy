@@ -36,6 +36,7 @@ import org.sonatype.nexus.repository.view.handlers.ExceptionHandler
 import org.sonatype.nexus.repository.view.Route
 import org.sonatype.nexus.repository.view.Router
 import org.sonatype.nexus.repository.view.ViewFacet
+import org.sonatype.nexus.repository.view.handlers.InstrumentationHandler
 import org.sonatype.nexus.repository.view.handlers.TimingHandler
 import org.sonatype.nexus.repository.view.matchers.token.TokenMatcher
 
@@ -80,6 +81,9 @@ class RawProxyRecipe
   @Inject
   ExceptionHandler exceptionHandler
 
+  @Inject
+  InstrumentationHandler instrumentationHandler
+
   @Inject
   TimingHandler timingHandler
 
@@ -121,7 +125,9 @@ class RawProxyRecipe
     Router.Builder builder = new Router.Builder()
 
     builder.route(new Route.Builder()
+        .name('content')
         .matcher(new TokenMatcher('/{name:.+}'))
+        .handler(instrumentationHandler)
         .handler(timingHandler)
         .handler(securityHandler)
         .handler(exceptionHandler)
@@ -16,8 +16,8 @@ package org.sonatype.nexus.repository.raw.internal;
 import javax.inject.Inject;
 import javax.inject.Named;
 
+import org.sonatype.nexus.repository.security.RepositoryViewPermissionCache;
 import org.sonatype.nexus.repository.security.SecurityFacetSupport;
-import org.sonatype.nexus.security.SecurityHelper;
 
 /**
  * RAW security facet.
@@ -29,9 +29,9 @@ public class RawSecurityFacet
     extends SecurityFacetSupport
 {
   @Inject
-  public RawSecurityFacet(final SecurityHelper securityHelper,
+  public RawSecurityFacet(final RepositoryViewPermissionCache permissionCache,
                           final RawFormatSecurityConfigurationResource securityResource)
   {
-    super(securityHelper, securityResource);
+    super(permissionCache, securityResource);
   }
 }
@@ -179,6 +179,8 @@ Ext.define('NX.coreui.app.PluginStrings', {
     Repository_Facet_GroupFacet_Members_HelpText: 'Select and order the repositories that are part of this group',
     Repository_Facet_GroupFacet_Members_FromTitle: 'Available',
     Repository_Facet_GroupFacet_Members_ToTitle: 'Members',
+    Repository_Facet_GroupFacet_ParallelDispatch_FieldLabel: 'Parallel dispatch',
+    Repository_Facet_GroupFacet_ParallelDispatch_HelpText: 'Query all members at once instead of one after another, still preferring members in order',
     Repository_Facet_StorageFacetHosted_Deployment_FieldLabel: 'Deployment policy',
     Repository_Facet_StorageFacetHosted_Deployment_HelpText: 'Controls if deployments of and updates to artifacts are allowed',
     Repository_Facet_StorageFacetHosted_Deployment_EmptyText: 'Select a policy',
@@ -202,6 +204,10 @@ Ext.define('NX.coreui.app.PluginStrings', {
     Repository_RepositorySettingsForm_Online_HelpText: 'If checked, the repository accepts incoming requests',
     Repository_Facet_ProxyFacet_ArtifactAge_FieldLabel: 'Maximum artifact age',
     Repository_Facet_ProxyFacet_ArtifactAge_HelpText: 'How long (in minutes) to cache artifacts before rechecking the remote repository. Release repositories should use -1.',
+    Repository_Facet_ProxyFacet_StaleWhileRevalidate_FieldLabel: 'Serve stale artifacts',
+    Repository_Facet_ProxyFacet_StaleWhileRevalidate_HelpText: 'Serve cached artifacts older than their maximum age immediately, and recheck the remote repository in the background',
+    Repository_Facet_ProxyFacet_RefreshAhead_FieldLabel: 'Refresh ahead',
+    Repository_Facet_ProxyFacet_RefreshAhead_HelpText: 'How long (in minutes) before their maximum age requested artifacts are rechecked in the background. Use 0 to disable.',
     Repository_Facet_HttpClientFacet_ConnectionRetries_FieldLabel: 'Connection retries',
     Repository_Facet_HttpClientFacet_ConnectionRetries_HelpText: 'How many times to try to connect before giving up',
     Repository_Facet_HttpClientFacet_ConnectionTimeout_FieldLabel: 'Connection timeout',
@@ -213,6 +219,10 @@ Ext.define('NX.coreui.app.PluginStrings', {
     Repository_Facet_NegativeCacheFacet_Enabled_FieldLabel: 'Not found cache enabled',
     Repository_Facet_NegativeCacheFacet_TTL_FieldLabel: 'Not found cache TTL',
     Repository_Facet_NegativeCacheFacet_TTL_HelpText: 'How long to cache the fact that a file was not found in the repository (in minutes)',
+    Repository_Facet_NegativeCacheFacet_MaxElements_FieldLabel: 'Not found cache size',
+    Repository_Facet_NegativeCacheFacet_MaxElements_HelpText: 'Maximum number of files remembered as not found',
+    Repository_Facet_NegativeCacheFacet_OverflowToDisk_FieldLabel: 'Not found cache overflow',
+    Repository_Facet_NegativeCacheFacet_OverflowToDisk_HelpText: 'Keep only recently used entries in memory, and the rest on local disk',
     Repository_Facet_NegativeCacheFacet_QueryCacheSize_FieldLabel: 'Query cache size',
     Repository_Facet_NegativeCacheFacet_QueryCacheSize_HelpText: 'Maximum number of cached query results',
     Repository_Facet_NugetProxyFacet_ItemMaxAge_FieldLabel: 'Query cache age',
@@ -73,19 +73,30 @@ Ext.define('NX.coreui.view.repository.facet.GroupFacet', {
         cls: 'nx-form-section',
         title: NX.I18n.get('Repository_Facet_GroupFacet_Title'),
 
-        items: {
-          xtype: 'nx-itemselector',
-          name: 'attributes.group.memberNames',
-          itemId: 'groupMemberNames',
-          fieldLabel: NX.I18n.get('Repository_Facet_GroupFacet_Members_FieldLabel'),
-          helpText: NX.I18n.get('Repository_Facet_GroupFacet_Members_HelpText'),
-          buttons: ['up', 'add', 'remove', 'down'],
-          fromTitle: NX.I18n.get('Repository_Facet_GroupFacet_Members_FromTitle'),
-          toTitle: NX.I18n.get('Repository_Facet_GroupFacet_Members_ToTitle'),
-          store: me.repositoryStore,
-          valueField: 'id',
-          displayField: 'name'
-        }
+        items: [
+          {
+            xtype: 'nx-itemselector',
+            name: 'attributes.group.memberNames',
+            itemId: 'groupMemberNames',
+            fieldLabel: NX.I18n.get('Repository_Facet_GroupFacet_Members_FieldLabel'),
+            helpText: NX.I18n.get('Repository_Facet_GroupFacet_Members_HelpText'),
+            buttons: ['up', 'add', 'remove', 'down'],
+            fromTitle: NX.I18n.get('Repository_Facet_GroupFacet_Members_FromTitle'),
+            toTitle: NX.I18n.get('Repository_Facet_GroupFacet_Members_ToTitle'),
+            store: me.repositoryStore,
+            valueField: 'id',
+            displayField: 'name'
+          },
+          {
+            xtype: 'checkbox',
+            name: 'attributes.group.parallelDispatch',
+            fieldLabel: NX.I18n.get('Repository_Facet_GroupFacet_ParallelDispatch_FieldLabel'),
+            helpText: NX.I18n.get('Repository_Facet_GroupFacet_ParallelDispatch_HelpText'),
+            allowBlank: true,
+            itemCls: null,
+            value: false
+          }
+        ]
       }
     ];
 
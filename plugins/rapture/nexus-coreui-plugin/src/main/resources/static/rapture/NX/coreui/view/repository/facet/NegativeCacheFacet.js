@@ -54,6 +54,21 @@ Ext.define('NX.coreui.view.repository.facet.NegativeCacheFacet', {
             helpText: NX.I18n.get('Repository_Facet_NegativeCacheFacet_TTL_HelpText'),
             minValue: -1,
             value: 1440
+          },
+          {
+            xtype: 'numberfield',
+            name: 'attributes.negativeCache.maxElements',
+            fieldLabel: NX.I18n.get('Repository_Facet_NegativeCacheFacet_MaxElements_FieldLabel'),
+            helpText: NX.I18n.get('Repository_Facet_NegativeCacheFacet_MaxElements_HelpText'),
+            minValue: 1,
+            value: 10000
+          },
+          {
+            xtype: 'checkbox',
+            name: 'attributes.negativeCache.overflowToDisk',
+            fieldLabel: NX.I18n.get('Repository_Facet_NegativeCacheFacet_OverflowToDisk_FieldLabel'),
+            helpText: NX.I18n.get('Repository_Facet_NegativeCacheFacet_OverflowToDisk_HelpText'),
+            value: false
           }
         ]
       }
@@ -79,6 +79,21 @@ Ext.define('NX.coreui.view.repository.facet.ProxyFacet', {
             helpText: NX.I18n.get('Repository_Facet_ProxyFacet_ArtifactAge_HelpText'),
             minValue: -1,
             value: 3600
+          },
+          {
+            xtype: 'checkbox',
+            name: 'attributes.proxy.staleWhileRevalidate',
+            fieldLabel: NX.I18n.get('Repository_Facet_ProxyFacet_StaleWhileRevalidate_FieldLabel'),
+            helpText: NX.I18n.get('Repository_Facet_ProxyFacet_StaleWhileRevalidate_HelpText'),
+            value: false
+          },
+          {
+            xtype: 'numberfield',
+            name: 'attributes.proxy.refreshAheadMinutes',
+            fieldLabel: NX.I18n.get('Repository_Facet_ProxyFacet_RefreshAhead_FieldLabel'),
+            helpText: NX.I18n.get('Repository_Facet_ProxyFacet_RefreshAhead_HelpText'),
+            minValue: 0,
+            value: 0
           }
         ]
       }